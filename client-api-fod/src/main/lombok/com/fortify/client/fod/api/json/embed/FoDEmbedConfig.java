@@ -26,15 +26,18 @@ package com.fortify.client.fod.api.json.embed;
 
 import com.fortify.util.rest.json.embed.StandardEmbedConfig;
 
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 
 @Data @EqualsAndHashCode(callSuper=true) @ToString(callSuper=true)
-@SuperBuilder // @AllArgsConstructor(access=AccessLevel.PROTECTED) // To be enabled if we add any instance fields
+@SuperBuilder @AllArgsConstructor(access=AccessLevel.PROTECTED)
 public class FoDEmbedConfig extends StandardEmbedConfig {
 	private static final long serialVersionUID = 1L;
+	private EmbedType embedType;
 
 	public FoDEmbedConfig() {}
 	
@@ -42,4 +45,17 @@ public class FoDEmbedConfig extends StandardEmbedConfig {
 	protected String getDefaultResultExpression() {
 		return "containsKey('items')?items:#root";
 	}
+	
+	public EmbedType getEmbedType() {
+		return embedType!=null ? embedType : EmbedType.ONDEMAND;
+	}
+	
+	/**
+	 * Embed types supported by FoD. Data for {@link #ONDEMAND} embeds is loaded 
+	 * whenever the embedded property is first accessed; data for {@link #PRELOAD}
+	 * embeds is loaded concurrently for an entire page of results by {@link FoDPreloadEmbedder}.
+	 */
+	public static enum EmbedType {
+		ONDEMAND, PRELOAD
+	}
 }
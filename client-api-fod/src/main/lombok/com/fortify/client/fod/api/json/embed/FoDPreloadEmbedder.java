@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.client.fod.api.json.embed;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import javax.ws.rs.HttpMethod;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.fortify.client.fod.connection.FoDAuthenticatingRestConnection;
+import com.fortify.util.rest.connection.ParallelTasks;
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.embed.StandardEmbedDefinition;
+import com.fortify.util.rest.query.AbstractRestConnectionQueryBuilder;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * <p>This class pre-loads FoD data to be embedded into query results, for 
+ * {@link FoDEmbedConfig} instances with embed type {@link FoDEmbedConfig.EmbedType#PRELOAD}.
+ * As FoD doesn't provide bulk requests, this class collects the distinct URI's
+ * for all configured embeds for an entire page of results, and then loads these
+ * URI's concurrently on multi-threaded connections, before the results are passed
+ * to any record pre-processors or processors.</p>
+ * 
+ * <p>Requests are executed through the connection, so concurrent requests are
+ * subject to the rate limits enforced by the connection.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class FoDPreloadEmbedder {
+	private final FoDAuthenticatingRestConnection conn;
+	private final List<StandardEmbedDefinition> embedDefinitions = new ArrayList<>();
+	/** Maximum number of concurrent requests on multi-threaded connections, default 4 */
+	@Setter @Accessors(fluent=true) private int parallelism = 4;
+	
+	/**
+	 * Create instance using the given {@link FoDAuthenticatingRestConnection}
+	 * @param conn {@link FoDAuthenticatingRestConnection} used to connect to FoD
+	 */
+	public FoDPreloadEmbedder(FoDAuthenticatingRestConnection conn) {
+		this.conn = conn;
+	}
+	
+	/**
+	 * Add the given {@link FoDEmbedConfig} to the list of embeds to be pre-loaded.
+	 * @param embedConfig {@link FoDEmbedConfig} describing the data to be embedded
+	 * @return Self for chaining
+	 */
+	public FoDPreloadEmbedder add(FoDEmbedConfig embedConfig) {
+		embedDefinitions.add(new StandardEmbedDefinition(embedConfig));
+		return this;
+	}
+	
+	/**
+	 * Return the current (configured) instance as a page pre-processor to be used with 
+	 * the {@link AbstractRestConnectionQueryBuilder#pagePreProcessor(Consumer)}
+	 * method.
+	 * @return Current instance as a {@link JSONList} {@link Consumer}
+	 */
+	public Consumer<JSONList> asPagePreProcessor() {
+		return jsonList->addPreloadedData(jsonList);
+	}
+	
+	/**
+	 * For each entry in the given {@link JSONList}, load the data for all configured
+	 * embeds and add the results to the entry. Each distinct URI is loaded only once
+	 * per page.
+	 * @param jsonList {@link JSONList} containing the entities for which extra data is to be embedded
+	 */
+	public void addPreloadedData(JSONList jsonList) {
+		// Per-page state, mapping each distinct URI to all entries that need the result for that URI
+		Map<String, List<EmbedTarget>> uriToTargetsMap = new LinkedHashMap<>();
+		for ( JSONMap json : jsonList.asValueType(JSONMap.class) ) {
+			for ( StandardEmbedDefinition embedDefinition : embedDefinitions ) {
+				if ( embedDefinition.isEnabled(json) ) {
+					String uri = embedDefinition.buildUri(json);
+					if ( StringUtils.isNotBlank(uri) ) {
+						uriToTargetsMap.computeIfAbsent(uri, k->new ArrayList<>()).add(new EmbedTarget(embedDefinition, json));
+					}
+				}
+			}
+		}
+		if ( !uriToTargetsMap.isEmpty() ) {
+			Map<String, Object> results = loadAll(uriToTargetsMap);
+			uriToTargetsMap.forEach((uri, targets) -> targets.forEach(target -> target.addResult(results.get(uri))));
+		}
+	}
+
+	/**
+	 * Load all given URI's, using up to {@link #parallelism} concurrent requests
+	 * on multi-threaded connections.
+	 * @param uriToTargetsMap mapping the URI's to be loaded to the entries that need the result
+	 * @return {@link Map} from URI to either the loaded {@link JSONMap}, or the 
+	 *         {@link RuntimeException} that occurred while loading the URI
+	 */
+	private Map<String, Object> loadAll(Map<String, List<EmbedTarget>> uriToTargetsMap) {
+		Map<String, Object> results = new ConcurrentHashMap<>();
+		ParallelTasks.forEach(conn, parallelism, uriToTargetsMap.entrySet(), 
+				entry -> results.put(entry.getKey(), load(entry.getKey(), entry.getValue())));
+		return results;
+	}
+	
+	private Object load(String uri, List<EmbedTarget> targets) {
+		long startTime = System.nanoTime();
+		boolean successful = false;
+		try {
+			JSONMap result = conn.executeRequest(HttpMethod.GET, conn.getResource(uri), JSONMap.class);
+			successful = true;
+			return result==null ? new JSONMap() : result;
+		} catch ( RuntimeException e ) {
+			return e;
+		} finally {
+			conn.getMetricsListener().embedCompleted(targets.get(0).embedDefinition.getPropertyName(), 
+					targets.size(), System.nanoTime()-startTime, successful);
+		}
+	}
+	
+	/**
+	 * This class describes a single entry that needs the result for a given
+	 * URI, together with the embed definition used to process that result.
+	 */
+	@RequiredArgsConstructor
+	private static final class EmbedTarget {
+		private final StandardEmbedDefinition embedDefinition;
+		private final JSONMap json;
+		
+		private void addResult(Object rawResult) {
+			Object result = rawResult instanceof RuntimeException
+					? embedDefinition.getResultOnError((RuntimeException)rawResult)
+					: embedDefinition.getResult((JSONMap)rawResult);
+			json.put(embedDefinition.getPropertyName(), result);
+		}
+	}
+}
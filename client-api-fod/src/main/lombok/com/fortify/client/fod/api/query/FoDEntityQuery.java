@@ -64,6 +64,11 @@ public class FoDEntityQuery extends AbstractRestConnectionQuery<JSONMap> {
 		return (data instanceof JSONList) ? (JSONList)data : new JSONList(Arrays.asList(data));
 	}
 	
+	@Override
+	protected String getStreamingListPropertyName() {
+		return "items";
+	}
+	
 	@Override
 	protected Class<JSONMap> getResponseTypeClass() {
 		return JSONMap.class;
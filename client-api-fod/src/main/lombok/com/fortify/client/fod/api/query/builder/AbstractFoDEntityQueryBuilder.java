@@ -36,7 +36,9 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.FastDateFormat;
 
 import com.fortify.client.fod.api.json.embed.FoDEmbedConfig;
+import com.fortify.client.fod.api.json.embed.FoDEmbedConfig.EmbedType;
 import com.fortify.client.fod.api.json.embed.FoDEmbedConfig.FoDEmbedConfigBuilder;
+import com.fortify.client.fod.api.json.embed.FoDPreloadEmbedder;
 import com.fortify.client.fod.api.query.FoDEntityQuery;
 import com.fortify.client.fod.connection.FoDAuthenticatingRestConnection;
 import com.fortify.util.applier.ifblank.IfBlankAction;
@@ -66,6 +68,7 @@ import com.fortify.util.rest.webtarget.WebTargetQueryParamUpdater;
 public abstract class AbstractFoDEntityQueryBuilder<T extends AbstractFoDEntityQueryBuilder<T>> extends AbstractRestConnectionQueryBuilder<FoDAuthenticatingRestConnection, T> {
 	protected static final FastDateFormat FOD_DATE_TIME_FORMAT = FastDateFormat.getInstance("yyyy-MM-dd'T'hh:mm:ss");
 	private FoDParamFilter paramFilter = add(new FoDParamFilter());
+	private FoDPreloadEmbedder preloadEmbedder;
 	
 	/**
 	 * Create new instance for given {@link FoDAuthenticatingRestConnection} and indicator whether paging is supported.
@@ -180,13 +183,51 @@ public abstract class AbstractFoDEntityQueryBuilder<T extends AbstractFoDEntityQ
 		public T paramFilterAnd(IfBlankAction ifBlankAction, String filter);
 	}
 	
+	/**
+	 * Allows for embedding additional FoD entities into the resulting JSON objects. 
+	 * Depending on the embedType in given {@link FoDEmbedConfig}, the additional 
+	 * entities are either loaded on demand whenever they are accessed, or pre-loaded 
+	 * concurrently for each page of results.
+	 * 
+	 * @param embedConfig describes the entity to be embedded in the results
+	 * @return Self for chaining
+	 */
+	public T embed(FoDEmbedConfig embedConfig) {
+		EmbedType embedType = embedConfig.getEmbedType();
+		switch (embedType) {
+		case ONDEMAND: return super.embed(embedConfig);
+		case PRELOAD: return embedPreload(embedConfig);
+		default: throw new RuntimeException("Unknown embed type: "+embedType.name());
+		}
+	}
+	
 	public T embedSubEntity(String propertyName, String subEntity, String... fields) {
+		return embedSubEntity(propertyName, subEntity, EmbedType.ONDEMAND, fields);
+	}
+	
+	public T embedSubEntity(String propertyName, String subEntity, EmbedType embedType, String... fields) {
 		return embed(createEmbedConfigBuilder()
 				.propertyName(propertyName)
 				.subEntity(subEntity)
+				.embedType(embedType)
 				.param("fields", fields==null?null : String.join(",", fields))
 				.build());
 	}
+	
+	/**
+	 * All pre-loaded embeds share a single {@link FoDPreloadEmbedder}, such that
+	 * the data for all of these embeds is loaded concurrently for each page.
+	 * @param embedConfig describes the entity to be embedded in the results
+	 * @return Self for chaining
+	 */
+	protected T embedPreload(FoDEmbedConfig embedConfig) {
+		if ( preloadEmbedder==null ) {
+			preloadEmbedder = new FoDPreloadEmbedder(getConn());
+			pagePreProcessor(preloadEmbedder.asPagePreProcessor());
+		}
+		preloadEmbedder.add(embedConfig);
+		return _this();
+	}
 
 	/**
 	 * Subclasses can override this method to create a builder for an
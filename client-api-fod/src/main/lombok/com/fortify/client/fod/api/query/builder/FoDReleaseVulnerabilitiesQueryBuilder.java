@@ -24,6 +24,7 @@
  ******************************************************************************/
 package com.fortify.client.fod.api.query.builder;
 
+import com.fortify.client.fod.api.json.embed.FoDEmbedConfig.EmbedType;
 import com.fortify.client.fod.api.json.embed.FoDEmbedConfig.FoDEmbedConfigBuilder;
 import com.fortify.client.fod.api.json.embed.FoDReleaseVulnerabilitiesEmbedConfig;
 import com.fortify.client.fod.api.query.FoDEntityQuery;
@@ -99,6 +100,24 @@ public class FoDReleaseVulnerabilitiesQueryBuilder extends AbstractFoDReleaseChi
 			.onDemandSummary().onDemandTraces();
 	}
 	
+	/**
+	 * Pre-load all vulnerability sub-entities that are available through the
+	 * various onDemand*() methods, using the same property names. Contrary to
+	 * {@link #onDemandAll()}, the sub-entities for each page of vulnerabilities 
+	 * are loaded concurrently before the vulnerabilities are being processed.
+	 * @return Self for chaining
+	 */
+	public FoDReleaseVulnerabilitiesQueryBuilder preloadAll() {
+		return preload("allData", "all-data").preload("auditOptions", "auditOptions").preload("details", "details")
+			.preload("headers", "headers").preload("history", "history").preload("parameters", "parameters")
+			.preload("recommendations", "recommendations").preload("requestResponse", "response")
+			.preload("screenshots", "screenshots").preload("summary", "summary").preload("traces", "traces");
+	}
+	
+	public FoDReleaseVulnerabilitiesQueryBuilder preload(String propertyName, String subEntity, String... fields) {
+		return embedSubEntity(propertyName, subEntity, EmbedType.PRELOAD, fields);
+	}
+	
 	public FoDReleaseVulnerabilitiesQueryBuilder onDemandAllData() {
 		return onDemandAllData("allData");
 	}
@@ -29,6 +29,12 @@ import java.time.ZoneId;
 
 import javax.ws.rs.client.Invocation.Builder;
 
+import com.fortify.client.fod.api.FoDApplicationAPI;
+import com.fortify.client.fod.api.FoDBugTrackerAPI;
+import com.fortify.client.fod.api.FoDReleaseAPI;
+import com.fortify.client.fod.api.FoDScanAPI;
+import com.fortify.client.fod.api.FoDVulnerabilityAPI;
+import com.fortify.client.fod.api.FoDVulnerabilityFiltersAPI;
 import com.fortify.util.rest.connection.AbstractRestConnection;
 import com.fortify.util.rest.connection.IRestConnectionBuilder;
 
@@ -44,6 +50,14 @@ import lombok.Getter;
  *
  */
 public class FoDAuthenticatingRestConnection extends FoDBasicRestConnection {
+	private static final Class<?>[] DEFAULT_API_CLASSES = {
+		FoDApplicationAPI.class,
+		FoDBugTrackerAPI.class,
+		FoDReleaseAPI.class,
+		FoDScanAPI.class,
+		FoDVulnerabilityAPI.class,
+		FoDVulnerabilityFiltersAPI.class
+	};
 	private final FoDTokenFactory tokenProvider;
 	@Getter private final URI browserBaseUrl;
 	@Getter private final String instanceName;
@@ -55,6 +69,7 @@ public class FoDAuthenticatingRestConnection extends FoDBasicRestConnection {
 		this.instanceName = config.getInstanceName();
 		this.serverZoneId = config.getServerZoneId();
 		this.tokenProvider = new FoDTokenFactory(config);
+		registerDefaultApis(DEFAULT_API_CLASSES);
 	}
 	
 	@Override
@@ -24,17 +24,16 @@
  ******************************************************************************/
 package com.fortify.client.fod.connection;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.client.WebTarget;
-
-import org.apache.http.client.ServiceUnavailableRetryStrategy;
+import javax.ws.rs.core.Response;
 
 import com.fortify.util.rest.connection.AbstractRestConnection;
-import com.fortify.util.rest.connection.TooManyRequestsRetryStrategy;
+import com.fortify.util.rest.connection.AbstractRestConnectionConfig;
+import com.fortify.util.rest.connection.RetryPolicy;
 
 /**
  * This class provides a basic, non-authenticating REST connection
@@ -42,43 +41,64 @@ import com.fortify.util.rest.connection.TooManyRequestsRetryStrategy;
  * {@link AbstractRestConnection}:
  * <ul>
  *  <li>Add an <code>Accept: application/json</code> header</li>
- *  <li>Enable a 'service unavailable' strategy to retry requests 
- *      that fail due to FoD rate limiting</li>
- *  <li>Optimize the number of REST requests being sent to FoD
- *      in a multi-threaded application (don't send new request
- *      if another similar request is already waiting for a rate limit
- *      to expire)</li>
+ *  <li>Use an {@link FoDRateLimiter} to limit the number of concurrent
+ *      requests per FoD endpoint, delay requests if the FoD rate limit 
+ *      has been reached, and retry requests that fail due to FoD rate 
+ *      limiting</li>
  * </ul>
  * 
- * Note that multi-threading optimization is only provided on the 
+ * Note that rate limiting is only provided on the 
  * {@link WebTarget}-based execute methods. Clients calling the
  * {@link #executeRequest(String, Builder, Class)} or
- * {@link #executeRequest(String, WebTarget, Entity, Class)} methods
- * must provide their own thread synchronization if applicable.
+ * {@link #executeRequest(String, Builder, Entity, Class)} methods
+ * must provide their own rate limit handling if applicable.
  */
 public class FoDBasicRestConnection extends AbstractRestConnection {
-	private final Map<String, Object> pathMutexes = new HashMap<>();
-	private final int rateLimitMaxRetries;
+	private final FoDRateLimiter rateLimiter;
 
 	protected FoDBasicRestConnection(FoDRestConnectionConfig<?> config) {
 		super(config);
-		this.rateLimitMaxRetries = config.getRateLimitMaxRetries();
+		this.rateLimiter = new FoDRateLimiter(
+				isMultiThreaded() ? config.getRateLimitMaxConcurrentRequests() : 1, 
+				config.getRateLimitMaxRetries());
 	}
 	
-	protected final Object getMutex(final String path) {
-		String pathWithoutIds = path.replaceAll("\\d", "x");
-		return pathMutexes.computeIfAbsent(pathWithoutIds, key->new Object());
+	@Override
+	protected <T> T executeRequestWithFinalizedWebTarget(String httpMethod, WebTarget webResource, Entity<?> entity, Class<T> returnType) {
+		return rateLimiter.execute(webResource.getUri().getPath(), 
+				() -> super.executeRequestWithFinalizedWebTarget(httpMethod, webResource, entity, returnType));
 	}
 	
+	/**
+	 * HTTP 429 responses are handled by our {@link FoDRateLimiter}, so we exclude
+	 * this status code from the configured {@link RetryPolicy}.
+	 */
 	@Override
-	protected <T> T executeRequestWithFinalizedWebTarget(String httpMethod, WebTarget webResource, Entity<?> entity, Class<T> returnType) {
-		if ( !isMultiThreaded() ) {
-			return super.executeRequestWithFinalizedWebTarget(httpMethod, webResource, entity, returnType);
-		} else {
-			synchronized (getMutex(webResource.getUri().getPath())) {
-				return super.executeRequestWithFinalizedWebTarget(httpMethod, webResource, entity, returnType);
-			}
-		}
+	protected RetryPolicy createRetryPolicy(AbstractRestConnectionConfig<?> config) {
+		RetryPolicy configuredPolicy = super.createRetryPolicy(config);
+		if ( configuredPolicy==null ) { return null; }
+		RetryPolicy result = new RetryPolicy(configuredPolicy);
+		result.getRetryableStatusCodes().remove(429);
+		return result;
+	}
+	
+	/**
+	 * Update the rate limit for the current request from the response headers
+	 * before checking the response.
+	 */
+	@Override
+	protected <T> T checkResponseAndGetOutput(String httpMethod, Builder builder, Response response, Class<T> returnType) {
+		rateLimiter.updateFromResponseHeaders(response.getStringHeaders());
+		return super.checkResponseAndGetOutput(httpMethod, builder, response, returnType);
+	}
+	
+	/**
+	 * Get a point-in-time snapshot of the rate limiting statistics for all
+	 * FoD endpoints that have been accessed through this connection.
+	 * @return {@link Map} of {@link FoDRateLimitStats} instances, sorted by endpoint
+	 */
+	public Map<String, FoDRateLimitStats> getRateLimitStats() {
+		return rateLimiter.getStats();
 	}
 	
 	/**
@@ -89,12 +109,4 @@ public class FoDBasicRestConnection extends AbstractRestConnection {
 		return super.updateBuilder(builder)
 				.accept("application/json");
 	}
-	
-	@Override
-	protected ServiceUnavailableRetryStrategy getServiceUnavailableRetryStrategy() {
-		return new TooManyRequestsRetryStrategy()
-				.retryAfterHeaderName("X-Rate-Limit-Reset")
-				.logPrefix("[FoD]")
-				.maxRetries(rateLimitMaxRetries);
-	}
 }
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.client.fod.connection;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * This class provides a point-in-time snapshot of the rate limiting statistics for 
+ * a single FoD endpoint, as returned by {@link FoDRateLimiter#getStats()}.
+ * 
+ * @author Ruud Senden
+ *
+ */
+@Getter @ToString @RequiredArgsConstructor
+public final class FoDRateLimitStats {
+	/** Endpoint path, with all digits replaced by 'x' */
+	private final String endpoint;
+	/** Number of request attempts, including retries */
+	private final long requests;
+	/** Number of requests rejected by FoD with HTTP 429 (Too Many Requests) */
+	private final long throttledResponses;
+	/** Number of request attempts that were delayed until the rate limit window was reset */
+	private final long delayedRequests;
+	/** Total time spent waiting for rate limit windows to be reset, in milliseconds */
+	private final long delayMillis;
+	/** Rate limit as last reported by FoD, or -1 if unknown */
+	private final long limit;
+	/** Estimated number of remaining requests in the current rate limit window, or -1 if unknown */
+	private final long remaining;
+	/** Number of requests currently being executed */
+	private final int activeRequests;
+	/** Estimated number of requests waiting for a concurrency permit */
+	private final int queuedRequests;
+}
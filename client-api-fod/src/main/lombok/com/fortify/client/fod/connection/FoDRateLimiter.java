@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.client.fod.connection;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.fortify.util.rest.connection.UnsuccessfulResponseException;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * <p>This class implements a client-side rate limiter for FoD REST requests. Requests
+ * are grouped into buckets by endpoint, identified by the request path with all digits 
+ * replaced by 'x'. For each bucket, this class:</p>
+ * <ul>
+ *  <li>Limits the number of concurrent requests to the configured maximum; requests 
+ *      exceeding this maximum are queued in arrival order</li>
+ *  <li>Learns the FoD rate limit from the X-Rate-Limit-* response headers, and delays
+ *      new requests until the rate limit window resets once all remaining requests for
+ *      the current window have been used</li>
+ *  <li>Retries requests that were rejected with HTTP 429 (Too Many Requests) after
+ *      the rate limit window has been reset</li>
+ *  <li>Collects statistics about throttled and delayed requests, available through
+ *      {@link #getStats()}</li>
+ * </ul>
+ * <p>Requests are delayed before being submitted to the HTTP client, so waiting for
+ * a rate limit window to reset doesn't occupy any HTTP connections.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@CommonsLog
+public final class FoDRateLimiter {
+	static final String HEADER_LIMIT = "X-Rate-Limit-Limit";
+	static final String HEADER_REMAINING = "X-Rate-Limit-Remaining";
+	static final String HEADER_RESET = "X-Rate-Limit-Reset";
+	/** Delay used if an HTTP 429 response doesn't specify when the rate limit will be reset */
+	private static final long DEFAULT_RESET_MILLIS = 1000;
+	private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+	private final ThreadLocal<Bucket> currentBucket = new ThreadLocal<>();
+	private final int maxConcurrentRequests;
+	private final int maxRetries;
+	
+	/**
+	 * Constructor for configuring the maximum number of concurrent requests per 
+	 * endpoint, and the maximum number of retries for rate-limited requests.
+	 * @param maxConcurrentRequests Maximum number of concurrent requests per endpoint
+	 * @param maxRetries Maximum number of retries for requests rejected with HTTP 429
+	 */
+	public FoDRateLimiter(int maxConcurrentRequests, int maxRetries) {
+		this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+		this.maxRetries = maxRetries;
+	}
+	
+	/**
+	 * Execute the given request for the given request path, taking into account
+	 * the concurrency and rate limits for the endpoint that the given path belongs to.
+	 * @param <T> Request result type
+	 * @param path Request path
+	 * @param request {@link Supplier} that executes the actual request
+	 * @return Request result
+	 */
+	public <T> T execute(String path, Supplier<T> request) {
+		Bucket bucket = buckets.computeIfAbsent(getEndpoint(path), Bucket::new);
+		Bucket previousBucket = currentBucket.get();
+		bucket.acquire();
+		currentBucket.set(bucket);
+		try {
+			for ( int retries = 0 ; ; retries++ ) {
+				bucket.awaitWindow();
+				try {
+					return request.get();
+				} catch ( UnsuccessfulResponseException e ) {
+					if ( e.getStatusCode()!=429 ) { throw e; }
+					long resetMillis = bucket.throttled(e.getHeader(HEADER_RESET));
+					if ( retries>=maxRetries ) { throw e; }
+					log.info("[FoD] Rate-limited request to "+bucket.endpoint+" will be retried after "+resetMillis+" ms");
+				}
+			}
+		} finally {
+			if ( previousBucket==null ) { currentBucket.remove(); } else { currentBucket.set(previousBucket); }
+			bucket.release();
+		}
+	}
+	
+	/**
+	 * Update the rate limit for the endpoint of the request currently being executed 
+	 * by {@link #execute(String, Supplier)} on the current thread, based on the given
+	 * response headers. This method does nothing if no request is being executed 
+	 * through this rate limiter on the current thread.
+	 * @param headers Response headers
+	 */
+	public void updateFromResponseHeaders(MultivaluedMap<String, String> headers) {
+		Bucket bucket = currentBucket.get();
+		if ( bucket!=null && headers!=null ) {
+			bucket.update(headers.getFirst(HEADER_LIMIT), headers.getFirst(HEADER_REMAINING), headers.getFirst(HEADER_RESET));
+		}
+	}
+	
+	/**
+	 * Get a point-in-time snapshot of the rate limiting statistics for all endpoints
+	 * that have been accessed through this rate limiter.
+	 * @return {@link Map} of {@link FoDRateLimitStats} instances, sorted by endpoint
+	 */
+	public Map<String, FoDRateLimitStats> getStats() {
+		Map<String, FoDRateLimitStats> result = new TreeMap<>();
+		buckets.values().forEach(bucket -> result.put(bucket.endpoint, bucket.getStats()));
+		return result;
+	}
+	
+	static String getEndpoint(String path) {
+		return path.replaceAll("\\d", "x");
+	}
+	
+	private static long parseLong(String value, long defaultValue) {
+		try {
+			return StringUtils.isBlank(value) ? defaultValue : Long.parseLong(value.trim());
+		} catch ( NumberFormatException e ) {
+			return defaultValue;
+		}
+	}
+	
+	/**
+	 * This class holds the concurrency and rate limiting state for a single endpoint.
+	 * A value of -1 for limit or remaining indicates that the value is unknown.
+	 */
+	private final class Bucket {
+		private final String endpoint;
+		private final Semaphore permits = new Semaphore(maxConcurrentRequests, true);
+		private final LongAdder requests = new LongAdder();
+		private final LongAdder throttledResponses = new LongAdder();
+		private final LongAdder delayedRequests = new LongAdder();
+		private final LongAdder delayMillis = new LongAdder();
+		private long limit = -1;
+		private long remaining = -1;
+		private long resetAtMillis = 0;
+		
+		private Bucket(String endpoint) {
+			this.endpoint = endpoint;
+		}
+		
+		private void acquire() {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for FoD request permit", e);
+			}
+		}
+		
+		private void release() {
+			permits.release();
+		}
+		
+		/**
+		 * Wait until a request can be sent within the current rate limit window,
+		 * and consume one of the remaining requests for that window.
+		 */
+		private void awaitWindow() {
+			requests.increment();
+			boolean delayed = false;
+			while ( true ) {
+				long waitMillis = reserve();
+				if ( waitMillis<=0 ) { break; }
+				if ( !delayed ) { delayedRequests.increment(); delayed = true; }
+				log.debug("[FoD] Rate limit reached for "+endpoint+", delaying request for "+waitMillis+" ms");
+				long start = System.currentTimeMillis();
+				try {
+					Thread.sleep(waitMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while waiting for FoD rate limit reset", e);
+				} finally {
+					delayMillis.add(System.currentTimeMillis()-start);
+				}
+			}
+		}
+		
+		private synchronized long reserve() {
+			long now = System.currentTimeMillis();
+			if ( remaining==0 && now>=resetAtMillis ) {
+				remaining = limit;
+			}
+			if ( remaining==0 ) {
+				return resetAtMillis-now;
+			}
+			if ( remaining>0 ) { remaining--; }
+			return 0;
+		}
+		
+		private synchronized void update(String limitHeader, String remainingHeader, String resetHeader) {
+			long serverRemaining = parseLong(remainingHeader, -1);
+			if ( serverRemaining>=0 ) {
+				// Other requests for this endpoint may have been sent after the server
+				// calculated the remaining requests, so account for those in-flight requests 
+				int otherInFlight = Math.max(0, maxConcurrentRequests-permits.availablePermits()-1);
+				limit = parseLong(limitHeader, limit);
+				remaining = Math.max(0, serverRemaining-otherInFlight);
+				resetAtMillis = System.currentTimeMillis()+1000*parseLong(resetHeader, 0);
+			}
+		}
+		
+		private synchronized long throttled(String resetHeader) {
+			throttledResponses.increment();
+			long resetMillis = Math.max(0, 1000*parseLong(resetHeader, -1));
+			if ( resetMillis==0 ) { resetMillis = DEFAULT_RESET_MILLIS; }
+			remaining = 0;
+			resetAtMillis = Math.max(resetAtMillis, System.currentTimeMillis()+resetMillis);
+			return resetMillis;
+		}
+		
+		private synchronized FoDRateLimitStats getStats() {
+			return new FoDRateLimitStats(endpoint, requests.sum(), throttledResponses.sum(), 
+					delayedRequests.sum(), delayMillis.sum(), limit, remaining,
+					maxConcurrentRequests-permits.availablePermits(), permits.getQueueLength());
+		}
+	}
+}
@@ -64,6 +64,7 @@ public class FoDRestConnectionConfig<T extends FoDRestConnectionConfig<T>> exten
 	@Setter(AccessLevel.PRIVATE) private String instanceName;
 	private ZoneId serverZoneId;
 	private int    rateLimitMaxRetries = 1;
+	private int    rateLimitMaxConcurrentRequests = 4;
 	
 	public T clientId(String clientId) {
 		setClientId(clientId);
@@ -90,6 +91,17 @@ public class FoDRestConnectionConfig<T extends FoDRestConnectionConfig<T>> exten
 		return getThis();
 	}
 	
+	/**
+	 * Configure the maximum number of concurrent requests per FoD endpoint
+	 * for multi-threaded connections; see {@link FoDRateLimiter}.
+	 * @param rateLimitMaxConcurrentRequests Maximum number of concurrent requests per endpoint
+	 * @return Self for chaining
+	 */
+	public T rateLimitMaxConcurrentRequests(int rateLimitMaxConcurrentRequests) {
+		setRateLimitMaxConcurrentRequests(rateLimitMaxConcurrentRequests);
+		return getThis();
+	}
+	
 	public T serverZoneId(ZoneId zoneId) {
 		setServerZoneId(zoneId);
 		return getThis();
@@ -26,6 +26,7 @@ package com.fortify.client.fod.connection;
 
 import java.io.Closeable;
 import java.util.Date;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 import javax.ws.rs.HttpMethod;
@@ -53,6 +54,7 @@ public final class FoDTokenFactory implements Closeable {
 	
 	private final FoDBasicRestConnection basicConn;
 	private final Form auth;
+	private final ReentrantLock tokenLock = new ReentrantLock();
 	private FoDTokenFactory.TokenData tokenData = null;
 	
 	public FoDTokenFactory(FoDRestConnectionConfig<?> config) {
@@ -65,8 +67,18 @@ public final class FoDTokenFactory implements Closeable {
 		this.basicConn.close();
 	}
 
-	public synchronized String getTokenSynchronized() {
-		return getToken();
+	/**
+	 * Thread-safe variant of {@link #getToken()}; while one thread is calling 
+	 * the FoD /oauth/token endpoint, other threads wait for and reuse the
+	 * resulting access token.
+	 */
+	public String getTokenSynchronized() {
+		tokenLock.lock();
+		try {
+			return getToken();
+		} finally {
+			tokenLock.unlock();
+		}
 	}
 
 	public String getToken() {
@@ -0,0 +1,136 @@
+package com.fortify.client.fod.api.json.embed;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fortify.client.fod.api.FoDVulnerabilityAPI;
+import com.fortify.client.fod.connection.FoDAuthenticatingRestConnection;
+import com.fortify.util.rest.connection.ProxyConfig;
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class FoDPreloadEmbedderTest {
+	private static final Pattern SUB_ENTITY = Pattern.compile("/api/v3/releases/1/vulnerabilities/(\\w+)/(\\w+)");
+	private static final int VULNERABILITY_COUNT = 5;
+	private final List<String> subEntityRequests = Collections.synchronizedList(new ArrayList<>());
+	private HttpServer server;
+	private FoDAuthenticatingRestConnection conn;
+	
+	@BeforeEach public void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+		// FoD connections always connect to the api.* host, so we route all requests through the stub server as a proxy
+		ProxyConfig proxy = new ProxyConfig();
+		proxy.setUrl("http://localhost:"+server.getAddress().getPort());
+		conn = FoDAuthenticatingRestConnection.builder()
+				.baseUrl("http://api.fod.test")
+				.proxy(proxy)
+				.clientId("client")
+				.clientSecret("secret")
+				.multiThreaded(true)
+				.build();
+	}
+	
+	@AfterEach public void stop() {
+		conn.close();
+		server.stop(0);
+	}
+	
+	@Test public void testPreloadMatchesOnDemand() {
+		JSONList onDemand = conn.api(FoDVulnerabilityAPI.class).queryVulnerabilities("1")
+				.onDemandDetails().onDemandHistory().build().getAll();
+		// On-demand properties are only loaded when accessed
+		assertEquals(0, subEntityRequests.size());
+		for ( JSONMap vulnerability : onDemand.asValueType(JSONMap.class) ) {
+			vulnerability.get("details");
+			vulnerability.get("history");
+		}
+		int onDemandRequests = subEntityRequests.size();
+		JSONList preloaded = conn.api(FoDVulnerabilityAPI.class).queryVulnerabilities("1")
+				.preload("details", "details").preload("history", "history").build().getAll();
+		assertEquals(VULNERABILITY_COUNT, onDemand.size());
+		assertEquals(VULNERABILITY_COUNT, preloaded.size());
+		for ( int i = 0 ; i < VULNERABILITY_COUNT ; i++ ) {
+			JSONMap expected = onDemand.get(i, JSONMap.class);
+			JSONMap actual = preloaded.get(i, JSONMap.class);
+			assertNotNull(expected.get("details"));
+			assertEquals(expected.get("details", JSONMap.class), actual.get("details", JSONMap.class));
+			assertEquals(expected.get("history", JSONList.class), actual.get("history", JSONList.class));
+		}
+		// Both approaches load each sub-entity exactly once
+		assertEquals(2*VULNERABILITY_COUNT, onDemandRequests);
+		assertEquals(4*VULNERABILITY_COUNT, subEntityRequests.size());
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		Matcher subEntity = SUB_ENTITY.matcher(path);
+		String body;
+		if ( path.equals("/oauth/token") ) {
+			body = "{\"access_token\":\"token\",\"expires_in\":3600}";
+		} else if ( path.equals("/api/v3/releases/1/vulnerabilities") ) {
+			StringBuilder items = new StringBuilder();
+			for ( int i = 0 ; i < VULNERABILITY_COUNT ; i++ ) {
+				items.append(i==0 ? "" : ",").append("{\"releaseId\":1,\"vulnId\":\"v").append(i).append("\"}");
+			}
+			body = "{\"items\":["+items+"],\"totalCount\":"+VULNERABILITY_COUNT+"}";
+		} else if ( subEntity.matches() ) {
+			subEntityRequests.add(path);
+			String vulnId = subEntity.group(1);
+			body = "history".equals(subEntity.group(2))
+					? "{\"items\":[{\"vulnId\":\""+vulnId+"\",\"event\":\"created\"},{\"vulnId\":\""+vulnId+"\",\"event\":\"audited\"}],\"totalCount\":2}"
+					: "{\"vulnId\":\""+vulnId+"\",\"summary\":\"Summary for "+vulnId+"\"}";
+		} else {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+			return;
+		}
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try ( OutputStream os = exchange.getResponseBody() ) {
+			os.write(bytes);
+		}
+	}
+}
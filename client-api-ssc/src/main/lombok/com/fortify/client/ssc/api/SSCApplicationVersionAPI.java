@@ -24,6 +24,14 @@
  ******************************************************************************/
 package com.fortify.client.ssc.api;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.client.Entity;
 
@@ -32,14 +40,24 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import com.fortify.client.ssc.annotation.SSCRequiredActionsPermitted;
+import com.fortify.client.ssc.api.SSCApplicationVersionAttributeAPI.SSCApplicationVersionAttributesUpdater;
 import com.fortify.client.ssc.api.SSCAttributeDefinitionAPI.SSCAttributeDefinitionHelper;
+import com.fortify.client.ssc.api.SSCBulkAPI.SSCBulkRequestBuilder;
 import com.fortify.client.ssc.api.SSCIssueTemplateAPI.SSCIssueTemplateHelper;
 import com.fortify.client.ssc.api.query.builder.SSCApplicationVersionsOfAuthEntityQueryBuilder;
 import com.fortify.client.ssc.api.query.builder.SSCApplicationVersionsQueryBuilder;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
 import com.fortify.util.applier.ifblank.IfBlank;
+import com.fortify.util.rest.connection.ParallelTasks;
+import com.fortify.util.rest.json.JSONList;
 import com.fortify.util.rest.json.JSONMap;
 
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
 /**
  * This class is used to access SSC application version related functionality.
  * 
@@ -169,23 +187,33 @@ public class SSCApplicationVersionAPI extends AbstractSSCAPI {
 		}
 		
 		public String execute() {
-			MultiValueMap<String,Object> attributes = getApplicationVersionAttributes();
+			// Resolve attribute values before creating the application version, to avoid 
+			// leaving a non-committed application version if any attribute value is invalid
+			SSCApplicationVersionAttributesUpdater attributesUpdater = createAttributesUpdater();
 			String applicationVersionId = createNonCommittedApplicationVersiom().get("id", String.class);
-			conn().api(SSCApplicationVersionAttributeAPI.class).updateApplicationVersionAttributes(applicationVersionId)
-				.withAttributeDefinitionHelper(getAttributeDefinitionHelper())
-				.byNameOrId(attributes)
-				.execute();
+			attributesUpdater.applicationVersionId(applicationVersionId).execute();
 			commitApplicationVersion(applicationVersionId);
 			return applicationVersionId;
 		}
+		
+		private SSCApplicationVersionAttributesUpdater createAttributesUpdater() {
+			return conn().api(SSCApplicationVersionAttributeAPI.class).updateApplicationVersionAttributes(null)
+				.withAttributeDefinitionHelper(getAttributeDefinitionHelper())
+				.byNameOrId(getApplicationVersionAttributes());
+		}
 
 		@SSCRequiredActionsPermitted({"POST=/api/v\\d+/projectVersions"})
 		private JSONMap createNonCommittedApplicationVersiom() {
+			return createNonCommittedApplicationVersion(getExistingOrNewApplicationData());
+		}
+		
+		@SSCRequiredActionsPermitted({"POST=/api/v\\d+/projectVersions"})
+		private JSONMap createNonCommittedApplicationVersion(JSONMap applicationData) {
 			// TODO Add checks that required properties are set
 			JSONMap data = new JSONMap();
 			data.put("name", versionName);
 			data.put("description", versionDescription==null?"":versionDescription);
-			data.put("project", getExistingOrNewApplicationData());
+			data.put("project", applicationData);
 			data.put("active", true);
 			data.put("committed", false);
 			data.put("issueTemplateId", getIssueTemplateId());
@@ -260,4 +288,255 @@ public class SSCApplicationVersionAPI extends AbstractSSCAPI {
 			return issueTemplateHelper;
 		}
 	}
+	
+	/**
+	 * Return a {@link BulkCreateApplicationVersionsBuilder} instance for creating
+	 * multiple application versions. Individual application versions are configured
+	 * using {@link #createApplicationVersion()}, and then added to the returned
+	 * builder instead of being executed directly.
+	 * @return New {@link BulkCreateApplicationVersionsBuilder} instance
+	 */
+	public BulkCreateApplicationVersionsBuilder createApplicationVersions() {
+		return new BulkCreateApplicationVersionsBuilder();
+	}
+	
+	/**
+	 * <p>This class allows for efficiently creating many application versions. Compared 
+	 * to calling {@link CreateApplicationVersionBuilder#execute()} for each application
+	 * version, this class:</p>
+	 * <ul>
+	 *  <li>Loads attribute definitions and issue templates only once for all application versions</li>
+	 *  <li>Resolves all attribute values before creating any application version; application
+	 *      versions with invalid attribute values are not created at all</li>
+	 *  <li>Looks up or creates each distinct application only once; versions of the same 
+	 *      application are created one by one until the application exists</li>
+	 *  <li>Creates application versions concurrently on multi-threaded connections, with
+	 *      up to {@link #parallelism(int)} concurrent requests</li>
+	 *  <li>Updates attributes and commits all application versions using SSC bulk requests</li>
+	 * </ul>
+	 * <p>Failure to create any individual application version doesn't affect other
+	 * application versions; the outcome for each application version is returned by 
+	 * {@link #execute()}. If an application version was created but updating its 
+	 * attributes or committing it failed, the returned result contains both the error 
+	 * and the id of the non-committed application version, allowing callers to delete 
+	 * it using {@link SSCApplicationVersionAPI#deleteApplicationVersionById(String)}.</p>
+	 */
+	public final class BulkCreateApplicationVersionsBuilder {
+		private final List<CreateApplicationVersionBuilder> specs = new ArrayList<>();
+		/** Maximum number of application versions to be created concurrently on multi-threaded connections, default 4 */
+		@Setter @Accessors(fluent=true) private int parallelism = 4;
+		
+		private BulkCreateApplicationVersionsBuilder() {}
+		
+		/**
+		 * Add an application version to be created. The given {@link CreateApplicationVersionBuilder}
+		 * should be fully configured, but {@link CreateApplicationVersionBuilder#execute()} should not
+		 * be called.
+		 * @param spec {@link CreateApplicationVersionBuilder} describing the application version to be created
+		 * @return Self for chaining
+		 */
+		public BulkCreateApplicationVersionsBuilder add(CreateApplicationVersionBuilder spec) {
+			specs.add(spec);
+			return this;
+		}
+		
+		/**
+		 * Add all given application versions to be created.
+		 * @param specs {@link CreateApplicationVersionBuilder} instances describing the application versions to be created
+		 * @return Self for chaining
+		 */
+		public BulkCreateApplicationVersionsBuilder addAll(Collection<CreateApplicationVersionBuilder> specs) {
+			this.specs.addAll(specs);
+			return this;
+		}
+		
+		/**
+		 * Create all configured application versions.
+		 * @return {@link List} of {@link CreateApplicationVersionResult} instances, in the 
+		 *         order that application versions were added to this builder
+		 */
+		@SSCRequiredActionsPermitted({"POST=/api/v\\d+/projectVersions", "POST=/api/v\\d+/bulk"})
+		public List<CreateApplicationVersionResult> execute() {
+			SSCAttributeDefinitionHelper attributeDefinitionHelper = conn().api(SSCAttributeDefinitionAPI.class).getAttributeDefinitionHelper();
+			SSCIssueTemplateHelper issueTemplateHelper = conn().api(SSCIssueTemplateAPI.class).getIssueTemplateHelper();
+			List<CreateTask> tasks = new ArrayList<>();
+			Map<String, List<CreateTask>> tasksByApplication = new LinkedHashMap<>();
+			for ( CreateApplicationVersionBuilder spec : specs ) {
+				if ( spec.attributeDefinitionHelper==null ) { spec.withAttributeDefinitionHelper(attributeDefinitionHelper); }
+				if ( spec.issueTemplateHelper==null ) { spec.withIssueTemplateHelper(issueTemplateHelper); }
+				CreateTask task = new CreateTask(spec);
+				tasks.add(task);
+				// Resolve attribute values before creating any application version, such that
+				// invalid attribute values don't leave non-committed application versions behind 
+				if ( task.prepare() ) {
+					String applicationKey = StringUtils.isNotBlank(spec.applicationId) ? "id:"+spec.applicationId : "name:"+spec.applicationName;
+					tasksByApplication.computeIfAbsent(applicationKey, k->new ArrayList<>()).add(task);
+				}
+			}
+			// The first version for each application may need to create the application. To
+			// avoid concurrent requests creating the same application, versions for each 
+			// application are created one by one until one of them succeeds. The resulting
+			// application data is then used to create all other versions of that application.
+			List<CreateTask> otherVersions = new ArrayList<>();
+			ParallelTasks.forEach(conn(), parallelism, tasksByApplication.values(), applicationTasks -> {
+				List<CreateTask> remaining = createFirstVersion(applicationTasks);
+				synchronized (otherVersions) { otherVersions.addAll(remaining); }
+			});
+			ParallelTasks.forEach(conn(), parallelism, otherVersions, task -> task.create(task.existingApplication));
+			executeBulk(tasks, CreateTask::addAttributesBulkRequest);
+			executeBulk(tasks, CreateTask::addCommitBulkRequest);
+			List<CreateApplicationVersionResult> result = new ArrayList<>(tasks.size());
+			for ( CreateTask task : tasks ) {
+				result.add(new CreateApplicationVersionResult(task.spec.applicationName, task.spec.versionName, 
+						task.applicationVersionId, task.error));
+			}
+			return result;
+		}
+		
+		/**
+		 * Create application versions from the given list one by one, until one of them
+		 * succeeds. The application data for the successfully created application version
+		 * is stored in all remaining tasks, which are then returned for concurrent creation.
+		 * @param applicationTasks {@link CreateTask} instances for a single application
+		 * @return {@link CreateTask} instances that still need to be created
+		 */
+		private List<CreateTask> createFirstVersion(List<CreateTask> applicationTasks) {
+			for ( int i = 0 ; i < applicationTasks.size() ; i++ ) {
+				CreateTask task = applicationTasks.get(i);
+				task.create(null);
+				if ( task.project!=null ) {
+					List<CreateTask> remaining = applicationTasks.subList(i+1, applicationTasks.size());
+					remaining.forEach(other -> other.existingApplication = task.project);
+					return remaining;
+				}
+			}
+			return Collections.emptyList();
+		}
+		
+		/**
+		 * Add bulk requests for all tasks that haven't failed yet using the given function,
+		 * execute the bulk request, and update the task status based on the bulk results.
+		 * @param tasks to be processed
+		 * @param addBulkRequest function that adds a request for the given task to the given
+		 *        {@link SSCBulkRequestBuilder}, returning false if no request was added
+		 */
+		private void executeBulk(List<CreateTask> tasks, BiFunction<CreateTask, SSCBulkRequestBuilder, Boolean> addBulkRequest) {
+			SSCBulkRequestBuilder builder = conn().api(SSCBulkAPI.class).bulkRequestBuilder();
+			List<CreateTask> bulkTasks = new ArrayList<>();
+			for ( CreateTask task : tasks ) {
+				if ( task.error==null && addBulkRequest.apply(task, builder) ) { bulkTasks.add(task); }
+			}
+			if ( !bulkTasks.isEmpty() ) {
+				try {
+					JSONList bulkResults = builder.execute();
+					for ( int i = 0 ; i < bulkTasks.size() ; i++ ) {
+						bulkTasks.get(i).checkBulkResult(i < bulkResults.size() ? bulkResults.get(i, JSONMap.class) : null);
+					}
+				} catch ( RuntimeException e ) {
+					bulkTasks.forEach(task -> task.error = e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This class holds the state for creating a single application version
+	 * through {@link BulkCreateApplicationVersionsBuilder}. 
+	 */
+	private final class CreateTask {
+		private final CreateApplicationVersionBuilder spec;
+		private volatile String applicationVersionId;
+		private volatile JSONMap project;
+		private volatile SSCApplicationVersionAttributesUpdater attributesUpdater;
+		private volatile JSONMap existingApplication;
+		private volatile RuntimeException error;
+		
+		private CreateTask(CreateApplicationVersionBuilder spec) {
+			this.spec = spec;
+		}
+		
+		/**
+		 * Resolve the attribute values for this application version, without sending
+		 * any requests to SSC other than loading attribute definitions if necessary.
+		 * @return true if successful, false if the application version should not be created
+		 */
+		private boolean prepare() {
+			try {
+				attributesUpdater = spec.createAttributesUpdater();
+				return true;
+			} catch ( RuntimeException e ) {
+				error = e;
+				return false;
+			}
+		}
+		
+		/**
+		 * Create the non-committed application version, using the given application 
+		 * data if available, or looking up or creating the application otherwise.
+		 */
+		private void create(JSONMap existingApplication) {
+			try {
+				JSONMap applicationData = existingApplication!=null 
+						? spec.getExistingApplicationData(existingApplication) 
+						: spec.getExistingOrNewApplicationData();
+				JSONMap applicationVersion = spec.createNonCommittedApplicationVersion(applicationData);
+				applicationVersionId = applicationVersion.get("id", String.class);
+				project = applicationVersion.get("project", JSONMap.class);
+				attributesUpdater.applicationVersionId(applicationVersionId);
+			} catch ( RuntimeException e ) {
+				error = e;
+			}
+		}
+		
+		private boolean addAttributesBulkRequest(SSCBulkRequestBuilder builder) {
+			attributesUpdater.addBulkRequest(builder);
+			return true;
+		}
+		
+		private boolean addCommitBulkRequest(SSCBulkRequestBuilder builder) {
+			JSONMap data = new JSONMap();
+			data.put("committed", true);
+			builder.addBulkRequest(HttpMethod.PUT, 
+					conn().getBaseResource().path("/api/v1/projectVersions").path(applicationVersionId), data);
+			return true;
+		}
+		
+		private void checkBulkResult(JSONMap bulkResult) {
+			String message = null;
+			if ( bulkResult==null ) {
+				message = "No response";
+			} else if ( bulkResult.containsKey("error") ) {
+				message = bulkResult.get("error", String.class);
+			} else {
+				Integer responseCode = bulkResult.getPath("responses[0].body.responseCode", Integer.class);
+				if ( responseCode!=null && responseCode>=300 ) {
+					message = "HTTP "+responseCode+": "+bulkResult.getPath("responses[0].body.message", String.class);
+				}
+			}
+			if ( message!=null ) {
+				error = new RuntimeException("Error updating application version "+applicationVersionId+": "+message);
+			}
+		}
+	}
+	
+	/**
+	 * This class describes the outcome for a single application version
+	 * created through {@link BulkCreateApplicationVersionsBuilder}.
+	 */
+	@Getter @ToString @RequiredArgsConstructor
+	public static final class CreateApplicationVersionResult {
+		/** Application name as configured for the application version, may be null if configured by id */
+		private final String applicationName;
+		/** Version name */
+		private final String versionName;
+		/** Id of the created application version, or null if the application version wasn't created. 
+		 *  If both this id and {@link #error} are set, the application version was created but not committed. */
+		private final String applicationVersionId;
+		/** Error that caused the application version creation to fail, or null if successful */
+		private final RuntimeException error;
+		
+		public boolean isSuccessful() {
+			return error==null;
+		}
+	}
 }
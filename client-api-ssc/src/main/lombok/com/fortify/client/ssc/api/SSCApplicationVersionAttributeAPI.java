@@ -29,6 +29,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.client.Entity;
@@ -37,6 +38,7 @@ import org.springframework.util.MultiValueMap;
 
 import com.fortify.client.ssc.annotation.SSCRequiredActionsPermitted;
 import com.fortify.client.ssc.api.SSCAttributeDefinitionAPI.SSCAttributeDefinitionHelper;
+import com.fortify.client.ssc.api.SSCBulkAPI.SSCBulkRequestBuilder;
 import com.fortify.client.ssc.api.SSCCustomTagAPI.SSCApplicationVersionCustomTagUpdater;
 import com.fortify.client.ssc.api.query.builder.SSCApplicationVersionAttributesQueryBuilder;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
@@ -76,10 +78,9 @@ public class SSCApplicationVersionAttributeAPI extends AbstractSSCAPI {
 	}
 	
 	public final class SSCApplicationVersionAttributesUpdater {
-		private final String applicationVersionId;
+		private String applicationVersionId;
 		private final JSONList requestData = new JSONList();
 		private SSCAttributeDefinitionHelper attributeDefinitionHelper;
-		private JSONMap attributeDefinitionsByNameOrId;
 		
 		/**
 		 * Private constructor; instances can only be created through
@@ -93,10 +94,9 @@ public class SSCApplicationVersionAttributeAPI extends AbstractSSCAPI {
 		/**
 		 * Set the {@link SSCAttributeDefinitionHelper} instance to be used for mapping between
 		 * attribute names and id's and for retrieving attribute definition details. If not set, 
-		 * a new {@link SSCAttributeDefinitionHelper} instance will be created when needed. As 
-		 * this will potentially result in additional SSC API calls, it is recommended to re-use 
-		 * an existing {@link SSCAttributeDefinitionHelper} instance if possible. For optimal
-		 * performance, this method should be called before calling any of the other methods.
+		 * a new {@link SSCAttributeDefinitionHelper} instance will be created when needed, which
+		 * uses the attribute definitions cached by the connection. This method should be called 
+		 * before calling any of the other methods.
 		 * @param attributeDefinitionHelper for accessing attribute definitions
 		 * @return Self for chaining
 		 */
@@ -114,7 +114,7 @@ public class SSCApplicationVersionAttributeAPI extends AbstractSSCAPI {
 		 * @return Self for chaining
 		 */
 		public SSCApplicationVersionAttributesUpdater byNameOrId(String attributeNameOrId, List<Object> attributeValues) {
-			JSONMap attributeDefinition = getAttributeDefinitionsByNameOrId().get(attributeNameOrId, JSONMap.class);
+			JSONMap attributeDefinition = getAttributeDefinitionHelper().getAttributeDefinition(attributeNameOrId);
 			if ( attributeDefinition == null ) {
 				throw new IllegalArgumentException("Attribute name or id "+attributeNameOrId+" does not exist");
 			} else {
@@ -129,7 +129,7 @@ public class SSCApplicationVersionAttributeAPI extends AbstractSSCAPI {
 				}
 				
 				if ( "MULTIPLE".equals(type) || "SINGLE".equals(type) ) {
-					attributeData.put("values", getGuidValuesList(attributeDefinition, attributeNameOrId, attributeValues));
+					attributeData.put("values", getGuidValuesList(attributeNameOrId, attributeValues));
 					attributeData.put("value", null);
 				} else {
 					attributeData.put("values", null);
@@ -164,6 +164,29 @@ public class SSCApplicationVersionAttributeAPI extends AbstractSSCAPI {
 			return result.get("data", JSONList.class);
 		}
 		
+		/**
+		 * Package-private method for setting the application version id after attribute
+		 * values have been resolved. This allows for validating attribute values before
+		 * creating the application version to be updated.
+		 * @param applicationVersionId SSC application version id for which attributes are to be updated
+		 * @return Self for chaining
+		 */
+		SSCApplicationVersionAttributesUpdater applicationVersionId(String applicationVersionId) {
+			this.applicationVersionId = applicationVersionId;
+			return this;
+		}
+		
+		/**
+		 * Package-private method for adding the attribute(s) update request to the given
+		 * {@link SSCBulkRequestBuilder}, rather than sending the request directly to SSC.
+		 * @param builder {@link SSCBulkRequestBuilder} to which to add the update request
+		 */
+		void addBulkRequest(SSCBulkRequestBuilder builder) {
+			builder.addBulkRequest(HttpMethod.PUT, 
+					conn().getBaseResource().path("/api/v1/projectVersions").path(applicationVersionId).path("attributes"), 
+					requestData);
+		}
+		
 		private SSCAttributeDefinitionHelper getAttributeDefinitionHelper() {
 			if ( attributeDefinitionHelper==null ) {
 				attributeDefinitionHelper = conn().api(SSCAttributeDefinitionAPI.class).getAttributeDefinitionHelper();
@@ -171,13 +194,6 @@ public class SSCApplicationVersionAttributeAPI extends AbstractSSCAPI {
 			return attributeDefinitionHelper;
 		}
 		
-		private JSONMap getAttributeDefinitionsByNameOrId() {
-			if ( attributeDefinitionsByNameOrId==null ) {
-				attributeDefinitionsByNameOrId = getAttributeDefinitionHelper().getAttributeDefinitionsByNameAndId();
-			}
-			return attributeDefinitionsByNameOrId;
-		}
-		
 		private Object getSimpleValue(List<Object> attributeValues) {
 			Object value = attributeValues == null ? null : attributeValues.get(0);
 			if ( value != null ) {
@@ -189,11 +205,10 @@ public class SSCApplicationVersionAttributeAPI extends AbstractSSCAPI {
 			return value;
 		}
 
-		private JSONList getGuidValuesList(JSONMap attributeDefinition, String attributeNameOrId, List<Object> attributeValues) {
-			JSONMap optionsByNameAndGuid = attributeDefinition.get("optionsByNameAndGuid", JSONMap.class);
+		private JSONList getGuidValuesList(String attributeNameOrId, List<Object> attributeValues) {
 			JSONList values = new JSONList();
 			for ( Object optionValueOrGuid : attributeValues ) {
-				JSONMap option = optionsByNameAndGuid.get(optionValueOrGuid, JSONMap.class);
+				JSONMap option = getAttributeDefinitionHelper().getAttributeOption(attributeNameOrId, Objects.toString(optionValueOrGuid, null));
 				if ( option == null ) {
 					throw new IllegalArgumentException("Invalid option "+optionValueOrGuid+" for attribute "+attributeNameOrId);
 				} else {
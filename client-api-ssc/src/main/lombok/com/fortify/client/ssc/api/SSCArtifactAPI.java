@@ -26,10 +26,8 @@ package com.fortify.client.ssc.api;
 
 import java.io.File;
 import java.nio.file.Path;
-import java.util.Arrays;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.client.Entity;
@@ -41,6 +39,8 @@ import com.fortify.client.ssc.api.query.builder.SSCApplicationVersionArtifactsQu
 import com.fortify.client.ssc.api.query.builder.SSCArtifactByIdQueryBuilder;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
 import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.transfer.FileDownloader;
+import com.fortify.util.rest.transfer.ITransferProgressListener;
 import com.fortify.util.spring.expression.helper.InternalExpressionHelper;
 
 /**
@@ -75,6 +75,15 @@ public class SSCArtifactAPI extends AbstractSSCAPI {
 		return conn().api(SSCFileUpDownloadAPI.class).downloadFile(webTarget, FileTokenType.DOWNLOAD, target);
 	}
 	
+	@SSCRequiredActionsPermitted({"POST=/download/currentStateFprDownload.html"})
+	public final long downloadApplicationFile(String applicationVersionId, Path target, boolean includeSource, FileDownloader downloader) {
+		WebTarget webTarget = conn().getBaseResource()
+				.path("/download/currentStateFprDownload.html")
+				.queryParam("id", ""+applicationVersionId)
+				.queryParam("includeSource", includeSource);
+		return conn().api(SSCFileUpDownloadAPI.class).downloadFile(webTarget, FileTokenType.DOWNLOAD, target, downloader);
+	}
+	
 	@SSCRequiredActionsPermitted({"POST=/download/artifactDownload.html"})
 	public final long downloadArtifact(String artifactId, Path target) {
 		WebTarget webTarget = conn().getBaseResource()
@@ -83,12 +92,25 @@ public class SSCArtifactAPI extends AbstractSSCAPI {
 		return conn().api(SSCFileUpDownloadAPI.class).downloadFile(webTarget, FileTokenType.DOWNLOAD, target);
 	}
 	
+	@SSCRequiredActionsPermitted({"POST=/download/artifactDownload.html"})
+	public final long downloadArtifact(String artifactId, Path target, FileDownloader downloader) {
+		WebTarget webTarget = conn().getBaseResource()
+				.path("/download/artifactDownload.html")
+				.queryParam("id", ""+artifactId);
+		return conn().api(SSCFileUpDownloadAPI.class).downloadFile(webTarget, FileTokenType.DOWNLOAD, target, downloader);
+	}
+	
 	@SSCRequiredActionsPermitted({"POST=/upload/resultFileUpload.html"})
 	public final JSONMap uploadArtifact(String applicationVersionId, File fprFile) {
+		return uploadArtifact(applicationVersionId, fprFile, null);
+	}
+	
+	@SSCRequiredActionsPermitted({"POST=/upload/resultFileUpload.html"})
+	public final JSONMap uploadArtifact(String applicationVersionId, File fprFile, ITransferProgressListener progressListener) {
 		WebTarget webTarget = conn().getBaseResource()
 				.path("/upload/resultFileUpload.html")
 				.queryParam("entityId", ""+applicationVersionId);
-		return conn().api(SSCFileUpDownloadAPI.class).uploadFile(webTarget, FileTokenType.UPLOAD, fprFile);
+		return conn().api(SSCFileUpDownloadAPI.class).uploadFile(webTarget, FileTokenType.UPLOAD, fprFile, progressListener);
 	}
 	
 	@SSCRequiredActionsPermitted({"POST=/api/v\\d+/artifacts/\\d+/action"})
@@ -106,16 +128,27 @@ public class SSCArtifactAPI extends AbstractSSCAPI {
 		waitForProcessingCompletion(artifactId, timeOutSeconds);
 	}
 	
+	/**
+	 * Wait for the artifact with the given id to complete processing, or until the given 
+	 * time-out expires. This method blocks the calling thread; see 
+	 * {@link #waitForProcessingCompletionAsync(String, int)} for a non-blocking alternative.
+	 * @param artifactId Id of the artifact to wait for
+	 * @param timeOutSeconds Time-out in seconds
+	 */
 	public final void waitForProcessingCompletion(String artifactId, int timeOutSeconds) {
-		Set<String> incompleteStates = new HashSet<>(Arrays.asList("PROCESSING", "SCHED_PROCESSING")); 
-		long startTime = new Date().getTime();
-		JSONMap artifact = getArtifactById(artifactId, "status");
-		while ( new Date().getTime() < startTime+timeOutSeconds*1000 && incompleteStates.contains(artifact.get("status", String.class)) ) {
-			try {
-				Thread.sleep(1000L);
-			} catch ( InterruptedException ignore ) {}
-			artifact = getArtifactById(artifactId, "status");
-		}
+		SSCCompletionWatcher.await(waitForProcessingCompletionAsync(artifactId, timeOutSeconds));
+	}
+	
+	/**
+	 * Asynchronously wait for the artifact with the given id to complete processing, or 
+	 * until the given time-out expires. Artifact status is polled by the connection-level 
+	 * {@link SSCCompletionWatcher}, so no threads are blocked while waiting.
+	 * @param artifactId Id of the artifact to wait for
+	 * @param timeOutSeconds Time-out in seconds
+	 * @return {@link CompletableFuture} that is completed with the artifact data
+	 */
+	public final CompletableFuture<JSONMap> waitForProcessingCompletionAsync(String artifactId, int timeOutSeconds) {
+		return conn().getCompletionWatcher().watchArtifact(artifactId, timeOutSeconds*1000L);
 	}
 
 	public final JSONMap getJobForUpload(JSONMap uploadResult, int secondsToWaitForCompletion) {
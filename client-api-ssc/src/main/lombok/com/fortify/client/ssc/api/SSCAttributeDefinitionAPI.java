@@ -26,7 +26,9 @@ package com.fortify.client.ssc.api;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -92,17 +94,27 @@ public class SSCAttributeDefinitionAPI extends AbstractSSCAPI {
 	
 	/**
 	 * This class provides various utility methods for working with SSC
-	 * attribute definitions. Data is loaded from SSC only once per 
-	 * {@link SSCAttributeDefinitionHelper} instance. As such it is 
-	 * recommended to store and re-use a single instance of this class
-	 * where possible. Keep in mind though that you need to get a fresh
-	 * instance in order to see any attribute definition changes on SSC. 
+	 * attribute definitions. Data is loaded from SSC and indexed for
+	 * efficient lookups by name, id and option name or guid. The index
+	 * is cached in the {@link SSCAuthenticatingRestConnection#getReferenceDataCache()}
+	 * and shared by all helper instances for the same connection, until the
+	 * configured time-to-live expires or the index is invalidated, for example
+	 * by calling {@link #refresh()} or when creating a new attribute definition
+	 * through {@link SSCAttributeDefinitionAPI#createAttributeDefinition()}.
+	 * Instances can be safely shared between threads. 
+	 * 
+	 * <p>If multiple attribute definitions share the same name, or multiple options
+	 * of an attribute definition share the same name, all lookups by name return 
+	 * the last match, consistent with {@link JSONList#toJSONMap(String, Class, String, Class)}. 
+	 * Lookups by id or guid take precedence over lookups by name.</p>
 	 * 
 	 * @author Ruud Senden
 	 *
 	 */
 	public final class SSCAttributeDefinitionHelper {
-		private JSONList attributeDefinitions;
+		private final SSCRefreshableIndex<AttributeDefinitionIndex> index = 
+				new SSCRefreshableIndex<>(conn().getReferenceDataCache(), AttributeDefinitionIndex.class,
+						SSCAttributeDefinitionAPI.this::getAttributeDefinitions, AttributeDefinitionIndex::new);
 		
 		/**
 		 * Instances can only be created through the {@link SSCAttributeDefinitionAPI#getAttributeDefinitionHelper()}
@@ -110,16 +122,21 @@ public class SSCAttributeDefinitionAPI extends AbstractSSCAPI {
 		 */
 		private SSCAttributeDefinitionHelper() {}
 		
+		/**
+		 * Discard any cached attribute definition data, causing the data 
+		 * to be re-loaded from SSC on next access.
+		 */
+		public void refresh() {
+			index.invalidate();
+		}
+		
 		/**
 		 * Get the list of attribute definitions, lazy loading the list
-		 * if it hasn't been loaded before by this instance.
-		 * @return {@link JSONList} containing attribute definitions
+		 * if it hasn't been loaded before or has expired.
+		 * @return Copy of the {@link JSONList} containing attribute definitions
 		 */
 		public JSONList getAttributeDefinitions() {
-			if ( attributeDefinitions==null ) {
-				attributeDefinitions = SSCAttributeDefinitionAPI.this.getAttributeDefinitions();
-			}
-			return attributeDefinitions;
+			return SSCRefreshableIndex.copy(index.get().attributeDefinitions);
 		}
 		
 		/**
@@ -128,8 +145,7 @@ public class SSCAttributeDefinitionAPI extends AbstractSSCAPI {
 		 * @return attribute id for the given attribute name 
 		 */
 		public String getAttributeIdForName(String attributeName) {
-			JSONList attributeDefinitions = getAttributeDefinitions();
-			return attributeDefinitions.mapValue("name", attributeName, "id", String.class);
+			return index.get().idsByName.get(attributeName);
 		}
 		
 		/**
@@ -138,8 +154,27 @@ public class SSCAttributeDefinitionAPI extends AbstractSSCAPI {
 		 * @return attribute name for the given attribute id
 		 */
 		public String getAttributeNameForId(String attributeId) {
-			JSONList attributeDefinitions = getAttributeDefinitions();
-			return attributeDefinitions.mapValue("id", attributeId, "name", String.class);
+			return index.get().namesById.get(attributeId);
+		}
+		
+		/**
+		 * Get the attribute definition for the given attribute name or id
+		 * @param attributeNameOrId for which to get the attribute definition
+		 * @return Copy of the attribute definition for the given attribute name or id, or null if not found
+		 */
+		public JSONMap getAttributeDefinition(String attributeNameOrId) {
+			return SSCRefreshableIndex.copy(index.get().attributeDefinitionsByNameAndId.get(attributeNameOrId, JSONMap.class));
+		}
+		
+		/**
+		 * Get the attribute option for the given attribute name or id and option name or guid
+		 * @param attributeNameOrId for which to get the option
+		 * @param optionNameOrGuid for which to get the option
+		 * @return Copy of the attribute option for the given attribute and option name or guid, or null if not found
+		 */
+		public JSONMap getAttributeOption(String attributeNameOrId, String optionNameOrGuid) {
+			Map<String, JSONMap> options = index.get().optionsByAttributeNameOrId.get(attributeNameOrId);
+			return options==null ? null : SSCRefreshableIndex.copy(options.get(optionNameOrGuid));
 		}
 		
 		/**
@@ -148,10 +183,7 @@ public class SSCAttributeDefinitionAPI extends AbstractSSCAPI {
 		 * @return {@link JSONMap} containing both attribute names and id's as keys, and the full attribute definition as values
 		 */
 		public JSONMap getAttributeDefinitionsByNameAndId() {
-			JSONList attributeDefinitions = getAttributeDefinitions();
-			JSONMap attributeDefinitionsByNameOrId = attributeDefinitions.toJSONMap("name", String.class, "#this", JSONMap.class);
-			attributeDefinitionsByNameOrId.putAll(attributeDefinitions.toMap("id", String.class, JSONMap.class));
-			return attributeDefinitionsByNameOrId;
+			return SSCRefreshableIndex.copy(index.get().attributeDefinitionsByNameAndId);
 		}
 		
 		/**
@@ -163,7 +195,7 @@ public class SSCAttributeDefinitionAPI extends AbstractSSCAPI {
 		 */
 		public MultiValueMap<String, Object> getRequiredAttributesWithDefaultValues() {
 			MultiValueMap<String, Object> result = new LinkedMultiValueMap<>();
-			JSONList attributeDefinitions = getAttributeDefinitions();
+			JSONList attributeDefinitions = index.get().attributeDefinitions;
 			for ( JSONMap attributeDefinition : attributeDefinitions.asValueType(JSONMap.class) ) {
 				if ( !"DYNAMIC_SCAN_REQUEST".equals(attributeDefinition.get("category"))
 						&& attributeDefinition.get("required", Boolean.class)
@@ -189,6 +221,52 @@ public class SSCAttributeDefinitionAPI extends AbstractSSCAPI {
 		}
 	}
 	
+	/**
+	 * Immutable index on attribute definitions, built once for every 
+	 * time the attribute definitions are loaded from SSC. This class
+	 * is also used as the key for the reference data cache. 
+	 */
+	private static final class AttributeDefinitionIndex {
+		private final JSONList attributeDefinitions;
+		private final Map<String, String> idsByName = new HashMap<>();
+		private final Map<String, String> namesById = new HashMap<>();
+		private final JSONMap attributeDefinitionsByNameAndId = new JSONMap();
+		private final Map<String, Map<String, JSONMap>> optionsByAttributeNameOrId = new HashMap<>();
+		
+		private AttributeDefinitionIndex(JSONList attributeDefinitions) {
+			this.attributeDefinitions = attributeDefinitions;
+			Map<String, JSONMap> byId = new HashMap<>();
+			Map<String, Map<String, JSONMap>> byIdOptions = new HashMap<>();
+			for ( JSONMap attributeDefinition : attributeDefinitions.asValueType(JSONMap.class) ) {
+				String name = attributeDefinition.get("name", String.class);
+				String id = attributeDefinition.get("id", String.class);
+				idsByName.put(name, id);
+				namesById.put(id, name);
+				attributeDefinitionsByNameAndId.put(name, attributeDefinition);
+				byId.put(id, attributeDefinition);
+				Map<String, JSONMap> options = indexOptions(attributeDefinition.get("options", JSONList.class));
+				optionsByAttributeNameOrId.put(name, options);
+				byIdOptions.put(id, options);
+			}
+			// Id's take precedence over names
+			attributeDefinitionsByNameAndId.putAll(byId);
+			optionsByAttributeNameOrId.putAll(byIdOptions);
+		}
+
+		private static Map<String, JSONMap> indexOptions(JSONList options) {
+			Map<String, JSONMap> result = new HashMap<>();
+			if ( options!=null ) {
+				for ( JSONMap option : options.asValueType(JSONMap.class) ) {
+					result.put(option.get("name", String.class), option);
+				}
+				for ( JSONMap option : options.asValueType(JSONMap.class) ) {
+					result.put(option.get("guid", String.class), option);
+				}
+			}
+			return Collections.unmodifiableMap(result);
+		}
+	}
+	
 	/**
 	 * Return an {@link SSCCreateAttributeDefinitionBuilder} instance to assist
 	 * with adding a new attribute definition to SSC. Don't forget to call
@@ -233,9 +311,11 @@ public class SSCAttributeDefinitionAPI extends AbstractSSCAPI {
 			if ( !SSCAttributeDefinitionType.SINGLE.equals(type) && !SSCAttributeDefinitionType.MULTIPLE.equals(type) ) {
 				Assert.isNull(options, "Options are only supported for type SINGLE or MULTIPLE");
 			}
-			return conn.executeRequest(HttpMethod.POST, 
+			JSONMap result = conn.executeRequest(HttpMethod.POST, 
 					conn.getBaseResource().path("/api/v1/attributeDefinitions"), 
-					Entity.entity(this, "application/json"), JSONMap.class);	
+					Entity.entity(this, "application/json"), JSONMap.class);
+			conn.getReferenceDataCache().invalidate(AttributeDefinitionIndex.class);
+			return result;
 		}
 		
 		@Setter @Accessors(fluent=true)
@@ -82,17 +82,16 @@ public class SSCAuditAssistantAPI extends AbstractSSCAPI {
 		String result = null;
 		SSCJobAPI jobApi = conn().api(SSCJobAPI.class);
 		Date now = new Date();
-		IRestConnectionQuery jobQuery = jobApi.queryJobs()
+		// Only include jobs started after now; this also stops paging once older jobs are encountered
+		IRestConnectionQuery jobQuery = jobApi.queryJobsStartedAfter(now)
 				// Query for artifact upload job
 			.jobClassName(IfBlank.ERROR(), "com.fortify.manager.BLL.jobs.ArtifactUploadJob")
 				// Only for selected application version 
-			.preProcessor(new JSONMapFilterRegEx(MatchMode.INCLUDE, "projectVersionId", applicationVersionId))
+			.projectVersionId(IfBlank.ERROR(), applicationVersionId)
 				// Only for artifact names starting with 'AA_' (Audit Assistant)
 			.preProcessor(new JSONMapFilterRegEx(MatchMode.INCLUDE, "artifactName", "AA_.*\\.fpr"))
 				// Only include jobs finished after now (to wait for processing completion)
 			.preProcessor(new JSONMapFilterCompareDate(MatchMode.INCLUDE, "finishTime", DateComparisonOperator.gt, now))
-				// Only include jobs started after now
-			.preProcessor(new JSONMapFilterCompareDate(MatchMode.INCLUDE, "startTime", DateComparisonOperator.gt, now))
 			.build();
 		if ( invokeAuditAssistant(applicationVersionId) ) {
 			JSONList jobs = jobApi.waitForJobCreation(jobQuery, timeOutSeconds);
@@ -24,11 +24,17 @@
  ******************************************************************************/
 package com.fortify.client.ssc.api;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
 import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
@@ -40,13 +46,20 @@ import com.fortify.client.ssc.annotation.SSCCopyToConstructors;
 import com.fortify.client.ssc.annotation.SSCRequiredActionsPermitted;
 import com.fortify.client.ssc.api.json.embed.SSCEmbedConfig;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.connection.ParallelTasks;
+import com.fortify.util.rest.connection.UnsuccessfulResponseException;
 import com.fortify.util.rest.json.JSONList;
 import com.fortify.util.rest.json.JSONMap;
 import com.fortify.util.rest.json.embed.StandardEmbedDefinition;
 import com.fortify.util.rest.query.AbstractRestConnectionQueryBuilder;
 
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import lombok.ToString;
 import lombok.experimental.Accessors;
+import lombok.extern.apachecommons.CommonsLog;
 
 /**
  * This class is used to access the SSC bulk API endpoint.
@@ -54,6 +67,7 @@ import lombok.experimental.Accessors;
  * @author Ruud Senden
  *
  */
+@CommonsLog
 public class SSCBulkAPI extends AbstractSSCAPI {
 	public SSCBulkAPI(SSCAuthenticatingRestConnection conn) {
 		super(conn);
@@ -68,11 +82,39 @@ public class SSCBulkAPI extends AbstractSSCAPI {
 	}
 	
 	/**
-	 * This class allows for building and executing SSC bulk requests
+	 * <p>This class allows for building and executing SSC bulk requests.</p>
+	 * 
+	 * <p>To avoid time-outs on large bulk requests, the accumulated requests are split into
+	 * chunks of up to {@link #maxRequestsPerChunk(int)} requests and approximately 
+	 * {@link #maxChunkBytes(long)} bytes, with each chunk being sent to SSC as a separate 
+	 * bulk request. On multi-threaded connections, up to {@link #parallelism(int)} chunks 
+	 * are sent concurrently.</p>
+	 * 
+	 * <p>If a chunk containing only GET requests fails, it is retried up to {@link #chunkRetries(int)}
+	 * times, after which the chunk is split in half and each half is executed separately. 
+	 * This way, a single failing request only results in an error entry for that request,
+	 * rather than failing all other requests. Chunks that contain any other requests are
+	 * never retried or split, as SSC may already have applied some of these requests; if
+	 * such a chunk fails, error entries are returned for all requests in the chunk.</p>
+	 * 
+	 * <p>Note that {@link #execute()} doesn't throw an exception if (part of) the bulk request
+	 * fails; callers must check the returned entries for errors as described in {@link #execute()}.
+	 * Timing information for each executed chunk is available through {@link #getChunkMetrics()} 
+	 * after calling {@link #execute()}.</p>
 	 */
 	public final class SSCBulkRequestBuilder {
 		private final SSCAuthenticatingRestConnection conn;
 		private final JSONList requests = new JSONList();
+		private final List<SSCBulkChunkMetrics> chunkMetrics = Collections.synchronizedList(new ArrayList<>());
+		/** Maximum number of requests per chunk, default 50 */
+		@Setter @Accessors(fluent=true) private int maxRequestsPerChunk = 50;
+		/** Approximate maximum number of bytes per chunk, default 1MB */
+		@Setter @Accessors(fluent=true) private long maxChunkBytes = 1024*1024;
+		/** Maximum number of chunks to be executed concurrently on multi-threaded connections, default 4 */
+		@Setter @Accessors(fluent=true) private int parallelism = 4;
+		/** Number of times to retry a failed chunk before splitting it, default 1. These retries 
+		 *  come on top of any retries performed by the connection's RetryPolicy. */
+		@Setter @Accessors(fluent=true) private int chunkRetries = 1;
 		
 		/**
 		 * Create instance using the given {@link SSCAuthenticatingRestConnection}
@@ -115,47 +157,213 @@ public class SSCBulkAPI extends AbstractSSCAPI {
 			return addBulkRequest(httpMethod, webTarget, null);
 		}
 		
+		/**
+		 * Get the timing information for each of the chunks sent to SSC by 
+		 * the most recent invocation of {@link #execute()}, including any 
+		 * retried or split chunks.
+		 * @return {@link List} of {@link SSCBulkChunkMetrics}
+		 */
+		public List<SSCBulkChunkMetrics> getChunkMetrics() {
+			synchronized (chunkMetrics) {
+				return new ArrayList<>(chunkMetrics);
+			}
+		}
+		
 		/**
 		 * Execute the bulk requests that were previously added using the 
 		 * {@link #addBulkRequest(String, WebTarget)} or {@link #addBulkRequest(String, WebTarget, Object)}
 		 * methods. In the order that requests were added, each entry in the 
-		 * returned {@link JSONList} contains the result of that request.
+		 * returned {@link JSONList} contains the result of that request. If a 
+		 * request failed, i.e. the chunk containing that request failed even 
+		 * after retrying and splitting (if applicable), or SSC didn't return
+		 * a result for that request, the corresponding entry contains the 
+		 * original request under the 'request' property, an empty 'responses' 
+		 * list, the error message under the 'error' property and, if available,
+		 * the HTTP status code of the failed bulk request under the 'errorStatusCode' 
+		 * property. This method
+		 * never returns null entries, and doesn't throw an exception if any 
+		 * of the chunks fail.
 		 * 
 		 * @return {@link JSONList} containing the results for each of the requests in the bulk request
 		 */
 		@SSCRequiredActionsPermitted("POST=/api/v\\d+/bulk")
 		public JSONList execute() {
+			chunkMetrics.clear();
+			JSONMap[] results = new JSONMap[requests.size()];
+			ParallelTasks.forEach(conn, parallelism, createChunks(), chunk -> executeChunk(chunk[0], chunk[1], results));
+			return new JSONList(Arrays.asList(results));
+		}
+		
+		/**
+		 * Split the accumulated requests into chunks, based on the configured maximum
+		 * number of requests and bytes per chunk. Each chunk is represented by a start
+		 * (inclusive) and end (exclusive) index into the list of requests.
+		 */
+		private List<int[]> createChunks() {
+			List<int[]> result = new ArrayList<>();
+			int start = 0;
+			long bytes = 0;
+			for ( int i = 0 ; i < requests.size() ; i++ ) {
+				long requestBytes = estimateBytes(requests.get(i, JSONMap.class));
+				if ( i>start && (i-start>=maxRequestsPerChunk || bytes+requestBytes>maxChunkBytes) ) {
+					result.add(new int[] {start, i});
+					start = i; bytes = 0;
+				}
+				bytes += requestBytes;
+			}
+			if ( start<requests.size() ) {
+				result.add(new int[] {start, requests.size()});
+			}
+			return result;
+		}
+		
+		/**
+		 * Estimate the number of bytes needed to represent the given request in the
+		 * bulk request body. This doesn't need to be exact; it is only used to avoid
+		 * sending excessively large bulk requests.
+		 */
+		private long estimateBytes(JSONMap request) {
+			Object postData = request.get("postData");
+			return 64 + request.get("uri", String.class).length() + (postData==null ? 0 : postData.toString().length());
+		}
+		
+		/**
+		 * Execute the chunk identified by the given start (inclusive) and end (exclusive) 
+		 * indexes, storing the results in the given array. If a chunk containing only GET
+		 * requests fails, it is retried up to {@link #chunkRetries} times, after which the 
+		 * chunk is split in half. If a chunk containing only a single request fails, or a 
+		 * chunk containing any non-GET requests fails, error entries are stored for all 
+		 * requests in the chunk.
+		 */
+		private void executeChunk(int start, int end, JSONMap[] results) {
+			boolean retryable = isGetOnly(start, end);
+			int maxAttempts = retryable ? chunkRetries : 0;
+			RuntimeException lastException = null;
+			for ( int attempt = 0 ; attempt <= maxAttempts ; attempt++ ) {
+				long startTime = System.currentTimeMillis();
+				try {
+					JSONList chunkResults = executeBulkRequest(new JSONList(requests.subList(start, end)), retryable);
+					chunkMetrics.add(new SSCBulkChunkMetrics(end-start, System.currentTimeMillis()-startTime, attempt, true));
+					for ( int i = start ; i < end ; i++ ) {
+						JSONMap result = i-start < chunkResults.size() ? chunkResults.get(i-start, JSONMap.class) : null;
+						results[i] = result!=null ? result : createErrorResult(i, "No result returned by SSC for this request");
+					}
+					return;
+				} catch ( RuntimeException e ) {
+					chunkMetrics.add(new SSCBulkChunkMetrics(end-start, System.currentTimeMillis()-startTime, attempt, false));
+					lastException = e;
+				}
+			}
+			if ( retryable && end-start>1 ) {
+				log.debug("Bulk request chunk failed, splitting chunk of size "+(end-start), lastException);
+				int mid = start+(end-start)/2;
+				executeChunk(start, mid, results);
+				executeChunk(mid, end, results);
+			} else {
+				log.debug("Bulk request chunk of size "+(end-start)+" failed, starting with "+requests.get(start, JSONMap.class).get("uri"), lastException);
+				for ( int i = start ; i < end ; i++ ) {
+					results[i] = createErrorResult(i, lastException.getMessage());
+					if ( lastException instanceof UnsuccessfulResponseException ) {
+						results[i].put("errorStatusCode", ((UnsuccessfulResponseException)lastException).getStatusCode());
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Check whether all requests in the given range are GET requests, 
+		 * which can safely be retried.
+		 */
+		private boolean isGetOnly(int start, int end) {
+			for ( int i = start ; i < end ; i++ ) {
+				if ( !HttpMethod.GET.equalsIgnoreCase(requests.get(i, JSONMap.class).get("httpVerb", String.class)) ) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		private JSONMap createErrorResult(int index, String error) {
+			JSONMap errorResult = new JSONMap();
+			errorResult.put("request", requests.get(index));
+			errorResult.put("responses", new JSONList());
+			errorResult.put("error", error);
+			return errorResult;
+		}
+		
+		/**
+		 * Send a single bulk request containing the given requests to SSC. As bulk requests
+		 * are sent as POST requests, the connection doesn't retry connection errors that may 
+		 * have occurred after the request was sent, like SSC closing a pooled connection. If
+		 * replayable is true, indicating that the chunk only contains GET requests, such
+		 * connection errors are retried once.
+		 */
+		private JSONList executeBulkRequest(JSONList chunkRequests, boolean replayable) {
 			WebTarget bulkTarget = conn.getBaseResource().path("/api/v1/bulk");
 			JSONMap bulkRequest = new JSONMap();
-			bulkRequest.put("requests", this.requests);
-			return conn
-					.executeRequest(HttpMethod.POST, bulkTarget, Entity.entity(bulkRequest, MediaType.APPLICATION_JSON), JSONMap.class)
-					.getOrCreateJSONList("data");
+			bulkRequest.put("requests", chunkRequests);
+			Entity<JSONMap> entity = Entity.entity(bulkRequest, MediaType.APPLICATION_JSON);
+			try {
+				return conn.executeRequest(HttpMethod.POST, bulkTarget, entity, JSONMap.class).getOrCreateJSONList("data");
+			} catch ( ProcessingException e ) {
+				if ( !replayable ) { throw e; }
+				log.debug("Connection error while executing GET-only bulk request chunk, retrying", e);
+				return conn.executeRequest(HttpMethod.POST, bulkTarget, entity, JSONMap.class).getOrCreateJSONList("data");
+			}
 		}
 	}
 	
 	/**
-	 * This class allows for adding extra data to a given {@link JSONList}, using
+	 * This class provides timing information for a single bulk request
+	 * chunk executed by {@link SSCBulkRequestBuilder}.
+	 */
+	@Getter @ToString @RequiredArgsConstructor
+	public static final class SSCBulkChunkMetrics {
+		/** Number of requests contained in the chunk */
+		private final int requests;
+		/** Time taken to execute the chunk */
+		private final long durationMillis;
+		/** Attempt number, starting at 0 for the initial attempt */
+		private final int attempt;
+		/** Whether the chunk was executed successfully */
+		private final boolean successful;
+	}
+
+	/**
+	 * <p>This class allows for adding extra data to a given {@link JSONList}, using
 	 * a single SSC bulk request to load the extra data for all {@link JSONList} 
-	 * entries passed to the {@link SSCBulkEmbedder#addBulkData(JSONList)} method.
+	 * entries passed to the {@link SSCBulkEmbedder#addBulkData(JSONList)} method.</p>
+	 * 
+	 * <p>If multiple entries resolve to the same embed URI, only a single request
+	 * for that URI is added to the bulk request, and the result is added to each 
+	 * of these entries. Optionally, results can be cached across invocations of
+	 * {@link #addBulkData(JSONList)} by configuring a non-zero {@link #cacheSize(int)},
+	 * in which case up to the given number of most recently used results are
+	 * re-used for subsequent pages without being requested from SSC again. Note 
+	 * that in both cases, entries that resolve to the same URI will share the same
+	 * embedded result object.</p>
 	 *  
 	 * @author Ruud Senden
 	 *
 	 */
 	@Setter @Accessors(fluent=true)
 	public static final class SSCBulkEmbedder {
-		private Map<String,JSONMap> uriToObjectMap = new HashMap<>();
 		private final SSCAuthenticatingRestConnection conn;
 		private final StandardEmbedDefinition embedDefinition;
+		/** Maximum number of response bodies to be cached across pages; defaults to {@link SSCEmbedConfig#getCacheSize()} */
+		private int cacheSize = 0;
+		@Setter(AccessLevel.NONE) private Map<String, JSONMap> cache;
 		
 		/**
-		 * Create instance using the given {@link SSCAuthenticatingRestConnection}
+		 * Create instance using the given {@link SSCAuthenticatingRestConnection}. The
+		 * cache size is initialized from {@link SSCEmbedConfig#getCacheSize()}.
 		 * @param conn {@link SSCAuthenticatingRestConnection} used to connect to SSC
 		 * @param embedConfig {@link SSCEmbedConfig} instance
 		 */
 		public SSCBulkEmbedder(SSCAuthenticatingRestConnection conn, SSCEmbedConfig embedConfig) {
 			this.conn = conn;
 			this.embedDefinition = new StandardEmbedDefinition(embedConfig);
+			this.cacheSize = embedConfig.getCacheSize();
 		}
 		
 		/**
@@ -177,70 +385,129 @@ public class SSCBulkAPI extends AbstractSSCAPI {
 		 */
 		@SSCCopyToConstructors
 		public void addBulkData(JSONList jsonList) {
+			// Per-page state, mapping each distinct URI to all entries that need the result for that URI
+			Map<String, List<JSONMap>> uriToObjectsMap = new LinkedHashMap<>();
 			SSCBulkRequestBuilder builder = conn.api(SSCBulkAPI.class).bulkRequestBuilder();
-			addBulkRequests(builder, jsonList);
-			try {
-				JSONList bulkResults = builder.execute();
-				bulkResults.asValueType(JSONMap.class).forEach(this::addResultToInputList);
-			} catch (RuntimeException e) {
-				embedDefinition.handleError(e);
+			addBulkRequests(builder, uriToObjectsMap, jsonList);
+			if ( !uriToObjectsMap.isEmpty() ) {
+				long startTime = System.nanoTime();
+				boolean successful = false;
+				try {
+					JSONList bulkResults = builder.execute();
+					// Bulk results are returned in the same order as the requests were added
+					Iterator<Map.Entry<String, List<JSONMap>>> entries = uriToObjectsMap.entrySet().iterator();
+					for ( JSONMap bulkResult : bulkResults.asValueType(JSONMap.class) ) {
+						Map.Entry<String, List<JSONMap>> entry = entries.next();
+						if ( bulkResult!=null ) { addResultToInputList(bulkResult, entry.getKey(), entry.getValue()); }
+					}
+					successful = true;
+				} catch (RuntimeException e) {
+					embedDefinition.handleError(e);
+				} finally {
+					conn.getMetricsListener().embedCompleted(embedDefinition.getPropertyName(), 
+							uriToObjectsMap.size(), System.nanoTime()-startTime, successful);
+				}
 			}
 		}
 		
 		/**
-		 * Given the request URI for the single bulk result that we are currently processing,
-		 * this method looks up the corresponding {@link JSONMap} from {@link #uriToObjectMap}
-		 * (which is the {@link JSONMap} entry that was used to generate the bulk request).
-		 * The bulk result contents are then added to this {@link JSONMap} under the property
-		 * name configured in the {@link #embedDefinition}.
+		 * Add the contents of the given bulk result to each of the given {@link JSONMap} 
+		 * entries (which are the {@link JSONMap} entries that were used to generate the 
+		 * bulk request for the given URI), under the property name configured in the 
+		 * {@link #embedDefinition}. If caching is enabled, the response body is added to
+		 * the cache. 
 		 *   
 		 * @param singleBulkResult The bulk result currently being processed
+		 * @param uri The URI for the bulk result currently being processed
+		 * @param orgInputs The {@link JSONMap} entries that need the bulk result
 		 */
-		private void addResultToInputList(JSONMap singleBulkResult) {
-			String uri = singleBulkResult.getPath("request.uri", String.class);
-			JSONMap orgInput = uriToObjectMap.get(uri);
-			if ( orgInput==null ) {
-				throw new RuntimeException("Unable to find original input object for bulk URI "+uri);
+		private void addResultToInputList(JSONMap singleBulkResult, String uri, List<JSONMap> orgInputs) {
+			String error = singleBulkResult.get("error", String.class);
+			if ( error!=null ) {
+				// Only this single request failed, see SSCBulkRequestBuilder#execute()
+				embedDefinition.handleError(new RuntimeException(error));
+				return;
 			}
 			JSONList responses = singleBulkResult.getPath("responses", JSONList.class);
 			if ( responses.size()>1 ) {
 				throw new RuntimeException("Looping not supported");
 			}
 			if ( responses.size()>0 ) {
-				orgInput.put(embedDefinition.getPropertyName(), embedDefinition.getResult(responses.get(0, JSONMap.class).getPath("body", JSONMap.class)));
+				JSONMap body = responses.get(0, JSONMap.class).getPath("body", JSONMap.class);
+				putCachedBody(uri, body);
+				addResult(body, orgInputs);
+			}
+		}
+		
+		private void addResult(JSONMap body, List<JSONMap> orgInputs) {
+			Object result = embedDefinition.getResult(body);
+			for ( JSONMap orgInput : orgInputs ) {
+				orgInput.put(embedDefinition.getPropertyName(), result);
 			}
 		}
 		
 		/**
 		 * For each entry in the given {@link JSONList}, this method calls 
-		 * {@link #addBulkRequest(SSCBulkRequestBuilder, JSONMap)} to add 
+		 * {@link #addBulkRequest(SSCBulkRequestBuilder, Map, JSONMap)} to add 
 		 * a corresponding request to the given {@link SSCBulkRequestBuilder}.
 		 * 
 		 * @param builder {@link SSCBulkRequestBuilder} used to configure the bulk request
+		 * @param uriToObjectsMap {@link Map} from URI to the entities that need the result for that URI 
 		 * @param jsonList {@link JSONList} containing the entities for which extra data is to be embedded
 		 */
-		private void addBulkRequests(SSCBulkRequestBuilder builder, JSONList jsonList) {
-			jsonList.asValueType(JSONMap.class).forEach(json->addBulkRequest(builder, json));
+		private void addBulkRequests(SSCBulkRequestBuilder builder, Map<String, List<JSONMap>> uriToObjectsMap, JSONList jsonList) {
+			jsonList.asValueType(JSONMap.class).forEach(json->addBulkRequest(builder, uriToObjectsMap, json));
 		}
 		
 		/**
 		 * This method performs the following:
 		 * <ul>
 		 *  <li>Evaluate the configured URI {@link Expression} using the given {@link JSONMap} as input</li>
-		 *  <li>Add a request for the evaluated URI to the given {@link SSCBulkRequestBuilder}</li>
-		 *  <li>Store a mapping from the evaluated URI to the corresponding {@link JSONMap} in {@link #uriToObjectMap}</li>
+		 *  <li>If a cached response is available for the evaluated URI, directly add the result to the given {@link JSONMap}</li>
+		 *  <li>Otherwise, if this is the first entry for the evaluated URI, add a request for the evaluated URI 
+		 *      to the given {@link SSCBulkRequestBuilder}</li>
+		 *  <li>Add a mapping from the evaluated URI to the corresponding {@link JSONMap} in the given {@link Map}</li>
 		 * </ul>
 		 * @param builder {@link SSCBulkRequestBuilder} used to configure the bulk request
+		 * @param uriToObjectsMap {@link Map} from URI to the entities that need the result for that URI
 		 * @param input {@link JSONMap} entity for which to add a bulk request entry
 		 */
-		private void addBulkRequest(SSCBulkRequestBuilder builder, JSONMap input) {
+		private void addBulkRequest(SSCBulkRequestBuilder builder, Map<String, List<JSONMap>> uriToObjectsMap, JSONMap input) {
 			if ( embedDefinition.isEnabled(input) ) {
 				String uri = embedDefinition.buildUri(input);
 				if ( StringUtils.isNotBlank(uri) ) {
 					final WebTarget target = conn.getResource(uri);
-					builder.addBulkRequest(HttpMethod.GET, target);
-					uriToObjectMap.put(target.getUri().toString(), input);
+					String targetUri = target.getUri().toString();
+					JSONMap cachedBody = getCachedBody(targetUri);
+					if ( cachedBody!=null ) {
+						addResult(cachedBody, Collections.singletonList(input));
+					} else {
+						uriToObjectsMap.computeIfAbsent(targetUri, k -> {
+							builder.addBulkRequest(HttpMethod.GET, target);
+							return new ArrayList<>();
+						}).add(input);
+					}
+				}
+			}
+		}
+		
+		private synchronized JSONMap getCachedBody(String uri) {
+			return cache==null ? null : cache.get(uri);
+		}
+		
+		private synchronized void putCachedBody(String uri, JSONMap body) {
+			if ( cacheSize>0 && body!=null ) {
+				if ( cache==null ) {
+					final int maxSize = cacheSize;
+					cache = new LinkedHashMap<String, JSONMap>(16, 0.75f, true) {
+						private static final long serialVersionUID = 1L;
+						@Override
+						protected boolean removeEldestEntry(Map.Entry<String, JSONMap> eldest) {
+							return size()>maxSize;
+						}
+					};
 				}
+				cache.put(uri, body);
 			}
 		}
 	}
@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.client.ssc.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.WebTarget;
+
+import com.fortify.client.ssc.api.SSCBulkAPI.SSCBulkRequestBuilder;
+import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * <p>This class allows for asynchronously waiting for SSC jobs and artifacts to
+ * complete processing. Instances are connection-scoped, and can be retrieved
+ * through {@link SSCAuthenticatingRestConnection#getCompletionWatcher()}.</p>
+ * 
+ * <p>Rather than having every caller poll SSC for the state of a single entity, 
+ * all outstanding jobs and artifacts are polled by a single scheduler thread. On
+ * every tick, the state of all entities that are due to be polled is retrieved
+ * using one or more SSC bulk requests, each containing up to {@link #maxEntitiesPerRequest()}
+ * entities. The poll interval for each entity starts at {@link #initialPollIntervalMillis()},
+ * and is increased by {@link #backoffMultiplier()} after every poll, up to 
+ * {@link #maxPollIntervalMillis()}.</p>
+ * 
+ * <p>The {@link CompletableFuture} instances returned by the various watch methods 
+ * are completed with the latest entity data once the entity is no longer being processed,
+ * or once the given time-out expires (in which case callers should check the entity 
+ * state to determine whether processing has completed). Callers may cancel the returned
+ * {@link CompletableFuture} to stop watching an entity.</p>
+ * 
+ * <p>Transient polling errors, like connection errors or server errors, are logged 
+ * and the affected entities are polled again on a subsequent tick. Non-transient 
+ * errors, like missing permissions or a non-existing entity, complete the affected
+ * {@link CompletableFuture} instances exceptionally.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@CommonsLog @Getter @Setter @Accessors(fluent=true)
+public final class SSCCompletionWatcher implements AutoCloseable {
+	private static final Set<String> INCOMPLETE_JOB_STATES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("RUNNING", "PREPARED", "WAITING_FOR_WORKER")));
+	private static final Set<String> INCOMPLETE_ARTIFACT_STATES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("PROCESSING", "SCHED_PROCESSING")));
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final SSCAuthenticatingRestConnection conn;
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final Set<Watch> watches = ConcurrentHashMap.newKeySet();
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private final ReentrantLock schedulerLock = new ReentrantLock();
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private ScheduledExecutorService scheduler;
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+	private boolean closed = false;
+	private volatile long tickMillis = 250;
+	private volatile long initialPollIntervalMillis = 1000;
+	private volatile long maxPollIntervalMillis = 15000;
+	private volatile double backoffMultiplier = 1.5;
+	private volatile int maxEntitiesPerRequest = 50;
+	
+	/**
+	 * Create a new {@link SSCCompletionWatcher} instance for the given connection.
+	 * Usually, callers should use {@link SSCAuthenticatingRestConnection#getCompletionWatcher()}
+	 * to get the connection-scoped instance.
+	 * @param conn {@link SSCAuthenticatingRestConnection} used to connect to SSC
+	 */
+	public SSCCompletionWatcher(SSCAuthenticatingRestConnection conn) {
+		this.conn = conn;
+	}
+	
+	/**
+	 * Watch the SSC job with the given id until it is no longer running, or until
+	 * the given time-out expires.
+	 * @param jobId Id of the job to watch
+	 * @param timeOutMillis Time-out in milliseconds
+	 * @return {@link CompletableFuture} that is completed with the job data
+	 */
+	public CompletableFuture<JSONMap> watchJob(String jobId, long timeOutMillis) {
+		WebTarget target = conn.getBaseResource().path("/api/v1/jobs").queryParam("q", "id:\""+jobId+"\"");
+		return watch(target, body -> {
+			JSONList data = body.get("data", JSONList.class);
+			return data==null || data.isEmpty() ? null : data.get(0, JSONMap.class);
+		}, job -> !INCOMPLETE_JOB_STATES.contains(job.get("state", String.class)), timeOutMillis);
+	}
+	
+	/**
+	 * Watch the SSC artifact with the given id until it is no longer being processed, 
+	 * or until the given time-out expires.
+	 * @param artifactId Id of the artifact to watch
+	 * @param timeOutMillis Time-out in milliseconds
+	 * @return {@link CompletableFuture} that is completed with the artifact data
+	 */
+	public CompletableFuture<JSONMap> watchArtifact(String artifactId, long timeOutMillis) {
+		WebTarget target = conn.getBaseResource().path("/api/v1/artifacts").path(artifactId);
+		return watch(target, body -> body.get("data", JSONMap.class), 
+				artifact -> !INCOMPLETE_ARTIFACT_STATES.contains(artifact.get("status", String.class)), timeOutMillis);
+	}
+	
+	private CompletableFuture<JSONMap> watch(WebTarget target, Function<JSONMap, JSONMap> dataExtractor, Function<JSONMap, Boolean> isComplete, long timeOutMillis) {
+		Watch watch = new Watch(target, dataExtractor, isComplete, System.currentTimeMillis()+timeOutMillis, initialPollIntervalMillis);
+		schedulerLock.lock();
+		try {
+			if ( closed ) {
+				throw new IllegalStateException("This "+getClass().getSimpleName()+" instance has been closed");
+			}
+			watches.add(watch);
+			ensureSchedulerStarted();
+		} finally {
+			schedulerLock.unlock();
+		}
+		return watch.future;
+	}
+	
+	/**
+	 * Stop the scheduler thread; any outstanding {@link CompletableFuture} instances 
+	 * are cancelled. Once closed, this instance no longer accepts new watches.
+	 */
+	@Override
+	public void close() {
+		schedulerLock.lock();
+		try {
+			closed = true;
+			if ( scheduler!=null ) { scheduler.shutdownNow(); }
+			scheduler = null;
+		} finally {
+			schedulerLock.unlock();
+		}
+		for ( Watch watch : watches ) {
+			watch.future.cancel(false);
+		}
+		watches.clear();
+	}
+	
+	/**
+	 * Start the scheduler if not yet started; must be called while holding the {@link #schedulerLock}
+	 */
+	private void ensureSchedulerStarted() {
+		if ( scheduler==null ) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, getClass().getSimpleName());
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.scheduleWithFixedDelay(this::tick, 0, tickMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/**
+	 * Poll all watched entities that are due, and complete the corresponding
+	 * {@link CompletableFuture} instances if processing has completed or the
+	 * time-out has expired. Any exceptions are logged and handled, as an uncaught 
+	 * exception would cancel any subsequent ticks.
+	 */
+	private void tick() {
+		try {
+			long now = System.currentTimeMillis();
+			List<Watch> due = new ArrayList<>();
+			for ( Watch watch : watches ) {
+				if ( watch.future.isDone() ) {
+					watches.remove(watch);
+				} else if ( watch.nextPollAt<=now ) {
+					due.add(watch);
+				}
+			}
+			for ( int i = 0 ; i < due.size() ; i+=maxEntitiesPerRequest ) {
+				poll(due.subList(i, Math.min(due.size(), i+maxEntitiesPerRequest)));
+			}
+			for ( Watch watch : due ) {
+				watch.update(System.currentTimeMillis());
+				if ( watch.future.isDone() ) { watches.remove(watch); }
+			}
+		} catch ( RuntimeException e ) {
+			log.warn("Unexpected error while polling SSC for completion status", e);
+		}
+	}
+	
+	private void poll(List<Watch> batch) {
+		SSCBulkRequestBuilder builder = conn.api(SSCBulkAPI.class).bulkRequestBuilder();
+		batch.forEach(watch->builder.addBulkRequest(HttpMethod.GET, watch.target));
+		try {
+			JSONList results = builder.execute();
+			for ( int i = 0 ; i < batch.size() && i < results.size() ; i++ ) {
+				processResult(batch.get(i), results.get(i, JSONMap.class));
+			}
+		} catch ( RuntimeException e ) {
+			log.warn("Error polling SSC for completion status; will retry on next poll", e);
+		}
+	}
+	
+	/**
+	 * Process the bulk result for the given {@link Watch}. Bulk error entries and 
+	 * unsuccessful responses either fail the {@link Watch}, or are ignored such that
+	 * the entity is polled again on the next poll, depending on whether the error
+	 * is transient. 
+	 */
+	private void processResult(Watch watch, JSONMap result) {
+		if ( result==null ) { return; }
+		if ( result.containsKey("error") ) {
+			handleError(watch, result.get("errorStatusCode", Integer.class), result.get("error", String.class));
+		} else {
+			JSONList responses = result.get("responses", JSONList.class);
+			JSONMap body = responses==null || responses.isEmpty() ? null : responses.get(0, JSONMap.class).get("body", JSONMap.class);
+			Integer responseCode = body==null ? null : body.get("responseCode", Integer.class);
+			if ( responseCode!=null && responseCode>=300 ) {
+				handleError(watch, responseCode, body.get("message", String.class));
+			} else if ( body!=null ) {
+				watch.lastData = watch.dataExtractor.apply(body);
+			}
+		}
+	}
+	
+	private void handleError(Watch watch, Integer statusCode, String message) {
+		String fullMessage = "Error polling "+watch.target.getUri()+(statusCode==null ? "" : " (HTTP "+statusCode+")")+": "+message;
+		if ( isTransient(statusCode) ) {
+			log.warn(fullMessage+"; will retry on next poll");
+		} else {
+			watch.future.completeExceptionally(new RuntimeException(fullMessage));
+		}
+	}
+	
+	/**
+	 * Client errors like 401 (not authenticated), 403 (no permission) or 404 (not found) 
+	 * will not go away by polling again; all other errors are considered transient.
+	 */
+	private static boolean isTransient(Integer statusCode) {
+		return statusCode==null || statusCode<400 || statusCode>=500 || statusCode==408 || statusCode==429;
+	}
+	
+	/**
+	 * Wait for the given {@link CompletableFuture} to complete. As opposed to
+	 * {@link CompletableFuture#join()}, this method can be interrupted, in which 
+	 * case the given {@link CompletableFuture} will be cancelled. 
+	 */
+	static JSONMap await(CompletableFuture<JSONMap> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for completion", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof RuntimeException 
+				? (RuntimeException)e.getCause() 
+				: new RuntimeException("Error waiting for completion", e.getCause());
+		}
+	}
+	
+	/**
+	 * This class holds the state for a single watched entity. All fields other 
+	 * than the {@link CompletableFuture} are only accessed by the scheduler thread.
+	 */
+	private final class Watch {
+		private final CompletableFuture<JSONMap> future = new CompletableFuture<>();
+		private final WebTarget target;
+		private final Function<JSONMap, JSONMap> dataExtractor;
+		private final Function<JSONMap, Boolean> isComplete;
+		private final long deadline;
+		private long pollInterval;
+		private long nextPollAt = 0;
+		private JSONMap lastData;
+		
+		private Watch(WebTarget target, Function<JSONMap, JSONMap> dataExtractor, Function<JSONMap, Boolean> isComplete, long deadline, long pollInterval) {
+			this.target = target;
+			this.dataExtractor = dataExtractor;
+			this.isComplete = isComplete;
+			this.deadline = deadline;
+			this.pollInterval = pollInterval;
+		}
+		
+		private void update(long now) {
+			if ( lastData!=null && isComplete.apply(lastData) ) {
+				future.complete(lastData);
+			} else if ( now>=deadline ) {
+				if ( lastData!=null ) {
+					future.complete(lastData);
+				} else {
+					future.completeExceptionally(new TimeoutException("Timed out waiting for "+target.getUri()));
+				}
+			} else {
+				nextPollAt = now+pollInterval;
+				pollInterval = Math.min(maxPollIntervalMillis, (long)(pollInterval*backoffMultiplier));
+			}
+		}
+	}
+}
@@ -24,7 +24,11 @@
  ******************************************************************************/
 package com.fortify.client.ssc.api;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -32,13 +36,22 @@ import javax.ws.rs.HttpMethod;
 import javax.ws.rs.client.Entity;
 
 import com.fortify.client.ssc.annotation.SSCRequiredActionsPermitted;
+import com.fortify.client.ssc.api.SSCBulkAPI.SSCBulkRequestBuilder;
 import com.fortify.client.ssc.api.query.builder.SSCApplicationVersionCustomTagsQueryBuilder;
 import com.fortify.client.ssc.api.query.builder.SSCCustomTagsQueryBuilder;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.connection.ParallelTasks;
+import com.fortify.util.rest.connection.UnsuccessfulResponseException;
 import com.fortify.util.rest.json.JSONList;
 import com.fortify.util.rest.json.JSONMap;
 import com.fortify.util.spring.expression.helper.InternalExpressionHelper;
 
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
 /**
  * This class is used to access SSC custom tag related functionality.
  * 
@@ -74,27 +87,35 @@ public class SSCCustomTagAPI extends AbstractSSCAPI {
 	
 	/**
 	 * This class provides various utility methods for working with SSC
-	 * custom tag data. Data is loaded from SSC only once per 
-	 * {@link SSCCustomTagHelper} instance. As such it is recommended to 
-	 * store and re-use a single instance of this class where possible. 
-	 * Keep in mind though that you need to get a fresh instance in order 
-	 * to see any attribute definition changes on SSC. 
+	 * custom tag data. Data is loaded from SSC and indexed for efficient 
+	 * lookups by name and GUID. The index is cached in the 
+	 * {@link SSCAuthenticatingRestConnection#getReferenceDataCache()} and 
+	 * shared by all helper instances for the same connection, until the
+	 * configured time-to-live expires or the index is invalidated by calling
+	 * {@link #refresh()}. Instances can be safely shared between threads. 
 	 * 
 	 * @author Ruud Senden
 	 *
 	 */
 	public final class SSCCustomTagHelper {
-		private JSONList customTags;
+		private final SSCRefreshableIndex<CustomTagIndex> index = 
+				new SSCRefreshableIndex<>(conn().getReferenceDataCache(), CustomTagIndex.class,
+						SSCCustomTagAPI.this::getCustomTags, CustomTagIndex::new);
+		
+		/**
+		 * Discard any cached custom tag data, causing the data to be 
+		 * re-loaded from SSC on next access.
+		 */
+		public void refresh() {
+			index.invalidate();
+		}
 
 		/**
 		 * Lazy-load the list of custom tags
-		 * @return {@link JSONList} containing custom tag definitions
+		 * @return Copy of the {@link JSONList} containing custom tag definitions
 		 */
 		public JSONList getCustomTags() {
-			if ( customTags==null ) {
-				customTags = SSCCustomTagAPI.this.getCustomTags();
-			}
-			return customTags;
+			return SSCRefreshableIndex.copy(index.get().customTags);
 		}
 		
 		/**
@@ -103,7 +124,7 @@ public class SSCCustomTagAPI extends AbstractSSCAPI {
 		 * @return Custom tag GUID for the given custom tag name
 		 */
 		public String getCustomTagGuid(String customTagName) {
-			return getCustomTags().mapValue("name.toLowerCase()", customTagName.toLowerCase(), "guid", String.class);
+			return index.get().guidsByLowerCaseName.get(customTagName.toLowerCase());
 		}
 		
 		/**
@@ -112,7 +133,33 @@ public class SSCCustomTagAPI extends AbstractSSCAPI {
 		 * @return Custom tag name for the given custom tag GUID
 		 */
 		public String getCustomTagName(String customTagGUID) {
-			return getCustomTags().mapValue("guid", customTagGUID, "name", String.class);
+			return index.get().namesByGuid.get(customTagGUID);
+		}
+	}
+	
+	/**
+	 * Immutable index on custom tags, built once for every time the
+	 * custom tags are loaded from SSC. This class is also used as the
+	 * key for the reference data cache. Similar to 
+	 * {@link JSONList#mapValue(String, Object, String, Class)}, the first 
+	 * matching custom tag wins if multiple custom tags share the same 
+	 * (case-insensitive) name.
+	 */
+	private static final class CustomTagIndex {
+		private final JSONList customTags;
+		private final Map<String, String> guidsByLowerCaseName = new HashMap<>();
+		private final Map<String, String> namesByGuid = new HashMap<>();
+		
+		private CustomTagIndex(JSONList customTags) {
+			this.customTags = customTags;
+			for ( JSONMap customTag : customTags.asValueType(JSONMap.class) ) {
+				String name = customTag.get("name", String.class);
+				String guid = customTag.get("guid", String.class);
+				if ( name!=null ) {
+					guidsByLowerCaseName.putIfAbsent(name.toLowerCase(), guid);
+				}
+				namesByGuid.putIfAbsent(guid, name);
+			}
 		}
 	}
 
@@ -149,11 +196,30 @@ public class SSCCustomTagAPI extends AbstractSSCAPI {
 		return new SSCApplicationVersionCustomTagUpdater(applicationVersionId);
 	}
 	
+	/**
+	 * <p>This class allows for updating custom tag values for one or more issues.</p>
+	 * 
+	 * <p>When executed, issues are sent to SSC in batches of up to {@link #batchSize(int)}
+	 * issues each. On multi-threaded connections, up to {@link #parallelism(int)} batches 
+	 * are sent concurrently. If SSC rejects a batch because of a revision conflict (HTTP
+	 * status 409), for example because an issue was modified after it was loaded, the 
+	 * current issue revisions are re-fetched from SSC and the batch is retried up to 
+	 * {@link #conflictRetries(int)} times. Results for each batch are returned by 
+	 * {@link #executeWithResults()}.</p>
+	 */
 	public final class SSCApplicationVersionCustomTagUpdater {
 		private final String applicationVersionId;
 		private SSCCustomTagHelper customTagHelper;
 		private JSONList issues = new JSONList();
 		private JSONList customTagAuditValues = new JSONList();
+		/** Maximum number of issues per batch, default 500 */
+		@Setter @Accessors(fluent=true) private int batchSize = 500;
+		/** Maximum number of batches to be executed concurrently on multi-threaded connections, default 4 */
+		@Setter @Accessors(fluent=true) private int parallelism = 4;
+		/** Number of times to retry a batch after a revision conflict, default 2 */
+		@Setter @Accessors(fluent=true) private int conflictRetries = 2;
+		/** Whether {@link #execute()} and {@link #executeWithResults()} should throw an exception if any batch failed, default true */
+		@Setter @Accessors(fluent=true) private boolean failOnError = true;
 		
 		/**
 		 * Private constructor; instances can only be created through
@@ -188,8 +254,8 @@ public class SSCCustomTagAPI extends AbstractSSCAPI {
 		 */
 		public SSCApplicationVersionCustomTagUpdater forVulnerability(Object vulnerability) {
 			JSONMap issue = new JSONMap();
-			Long id = InternalExpressionHelper.get().evaluateSimpleExpression(vulnerability, "id", Long.class);
-			Long revision = InternalExpressionHelper.get().evaluateSimpleExpression(vulnerability, "revision", Long.class);
+			Long id = getLongProperty(vulnerability, "id");
+			Long revision = getLongProperty(vulnerability, "revision");
 			if ( revision == null ) { revision = 0L; }
 			issue.put("id", id);
 			issue.put("revision", revision);
@@ -197,6 +263,17 @@ public class SSCCustomTagAPI extends AbstractSSCAPI {
 			return this;
 		}
 		
+		/**
+		 * Get the given property from the given vulnerability as a {@link Long}. For
+		 * {@link JSONMap} instances, the property value is retrieved directly; SpEL is
+		 * only used for other vulnerability types. 
+		 */
+		private Long getLongProperty(Object vulnerability, String property) {
+			return vulnerability instanceof JSONMap 
+					? ((JSONMap)vulnerability).get(property, Long.class)
+					: InternalExpressionHelper.get().evaluateSimpleExpression(vulnerability, property, Long.class);
+		}
+		
 		/**
 		 * Specify a collection of vulnerabilities for which custom tags should be updated.
 		 * See {@link #forVulnerability(Object)} for a description of expected format of the
@@ -262,18 +339,106 @@ public class SSCCustomTagAPI extends AbstractSSCAPI {
 		}
 		
 		/**
-		 * Send the attribute(s) update request to SSC.
+		 * Send the custom tag update requests to SSC. This is equivalent to calling
+		 * {@link #executeWithResults()} and ignoring the returned batch results. 
 		 */
 		@SSCRequiredActionsPermitted({"POST=/api/v\\d+/projectVersions/\\d+/issues/action"})
 		public void execute() {
-			if ( issues.size()>0 && customTagAuditValues.size()>0 ) {
-				JSONMap request = new JSONMap();
-				request.put("type", "AUDIT_ISSUE");
-				request.putPath("values.issues", issues);
-				request.putPath("values.customTagAudit", customTagAuditValues);
-				conn().executeRequest(HttpMethod.POST, 
-						conn().getBaseResource().path("/api/v1/projectVersions").path(applicationVersionId).path("issues/action"),
-						Entity.entity(request, "application/json"), JSONMap.class);
+			executeWithResults();
+		}
+		
+		/**
+		 * Send the custom tag update requests to SSC. All batches are executed, even if
+		 * some batches fail. If {@link #failOnError(boolean)} is enabled (default), an
+		 * exception is thrown after all batches have been executed if any of the batches 
+		 * failed; otherwise callers should inspect the returned batch results. 
+		 * @return {@link List} of {@link SSCCustomTagAuditBatchResult} instances, in batch order
+		 */
+		@SSCRequiredActionsPermitted({"POST=/api/v\\d+/projectVersions/\\d+/issues/action"})
+		public List<SSCCustomTagAuditBatchResult> executeWithResults() {
+			if ( issues.size()==0 || customTagAuditValues.size()==0 ) {
+				return Collections.emptyList();
+			}
+			List<int[]> batches = new ArrayList<>();
+			int size = Math.max(1, batchSize);
+			for ( int start = 0, index = 0 ; start < issues.size() ; start += size, index++ ) {
+				batches.add(new int[] {index, start, Math.min(issues.size(), start+size)});
+			}
+			SSCCustomTagAuditBatchResult[] results = new SSCCustomTagAuditBatchResult[batches.size()];
+			List<JSONMap> issueList = issues.asValueType(JSONMap.class);
+			ParallelTasks.forEach(conn(), parallelism, batches, 
+					batch -> results[batch[0]] = executeBatch(batch[1], issueList.subList(batch[1], batch[2])));
+			List<SSCCustomTagAuditBatchResult> resultList = Arrays.asList(results);
+			if ( failOnError ) { checkResults(resultList); }
+			return resultList;
+		}
+		
+		private SSCCustomTagAuditBatchResult executeBatch(int start, List<JSONMap> batch) {
+			long startTime = System.currentTimeMillis();
+			int attempt = 0;
+			while ( true ) {
+				try {
+					JSONMap request = new JSONMap();
+					request.put("type", "AUDIT_ISSUE");
+					request.putPath("values.issues", new JSONList(batch));
+					request.putPath("values.customTagAudit", customTagAuditValues);
+					conn().executeRequest(HttpMethod.POST, 
+							conn().getBaseResource().path("/api/v1/projectVersions").path(applicationVersionId).path("issues/action"),
+							Entity.entity(request, "application/json"), JSONMap.class);
+					return new SSCCustomTagAuditBatchResult(start, batch.size(), attempt, System.currentTimeMillis()-startTime, null);
+				} catch ( RuntimeException e ) {
+					if ( attempt>=conflictRetries || !isRevisionConflict(e) ) {
+						return new SSCCustomTagAuditBatchResult(start, batch.size(), attempt, System.currentTimeMillis()-startTime, e);
+					}
+					attempt++;
+					try {
+						refreshRevisions(batch);
+					} catch ( RuntimeException refreshException ) {
+						return new SSCCustomTagAuditBatchResult(start, batch.size(), attempt, System.currentTimeMillis()-startTime, refreshException);
+					}
+				}
+			}
+		}
+		
+		private boolean isRevisionConflict(RuntimeException e) {
+			return e instanceof UnsuccessfulResponseException && ((UnsuccessfulResponseException)e).getStatusCode()==409;
+		}
+		
+		/**
+		 * Re-fetch the current revision for all issues in the given batch, using
+		 * SSC bulk requests.
+		 */
+		private void refreshRevisions(List<JSONMap> batch) {
+			SSCBulkRequestBuilder builder = conn().api(SSCBulkAPI.class).bulkRequestBuilder();
+			for ( JSONMap issue : batch ) {
+				builder.addBulkRequest(HttpMethod.GET, conn().getBaseResource().path("/api/v1/issueDetails")
+						.path(issue.get("id", String.class)).queryParam("fields", "id,revision"));
+			}
+			JSONList bulkResults = builder.execute();
+			for ( int i = 0 ; i < batch.size() && i < bulkResults.size() ; i++ ) {
+				JSONMap bulkResult = bulkResults.get(i, JSONMap.class);
+				String error = bulkResult.get("error", String.class);
+				if ( error!=null ) {
+					throw new RuntimeException("Error refreshing revision for issue "+batch.get(i).get("id")+": "+error);
+				}
+				Long revision = bulkResult.getPath("responses[0].body.data.revision", Long.class);
+				if ( revision!=null ) {
+					batch.get(i).put("revision", revision);
+				}
+			}
+		}
+		
+		private void checkResults(List<SSCCustomTagAuditBatchResult> results) {
+			RuntimeException firstError = null;
+			int failedIssues = 0;
+			for ( SSCCustomTagAuditBatchResult result : results ) {
+				if ( !result.isSuccessful() ) {
+					failedIssues += result.getIssueCount();
+					if ( firstError==null ) { firstError = result.getError(); }
+				}
+			}
+			if ( firstError!=null ) {
+				throw new RuntimeException("Error updating custom tags for "+failedIssues+" of "+issues.size()+" issues", firstError);
 			}
 		}
 		
@@ -285,4 +450,26 @@ public class SSCCustomTagAPI extends AbstractSSCAPI {
 		}
 		
 	}
+	
+	/**
+	 * This class describes the result of a single batch executed by 
+	 * {@link SSCApplicationVersionCustomTagUpdater#execute()}.
+	 */
+	@Getter @ToString @RequiredArgsConstructor
+	public static final class SSCCustomTagAuditBatchResult {
+		/** Index of the first issue in this batch */
+		private final int startIndex;
+		/** Number of issues in this batch */
+		private final int issueCount;
+		/** Number of revision conflict retries */
+		private final int retries;
+		/** Time taken to execute this batch, including retries */
+		private final long durationMillis;
+		/** Error that caused this batch to fail, or null if successful */
+		private final RuntimeException error;
+		
+		public boolean isSuccessful() {
+			return error==null;
+		}
+	}
 }
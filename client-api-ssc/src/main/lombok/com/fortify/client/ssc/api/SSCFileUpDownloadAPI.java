@@ -45,13 +45,16 @@ import org.glassfish.jersey.media.multipart.Boundary;
 import org.glassfish.jersey.media.multipart.FormDataBodyPart;
 import org.glassfish.jersey.media.multipart.FormDataMultiPart;
 import org.glassfish.jersey.media.multipart.MultiPart;
-import org.glassfish.jersey.media.multipart.file.FileDataBodyPart;
+import org.glassfish.jersey.media.multipart.file.StreamDataBodyPart;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import com.fortify.client.ssc.annotation.SSCRequiredActionsPermitted;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
 import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.transfer.FileDownloader;
+import com.fortify.util.rest.transfer.ITransferProgressListener;
+import com.fortify.util.rest.transfer.ProgressInputStream;
 import com.fortify.util.spring.expression.helper.InternalExpressionHelper;
 
 /**
@@ -83,18 +86,35 @@ public class SSCFileUpDownloadAPI extends AbstractSSCAPI {
 	}
 	
 	public final JSONMap uploadFile(WebTarget baseTarget, FileTokenType type, File file) {
-		MultiPart multiPart = new FormDataMultiPart();
-		multiPart.type(new MediaType("multipart", "form-data",
-	    		Collections.singletonMap(Boundary.BOUNDARY_PARAMETER, Boundary.createBoundary())));
-		multiPart.bodyPart(new FormDataBodyPart("Filename", file.getName()));
-		multiPart.bodyPart(new FileDataBodyPart(file.getName(), file, MediaType.APPLICATION_OCTET_STREAM_TYPE));
-		
-		String xml = conn().executeRequest(HttpMethod.POST, 
-				baseTarget
-					.queryParam("mat", getFileToken(type))
-					.request("application/xml"),
-				Entity.entity(multiPart, multiPart.getMediaType()), String.class);
-		return xml2json(new ByteArrayInputStream(xml.getBytes()));
+		return uploadFile(baseTarget, type, file, null);
+	}
+	
+	/**
+	 * Upload the given file to the given target. The file contents are streamed to
+	 * SSC using chunked transfer encoding, so memory usage doesn't depend on file size.
+	 * @param baseTarget {@link WebTarget} to upload the file to
+	 * @param type {@link FileTokenType} for the file token to be used for the upload
+	 * @param file {@link File} to be uploaded
+	 * @param progressListener {@link ITransferProgressListener} to be notified about upload progress; may be null 
+	 * @return Upload result
+	 */
+	public final JSONMap uploadFile(WebTarget baseTarget, FileTokenType type, File file, ITransferProgressListener progressListener) {
+		try ( InputStream fileStream = new ProgressInputStream(Files.newInputStream(file.toPath()), file.length(), progressListener) ) {
+			MultiPart multiPart = new FormDataMultiPart();
+			multiPart.type(new MediaType("multipart", "form-data",
+		    		Collections.singletonMap(Boundary.BOUNDARY_PARAMETER, Boundary.createBoundary())));
+			multiPart.bodyPart(new FormDataBodyPart("Filename", file.getName()));
+			multiPart.bodyPart(new StreamDataBodyPart(file.getName(), fileStream, file.getName(), MediaType.APPLICATION_OCTET_STREAM_TYPE));
+			
+			String xml = conn().executeStreamingRequest(HttpMethod.POST, 
+					baseTarget
+						.queryParam("mat", getFileToken(type))
+						.request("application/xml"),
+					Entity.entity(multiPart, multiPart.getMediaType()), String.class);
+			return xml2json(new ByteArrayInputStream(xml.getBytes()));
+		} catch (IOException e) {
+			throw new RuntimeException("Error uploading file "+file, e);
+		}
 	}
 	
 	public final long downloadFile(WebTarget baseTarget, FileTokenType type, Path target) {
@@ -111,6 +131,23 @@ public class SSCFileUpDownloadAPI extends AbstractSSCAPI {
 		}
 	}
 	
+	/**
+	 * Download a file from the given target using the given {@link FileDownloader},
+	 * for example to download large files using concurrent range requests. As SSC 
+	 * file tokens may only be valid for a single request, a new file token is requested 
+	 * for every request executed by the {@link FileDownloader}.
+	 * @param baseTarget {@link WebTarget} to download the file from
+	 * @param type {@link FileTokenType} for the file token to be used for the download
+	 * @param target {@link Path} to which to write the downloaded file
+	 * @param downloader {@link FileDownloader} to be used for downloading the file
+	 * @return Number of bytes in the downloaded file
+	 */
+	public final long downloadFile(WebTarget baseTarget, FileTokenType type, Path target, FileDownloader downloader) {
+		return downloader.download(() -> baseTarget
+				.queryParam("mat", getFileToken(type))
+				.request("*/*"), target);
+	}
+	
 	private JSONMap xml2json(InputStream is) {
 	    try {
 	    	final DataCollector handler = new DataCollector();
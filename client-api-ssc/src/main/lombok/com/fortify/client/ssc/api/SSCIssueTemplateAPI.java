@@ -25,6 +25,8 @@
 package com.fortify.client.ssc.api;
 
 import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.fortify.client.ssc.api.query.builder.SSCApplicationVersionFilterSetsQueryBuilder;
 import com.fortify.client.ssc.api.query.builder.SSCIssueTemplatesQueryBuilder;
@@ -70,17 +72,20 @@ public class SSCIssueTemplateAPI extends AbstractSSCAPI {
 	
 	/**
 	 * This class provides various utility methods for working with SSC
-	 * issue templates. Data is loaded from SSC only once per 
-	 * {@link SSCIssueTemplateHelper} instance. As such it is 
-	 * recommended to store and re-use a single instance of this class
-	 * where possible. Keep in mind though that you need to get a fresh
-	 * instance in order to see any issue template changes on SSC. 
+	 * issue templates. Data is loaded from SSC and indexed for efficient 
+	 * lookups by name. The index is cached in the 
+	 * {@link SSCAuthenticatingRestConnection#getReferenceDataCache()} and 
+	 * shared by all helper instances for the same connection, until the
+	 * configured time-to-live expires or the index is invalidated by calling
+	 * {@link #refresh()}. Instances can be safely shared between threads. 
 	 * 
 	 * @author Ruud Senden
 	 *
 	 */
 	public final class SSCIssueTemplateHelper {
-		private JSONList issueTemplates;
+		private final SSCRefreshableIndex<IssueTemplateIndex> index = 
+				new SSCRefreshableIndex<>(conn().getReferenceDataCache(), IssueTemplateIndex.class,
+						SSCIssueTemplateAPI.this::getIssueTemplates, IssueTemplateIndex::new);
 		
 		/**
 		 * Instances can only be created through the {@link SSCIssueTemplateAPI#getIssueTemplateHelper()}
@@ -88,24 +93,29 @@ public class SSCIssueTemplateAPI extends AbstractSSCAPI {
 		 */
 		private SSCIssueTemplateHelper() {}
 		
+		/**
+		 * Discard any cached issue template data, causing the data to be 
+		 * re-loaded from SSC on next access.
+		 */
+		public void refresh() {
+			index.invalidate();
+		}
+		
 		/**
 		 * Lazy-load the list of issue templates from SSC
-		 * @return {@link JSONList} containing SSC issue template data
+		 * @return Copy of the {@link JSONList} containing SSC issue template data
 		 */
 		public JSONList getIssueTemplates() {
-			if ( issueTemplates==null ) {
-				issueTemplates = SSCIssueTemplateAPI.this.getIssueTemplates();
-			}
-			return issueTemplates;
+			return SSCRefreshableIndex.copy(index.get().issueTemplates);
 		}
 		
 		/**
 		 * Get the {@link JSONMap} object representing the default issue template
 		 * (if any). This method returns null if no default template is defined on SSC.
-		 * @return {@link JSONMap} containing issue template data for the default SSC issue template, or null if no default issue template is defined
+		 * @return Copy of the {@link JSONMap} containing issue template data for the default SSC issue template, or null if no default issue template is defined
 		 */
 		public JSONMap getDefaultIssueTemplate() {
-			return getIssueTemplates().find("defaultTemplate", true, JSONMap.class);
+			return SSCRefreshableIndex.copy(index.get().defaultIssueTemplate);
 		}
 		
 		/**
@@ -114,7 +124,7 @@ public class SSCIssueTemplateAPI extends AbstractSSCAPI {
 		 * @return Id of the default issue template, or null if no default issue template is defined
 		 */
 		public String getDefaultIssueTemplateId() {
-			JSONMap defaultIssueTemplate = getDefaultIssueTemplate();
+			JSONMap defaultIssueTemplate = index.get().defaultIssueTemplate;
 			return defaultIssueTemplate==null ? null : defaultIssueTemplate.get("id", String.class);
 		}
 		
@@ -124,11 +134,30 @@ public class SSCIssueTemplateAPI extends AbstractSSCAPI {
 		 * @return issue template id for the given issue template name
 		 */
 		public String getIssueTemplateIdForName(String issueTemplateName) {
-			JSONList issueTemplates = getIssueTemplates();
-			if ( issueTemplates != null ) {
-				return issueTemplates.mapValue("name", issueTemplateName, "id", String.class);
+			return index.get().idsByName.get(issueTemplateName);
+		}
+	}
+	
+	/**
+	 * Immutable index on issue templates, built once for every time the
+	 * issue templates are loaded from SSC. This class is also used as the
+	 * key for the reference data cache.
+	 */
+	private static final class IssueTemplateIndex {
+		private final JSONList issueTemplates;
+		private final Map<String, String> idsByName = new HashMap<>();
+		private final JSONMap defaultIssueTemplate;
+		
+		private IssueTemplateIndex(JSONList issueTemplates) {
+			this.issueTemplates = issueTemplates;
+			JSONMap defaultIssueTemplate = null;
+			for ( JSONMap issueTemplate : issueTemplates.asValueType(JSONMap.class) ) {
+				idsByName.putIfAbsent(issueTemplate.get("name", String.class), issueTemplate.get("id", String.class));
+				if ( defaultIssueTemplate==null && Boolean.TRUE.equals(issueTemplate.get("defaultTemplate", Boolean.class)) ) {
+					defaultIssueTemplate = issueTemplate;
+				}
 			}
-			return null;
+			this.defaultIssueTemplate = defaultIssueTemplate;
 		}
 	}
 	
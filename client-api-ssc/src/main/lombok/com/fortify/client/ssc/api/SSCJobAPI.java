@@ -24,19 +24,23 @@
  ******************************************************************************/
 package com.fortify.client.ssc.api;
 
-import java.util.Arrays;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.collections.CollectionUtils;
 
 import com.fortify.client.ssc.api.query.builder.SSCJobsQueryBuilder;
+import com.fortify.client.ssc.api.query.builder.SSCOrderBy;
+import com.fortify.client.ssc.api.query.builder.SSCOrderByDirection;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
 import com.fortify.util.applier.ifblank.IfBlank;
 import com.fortify.util.rest.json.JSONList;
 import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.preprocessor.filter.AbstractJSONMapFilter.MatchMode;
+import com.fortify.util.rest.json.preprocessor.filter.JSONMapFilterCompareDate;
+import com.fortify.util.rest.json.preprocessor.filter.JSONMapFilterCompareDate.DateComparisonOperator;
 import com.fortify.util.rest.query.IRestConnectionQuery;
+import com.fortify.util.rest.query.PagingData;
 
 /**
  * This class is used to access SSC job-related functionality.
@@ -53,21 +57,62 @@ public class SSCJobAPI extends AbstractSSCAPI {
 		return new SSCJobsQueryBuilder(conn());
 	}
 	
+	/**
+	 * Return an {@link SSCJobsQueryBuilder} instance for querying jobs that started
+	 * after the given date, for example to watch for jobs triggered by a preceding
+	 * request. Jobs are requested from SSC ordered by start time, newest first, using
+	 * a small page size. Once a page contains a job that started on or before the
+	 * given date, paging is stopped, such that the cost of executing the resulting 
+	 * query doesn't depend on the total number of jobs available on SSC. Callers 
+	 * should use the server-side filtering methods provided by {@link SSCJobsQueryBuilder}
+	 * where possible, to further reduce the number of jobs to be loaded.
+	 *   
+	 * @param date Only jobs started after this date will be returned
+	 * @return {@link SSCJobsQueryBuilder} instance
+	 */
+	public SSCJobsQueryBuilder queryJobsStartedAfter(Date date) {
+		return queryJobs()
+			.paramOrderBy(IfBlank.ERROR(), new SSCOrderBy("startTime", SSCOrderByDirection.DESC))
+			.pageSize(10)
+			.preProcessor(new JSONMapFilterCompareDate(MatchMode.INCLUDE, "startTime", DateComparisonOperator.gt, date))
+			.pagePostProcessor((pagingData, jobs) -> stopPagingIfStartedBefore(pagingData, jobs, date));
+	}
+	
+	private static void stopPagingIfStartedBefore(PagingData pagingData, JSONList jobs, Date date) {
+		for ( JSONMap job : jobs.asValueType(JSONMap.class) ) {
+			Date startTime = job.get("startTime", Date.class);
+			if ( startTime!=null && !startTime.after(date) ) {
+				pagingData.stopPaging(); break;
+			}
+		}
+	}
+	
 	public final JSONMap getJobById(String jobId, String... fields) {
 		return queryJobs().id(IfBlank.ERROR(), jobId).paramFields(fields).build().getUnique();
 	}
 	
+	/**
+	 * Wait for the job with the given id to complete, or until the given time-out
+	 * expires. This method blocks the calling thread; see 
+	 * {@link #waitForJobCompletionAsync(String, int)} for a non-blocking alternative.
+	 * @param jobId Id of the job to wait for
+	 * @param timeOutSeconds Time-out in seconds
+	 * @return Job data; callers should check the job state to determine whether the job has completed
+	 */
 	public JSONMap waitForJobCompletion(String jobId, int timeOutSeconds) {
-		Set<String> incompleteStates = new HashSet<>(Arrays.asList("RUNNING", "PREPARED", "WAITING_FOR_WORKER")); 
-		long startTime = new Date().getTime();
-		JSONMap job = getJobById(jobId, "state");
-		while ( new Date().getTime() < startTime+timeOutSeconds*1000 && incompleteStates.contains(job.get("state", String.class)) ) {
-			try {
-				Thread.sleep(1000L);
-			} catch ( InterruptedException ignore ) {}
-			job = getJobById(jobId, "state");
-		}
-		return job;
+		return SSCCompletionWatcher.await(waitForJobCompletionAsync(jobId, timeOutSeconds));
+	}
+	
+	/**
+	 * Asynchronously wait for the job with the given id to complete, or until the given
+	 * time-out expires. Job state is polled by the connection-level {@link SSCCompletionWatcher},
+	 * so no threads are blocked while waiting.
+	 * @param jobId Id of the job to wait for
+	 * @param timeOutSeconds Time-out in seconds
+	 * @return {@link CompletableFuture} that is completed with the job data
+	 */
+	public CompletableFuture<JSONMap> waitForJobCompletionAsync(String jobId, int timeOutSeconds) {
+		return conn().getCompletionWatcher().watchJob(jobId, timeOutSeconds*1000L);
 	}
 	
 	public JSONList waitForJobCreation(IRestConnectionQuery query, long timeOutSeconds) {
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.client.ssc.api;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.fortify.util.rest.connection.ReferenceDataCache;
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+
+/**
+ * <p>This package-private class is used by the various SSC helper classes to access
+ * an immutable index built from SSC reference data like attribute definitions or 
+ * custom tags. The index is stored in the connection-level {@link ReferenceDataCache},
+ * such that it is shared by all helper instances and threads using the same 
+ * connection. The reference data is loaded and the index is built on first access,
+ * and again on first access after the cached index has expired or was invalidated. 
+ * Concurrent threads accessing a missing or expired index will wait for a single 
+ * thread to rebuild the index.</p>
+ * 
+ * <p>As the index is shared, helper classes must never hand out the {@link JSONMap}
+ * and {@link JSONList} instances held by the index; the {@link #copy(Object)} method
+ * can be used to return a deep copy instead. The time-to-live for the index is 
+ * configured on the connection-level {@link ReferenceDataCache}; it cannot be
+ * configured per helper instance, as all helpers share the same cache entry.</p>
+ * 
+ * @author Ruud Senden
+ *
+ * @param <I> Index type
+ */
+final class SSCRefreshableIndex<I> {
+	private final ReferenceDataCache cache;
+	private final Object cacheKey;
+	private final Supplier<JSONList> dataLoader;
+	private final Function<JSONList, I> indexBuilder;
+	
+	SSCRefreshableIndex(ReferenceDataCache cache, Object cacheKey, Supplier<JSONList> dataLoader, Function<JSONList, I> indexBuilder) {
+		this.cache = cache;
+		this.cacheKey = cacheKey;
+		this.dataLoader = dataLoader;
+		this.indexBuilder = indexBuilder;
+	}
+	
+	/**
+	 * Get the current index, loading the reference data and building the index
+	 * if not yet available or expired.
+	 * @return Current index
+	 */
+	I get() {
+		return cache.get(cacheKey, () -> indexBuilder.apply(dataLoader.get()));
+	}
+	
+	/**
+	 * Invalidate the current index, causing the reference data to be re-loaded
+	 * on next access.
+	 */
+	void invalidate() {
+		cache.invalidate(cacheKey);
+	}
+	
+	/**
+	 * Create a deep copy of the given value if it is a {@link JSONMap} or {@link JSONList}.
+	 * Other values are assumed to be immutable and returned as-is.
+	 * @param value to be copied; may be null
+	 * @return Copy of the given value
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T copy(T value) {
+		if ( value instanceof JSONMap ) {
+			JSONMap result = new JSONMap();
+			((JSONMap)value).forEach((k,v)->result.put(k, copy(v)));
+			return (T)result;
+		} else if ( value instanceof JSONList ) {
+			JSONList result = new JSONList(((JSONList)value).size());
+			((JSONList)value).forEach(v->result.add(copy(v)));
+			return (T)result;
+		}
+		return value;
+	}
+}
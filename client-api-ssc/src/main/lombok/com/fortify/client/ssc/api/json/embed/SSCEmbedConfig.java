@@ -38,6 +38,9 @@ import lombok.experimental.SuperBuilder;
 public class SSCEmbedConfig extends StandardEmbedConfig {
 	private static final long serialVersionUID = 1L;
 	private EmbedType embedType;
+	/** For {@link EmbedType#PRELOAD}, maximum number of embedded results to be cached 
+	 *  across pages; default 0 (no caching) */
+	private int cacheSize;
 	
 	public SSCEmbedConfig() {}
 	
@@ -74,6 +74,10 @@ public final class SSCJobsQueryBuilder extends AbstractSSCEntityQueryBuilder<SSC
 		return super.paramQAnd(ifBlankAction, "jobClassName", jobClassName);
 	}
 
+	public final SSCJobsQueryBuilder projectVersionId(IfBlankAction ifBlankAction, String projectVersionId) {
+		return super.paramQAnd(ifBlankAction, "projectVersionId", projectVersionId);
+	}
+
 	public final SSCJobsQueryBuilder priority(IfBlankAction ifBlankAction, int priority) {
 		return super.paramQAnd(ifBlankAction, "priority", "" + priority);
 	}
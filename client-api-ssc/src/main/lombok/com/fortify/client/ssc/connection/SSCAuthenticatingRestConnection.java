@@ -24,13 +24,34 @@
  ******************************************************************************/
 package com.fortify.client.ssc.connection;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 import javax.ws.rs.client.Invocation.Builder;
 
 import org.apache.commons.lang.StringUtils;
 
+import com.fortify.client.ssc.api.SSCApplicationAPI;
+import com.fortify.client.ssc.api.SSCApplicationVersionAPI;
+import com.fortify.client.ssc.api.SSCApplicationVersionAttributeAPI;
+import com.fortify.client.ssc.api.SSCArtifactAPI;
+import com.fortify.client.ssc.api.SSCAttributeDefinitionAPI;
+import com.fortify.client.ssc.api.SSCAuditAssistantAPI;
+import com.fortify.client.ssc.api.SSCAuthEntityAPI;
+import com.fortify.client.ssc.api.SSCBugTrackerAPI;
+import com.fortify.client.ssc.api.SSCBulkAPI;
+import com.fortify.client.ssc.api.SSCCompletionWatcher;
+import com.fortify.client.ssc.api.SSCCustomTagAPI;
+import com.fortify.client.ssc.api.SSCFileUpDownloadAPI;
+import com.fortify.client.ssc.api.SSCIssueAPI;
+import com.fortify.client.ssc.api.SSCIssueGroupsAPI;
+import com.fortify.client.ssc.api.SSCIssueTemplateAPI;
+import com.fortify.client.ssc.api.SSCJobAPI;
+import com.fortify.client.ssc.api.SSCMetricsAPI;
+import com.fortify.client.ssc.api.SSCRulepackAPI;
 import com.fortify.util.rest.connection.AbstractRestConnection;
 import com.fortify.util.rest.connection.AbstractRestConnectionConfig;
 import com.fortify.util.rest.connection.IRestConnectionBuilder;
+import com.fortify.util.rest.connection.ReferenceDataCache;
 
 /**
  * This class provides an authenticated REST connection for SSC. Low-level API's are
@@ -42,7 +63,29 @@ import com.fortify.util.rest.connection.IRestConnectionBuilder;
  *
  */
 public class SSCAuthenticatingRestConnection extends SSCBasicRestConnection {
+	private static final Class<?>[] DEFAULT_API_CLASSES = {
+		SSCApplicationAPI.class,
+		SSCApplicationVersionAPI.class,
+		SSCApplicationVersionAttributeAPI.class,
+		SSCArtifactAPI.class,
+		SSCAttributeDefinitionAPI.class,
+		SSCAuditAssistantAPI.class,
+		SSCAuthEntityAPI.class,
+		SSCBugTrackerAPI.class,
+		SSCBulkAPI.class,
+		SSCCustomTagAPI.class,
+		SSCFileUpDownloadAPI.class,
+		SSCIssueAPI.class,
+		SSCIssueGroupsAPI.class,
+		SSCIssueTemplateAPI.class,
+		SSCJobAPI.class,
+		SSCMetricsAPI.class,
+		SSCRulepackAPI.class
+	};
 	private final ISSCTokenFactory tokenFactory;
+	private final ReferenceDataCache referenceDataCache;
+	private final ReentrantLock completionWatcherLock = new ReentrantLock();
+	private volatile SSCCompletionWatcher completionWatcher;
 	
 	/**
 	 * Construct a new instance of this class based on the given {@link AbstractRestConnectionConfig}
@@ -53,6 +96,8 @@ public class SSCAuthenticatingRestConnection extends SSCBasicRestConnection {
 	public SSCAuthenticatingRestConnection(SSCRestConnectionConfig<?> config) {
 		super(config);
 		this.tokenFactory = getTokenFactory(config);
+		this.referenceDataCache = new ReferenceDataCache(config.getReferenceDataCacheTtlMillis());
+		registerDefaultApis(DEFAULT_API_CLASSES);
 	}
 
 	/**
@@ -74,8 +119,45 @@ public class SSCAuthenticatingRestConnection extends SSCBasicRestConnection {
 		}
 	}
 	
+	/**
+	 * Get the {@link ReferenceDataCache} used to cache reference data like attribute
+	 * definitions, custom tags and issue templates for this connection. This cache
+	 * is used by the various SSC helper classes, for example as returned by 
+	 * {@link SSCAttributeDefinitionAPI#getAttributeDefinitionHelper()}, such that
+	 * reference data is loaded only once for all helper instances. Callers can use
+	 * the returned instance to invalidate cached data or to retrieve cache statistics.
+	 * @return {@link ReferenceDataCache} for this connection
+	 */
+	public ReferenceDataCache getReferenceDataCache() {
+		return referenceDataCache;
+	}
+	
+	/**
+	 * Get the {@link SSCCompletionWatcher} for this connection, used to asynchronously
+	 * wait for SSC jobs and artifacts to complete processing. The instance is created
+	 * on first access, and closed when this connection is closed.
+	 * @return {@link SSCCompletionWatcher} for this connection
+	 */
+	public SSCCompletionWatcher getCompletionWatcher() {
+		SSCCompletionWatcher result = completionWatcher;
+		if ( result==null ) {
+			completionWatcherLock.lock();
+			try {
+				result = completionWatcher;
+				if ( result==null ) {
+					result = new SSCCompletionWatcher(this);
+					completionWatcher = result;
+				}
+			} finally {
+				completionWatcherLock.unlock();
+			}
+		}
+		return result;
+	}
+	
 	@Override
 	public void close() {
+		if ( completionWatcher!=null ) { completionWatcher.close(); }
 		super.close();
 		this.tokenFactory.close();
 	}
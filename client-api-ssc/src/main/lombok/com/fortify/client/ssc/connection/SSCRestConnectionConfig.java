@@ -43,6 +43,7 @@ import lombok.ToString;
 public class SSCRestConnectionConfig<T extends SSCRestConnectionConfig<T>> extends AbstractRestConnectionWithUsernamePasswordConfig<T> {
 	private String authToken;
 	private String tokenDescription = "Token generated by fortify-client-api";
+	private long referenceDataCacheTtlMillis = 60000;
 	
 	@Override
 	protected void parseUriUserInfo(String userInfo) {
@@ -60,4 +61,15 @@ public class SSCRestConnectionConfig<T extends SSCRestConnectionConfig<T>> exten
 	public T tokenDescription(String tokenDescription) {
 		setTokenDescription(tokenDescription); return getThis();
 	}
+	
+	/**
+	 * Configure the time-to-live for reference data like attribute definitions, 
+	 * custom tags and issue templates, cached by the connection. Defaults to 60 
+	 * seconds; negative values indicate that cached reference data never expires.
+	 * @param referenceDataCacheTtlMillis Time-to-live in milliseconds
+	 * @return Self for chaining
+	 */
+	public T referenceDataCacheTtlMillis(long referenceDataCacheTtlMillis) {
+		setReferenceDataCacheTtlMillis(referenceDataCacheTtlMillis); return getThis();
+	}
 }
@@ -25,6 +25,7 @@
 package com.fortify.client.ssc.connection;
 
 import java.util.Date;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 import javax.ws.rs.HttpMethod;
@@ -56,6 +57,7 @@ public final class SSCTokenFactoryUserCredentials implements ISSCTokenFactory {
 	private final String userName;
 	private final String password;
 	private final String tokenDescription;
+	private final ReentrantLock tokenLock = new ReentrantLock();
 	private SSCTokenFactoryUserCredentials.TokenData tokenData = null;
 	public SSCTokenFactoryUserCredentials(AbstractRestConnectionConfig<?> config, String userName, String password, String tokenDescription) {
 		this.conn = new SSCBasicRestConnection(config);
@@ -64,9 +66,19 @@ public final class SSCTokenFactoryUserCredentials implements ISSCTokenFactory {
 		this.tokenDescription = tokenDescription;
 	}
 	
+	/**
+	 * Same as {@link #getToken()}, but allowing only a single thread at a time
+	 * to check the current token, such that concurrent callers don't each 
+	 * request a new SSC token once the current token has expired.
+	 */
 	@Override
-	public synchronized String getTokenSynchronized() {
-		return getToken();
+	public String getTokenSynchronized() {
+		tokenLock.lock();
+		try {
+			return getToken();
+		} finally {
+			tokenLock.unlock();
+		}
 	}
 	
 	@Override
@@ -0,0 +1,157 @@
+package com.fortify.client.ssc.api;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fortify.client.ssc.api.SSCApplicationVersionAPI.BulkCreateApplicationVersionsBuilder;
+import com.fortify.client.ssc.api.SSCApplicationVersionAPI.CreateApplicationVersionResult;
+import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+
+public class SSCApplicationVersionAPITest {
+	private static final String APPLICATION_ID = "100";
+	private final List<JsonNode> createdVersions = Collections.synchronizedList(new ArrayList<>());
+	private final AtomicInteger nextId = new AtomicInteger(1);
+	private SSCStubServer server;
+	private SSCAuthenticatingRestConnection conn;
+	
+	@BeforeEach public void start() throws IOException {
+		server = new SSCStubServer()
+			.on("GET", "/api/v1/projectVersions", (path, uri, body) -> SSCStubServer.ok(data(Collections.emptyList())))
+			.on("GET", "/api/v1/issueTemplates", (path, uri, body) -> SSCStubServer.ok(data(Collections.singletonList(
+					map("id", "template", "name", "Default Template", "defaultTemplate", true)))))
+			.on("GET", "/api/v1/attributeDefinitions", (path, uri, body) -> SSCStubServer.ok(data(Collections.singletonList(
+					map("id", "1", "guid", "attr-guid", "name", "Attr", "type", "TEXT", "category", "TECHNICAL", 
+						"appEntityType", "PROJECT_VERSION", "required", false, "hasDefault", false)))))
+			.on("POST", "/api/v1/projectVersions", (path, uri, body) -> {
+				createdVersions.add(body);
+				if ( "fail".equals(body.get("name").asText()) ) {
+					return SSCStubServer.json(400, map("message", "Invalid version"));
+				}
+				return SSCStubServer.ok(data(map("id", ""+nextId.getAndIncrement(), "project", 
+						map("id", APPLICATION_ID, "name", body.at("/project/name").asText(), "issueTemplateId", "template"))));
+			})
+			.on("POST", "/api/v1/bulk", (path, uri, body) -> {
+				List<Object> results = new ArrayList<>();
+				for ( JsonNode request : body.get("requests") ) {
+					results.add(map("request", request, "responses", Collections.singletonList(map("body", map("responseCode", 200)))));
+				}
+				return SSCStubServer.ok(data(results));
+			});
+		conn = server.connect(true);
+	}
+	
+	@AfterEach public void stop() {
+		conn.close();
+		server.close();
+	}
+	
+	@Test public void testFailedFirstVersionDoesNotCreateApplicationConcurrently() {
+		List<CreateApplicationVersionResult> results = createVersions("fail", "v2", "v3", "v4");
+		assertEquals(4, results.size());
+		assertFalse(results.get(0).isSuccessful());
+		for ( CreateApplicationVersionResult result : results.subList(1, 4) ) {
+			assertTrue(result.isSuccessful(), ()->result.toString());
+		}
+		assertEquals(4, createdVersions.size());
+		// The failed version and the next version are created sequentially without application id, 
+		// all other versions are created for the application created by the second version
+		assertEquals("fail", createdVersions.get(0).get("name").asText());
+		assertFalse(createdVersions.get(0).get("project").has("id"));
+		assertEquals("v2", createdVersions.get(1).get("name").asText());
+		assertFalse(createdVersions.get(1).get("project").has("id"));
+		for ( JsonNode version : createdVersions.subList(2, 4) ) {
+			assertEquals(APPLICATION_ID, version.at("/project/id").asText());
+		}
+	}
+	
+	@Test public void testInvalidAttributeDoesNotCreateApplicationVersion() {
+		SSCApplicationVersionAPI api = conn.api(SSCApplicationVersionAPI.class);
+		List<CreateApplicationVersionResult> results = api.createApplicationVersions()
+			.add(api.createApplicationVersion().applicationName("App").versionName("v1").attribute("Unknown", "value"))
+			.add(api.createApplicationVersion().applicationName("App").versionName("v2").attribute("Attr", "value"))
+			.execute();
+		assertFalse(results.get(0).isSuccessful());
+		assertTrue(results.get(0).getError() instanceof IllegalArgumentException);
+		assertTrue(results.get(1).isSuccessful());
+		assertEquals(1, createdVersions.size());
+		assertEquals("v2", createdVersions.get(0).get("name").asText());
+		// Attributes update and commit for the successful version only
+		assertEquals(2, server.countRequests("POST", "/api/v1/bulk"));
+	}
+	
+	@Test public void testFailedAttributesUpdateReportsApplicationVersionId() {
+		server.on("POST", "/api/v1/bulk", (path, uri, body) -> {
+			List<Object> results = new ArrayList<>();
+			for ( JsonNode request : body.get("requests") ) {
+				int responseCode = request.get("uri").asText().endsWith("/projectVersions/1/attributes") ? 400 : 200;
+				results.add(map("request", request, "responses", Collections.singletonList(map("body", map("responseCode", responseCode)))));
+			}
+			return SSCStubServer.ok(data(results));
+		});
+		List<CreateApplicationVersionResult> results = createVersions("v1");
+		assertFalse(results.get(0).isSuccessful());
+		// The non-committed application version was created, so its id must be reported
+		assertEquals("1", results.get(0).getApplicationVersionId());
+		// No commit request for the failed application version
+		assertEquals(1, server.countRequests("POST", "/api/v1/bulk"));
+	}
+	
+	private List<CreateApplicationVersionResult> createVersions(String... versionNames) {
+		SSCApplicationVersionAPI api = conn.api(SSCApplicationVersionAPI.class);
+		BulkCreateApplicationVersionsBuilder builder = api.createApplicationVersions();
+		Arrays.asList(versionNames).forEach(versionName -> 
+			builder.add(api.createApplicationVersion().applicationName("App").versionName(versionName)));
+		return builder.execute();
+	}
+	
+	private static final Map<String, Object> data(Object data) {
+		return map("data", data, "count", data instanceof List ? ((List<?>)data).size() : 1);
+	}
+	
+	private static final Map<String, Object> map(Object... keysAndValues) {
+		Map<String, Object> result = new LinkedHashMap<>();
+		for ( int i = 0 ; i < keysAndValues.length ; i+=2 ) {
+			result.put((String)keysAndValues[i], keysAndValues[i+1]);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,162 @@
+package com.fortify.client.ssc.api;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fortify.client.ssc.api.SSCAttributeDefinitionAPI.SSCAttributeDefinitionHelper;
+import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+
+public class SSCAttributeDefinitionAPITest {
+	private static final String ATTRIBUTE_DEFINITIONS_PATH = "/api/v1/attributeDefinitions";
+	private SSCStubServer server;
+	private SSCAuthenticatingRestConnection conn;
+	
+	@BeforeEach public void start() throws IOException {
+		List<Object> data = Arrays.asList(
+				attributeDefinition("1", "Env", option("g1", "Dev"), option("g2", "Prod")),
+				attributeDefinition("2", "Owner"));
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("data", data);
+		response.put("count", data.size());
+		server = new SSCStubServer().on("GET", ATTRIBUTE_DEFINITIONS_PATH, (path, uri, body) -> SSCStubServer.ok(response));
+		conn = server.connect(false);
+	}
+	
+	private void setAttributeDefinitions(Object... attributeDefinitions) {
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("data", Arrays.asList(attributeDefinitions));
+		response.put("count", attributeDefinitions.length);
+		server.on("GET", ATTRIBUTE_DEFINITIONS_PATH, (path, uri, body) -> SSCStubServer.ok(response));
+	}
+	
+	@AfterEach public void stop() {
+		conn.close();
+		server.close();
+	}
+	
+	@Test public void testHelpersShareCachedIndex() {
+		assertEquals("1", getHelper().getAttributeIdForName("Env"));
+		assertEquals("Owner", getHelper().getAttributeNameForId("2"));
+		assertEquals(1, server.countRequests("GET", ATTRIBUTE_DEFINITIONS_PATH));
+		getHelper().refresh();
+		assertEquals("1", getHelper().getAttributeIdForName("Env"));
+		assertEquals(2, server.countRequests("GET", ATTRIBUTE_DEFINITIONS_PATH));
+	}
+	
+	@Test public void testReturnedDataDoesntModifyCachedIndex() {
+		SSCAttributeDefinitionHelper helper = getHelper();
+		helper.getAttributeDefinitions().clear();
+		helper.getAttributeDefinition("Env").put("name", "Modified");
+		helper.getAttributeDefinition("Env").get("options", JSONList.class).clear();
+		helper.getAttributeOption("Env", "Dev").put("guid", "modified");
+		helper.getAttributeDefinitionsByNameAndId().clear();
+		
+		SSCAttributeDefinitionHelper otherHelper = getHelper();
+		assertEquals(2, otherHelper.getAttributeDefinitions().size());
+		assertEquals("Env", otherHelper.getAttributeDefinition("1").get("name"));
+		assertEquals(2, otherHelper.getAttributeDefinition("Env").get("options", JSONList.class).size());
+		assertEquals("g1", otherHelper.getAttributeOption("1", "Dev").get("guid"));
+		assertNotNull(otherHelper.getAttributeDefinitionsByNameAndId().get("Owner"));
+		assertEquals(1, server.countRequests("GET", ATTRIBUTE_DEFINITIONS_PATH));
+	}
+	
+	@Test public void testUpdaterResolvesOptionsByNameOrGuid() {
+		AtomicReference<JsonNode> requestBody = new AtomicReference<>();
+		server.on("PUT", "/api/v1/projectVersions/5/attributes", (path, uri, body) -> {
+			requestBody.set(body);
+			return SSCStubServer.ok(new LinkedHashMap<>());
+		});
+		conn.api(SSCApplicationVersionAttributeAPI.class).updateApplicationVersionAttributes("5")
+			.byNameOrId("Env", Arrays.asList("Prod"))
+			.byNameOrId("1", Arrays.asList("g1"))
+			.execute();
+		assertEquals("g2", requestBody.get().get(0).get("values").get(0).get("guid").asText());
+		assertEquals("g1", requestBody.get().get(1).get("values").get(0).get("guid").asText());
+		assertThrows(IllegalArgumentException.class, () -> 
+			conn.api(SSCApplicationVersionAttributeAPI.class).updateApplicationVersionAttributes("5")
+				.byNameOrId("Env", Arrays.asList("Test")));
+	}
+	
+	@Test public void testDuplicateNamesReturnLastMatch() {
+		setAttributeDefinitions(
+				attributeDefinition("1", "Env", option("g1", "Dev")),
+				attributeDefinition("3", "Env", option("g3", "Dev"), option("g4", "Dev")));
+		SSCAttributeDefinitionHelper helper = getHelper();
+		helper.refresh();
+		assertEquals("3", helper.getAttributeIdForName("Env"));
+		assertEquals("Env", helper.getAttributeNameForId("1"));
+		assertEquals("3", helper.getAttributeDefinition("Env").get("id"));
+		assertEquals("1", helper.getAttributeDefinition("1").get("id"));
+		assertEquals("3", helper.getAttributeDefinitionsByNameAndId().getPath("Env.id"));
+		assertEquals("g4", helper.getAttributeOption("Env", "Dev").get("guid"));
+		assertEquals("g3", helper.getAttributeOption("Env", "g3").get("guid"));
+		assertEquals("g1", helper.getAttributeOption("1", "Dev").get("guid"));
+	}
+	
+	@Test public void testQueryResultsContainOptionsByNameAndGuid() {
+		JSONMap attributeDefinition = conn.api(SSCAttributeDefinitionAPI.class).queryAttributeDefinitions()
+				.build().getAll().get(0, JSONMap.class);
+		assertEquals("g2", attributeDefinition.getPath("optionsByNameAndGuid.Prod.guid"));
+		assertEquals("Dev", attributeDefinition.getPath("optionsByNameAndGuid.g1.name"));
+	}
+	
+	private SSCAttributeDefinitionHelper getHelper() {
+		return conn.api(SSCAttributeDefinitionAPI.class).getAttributeDefinitionHelper();
+	}
+	
+	private static final Map<String, Object> attributeDefinition(String id, String name, Object... options) {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("id", id);
+		result.put("name", name);
+		result.put("type", options.length==0 ? "TEXT" : "SINGLE");
+		result.put("options", new ArrayList<>(Arrays.asList(options)));
+		return result;
+	}
+	
+	private static final Map<String, Object> option(String guid, String name) {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("guid", guid);
+		result.put("name", name);
+		return result;
+	}
+}
@@ -0,0 +1,219 @@
+package com.fortify.client.ssc.api;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.HttpMethod;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fortify.client.ssc.api.SSCBulkAPI.SSCBulkEmbedder;
+import com.fortify.client.ssc.api.SSCBulkAPI.SSCBulkRequestBuilder;
+import com.fortify.client.ssc.api.json.embed.SSCEmbedConfig;
+import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+
+public class SSCBulkAPITest {
+	private final List<Integer> chunkSizes = new ArrayList<>();
+	private final AtomicInteger dropResults = new AtomicInteger(0);
+	private SSCStubServer server;
+	private SSCAuthenticatingRestConnection conn;
+	
+	@BeforeEach public void start() throws IOException {
+		server = new SSCStubServer().on("POST", "/api/v1/bulk", (path, uri, body) -> {
+			JsonNode requests = body.get("requests");
+			synchronized (chunkSizes) { chunkSizes.add(requests.size()); }
+			List<Object> data = new ArrayList<>();
+			for ( JsonNode request : requests ) {
+				String requestUri = request.get("uri").asText();
+				if ( requestUri.contains("fail") ) {
+					return SSCStubServer.json(500, null);
+				}
+				Map<String, Object> responseBody = new LinkedHashMap<>();
+				responseBody.put("uri", requestUri);
+				responseBody.put("data", requestUri);
+				Map<String, Object> entry = new LinkedHashMap<>();
+				entry.put("request", request);
+				entry.put("responses", Collections.singletonList(Collections.singletonMap("body", responseBody)));
+				data.add(entry);
+			}
+			for ( int i = 0 ; i < dropResults.get() && !data.isEmpty() ; i++ ) {
+				data.remove(data.size()-1);
+			}
+			return SSCStubServer.ok(Collections.singletonMap("data", data));
+		});
+		conn = server.connect(false);
+	}
+	
+	@AfterEach public void stop() {
+		conn.close();
+		server.close();
+	}
+	
+	@Test public void testChunking() {
+		SSCBulkRequestBuilder builder = conn.api(SSCBulkAPI.class).bulkRequestBuilder().maxRequestsPerChunk(2);
+		for ( int i = 0 ; i < 5 ; i++ ) { addRequest(builder, HttpMethod.GET, "/api/v1/items/"+i); }
+		JSONList results = builder.execute();
+		assertEquals(5, results.size());
+		for ( int i = 0 ; i < 5 ; i++ ) {
+			assertResult(results, i, "/api/v1/items/"+i);
+		}
+		assertEquals(3, chunkSizes.size());
+		assertEquals(3, builder.getChunkMetrics().size());
+	}
+	
+	@Test public void testBisectFailingGetChunk() {
+		SSCBulkRequestBuilder builder = conn.api(SSCBulkAPI.class).bulkRequestBuilder().chunkRetries(0);
+		addRequest(builder, HttpMethod.GET, "/api/v1/items/0");
+		addRequest(builder, HttpMethod.GET, "/api/v1/items/fail");
+		addRequest(builder, HttpMethod.GET, "/api/v1/items/2");
+		addRequest(builder, HttpMethod.GET, "/api/v1/items/3");
+		JSONList results = builder.execute();
+		assertEquals(4, results.size());
+		assertResult(results, 0, "/api/v1/items/0");
+		assertError(results, 1);
+		assertResult(results, 2, "/api/v1/items/2");
+		assertResult(results, 3, "/api/v1/items/3");
+		// Full chunk, first half, single failing request, single successful request, second half 
+		assertEquals(5, chunkSizes.size());
+	}
+	
+	@Test public void testRetryFailingGetChunk() {
+		SSCBulkRequestBuilder builder = conn.api(SSCBulkAPI.class).bulkRequestBuilder().chunkRetries(1);
+		addRequest(builder, HttpMethod.GET, "/api/v1/items/fail");
+		JSONList results = builder.execute();
+		assertError(results, 0);
+		assertEquals(2, chunkSizes.size());
+	}
+	
+	@Test public void testFailingNonGetChunkIsNotRetriedOrSplit() {
+		SSCBulkRequestBuilder builder = conn.api(SSCBulkAPI.class).bulkRequestBuilder().chunkRetries(2);
+		addRequest(builder, HttpMethod.GET, "/api/v1/items/0");
+		addRequest(builder, HttpMethod.POST, "/api/v1/items/fail");
+		addRequest(builder, HttpMethod.GET, "/api/v1/items/2");
+		JSONList results = builder.execute();
+		assertEquals(3, results.size());
+		assertError(results, 0);
+		assertError(results, 1);
+		assertError(results, 2);
+		assertEquals(1, chunkSizes.size());
+	}
+	
+	@Test public void testMissingResultsReturnErrorEntries() {
+		dropResults.set(1);
+		SSCBulkRequestBuilder builder = conn.api(SSCBulkAPI.class).bulkRequestBuilder();
+		addRequest(builder, HttpMethod.GET, "/api/v1/items/0");
+		addRequest(builder, HttpMethod.GET, "/api/v1/items/1");
+		JSONList results = builder.execute();
+		assertEquals(2, results.size());
+		assertResult(results, 0, "/api/v1/items/0");
+		assertError(results, 1);
+	}
+	
+	@Test public void testEmbedderCoalescesDuplicateUris() {
+		SSCBulkEmbedder embedder = conn.api(SSCBulkAPI.class).bulkEmbedder(createEmbedConfig(0));
+		JSONList page = createPage(1, 1, 2);
+		embedder.addBulkData(page);
+		assertEquals(Arrays.asList(2), chunkSizes);
+		assertEmbedded(page, 1, 1, 2);
+	}
+	
+	@Test public void testEmbedderWithoutCacheReloadsAcrossPages() {
+		SSCBulkEmbedder embedder = conn.api(SSCBulkAPI.class).bulkEmbedder(createEmbedConfig(0));
+		embedder.addBulkData(createPage(1, 2));
+		embedder.addBulkData(createPage(2, 3));
+		assertEquals(Arrays.asList(2, 2), chunkSizes);
+	}
+	
+	@Test public void testEmbedderCacheSizeFromEmbedConfig() {
+		SSCBulkEmbedder embedder = conn.api(SSCBulkAPI.class).bulkEmbedder(createEmbedConfig(10));
+		embedder.addBulkData(createPage(1, 2));
+		JSONList page = createPage(2, 3);
+		embedder.addBulkData(page);
+		assertEquals(Arrays.asList(2, 1), chunkSizes);
+		assertEmbedded(page, 2, 3);
+	}
+	
+	@Test public void testEmbedderCacheEvictsLeastRecentlyUsed() {
+		SSCBulkEmbedder embedder = conn.api(SSCBulkAPI.class).bulkEmbedder(createEmbedConfig(2));
+		embedder.addBulkData(createPage(1, 2));
+		embedder.addBulkData(createPage(1));    // Cache hit, 1 becomes most recently used
+		embedder.addBulkData(createPage(3));    // Evicts 2
+		embedder.addBulkData(createPage(1, 2));
+		assertEquals(Arrays.asList(2, 1, 1), chunkSizes);
+	}
+	
+	private SSCEmbedConfig createEmbedConfig(int cacheSize) {
+		return SSCEmbedConfig.builder().propertyName("embedded").uri("/api/v1/items/${id}").cacheSize(cacheSize).build();
+	}
+	
+	private JSONList createPage(int... ids) {
+		JSONList page = new JSONList();
+		for ( int id : ids ) { page.addNewJSONMap().put("id", id); }
+		return page;
+	}
+	
+	private void assertEmbedded(JSONList page, int... expectedIds) {
+		for ( int i = 0 ; i < expectedIds.length ; i++ ) {
+			assertEquals(conn.getResource("/api/v1/items/"+expectedIds[i]).getUri().toString(), 
+					page.get(i, JSONMap.class).get("embedded", String.class));
+		}
+	}
+	
+	private void addRequest(SSCBulkRequestBuilder builder, String httpMethod, String path) {
+		builder.addBulkRequest(httpMethod, conn.getBaseResource().path(path));
+	}
+	
+	private void assertResult(JSONList results, int index, String expectedPath) {
+		JSONMap result = results.get(index, JSONMap.class);
+		assertNotNull(result);
+		assertNull(result.get("error"));
+		String uri = result.getPath("responses", JSONList.class).get(0, JSONMap.class).getPath("body.uri", String.class);
+		assertEquals(conn.getBaseResource().path(expectedPath).getUri().toString(), uri);
+	}
+	
+	private void assertError(JSONList results, int index) {
+		JSONMap result = results.get(index, JSONMap.class);
+		assertNotNull(result);
+		assertNotNull(result.get("error"));
+		assertEquals(0, result.getPath("responses", JSONList.class).size());
+	}
+}
@@ -0,0 +1,127 @@
+package com.fortify.client.ssc.api;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.json.JSONMap;
+
+public class SSCCompletionWatcherTest {
+	private final AtomicInteger polls = new AtomicInteger();
+	private final AtomicInteger bulkRequests = new AtomicInteger();
+	private volatile int failedBulkRequests = 0;
+	private volatile int processingPolls = 2;
+	private volatile int artifactResponseCode = 200;
+	private SSCStubServer server;
+	private SSCAuthenticatingRestConnection conn;
+	private SSCCompletionWatcher watcher;
+	
+	@BeforeEach public void start() throws IOException {
+		server = new SSCStubServer().on("POST", "/api/v1/bulk", (path, uri, body) -> {
+			if ( bulkRequests.incrementAndGet()<=failedBulkRequests ) {
+				return SSCStubServer.json(500, Collections.singletonMap("message", "Server error"));
+			}
+			List<Object> data = new ArrayList<>();
+			for ( JsonNode request : body.get("requests") ) {
+				Map<String, Object> responseBody = new LinkedHashMap<>();
+				responseBody.put("responseCode", artifactResponseCode);
+				if ( artifactResponseCode==200 ) {
+					String status = polls.incrementAndGet()<=processingPolls ? "PROCESSING" : "PROCESSED";
+					Map<String, Object> artifact = new LinkedHashMap<>();
+					artifact.put("id", 1);
+					artifact.put("status", status);
+					responseBody.put("data", artifact);
+				} else {
+					responseBody.put("message", "Access denied");
+				}
+				Map<String, Object> entry = new LinkedHashMap<>();
+				entry.put("request", request);
+				entry.put("responses", Collections.singletonList(Collections.singletonMap("body", responseBody)));
+				data.add(entry);
+			}
+			return SSCStubServer.ok(Collections.singletonMap("data", data));
+		});
+		conn = server.connect(true);
+		watcher = new SSCCompletionWatcher(conn).tickMillis(10).initialPollIntervalMillis(10).maxPollIntervalMillis(20);
+	}
+	
+	@AfterEach public void stop() {
+		watcher.close();
+		conn.close();
+		server.close();
+	}
+	
+	@Test public void testWatchArtifactUntilProcessed() throws Exception {
+		JSONMap artifact = watcher.watchArtifact("1", 10000).get(10, TimeUnit.SECONDS);
+		assertEquals("PROCESSED", artifact.get("status", String.class));
+		assertEquals(3, polls.get());
+	}
+	
+	@Test public void testTransientErrorIsRetried() throws Exception {
+		// First poll fails with a server error, even after retrying the bulk request chunk
+		failedBulkRequests = 2;
+		JSONMap artifact = watcher.watchArtifact("1", 10000).get(10, TimeUnit.SECONDS);
+		assertEquals("PROCESSED", artifact.get("status", String.class));
+		assertEquals(2+3, bulkRequests.get());
+	}
+	
+	@Test public void testNonTransientErrorFailsWatch() {
+		artifactResponseCode = 403;
+		CompletableFuture<JSONMap> future = watcher.watchArtifact("1", 10000);
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+		assertTrue(e.getCause().getMessage().contains("403"), e.getCause().getMessage());
+	}
+	
+	@Test public void testBulkPermissionErrorFailsWatch() {
+		server.on("POST", "/api/v1/bulk", (path, uri, body) -> SSCStubServer.json(403, Collections.singletonMap("message", "Access denied")));
+		CompletableFuture<JSONMap> future = watcher.watchArtifact("1", 10000);
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+		assertTrue(e.getCause().getMessage().contains("403"), e.getCause().getMessage());
+	}
+	
+	@Test public void testWatchAfterCloseIsRejected() {
+		watcher.close();
+		assertThrows(IllegalStateException.class, () -> watcher.watchArtifact("1", 10000));
+	}
+}
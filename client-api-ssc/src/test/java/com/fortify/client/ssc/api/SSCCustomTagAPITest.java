@@ -0,0 +1,132 @@
+package com.fortify.client.ssc.api;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fortify.client.ssc.api.SSCCustomTagAPI.SSCApplicationVersionCustomTagUpdater;
+import com.fortify.client.ssc.api.SSCCustomTagAPI.SSCCustomTagAuditBatchResult;
+import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.json.JSONMap;
+
+public class SSCCustomTagAPITest {
+	private static final String ACTION_PATH = "/api/v1/projectVersions/1/issues/action";
+	private final List<Long> submittedRevisions = Collections.synchronizedList(new ArrayList<>());
+	private volatile long currentRevision = 2;
+	private SSCStubServer server;
+	private SSCAuthenticatingRestConnection conn;
+	
+	@BeforeEach public void start() throws IOException {
+		server = new SSCStubServer()
+			.on("POST", ACTION_PATH, (path, uri, body) -> {
+				long revision = body.at("/values/issues/0/revision").asLong();
+				submittedRevisions.add(revision);
+				return revision==currentRevision 
+						? SSCStubServer.ok(Collections.singletonMap("data", Collections.emptyMap()))
+						: SSCStubServer.json(409, Collections.singletonMap("message", "Revision conflict"));
+			})
+			.on("POST", "/api/v1/bulk", (path, uri, body) -> {
+				List<Object> data = new ArrayList<>();
+				for ( JsonNode request : body.get("requests") ) {
+					Map<String, Object> issue = new LinkedHashMap<>();
+					issue.put("id", 10);
+					issue.put("revision", currentRevision);
+					Map<String, Object> entry = new LinkedHashMap<>();
+					entry.put("request", request);
+					entry.put("responses", Collections.singletonList(Collections.singletonMap("body", Collections.singletonMap("data", issue))));
+					data.add(entry);
+				}
+				return SSCStubServer.ok(Collections.singletonMap("data", data));
+			});
+		conn = server.connect(true);
+	}
+	
+	@AfterEach public void stop() {
+		conn.close();
+		server.close();
+	}
+	
+	@Test public void testUpdateWithoutConflict() {
+		List<SSCCustomTagAuditBatchResult> results = createUpdater(2).executeWithResults();
+		assertEquals(1, results.size());
+		assertTrue(results.get(0).isSuccessful());
+		assertEquals(0, results.get(0).getRetries());
+		assertEquals(0, server.countRequests("POST", "/api/v1/bulk"));
+	}
+	
+	@Test public void testRevisionConflictIsRetriedWithRefreshedRevision() {
+		List<SSCCustomTagAuditBatchResult> results = createUpdater(1).executeWithResults();
+		assertEquals(1, results.size());
+		assertTrue(results.get(0).isSuccessful());
+		assertEquals(1, results.get(0).getRetries());
+		assertEquals(1, server.countRequests("POST", "/api/v1/bulk"));
+		assertEquals(2, server.countRequests("POST", ACTION_PATH));
+		assertEquals(1L, submittedRevisions.get(0));
+		assertEquals(2L, submittedRevisions.get(1));
+	}
+	
+	@Test public void testPersistentConflictIsReportedInBatchResult() {
+		// Refreshed revisions are always outdated, so every attempt fails with a conflict
+		currentRevision = 5;
+		server.on("POST", "/api/v1/bulk", (path, uri, body) -> SSCStubServer.ok(Collections.singletonMap("data", 
+				Collections.singletonList(Collections.singletonMap("responses", Collections.singletonList(
+						Collections.singletonMap("body", Collections.singletonMap("data", Collections.singletonMap("revision", 3)))))))));
+		List<SSCCustomTagAuditBatchResult> results = createUpdater(1).conflictRetries(2).failOnError(false).executeWithResults();
+		assertEquals(1, results.size());
+		assertFalse(results.get(0).isSuccessful());
+		assertEquals(2, results.get(0).getRetries());
+		assertEquals(3, server.countRequests("POST", ACTION_PATH));
+	}
+	
+	@Test public void testPersistentConflictThrowsByDefault() {
+		currentRevision = 5;
+		assertThrows(RuntimeException.class, () -> createUpdater(1).conflictRetries(0).execute());
+		assertEquals(1, server.countRequests("POST", ACTION_PATH));
+	}
+	
+	private SSCApplicationVersionCustomTagUpdater createUpdater(long revision) {
+		JSONMap issue = new JSONMap();
+		issue.put("id", 10);
+		issue.put("revision", revision);
+		return conn.api(SSCCustomTagAPI.class).updateCustomTags("1")
+				.forVulnerability(issue)
+				.byGuid("custom-tag-guid", "value");
+	}
+}
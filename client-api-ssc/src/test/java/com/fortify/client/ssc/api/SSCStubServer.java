@@ -0,0 +1,165 @@
+package com.fortify.client.ssc.api;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal stub SSC server for unit tests, based on the JDK {@link HttpServer}. 
+ * Handlers are registered for an HTTP method and a regular expression matching
+ * the request path; all requests are recorded as "METHOD path?query".
+ */
+public class SSCStubServer implements AutoCloseable {
+	public static final ObjectMapper MAPPER = new ObjectMapper();
+	private final HttpServer server;
+	private final List<Route> routes = new CopyOnWriteArrayList<>();
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+	
+	@FunctionalInterface
+	public interface Handler {
+		StubResponse handle(Matcher path, URI uri, JsonNode body) throws IOException;
+	}
+	
+	public static final class StubResponse {
+		private final int status;
+		private final Object body;
+		
+		private StubResponse(int status, Object body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+	
+	private static final class Route {
+		private final String method;
+		private final Pattern path;
+		private final Handler handler;
+		
+		private Route(String method, Pattern path, Handler handler) {
+			this.method = method;
+			this.path = path;
+			this.handler = handler;
+		}
+	}
+	
+	public SSCStubServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+	
+	public static final StubResponse json(int status, Object body) {
+		return new StubResponse(status, body);
+	}
+	
+	public static final StubResponse ok(Object body) {
+		return json(200, body);
+	}
+	
+	public SSCStubServer on(String method, String pathRegex, Handler handler) {
+		routes.add(0, new Route(method, Pattern.compile(pathRegex), handler));
+		return this;
+	}
+	
+	public List<String> getRequests() {
+		synchronized (requests) {
+			return new ArrayList<>(requests);
+		}
+	}
+	
+	public int countRequests(String method, String pathRegex) {
+		Pattern pattern = Pattern.compile(method+" "+pathRegex+"(\\?.*)?");
+		return (int)getRequests().stream().filter(r->pattern.matcher(r).matches()).count();
+	}
+	
+	public SSCAuthenticatingRestConnection connect(boolean multiThreaded) {
+		return SSCAuthenticatingRestConnection.builder()
+				.baseUrl("http://localhost:"+server.getAddress().getPort())
+				.authToken("test-token")
+				.multiThreaded(multiThreaded)
+				.build();
+	}
+	
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		String method = exchange.getRequestMethod();
+		URI uri = exchange.getRequestURI();
+		String path = uri.getPath();
+		requests.add(method+" "+path+(uri.getRawQuery()==null ? "" : "?"+uri.getRawQuery()));
+		StubResponse response = json(404, null);
+		try ( InputStream is = exchange.getRequestBody() ) {
+			JsonNode body = readBody(is);
+			for ( Route route : routes ) {
+				Matcher matcher = route.path.matcher(path);
+				if ( route.method.equals(method) && matcher.matches() ) {
+					response = route.handler.handle(matcher, uri, body);
+					break;
+				}
+			}
+		} catch ( RuntimeException e ) {
+			response = json(500, Collections.singletonMap("message", e.toString()));
+		}
+		byte[] bytes = response.body==null ? new byte[0] : MAPPER.writeValueAsBytes(response.body);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(response.status, bytes.length==0 ? -1 : bytes.length);
+		try ( OutputStream os = exchange.getResponseBody() ) {
+			os.write(bytes);
+		}
+	}
+	
+	private static final JsonNode readBody(InputStream is) throws IOException {
+		byte[] bytes = readAll(is);
+		return bytes.length==0 ? null : MAPPER.readTree(bytes);
+	}
+	
+	private static final byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ( (read=is.read(buffer))!=-1 ) { os.write(buffer, 0, read); }
+		return os.toByteArray();
+	}
+}
@@ -26,6 +26,9 @@ package com.fortify.client.webinspect.connection;
 
 import javax.ws.rs.client.WebTarget;
 
+import com.fortify.client.webinspect.api.WebInspectMacroAPI;
+import com.fortify.client.webinspect.api.WebInspectProxyAPI;
+import com.fortify.client.webinspect.api.WebInspectScanAPI;
 import com.fortify.util.rest.connection.AbstractRestConnection;
 import com.fortify.util.rest.connection.IRestConnectionBuilder;
 
@@ -39,11 +42,17 @@ import com.fortify.util.rest.connection.IRestConnectionBuilder;
  *
  */
 public class WebInspectAuthenticatingRestConnection extends WebInspectBasicRestConnection {
+	private static final Class<?>[] DEFAULT_API_CLASSES = {
+		WebInspectMacroAPI.class,
+		WebInspectProxyAPI.class,
+		WebInspectScanAPI.class
+	};
 	private final String apiKey;
 	
 	protected WebInspectAuthenticatingRestConnection(WebInspectRestConnectionConfig<?> config) {
 		super(config);
 		this.apiKey = config.getApiKey();
+		registerDefaultApis(DEFAULT_API_CLASSES);
 	}
 	
 	@Override
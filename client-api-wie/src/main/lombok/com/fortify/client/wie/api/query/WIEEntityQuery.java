@@ -64,6 +64,11 @@ public class WIEEntityQuery extends AbstractRestConnectionQuery<JSONMap> {
 		return (data instanceof JSONList) ? (JSONList)data : new JSONList(Arrays.asList(data));
 	}
 	
+	@Override
+	protected String getStreamingListPropertyName() {
+		return "data";
+	}
+	
 	@Override
 	protected Class<JSONMap> getResponseTypeClass() {
 		return JSONMap.class;
@@ -27,6 +27,7 @@ package com.fortify.client.wie.connection;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.client.Entity;
@@ -38,6 +39,8 @@ import org.glassfish.jersey.media.multipart.FormDataMultiPart;
 import org.glassfish.jersey.media.multipart.MultiPart;
 import org.glassfish.jersey.media.multipart.file.FileDataBodyPart;
 
+import com.fortify.client.wie.api.WIEMacroAPI;
+import com.fortify.client.wie.api.WIEScanAPI;
 import com.fortify.util.rest.connection.AbstractRestConnection;
 import com.fortify.util.rest.connection.AbstractRestConnectionWithUsernamePasswordConfig;
 import com.fortify.util.rest.connection.IRestConnectionBuilder;
@@ -56,14 +59,20 @@ import lombok.extern.apachecommons.CommonsLog;
  */
 @CommonsLog
 public class WIEAuthenticatingRestConnection extends WIEBasicRestConnection {
+	private static final Class<?>[] DEFAULT_API_CLASSES = {
+		WIEMacroAPI.class,
+		WIEScanAPI.class
+	};
 	private String apiKey = null;
 	private final WIEBasicRestConnection basicConn;
+	private final ReentrantLock apiKeyLock = new ReentrantLock();
 	private final JSONMap auth;
 	
 	protected WIEAuthenticatingRestConnection(AbstractRestConnectionWithUsernamePasswordConfig<?> config) {
 		super(config);
 		this.basicConn = new WIEBasicRestConnection(config);
 		this.auth = getAuth(config);
+		registerDefaultApis(DEFAULT_API_CLASSES);
 	}
 	
 	private JSONMap getAuth(AbstractRestConnectionWithUsernamePasswordConfig<?> config) {
@@ -84,8 +93,13 @@ public class WIEAuthenticatingRestConnection extends WIEBasicRestConnection {
 		return webTarget.queryParam("api_key", apiKey);
 	}
 	
-	private synchronized final String getApiKeySynchronized() {
-		return getApiKey();
+	private final String getApiKeySynchronized() {
+		apiKeyLock.lock();
+		try {
+			return getApiKey();
+		} finally {
+			apiKeyLock.unlock();
+		}
 	}
 
 	private final String getApiKey() {
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fortify.util.spring.expression.helper.AbstractExpressionHelper;
+import com.fortify.util.spring.expression.helper.ExpressionCache;
+import com.fortify.util.spring.expression.helper.InternalExpressionHelper;
+
+/**
+ * JMH benchmark for {@link JSONMap#getPath(String)}, comparing the direct
+ * path resolution with (cached) SpEL expression evaluation, and with an 
+ * expression helper that parses the given path on every invocation.
+ * 
+ * @author Ruud Senden
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JSONMapGetPathBenchmark {
+	private static final UncachedExpressionHelper UNCACHED_EXPRESSION_HELPER = new UncachedExpressionHelper();
+	@Param({"responses", "request.uri", "currentState.id", "issues[1].id"})
+	private String path;
+	private JSONMap json;
+	
+	@Setup
+	public void setup() {
+		json = new JSONMap();
+		json.putPath("request.uri", "/api/v1/projectVersions/1234/issues");
+		json.putPath("currentState.id", 1234);
+		json.putPath("responses", new JSONList());
+		json.putPath("issues[0].id", 1);
+		json.putPath("issues[1].id", 2);
+	}
+	
+	@Benchmark
+	public Object getPath() {
+		return json.getPath(path);
+	}
+	
+	@Benchmark
+	public Object getPathSpEL() {
+		return InternalExpressionHelper.get().evaluateSimpleExpression(json, path, Object.class);
+	}
+	
+	@Benchmark
+	public Object getPathSpELUncached() {
+		return UNCACHED_EXPRESSION_HELPER.evaluateSimpleExpression(json, path, Object.class);
+	}
+	
+	private static final class UncachedExpressionHelper extends AbstractExpressionHelper {
+		@Override
+		protected <E> ExpressionCache<E> createExpressionCache() {
+			return new ExpressionCache<>(0);
+		}
+	}
+}
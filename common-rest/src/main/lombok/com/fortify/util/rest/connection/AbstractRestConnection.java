@@ -27,25 +27,35 @@ package com.fortify.util.rest.connection;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.file.CopyOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
@@ -60,16 +70,26 @@ import javax.ws.rs.core.Response.StatusType;
 
 import org.apache.commons.lang.CharEncoding;
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.reflect.ConstructorUtils;
+import org.apache.http.HttpClientConnection;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.ServiceUnavailableRetryStrategy;
 import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.glassfish.jersey.apache.connector.ApacheClientProperties;
 import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
 import org.glassfish.jersey.apache.connector.ApacheHttpClientBuilderConfigurator;
@@ -77,15 +97,17 @@ import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.client.ClientProperties;
 import org.glassfish.jersey.client.ClientResponse;
 import org.glassfish.jersey.client.RequestEntityProcessing;
-import org.glassfish.jersey.logging.LoggingFeature;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
 
 import com.fasterxml.jackson.jaxrs.json.JacksonJaxbJsonProvider;
 import com.fortify.util.log4j.LogMaskingHelper;
 import com.fortify.util.rest.json.JSONObjectMapperSupplier;
+import com.fortify.util.rest.metrics.CompositeRestMetricsListener;
+import com.fortify.util.rest.metrics.IRestMetricsListener;
 
 import lombok.Getter;
 import lombok.ToString;
+import lombok.extern.apachecommons.CommonsLog;
 
 /**
  * <p>Base class for low-level functionality for accessing REST API's. Concrete implementations
@@ -98,13 +120,19 @@ import lombok.ToString;
  * <p>Implementations may choose to also provide more high-level functionality. Usually such implementations
  * provide an api() method that provides access to these more high-level functionalities, keeping the
  * actual connection implementation lean and clean.</p>
+ * 
+ * <p>Apart from the synchronous executeRequest methods, this class provides executeRequestAsync
+ * methods that return a {@link CompletableFuture}. These asynchronous methods execute the regular
+ * request pipeline on a connection-scoped executor, such that all authentication, log masking and
+ * response handling behavior is identical to the synchronous methods.</p>
  */
-@ToString
+@ToString @CommonsLog
 public abstract class AbstractRestConnection implements IRestConnection {
 	private static final Pattern EXPR_AUTH_HEADER = Pattern.compile("Authorization: (.*)", Pattern.CASE_INSENSITIVE);
 	private static final Set<String> DEFAULT_HTTP_METHODS_TO_PRE_AUTHENTICATE = new HashSet<String>(Arrays.asList("POST","PUT","PATCH"));
 	
-	private final Map<Class<?>, Object> apis = new HashMap<>();
+	private static final ClassValue<MethodHandle> API_CONSTRUCTORS = new ApiConstructorClassValue();
+	private final Map<Class<?>, Object> apis = new ConcurrentHashMap<>();
 	
 	@Getter private final URI baseUrl;
 	@Getter private final boolean multiThreaded;
@@ -112,7 +140,22 @@ public abstract class AbstractRestConnection implements IRestConnection {
 	private final Map<String, Object> connectionProperties;
 	@Getter private final String connectionId;
 	private final CredentialsProvider credentialsProvider;
-	private Client client;
+	private final int maxConnectionsTotal;
+	private final int maxConnectionsPerRoute;
+	private final int validateAfterInactivityMillis;
+	private final long connectionTimeToLiveMillis;
+	private final long evictIdleConnectionsAfterMillis;
+	private final boolean evictExpiredConnections;
+	private final int executorThreads;
+	private final boolean virtualThreads;
+	private final boolean eagerApiRegistration;
+	private final RetryHandler retryHandler;
+	@Getter private final IRestMetricsListener metricsListener;
+	private final RestMetricsFilter metricsFilter;
+	private final PayloadLoggingFilter payloadLoggingFilter;
+	private volatile ExecutorService executor;
+	private volatile PoolingHttpClientConnectionManager connectionManager;
+	private volatile Client client;
 	
 	protected AbstractRestConnection(AbstractRestConnectionConfig<?> config) {
 		this.baseUrl = config.getBaseUrl();
@@ -121,22 +164,89 @@ public abstract class AbstractRestConnection implements IRestConnection {
 		this.connectionProperties = config.getConnectionProperties();
 		this.connectionId = this.getClass().getName()+config.getConnectionId();
 		this.credentialsProvider = createCredentialsProvider(config);
+		this.maxConnectionsTotal = config.getMaxConnectionsTotal();
+		this.maxConnectionsPerRoute = config.getMaxConnectionsPerRoute();
+		this.validateAfterInactivityMillis = config.getValidateAfterInactivityMillis();
+		this.connectionTimeToLiveMillis = config.getConnectionTimeToLiveMillis();
+		this.evictIdleConnectionsAfterMillis = config.getEvictIdleConnectionsAfterMillis();
+		this.evictExpiredConnections = config.isEvictExpiredConnections();
+		this.executorThreads = config.getExecutorThreads();
+		this.virtualThreads = config.isVirtualThreads();
+		this.eagerApiRegistration = config.isEagerApiRegistration();
+		this.metricsListener = CompositeRestMetricsListener.of(config.getMetricsListeners());
+		this.metricsFilter = metricsListener==IRestMetricsListener.NOOP ? null : new RestMetricsFilter(metricsListener);
+		this.retryHandler = new RetryHandler(createRetryPolicy(config), metricsListener);
+		this.payloadLoggingFilter = new PayloadLoggingFilter(config.getPayloadLogging());
 		Connections.register(this);
 	}
 	
+	/**
+	 * Get the API instance of the given type for this connection. API instances are 
+	 * created on first use by invoking a public constructor that takes a single connection 
+	 * argument, and cached for subsequent calls. This method is thread-safe; concurrent 
+	 * callers will always receive the same API instance. Note that API constructors
+	 * must not call this method.
+	 * @param <T> API type
+	 * @param type API class
+	 * @return API instance of the given type
+	 */
 	@SuppressWarnings("unchecked")
 	public <T> T api(Class<T> type) {
 		Object result = apis.get(type);
 		if ( result == null ) {
-			try {
-				result = ConstructorUtils.invokeConstructor(type, new Object[]{this});
-			} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e) {
-				throw new IllegalArgumentException("Cannot load API class "+type.getName(), e);
-			}
-			apis.put(type, result);
+			result = apis.computeIfAbsent(type, this::createApi);
 		}
 		return (T) result;
 	}
+	
+	/**
+	 * Create and register API instances for the given API classes if eager API registration
+	 * has been enabled through {@link AbstractRestConnectionConfig#eagerApiRegistration(boolean)}.
+	 * Subclasses should call this method at the end of their constructor, passing their 
+	 * standard API classes.
+	 * @param apiClasses API classes to be registered
+	 */
+	protected final void registerDefaultApis(Class<?>... apiClasses) {
+		if ( eagerApiRegistration ) {
+			for ( Class<?> apiClass : apiClasses ) {
+				api(apiClass);
+			}
+		}
+	}
+	
+	private Object createApi(Class<?> type) {
+		try {
+			return API_CONSTRUCTORS.get(type).invokeExact((IRestConnection)this);
+		} catch (IllegalArgumentException e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IllegalArgumentException("Cannot load API class "+type.getName(), t);
+		}
+	}
+	
+	/**
+	 * {@link ClassValue} implementation that resolves, once per API class, a {@link MethodHandle} 
+	 * for the public API constructor that takes a single connection argument. The returned 
+	 * {@link MethodHandle} has type <code>(IRestConnection)Object</code>.
+	 */
+	private static final class ApiConstructorClassValue extends ClassValue<MethodHandle> {
+		private static final MethodType API_CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, IRestConnection.class);
+		
+		@Override
+		protected MethodHandle computeValue(Class<?> type) {
+			for ( Constructor<?> constructor : type.getConstructors() ) {
+				Class<?>[] parameterTypes = constructor.getParameterTypes();
+				if ( parameterTypes.length==1 && IRestConnection.class.isAssignableFrom(parameterTypes[0]) ) {
+					try {
+						return MethodHandles.publicLookup().unreflectConstructor(constructor).asType(API_CONSTRUCTOR_TYPE);
+					} catch (IllegalAccessException e) {
+						throw new IllegalArgumentException("Cannot access constructor for API class "+type.getName(), e);
+					}
+				}
+			}
+			throw new IllegalArgumentException("API class "+type.getName()+" doesn't provide a public constructor taking a connection argument");
+		}
+	}
 
 	/**
 	 * Execute a request for the given method using the given web resource.
@@ -214,22 +324,179 @@ public abstract class AbstractRestConnection implements IRestConnection {
 	 * @return The result of executing the HTTP request.
 	 */
 	public <T> T executeRequest(String httpMethod, Builder builder, Entity<?> entity, Class<T> returnType) {
+		Builder updatedBuilder = prepareRequest(httpMethod, builder);
+		return retryHandler.execute(httpMethod, entity, () -> invokeRequest(httpMethod, updatedBuilder, entity, returnType));
+	}
+	
+	/**
+	 * Initialize the connection and update the given {@link Builder}. This is done
+	 * only once for each request, independent of the number of retries.
+	 */
+	private Builder prepareRequest(String httpMethod, Builder builder) {
+		initializeConnection(httpMethod);
+		return updateBuilder(builder);
+	}
+	
+	/**
+	 * Perform a single attempt for executing the request with the given, already 
+	 * updated {@link Builder}.
+	 */
+	private <T> T invokeRequest(String httpMethod, Builder builder, Entity<?> entity, Class<T> returnType) {
 		Response response = null;
 		UUID uuidAuthHeader = null;
 		try {
 			uuidAuthHeader = LogMaskingHelper.maskByPatternGroups().patterns(EXPR_AUTH_HEADER).add();
-			initializeConnection(httpMethod);
-			builder = updateBuilder(builder);
 			response = builder.build(httpMethod, entity).invoke();
 			return checkResponseAndGetOutput(httpMethod, builder, response, returnType);
 		} catch ( ClientErrorException e ) {
 			throw new RuntimeException("Error accessing remote system:\n"+e.getMessage(), e);
+		} catch ( ProcessingException e ) {
+			if ( metricsFilter!=null ) { metricsFilter.requestFailed(); }
+			throw e;
 		} finally {
 			LogMaskingHelper.remove(uuidAuthHeader);
 			if ( response != null && (returnType==null || !Response.class.isAssignableFrom(returnType)) ) { response.close(); }
 		}
 	}
 	
+	/**
+	 * Asynchronously execute a request for the given method using the given web resource.
+	 * @param <T>        The return type for the data returned by the request
+	 * @param httpMethod The HTTP method to be used, as specified by one of the constants
+	 *                   in {@link HttpMethod}
+	 * @param webResource The web resource used to execute the request. Usually this web resource 
+	 * 					  is created using {@link #getBaseResource()}.path(...)...
+	 * @param returnType The return type for the data returned by the request.
+	 * @return {@link CompletableFuture} that will be completed with the result of executing the 
+	 *         HTTP request, or completed exceptionally if the request fails
+	 */
+	public <T> CompletableFuture<T> executeRequestAsync(String httpMethod, WebTarget webResource, Class<T> returnType) {
+		return executeRequestAsync(httpMethod, webResource, null, returnType);
+	}
+	
+	/**
+	 * Asynchronously execute a request for the given method using the given web resource and entity.
+	 * See {@link #executeRequest(String, WebTarget, Entity, Class)} for details.
+	 * @param <T>        The return type for the data returned by the request
+	 * @param httpMethod The HTTP method to be used, as specified by one of the constants
+	 *                   in {@link HttpMethod}
+	 * @param webResource The web resource used to execute the request. Usually this web resource 
+	 * 					  is created using {@link #getBaseResource()}.path(...)...
+	 * @param entity The entity to be sent in the request
+	 * @param returnType The return type for the data returned by the request.
+	 * @return {@link CompletableFuture} that will be completed with the result of executing the 
+	 *         HTTP request, or completed exceptionally if the request fails
+	 */
+	public <T> CompletableFuture<T> executeRequestAsync(String httpMethod, WebTarget webResource, Entity<?> entity, Class<T> returnType) {
+		return CompletableFuture.supplyAsync(() -> executeRequest(httpMethod, webResource, entity, returnType), getExecutor());
+	}
+	
+	/**
+	 * Asynchronously execute a request for the given method using the given builder.
+	 * See {@link #executeRequest(String, Builder, Entity, Class)} for details. Contrary
+	 * to the synchronous method, waiting for a retry doesn't block any thread.
+	 * @param <T>        The return type for the data returned by the request
+	 * @param httpMethod The HTTP method to be used, as specified by one of the constants
+	 *                   in {@link HttpMethod}
+	 * @param builder	 The builder used to execute the request. Usually this builder is created
+	 *                   using {@link #getBaseResource()}.path(...).builder(...)...
+	 * @param entity     The entity to be submitted, may be null
+	 * @param returnType The return type for the data returned by the request.
+	 * @return {@link CompletableFuture} that will be completed with the result of executing the 
+	 *         HTTP request, or completed exceptionally if the request fails
+	 */
+	public <T> CompletableFuture<T> executeRequestAsync(String httpMethod, Builder builder, Entity<?> entity, Class<T> returnType) {
+		return CompletableFuture.supplyAsync(() -> prepareRequest(httpMethod, builder), getExecutor())
+				.thenCompose(updatedBuilder -> retryHandler.executeAsync(httpMethod, entity, 
+						() -> invokeRequest(httpMethod, updatedBuilder, entity, returnType), getExecutor()));
+	}
+	
+	/**
+	 * Get the connection-scoped {@link ExecutorService} used for executing asynchronous
+	 * requests. Other components like paged queries may use this executor for running
+	 * concurrent work related to this connection. Callers should not shut down the 
+	 * returned executor; it is shut down when this connection is closed. If the executor 
+	 * has not been previously created, this method will call {@link #createExecutor()} 
+	 * to create a new executor.
+	 * @return Cached {@link ExecutorService} instance if available, new {@link ExecutorService} instance otherwise
+	 */
+	@Override
+	public final ExecutorService getExecutor() {
+		ExecutorService result = executor;
+		if ( result == null ) {
+			synchronized (this) {
+				result = executor;
+				if ( result == null ) {
+					executor = result = createExecutor();
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Create the {@link ExecutorService} used for executing asynchronous requests. If
+	 * virtual threads have been enabled and are supported by the current Java version, 
+	 * the default implementation returns an executor that starts a new virtual thread 
+	 * for each task. Otherwise, it returns a thread pool with at most the configured 
+	 * number of executor threads; idle threads are terminated after 60 seconds.
+	 * @return New {@link ExecutorService} instance
+	 */
+	protected ExecutorService createExecutor() {
+		ExecutorService result = virtualThreads ? createVirtualThreadExecutor() : null;
+		return result!=null ? result : createPlatformThreadExecutor();
+	}
+	
+	/**
+	 * Create an {@link ExecutorService} that starts a new virtual thread for each task.
+	 * As this library targets Java 8, this method uses reflection to invoke 
+	 * <code>Executors.newVirtualThreadPerTaskExecutor()</code>.
+	 * @return New {@link ExecutorService} instance, or null if virtual threads are not supported
+	 */
+	private ExecutorService createVirtualThreadExecutor() {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			log.warn("Virtual threads are not supported on this Java version; using platform threads instead");
+			return null;
+		}
+	}
+	
+	private ExecutorService createPlatformThreadExecutor() {
+		AtomicInteger threadCount = new AtomicInteger();
+		String threadNamePrefix = getClass().getSimpleName()+"-";
+		ThreadPoolExecutor result = new ThreadPoolExecutor(executorThreads, executorThreads, 60L, TimeUnit.SECONDS, 
+			new LinkedBlockingQueue<Runnable>(), runnable -> {
+				Thread thread = new Thread(runnable, threadNamePrefix+threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		result.allowCoreThreadTimeOut(true);
+		return result;
+	}
+	
+	/**
+	 * Execute a request for the given method using the given builder, streaming the
+	 * given entity to the server using chunked transfer encoding rather than buffering
+	 * the full entity in memory. This is mostly useful for uploading large files. 
+	 * As a streamed entity usually cannot be repeated, the connection is pre-authenticated
+	 * as described in {@link #initializeConnection(String)} before the entity is sent.
+	 * 
+	 * @param <T>        The return type for the data returned by the request
+	 * @param httpMethod The HTTP method to be used, as specified by one of the constants
+	 *                   in {@link HttpMethod}
+	 * @param builder	 The builder used to execute the request. Usually this builder is created
+	 *                   using {@link #getBaseResource()}.path(...).builder(...)...
+	 * @param entity     The entity to be streamed to the server
+	 * @param returnType The return type for the data returned by the request.
+	 * @return The result of executing the HTTP request.
+	 */
+	public <T> T executeStreamingRequest(String httpMethod, Builder builder, Entity<?> entity, Class<T> returnType) {
+		return executeRequest(httpMethod, 
+				builder.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.CHUNKED), 
+				entity, returnType);
+	}
+	
 	public void executeRequestAndSaveResponse(String httpMethod, WebTarget webTarget, Path outputPath, CopyOption... copyOptions) {
 		Response response = executeRequest(httpMethod, webTarget, Response.class);
 		try {
@@ -355,7 +622,7 @@ public abstract class AbstractRestConnection implements IRestConnection {
 		String longMsg = msg+", response contents: \n"+response.readEntity(String.class);
 		// By adding a new exception as the cause, we make sure that the response
 		// contents will be logged whenever this RuntimeException is logged.
-		RuntimeException re = new RuntimeException(msg, new Exception(longMsg));
+		RuntimeException re = new UnsuccessfulResponseException(msg, new Exception(longMsg), response.getStatus(), response.getStringHeaders());
 		return re;
 	}
 
@@ -410,10 +677,59 @@ public abstract class AbstractRestConnection implements IRestConnection {
 	 * @return Cached {@link Client} instance if available, new {@link Client} instance otherwise
 	 */
 	public final Client getClient() {
-		if ( client == null ) {
-			client = createClient();
+		Client result = client;
+		if ( result == null ) {
+			synchronized (this) {
+				result = client;
+				if ( result == null ) {
+					client = result = createClient();
+				}
+			}
 		}
-		return client;
+		return result;
+	}
+	
+	/**
+	 * Get statistics for the HTTP connection pool used by this connection. 
+	 * If the client hasn't been created yet, or a custom connection manager has 
+	 * been configured through the connection properties, all statistics except
+	 * the maximum number of connections will be zero.
+	 * @return {@link ConnectionPoolStats} for this connection
+	 */
+	@Override
+	public ConnectionPoolStats getConnectionPoolStats() {
+		PoolingHttpClientConnectionManager connectionManager = this.connectionManager;
+		if ( connectionManager == null ) {
+			return new ConnectionPoolStats(0, 0, 0, maxConnectionsTotal);
+		}
+		PoolStats stats = connectionManager.getTotalStats();
+		return new ConnectionPoolStats(stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax());
+	}
+	
+	/**
+	 * Get a point-in-time snapshot of the statistics for requests that have been
+	 * retried according to the {@link RetryPolicy} for this connection.
+	 * @return {@link RetryStats} for this connection
+	 */
+	public RetryStats getRetryStats() {
+		return retryHandler.getStats();
+	}
+	
+	/**
+	 * Enable, disable or reconfigure diagnostic payload logging for this connection.
+	 * The new configuration applies to all requests started after this method returns.
+	 * @param payloadLogging {@link PayloadLoggingConfig} to be applied, or null to
+	 *        disable payload logging
+	 */
+	public void setPayloadLogging(PayloadLoggingConfig payloadLogging) {
+		payloadLoggingFilter.setConfig(payloadLogging);
+	}
+	
+	/**
+	 * @return Copy of the current {@link PayloadLoggingConfig} for this connection
+	 */
+	public PayloadLoggingConfig getPayloadLogging() {
+		return payloadLoggingFilter.getConfig();
 	}
 	
 	/**
@@ -422,6 +738,8 @@ public abstract class AbstractRestConnection implements IRestConnection {
 	 */
 	public void close() {
 		Connections.unRegister(this);
+		retryHandler.close();
+		if ( executor != null ) { executor.shutdownNow(); }
 		getClient().close();
 		apis.clear();
 	}
@@ -471,19 +789,76 @@ public abstract class AbstractRestConnection implements IRestConnection {
 		clientConfig.property(ApacheClientProperties.CREDENTIALS_PROVIDER, credentialsProvider);
 		clientConfig.property(ApacheClientProperties.PREEMPTIVE_BASIC_AUTHENTICATION, doPreemptiveBasicAuthentication());
 		clientConfig.property(ApacheClientProperties.REQUEST_CONFIG, getRequestConfig());
+		clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, createConnectionManager());
 		if ( connectionProperties != null ) {
 			for ( Map.Entry<String,Object> property : connectionProperties.entrySet() ) {
 				clientConfig.property(property.getKey(), property.getValue());
 			}
 		}
+		Object connectionManager = clientConfig.getProperty(ApacheClientProperties.CONNECTION_MANAGER);
+		this.connectionManager = connectionManager instanceof PoolingHttpClientConnectionManager 
+				? (PoolingHttpClientConnectionManager)connectionManager : null;
 		clientConfig.connectorProvider(new ApacheConnectorProvider());
 		clientConfig.register(new HttpClientBuilderConfigurator());
 		clientConfig.register(JacksonFeature.class);
 		clientConfig.register(MultiPartFeature.class);
-		clientConfig.register(new LoggingFeature(Logger.getLogger(LoggingFeature.DEFAULT_LOGGER_NAME), Level.FINE, LoggingFeature.Verbosity.PAYLOAD_ANY, 10000));
+		if ( metricsFilter!=null ) {
+			clientConfig.register(metricsFilter);
+		}
+		clientConfig.register(payloadLoggingFilter);
 		return clientConfig;
 	}
 	
+	/**
+	 * Create the {@link PoolingHttpClientConnectionManager} to be used by the Apache
+	 * HttpClient, based on the connection pool settings from {@link AbstractRestConnectionConfig}.
+	 * HTTPS connections use the system default SSL settings. Subclasses may override 
+	 * this method to further customize the connection manager.
+	 * @return {@link PoolingHttpClientConnectionManager} instance
+	 */
+	protected PoolingHttpClientConnectionManager createConnectionManager() {
+		Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", SSLConnectionSocketFactory.getSystemSocketFactory())
+				.build();
+		PoolingHttpClientConnectionManager result = metricsListener==IRestMetricsListener.NOOP 
+				? new PoolingHttpClientConnectionManager(registry, null, null, null, connectionTimeToLiveMillis, TimeUnit.MILLISECONDS)
+				: new TimedPoolingHttpClientConnectionManager(registry);
+		result.setMaxTotal(maxConnectionsTotal);
+		result.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		result.setValidateAfterInactivity(validateAfterInactivityMillis);
+		return result;
+	}
+	
+	/**
+	 * {@link PoolingHttpClientConnectionManager} implementation that reports the time
+	 * spent waiting for a pooled connection to the configured {@link IRestMetricsListener}. 
+	 */
+	private final class TimedPoolingHttpClientConnectionManager extends PoolingHttpClientConnectionManager {
+		private TimedPoolingHttpClientConnectionManager(Registry<ConnectionSocketFactory> registry) {
+			super(registry, null, null, null, connectionTimeToLiveMillis, TimeUnit.MILLISECONDS);
+		}
+		
+		@Override
+		public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+			ConnectionRequest request = super.requestConnection(route, state);
+			return new ConnectionRequest() {
+				@Override
+				public boolean cancel() {
+					return request.cancel();
+				}
+				
+				@Override
+				public HttpClientConnection get(long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+					long start = System.nanoTime();
+					HttpClientConnection result = request.get(timeout, timeUnit);
+					metricsListener.connectionLeased(System.nanoTime()-start);
+					return result;
+				}
+			};
+		}
+	}
+	
 	/**
 	 * This {@link ApacheHttpClientBuilderConfigurator} implementation simply calls
 	 * {@link AbstractRestConnection#updateHttpClientBuilder(HttpClientBuilder)} to
@@ -521,6 +896,24 @@ public abstract class AbstractRestConnection implements IRestConnection {
 		return new BasicCredentialsProvider();
 	}
 	
+	/**
+	 * Create the {@link RetryPolicy} for this connection. The default implementation
+	 * returns the {@link RetryPolicy} from the given configuration. Subclasses may
+	 * override this method, for example to exclude status codes that are handled
+	 * by the subclass itself. Note that this method is called from the constructor.
+	 * @param config {@link AbstractRestConnectionConfig} instance
+	 * @return {@link RetryPolicy} instance, or null to disable retries
+	 */
+	protected RetryPolicy createRetryPolicy(AbstractRestConnectionConfig<?> config) {
+		return config.getRetryPolicy();
+	}
+	
+	/**
+	 * Get the Apache HttpClient {@link ServiceUnavailableRetryStrategy}. The default 
+	 * implementation returns null, as retries are handled according to the 
+	 * {@link RetryPolicy} returned by {@link #createRetryPolicy(AbstractRestConnectionConfig)}.
+	 * @return {@link ServiceUnavailableRetryStrategy} instance, or null
+	 */
 	protected ServiceUnavailableRetryStrategy getServiceUnavailableRetryStrategy() {
 		return null;
 	}
@@ -609,6 +1002,12 @@ public abstract class AbstractRestConnection implements IRestConnection {
 	protected void updateHttpClientBuilder(HttpClientBuilder httpClientBuilder) {
 		httpClientBuilder.setDefaultRequestConfig(getRequestConfig());
 		httpClientBuilder.setServiceUnavailableRetryStrategy(getServiceUnavailableRetryStrategy());
+		if ( evictIdleConnectionsAfterMillis > 0 ) {
+			httpClientBuilder.evictIdleConnections(evictIdleConnectionsAfterMillis, TimeUnit.MILLISECONDS);
+		}
+		if ( evictExpiredConnections ) {
+			httpClientBuilder.evictExpiredConnections();
+		}
 	}
 
 	protected RequestConfig getRequestConfig() {
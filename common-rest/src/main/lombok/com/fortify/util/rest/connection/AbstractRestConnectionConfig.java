@@ -26,7 +26,9 @@ package com.fortify.util.rest.connection;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -36,6 +38,7 @@ import org.apache.commons.lang.StringUtils;
 import org.glassfish.jersey.client.ClientProperties;
 
 import com.fortify.util.rest.json.ondemand.AbstractJSONMapOnDemandLoaderWithConnection;
+import com.fortify.util.rest.metrics.IRestMetricsListener;
 
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -48,6 +51,12 @@ import lombok.ToString;
  * flag should be set to true to allow the connection instance to enable multi-threading
  * features.
  * 
+ * <p>HTTP connections are pooled; the pool can be configured using the various
+ * maxConnections*, validateAfterInactivity*, connectionTimeToLive* and evict* 
+ * properties. By default, a pool with at most 20 connections is used. For single-threaded
+ * connections, at most 2 connections per route are used, whereas multi-threaded connections
+ * by default allow all pooled connections to be used for a single route.</p>
+ * 
  * @author Ruud Senden
  *
  * @param <T> Concrete {@link AbstractRestConnectionConfig} type
@@ -59,6 +68,18 @@ public abstract class AbstractRestConnectionConfig<T extends AbstractRestConnect
 	private ProxyConfig proxy = new ProxyConfig();
 	private Map<String, Object> connectionProperties;
 	private String connectionId = UUID.randomUUID().toString();
+	private int maxConnectionsTotal = 20;
+	private int maxConnectionsPerRoute = -1;
+	private int validateAfterInactivityMillis = 2000;
+	private long connectionTimeToLiveMillis = -1;
+	private long evictIdleConnectionsAfterMillis = -1;
+	private boolean evictExpiredConnections = false;
+	private int executorThreads = -1;
+	private boolean virtualThreads = false;
+	private boolean eagerApiRegistration = false;
+	private RetryPolicy retryPolicy = new RetryPolicy();
+	private List<IRestMetricsListener> metricsListeners = new ArrayList<>();
+	private PayloadLoggingConfig payloadLogging = new PayloadLoggingConfig();
 	
 	public T baseUrl(String baseUrl) {
 		setBaseUrl(baseUrl);
@@ -70,6 +91,160 @@ public abstract class AbstractRestConnectionConfig<T extends AbstractRestConnect
 		return getThis();
 	}
 	
+	/**
+	 * @param maxConnectionsTotal Maximum total number of pooled connections; default is 20
+	 * @return Self for chaining
+	 */
+	public T maxConnectionsTotal(int maxConnectionsTotal) {
+		setMaxConnectionsTotal(maxConnectionsTotal);
+		return getThis();
+	}
+	
+	/**
+	 * @param maxConnectionsPerRoute Maximum number of pooled connections per route; 
+	 *        see {@link #getMaxConnectionsPerRoute()} for the default value
+	 * @return Self for chaining
+	 */
+	public T maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+		return getThis();
+	}
+	
+	/**
+	 * @param validateAfterInactivityMillis Period of inactivity in milliseconds after which 
+	 *        pooled connections are validated before being re-used; default is 2000
+	 * @return Self for chaining
+	 */
+	public T validateAfterInactivityMillis(int validateAfterInactivityMillis) {
+		setValidateAfterInactivityMillis(validateAfterInactivityMillis);
+		return getThis();
+	}
+	
+	/**
+	 * @param connectionTimeToLiveMillis Maximum time to live in milliseconds for pooled
+	 *        connections, or -1 (default) for unlimited time to live
+	 * @return Self for chaining
+	 */
+	public T connectionTimeToLiveMillis(long connectionTimeToLiveMillis) {
+		setConnectionTimeToLiveMillis(connectionTimeToLiveMillis);
+		return getThis();
+	}
+	
+	/**
+	 * @param evictIdleConnectionsAfterMillis Time in milliseconds after which idle connections 
+	 *        are evicted from the pool by a background thread, or -1 (default) to disable 
+	 *        idle connection eviction
+	 * @return Self for chaining
+	 */
+	public T evictIdleConnectionsAfterMillis(long evictIdleConnectionsAfterMillis) {
+		setEvictIdleConnectionsAfterMillis(evictIdleConnectionsAfterMillis);
+		return getThis();
+	}
+	
+	/**
+	 * @param evictExpiredConnections Whether expired connections should be evicted from 
+	 *        the pool by a background thread; default is false
+	 * @return Self for chaining
+	 */
+	public T evictExpiredConnections(boolean evictExpiredConnections) {
+		setEvictExpiredConnections(evictExpiredConnections);
+		return getThis();
+	}
+	
+	/**
+	 * @param executorThreads Maximum number of threads used for executing asynchronous
+	 *        requests; see {@link #getExecutorThreads()} for the default value
+	 * @return Self for chaining
+	 */
+	public T executorThreads(int executorThreads) {
+		setExecutorThreads(executorThreads);
+		return getThis();
+	}
+	
+	/**
+	 * Enable or disable the use of virtual threads for the connection-scoped executor
+	 * returned by {@link IRestConnection#getExecutor()}. Virtual threads are only
+	 * available on Java 21 or later; on older Java versions, this setting is ignored 
+	 * and a platform thread pool is used instead. Connection components that 
+	 * need to hold a lock while calling the remote system, like the various token
+	 * factories, use a {@link java.util.concurrent.locks.ReentrantLock} rather than 
+	 * a synchronized block, to avoid pinning virtual threads to their carrier thread.
+	 * @param virtualThreads true to use virtual threads, false (default) otherwise
+	 * @return Self for chaining
+	 */
+	public T virtualThreads(boolean virtualThreads) {
+		setVirtualThreads(virtualThreads);
+		return getThis();
+	}
+	
+	/**
+	 * Enable or disable eager registration of the default API classes for the connection 
+	 * being built. If enabled, all standard API instances are created when the connection
+	 * is built, such that the first call to {@link AbstractRestConnection#api(Class)} doesn't
+	 * need to create the API instance.
+	 * @param eagerApiRegistration true to eagerly register API instances, false (default) otherwise
+	 * @return Self for chaining
+	 */
+	public T eagerApiRegistration(boolean eagerApiRegistration) {
+		setEagerApiRegistration(eagerApiRegistration);
+		return getThis();
+	}
+	
+	/**
+	 * @param retryPolicy {@link RetryPolicy} describing which failed requests should be
+	 *        retried; by default, a {@link RetryPolicy} instance with default settings
+	 *        is used. Use {@link RetryPolicy#none()} to disable retries.
+	 * @return Self for chaining
+	 */
+	public T retryPolicy(RetryPolicy retryPolicy) {
+		setRetryPolicy(retryPolicy);
+		return getThis();
+	}
+	
+	/**
+	 * @param metricsListener {@link IRestMetricsListener} to be notified about requests, 
+	 *        queries and embedded data executed through the connection being built. This 
+	 *        method may be invoked multiple times to register multiple listeners.
+	 * @return Self for chaining
+	 */
+	public T metricsListener(IRestMetricsListener metricsListener) {
+		getMetricsListeners().add(metricsListener);
+		return getThis();
+	}
+	
+	/**
+	 * @param payloadLogging {@link PayloadLoggingConfig} describing whether and for which
+	 *        requests payloads should be logged; payload logging is disabled by default.
+	 *        Payload logging can also be switched at runtime using 
+	 *        {@link AbstractRestConnection#setPayloadLogging(PayloadLoggingConfig)}.
+	 * @return Self for chaining
+	 */
+	public T payloadLogging(PayloadLoggingConfig payloadLogging) {
+		setPayloadLogging(payloadLogging);
+		return getThis();
+	}
+	
+	/**
+	 * Get the maximum number of threads used for executing asynchronous requests. 
+	 * If not explicitly configured, this returns {@link #getMaxConnectionsPerRoute()}, 
+	 * as any additional threads would just be waiting for a pooled connection.
+	 * @return Maximum number of threads used for executing asynchronous requests
+	 */
+	public int getExecutorThreads() {
+		return executorThreads > 0 ? executorThreads : getMaxConnectionsPerRoute();
+	}
+	
+	/**
+	 * Get the maximum number of pooled connections per route. If not explicitly 
+	 * configured, this returns {@link #getMaxConnectionsTotal()} for multi-threaded
+	 * connections, or 2 (the Apache HttpClient default) for single-threaded connections.
+	 * @return Maximum number of pooled connections per route
+	 */
+	public int getMaxConnectionsPerRoute() {
+		if ( maxConnectionsPerRoute > 0 ) { return maxConnectionsPerRoute; }
+		return multiThreaded ? maxConnectionsTotal : Math.min(2, maxConnectionsTotal);
+	}
+	
 	public T proxy(ProxyConfig proxy) {
 		setProxy(proxy);
 		return getThis();
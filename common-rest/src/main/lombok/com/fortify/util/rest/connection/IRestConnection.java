@@ -25,14 +25,24 @@
 package com.fortify.util.rest.connection;
 
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.client.WebTarget;
 
+import com.fortify.util.rest.metrics.IRestMetricsListener;
+
 /**
  * Interface providing low-level methods for building and executing REST requests.
  * 
+ * <p>Methods that were added after the initial version of this interface provide 
+ * default implementations, such that existing implementations of this interface 
+ * keep working. These defaults describe a single-threaded connection without
+ * connection pool statistics or metrics; {@link AbstractRestConnection} overrides
+ * all of them.</p>
+ * 
  * @author Ruud Senden
  *
  */
@@ -45,4 +55,56 @@ public interface IRestConnection extends AutoCloseable {
 	public abstract WebTarget getResource(String url);
 	public abstract String getConnectionId();
 	public abstract void close();
+	
+	/**
+	 * Asynchronously execute a request on the {@link #getExecutor()} executor.
+	 */
+	public default <T> CompletableFuture<T> executeRequestAsync(String httpMethod, Builder builder, Entity<?> entity, Class<T> returnType) {
+		return CompletableFuture.supplyAsync(() -> executeRequest(httpMethod, builder, entity, returnType), getExecutor());
+	}
+	
+	/**
+	 * Asynchronously execute a request on the {@link #getExecutor()} executor.
+	 */
+	public default <T> CompletableFuture<T> executeRequestAsync(String httpMethod, WebTarget webResource, Class<T> returnType) {
+		return executeRequestAsync(httpMethod, webResource, null, returnType);
+	}
+	
+	/**
+	 * Asynchronously execute a request on the {@link #getExecutor()} executor.
+	 */
+	public default <T> CompletableFuture<T> executeRequestAsync(String httpMethod, WebTarget webResource, Entity<?> entity, Class<T> returnType) {
+		return CompletableFuture.supplyAsync(() -> executeRequest(httpMethod, webResource, entity, returnType), getExecutor());
+	}
+	
+	/**
+	 * @return Whether this connection may be used by multiple threads concurrently; false by default
+	 */
+	public default boolean isMultiThreaded() {
+		return false;
+	}
+	
+	/**
+	 * @return Statistics for the HTTP connection pool used by this connection
+	 * @throws UnsupportedOperationException if not overridden by the implementation
+	 */
+	public default ConnectionPoolStats getConnectionPoolStats() {
+		throw new UnsupportedOperationException(getClass().getName()+" doesn't provide connection pool statistics");
+	}
+	
+	/**
+	 * @return Connection-scoped {@link ExecutorService} for running concurrent work related to this connection
+	 * @throws UnsupportedOperationException if not overridden by the implementation
+	 */
+	public default ExecutorService getExecutor() {
+		throw new UnsupportedOperationException(getClass().getName()+" doesn't provide an executor");
+	}
+	
+	/**
+	 * @return {@link IRestMetricsListener} to be notified about requests executed through
+	 *         this connection; {@link IRestMetricsListener#NOOP} by default
+	 */
+	public default IRestMetricsListener getMetricsListener() {
+		return IRestMetricsListener.NOOP;
+	}
 }
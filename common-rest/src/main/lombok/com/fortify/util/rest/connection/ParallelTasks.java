@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * <p>This class provides utility methods for running tasks on the executor of an
+ * {@link IRestConnection}, in a way that is safe to use from tasks that are 
+ * themselves running on that executor.</p>
+ * 
+ * <p>Connection executors are bounded; if all executor threads are blocked waiting 
+ * for tasks that are still queued on the same executor, these tasks would never run. 
+ * To avoid this, tasks submitted through this class can be claimed by any thread: 
+ * a task is run by whichever thread claims it first, either an executor thread 
+ * picking it up from the queue, or the thread calling {@link Task#join()}. As such, 
+ * {@link Task#join()} only ever blocks on tasks that are actually running on another 
+ * thread; tasks that haven't been started yet are run on the calling thread.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class ParallelTasks {
+	private ParallelTasks() {}
+	
+	/**
+	 * Submit the given {@link Supplier} for asynchronous execution on the executor of the
+	 * given connection. If the connection is not multi-threaded, the {@link Supplier} is 
+	 * not submitted but rather invoked by the first call to {@link Task#join()}.
+	 * @param conn {@link IRestConnection} providing the executor
+	 * @param supplier {@link Supplier} to be invoked
+	 * @return {@link Task} representing the submitted {@link Supplier}
+	 */
+	public static final <T> Task<T> submit(IRestConnection conn, Supplier<T> supplier) {
+		return submit(getExecutor(conn), supplier);
+	}
+	
+	/**
+	 * Submit the given {@link Supplier} for asynchronous execution on the given 
+	 * {@link Executor}. If the given {@link Executor} is null or rejects the task, 
+	 * the {@link Supplier} is invoked by the first call to {@link Task#join()}.
+	 * @param executor {@link Executor} on which to run the task, may be null
+	 * @param supplier {@link Supplier} to be invoked
+	 * @return {@link Task} representing the submitted {@link Supplier}
+	 */
+	public static final <T> Task<T> submit(Executor executor, Supplier<T> supplier) {
+		Task<T> task = new Task<>(supplier);
+		if ( executor!=null ) {
+			try {
+				executor.execute(task::run);
+			} catch ( RejectedExecutionException e ) {
+				// Task will be run by the thread calling join()
+			}
+		}
+		return task;
+	}
+	
+	/**
+	 * Invoke the given {@link Consumer} for each of the given items, processing up to
+	 * the given number of items concurrently on the executor of the given connection. 
+	 * If the connection is not multi-threaded, all items are processed sequentially 
+	 * on the calling thread. See {@link #forEach(Executor, int, Collection, Consumer)}
+	 * for details.
+	 * @param conn {@link IRestConnection} providing the executor
+	 * @param parallelism Maximum number of items to be processed concurrently
+	 * @param items to be processed
+	 * @param action to be invoked for every item
+	 */
+	public static final <T> void forEach(IRestConnection conn, int parallelism, Collection<? extends T> items, Consumer<? super T> action) {
+		forEach(getExecutor(conn), parallelism, items, action);
+	}
+	
+	/**
+	 * <p>Invoke the given {@link Consumer} for each of the given items, processing up to the 
+	 * given number of items concurrently. Items are processed by up to parallelism-1 workers
+	 * submitted to the given {@link Executor}, and by the calling thread. Once the calling 
+	 * thread finds no more items to process, any workers that haven't been started yet are 
+	 * cancelled, and this method waits for the remaining, running workers to complete.</p>
+	 * 
+	 * <p>If the {@link Consumer} throws an exception for any of the items, no new items will
+	 * be processed, and the first exception is rethrown once all running workers have completed.</p>
+	 * 
+	 * @param executor {@link Executor} on which to run the workers; if null, all items 
+	 *        are processed sequentially on the calling thread
+	 * @param parallelism Maximum number of items to be processed concurrently
+	 * @param items to be processed
+	 * @param action to be invoked for every item
+	 */
+	public static final <T> void forEach(Executor executor, int parallelism, Collection<? extends T> items, Consumer<? super T> action) {
+		Queue<T> queue = new ConcurrentLinkedQueue<>(items);
+		Supplier<Void> worker = () -> {
+			T item;
+			while ( (item=queue.poll())!=null ) {
+				try {
+					action.accept(item);
+				} catch ( RuntimeException | Error e ) {
+					queue.clear();
+					throw e;
+				}
+			}
+			return null;
+		};
+		int workers = executor==null ? 1 : Math.max(1, Math.min(parallelism, queue.size()));
+		List<Task<Void>> asyncWorkers = new ArrayList<>(workers);
+		for ( int i = 1 ; i < workers ; i++ ) {
+			asyncWorkers.add(submit(executor, worker));
+		}
+		RuntimeException exception = null;
+		try {
+			worker.get();
+		} catch ( RuntimeException e ) {
+			exception = e;
+		}
+		for ( Task<Void> asyncWorker : asyncWorkers ) {
+			if ( !asyncWorker.cancel() ) {
+				try {
+					asyncWorker.join();
+				} catch ( RuntimeException e ) {
+					if ( exception==null ) { exception = e; }
+				}
+			}
+		}
+		if ( exception!=null ) { throw exception; }
+	}
+	
+	private static final Executor getExecutor(IRestConnection conn) {
+		return conn.isMultiThreaded() ? conn.getExecutor() : null;
+	}
+	
+	/**
+	 * This class represents a task submitted through {@link ParallelTasks#submit(Executor, Supplier)}.
+	 * The task is run by the first thread that claims it, either the executor thread or a thread
+	 * calling {@link #join()}.
+	 *
+	 * @param <T> Result type
+	 */
+	public static final class Task<T> {
+		private final Supplier<T> supplier;
+		private final AtomicBoolean claimed = new AtomicBoolean(false);
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		
+		private Task(Supplier<T> supplier) {
+			this.supplier = supplier;
+		}
+		
+		/**
+		 * Run this task on the current thread, unless it has 
+		 * already been claimed by another thread.
+		 */
+		private void run() {
+			if ( claimed.compareAndSet(false, true) ) {
+				try {
+					result.complete(supplier.get());
+				} catch ( Throwable t ) {
+					result.completeExceptionally(t);
+				}
+			}
+		}
+		
+		/**
+		 * Get the result of this task. If the task hasn't been started yet, it is run 
+		 * on the current thread, otherwise this method waits for the task to complete.
+		 * @return Task result
+		 * @throws RuntimeException thrown by the task
+		 * @throws CancellationException if the task was cancelled
+		 */
+		public T join() {
+			run();
+			try {
+				return result.join();
+			} catch ( CompletionException e ) {
+				Throwable cause = e.getCause();
+				if ( cause instanceof RuntimeException ) { throw (RuntimeException)cause; }
+				if ( cause instanceof Error ) { throw (Error)cause; }
+				throw e;
+			}
+		}
+		
+		/**
+		 * Cancel this task if it hasn't been started yet.
+		 * @return true if the task was cancelled, false if the task had already been started
+		 */
+		public boolean cancel() {
+			if ( claimed.compareAndSet(false, true) ) {
+				result.cancel(false);
+				return true;
+			}
+			return false;
+		}
+		
+		/**
+		 * @return true if this task has been started, completed or cancelled
+		 */
+		public boolean isStarted() {
+			return claimed.get();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import java.io.Serializable;
+
+import lombok.Data;
+
+/**
+ * <p>This class configures diagnostic logging of request and response payloads for
+ * connections based on {@link AbstractRestConnection}. Payload logging is disabled 
+ * by default; when disabled, requests and responses are not wrapped or buffered in
+ * any way. Payload logging can be enabled through 
+ * {@link AbstractRestConnectionConfig#payloadLogging(PayloadLoggingConfig)}, or 
+ * switched at runtime using {@link AbstractRestConnection#setPayloadLogging(PayloadLoggingConfig)}.</p>
+ * 
+ * <p>When enabled, only requests for which the full request URI matches the configured 
+ * {@link #getEndpointPattern()} regular expression (if any) are eligible for logging, and 
+ * only 1 out of {@link #getSampleRate()} eligible requests is actually logged. For each 
+ * logged request, at most {@link #getMaxEntitySize()} bytes of the request and response 
+ * entities are logged.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@Data
+public class PayloadLoggingConfig implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private boolean enabled = false;
+	/** Log 1 out of every sampleRate eligible requests */
+	private int sampleRate = 1;
+	/** Regular expression for matching request URI's to be logged, or null to log all requests */
+	private String endpointPattern = null;
+	private int maxEntitySize = 10000;
+	
+	public PayloadLoggingConfig() {}
+	
+	/**
+	 * Copy constructor
+	 * @param other {@link PayloadLoggingConfig} to be copied
+	 */
+	public PayloadLoggingConfig(PayloadLoggingConfig other) {
+		this.enabled = other.enabled;
+		this.sampleRate = other.sampleRate;
+		this.endpointPattern = other.endpointPattern;
+		this.maxEntitySize = other.maxEntitySize;
+	}
+	
+	/**
+	 * @return Enabled {@link PayloadLoggingConfig} instance that logs 
+	 *         all requests, using default settings 
+	 */
+	public static final PayloadLoggingConfig all() {
+		PayloadLoggingConfig result = new PayloadLoggingConfig();
+		result.setEnabled(true);
+		return result;
+	}
+}
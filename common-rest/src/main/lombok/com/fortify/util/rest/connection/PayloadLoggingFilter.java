@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import org.apache.commons.lang.StringUtils;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * <p>This package-private JAX-RS client filter implements the diagnostic payload logging
+ * described by {@link PayloadLoggingConfig}. It is always registered by 
+ * {@link AbstractRestConnection} to allow payload logging to be switched at runtime, but
+ * as long as payload logging is disabled, or a request is not selected for logging, the
+ * filter returns immediately without wrapping or buffering any request or response entity.</p>
+ * 
+ * <p>For requests selected for logging, request and response headers and (truncated) 
+ * entities are logged at INFO level. Values of headers that may contain credentials
+ * are masked.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@CommonsLog
+final class PayloadLoggingFilter implements ClientRequestFilter, ClientResponseFilter, WriterInterceptor {
+	private static final String PROPERTY_REQUEST_ID = PayloadLoggingFilter.class.getName()+".requestId";
+	private static final Set<String> MASKED_HEADERS = new HashSet<>(Arrays.asList("authorization", "proxy-authorization", "cookie", "set-cookie"));
+	private final AtomicLong requestCounter = new AtomicLong();
+	private final Consumer<String> logger;
+	private volatile Settings settings;
+	
+	PayloadLoggingFilter(PayloadLoggingConfig config) {
+		this(config, log::info);
+	}
+	
+	/**
+	 * Create an instance that passes all log messages to the given {@link Consumer}
+	 * rather than logging them at INFO level; mainly used for testing.
+	 */
+	PayloadLoggingFilter(PayloadLoggingConfig config, Consumer<String> logger) {
+		this.logger = logger;
+		setConfig(config);
+	}
+	
+	/**
+	 * Update the payload logging configuration
+	 * @param config New {@link PayloadLoggingConfig}, or null to disable payload logging
+	 */
+	void setConfig(PayloadLoggingConfig config) {
+		this.settings = config==null || !config.isEnabled() ? null : new Settings(config);
+	}
+	
+	/**
+	 * @return Copy of the current payload logging configuration
+	 */
+	PayloadLoggingConfig getConfig() {
+		Settings current = settings;
+		return current==null ? new PayloadLoggingConfig() : new PayloadLoggingConfig(current.config);
+	}
+	
+	@Override
+	public void filter(ClientRequestContext requestContext) throws IOException {
+		Settings current = settings;
+		long requestId = current==null ? -1 : current.select(requestContext.getUri().toString(), requestCounter);
+		if ( requestId>0 ) {
+			requestContext.setProperty(PROPERTY_REQUEST_ID, requestId);
+			StringBuilder sb = new StringBuilder();
+			sb.append(requestId).append(" > ").append(requestContext.getMethod()).append(' ').append(requestContext.getUri());
+			appendHeaders(sb, requestId, " > ", requestContext.getStringHeaders());
+			logger.accept(sb.toString());
+		}
+	}
+	
+	@Override
+	public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+		Object requestId = context.getProperty(PROPERTY_REQUEST_ID);
+		Settings current = settings;
+		if ( requestId==null || current==null ) {
+			context.proceed();
+		} else {
+			LimitedCopyOutputStream out = new LimitedCopyOutputStream(context.getOutputStream(), current.maxEntitySize);
+			context.setOutputStream(out);
+			context.proceed();
+			logger.accept(requestId+" > "+out.toString(getCharset(context.getMediaType())));
+		}
+	}
+	
+	@Override
+	public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) throws IOException {
+		Object requestId = requestContext.getProperty(PROPERTY_REQUEST_ID);
+		Settings current = settings;
+		if ( requestId!=null && current!=null ) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(requestId).append(" < ").append(responseContext.getStatus());
+			appendHeaders(sb, requestId, " < ", responseContext.getHeaders());
+			if ( responseContext.hasEntity() ) {
+				InputStream stream = responseContext.getEntityStream();
+				if ( !stream.markSupported() ) { stream = new BufferedInputStream(stream); }
+				stream.mark(current.maxEntitySize+1);
+				byte[] entity = new byte[current.maxEntitySize+1];
+				int length = readFully(stream, entity);
+				stream.reset();
+				responseContext.setEntityStream(stream);
+				sb.append('\n').append(requestId).append(" < ")
+					.append(new String(entity, 0, Math.min(length, current.maxEntitySize), getCharset(responseContext.getMediaType())));
+				if ( length>current.maxEntitySize ) { sb.append("...more..."); }
+			}
+			logger.accept(sb.toString());
+		}
+	}
+	
+	private static final void appendHeaders(StringBuilder sb, Object requestId, String prefix, MultivaluedMap<String, String> headers) {
+		for ( Map.Entry<String, List<String>> header : headers.entrySet() ) {
+			String value = MASKED_HEADERS.contains(header.getKey().toLowerCase()) 
+					? "********" : StringUtils.join(header.getValue(), ",");
+			sb.append('\n').append(requestId).append(prefix).append(header.getKey()).append(": ").append(value);
+		}
+	}
+	
+	private static final int readFully(InputStream stream, byte[] buffer) throws IOException {
+		int length = 0;
+		int read;
+		while ( length<buffer.length && (read=stream.read(buffer, length, buffer.length-length))!=-1 ) {
+			length += read;
+		}
+		return length;
+	}
+	
+	private static final Charset getCharset(MediaType mediaType) {
+		String charset = mediaType==null ? null : mediaType.getParameters().get(MediaType.CHARSET_PARAMETER);
+		try {
+			return charset==null ? StandardCharsets.UTF_8 : Charset.forName(charset);
+		} catch ( RuntimeException e ) {
+			return StandardCharsets.UTF_8;
+		}
+	}
+	
+	/**
+	 * Immutable snapshot of a {@link PayloadLoggingConfig}, with the 
+	 * endpoint pattern pre-compiled.
+	 */
+	private static final class Settings {
+		private final PayloadLoggingConfig config;
+		private final Pattern endpointPattern;
+		private final int sampleRate;
+		private final int maxEntitySize;
+		
+		private Settings(PayloadLoggingConfig config) {
+			this.config = new PayloadLoggingConfig(config);
+			this.endpointPattern = StringUtils.isBlank(config.getEndpointPattern()) ? null : Pattern.compile(config.getEndpointPattern());
+			this.sampleRate = Math.max(1, config.getSampleRate());
+			this.maxEntitySize = Math.max(0, config.getMaxEntitySize());
+		}
+		
+		/**
+		 * Check whether the request for the given URI should be logged. The given
+		 * counter is only incremented for requests that match the endpoint pattern,
+		 * such that sampling applies to eligible requests only.
+		 * @return Request id to be used for logging, or -1 if the request should not be logged
+		 */
+		private long select(String uri, AtomicLong counter) {
+			if ( endpointPattern!=null && !endpointPattern.matcher(uri).find() ) { return -1; }
+			long requestId = counter.incrementAndGet();
+			return requestId % sampleRate == 0 ? requestId : -1;
+		}
+	}
+	
+	/**
+	 * {@link FilterOutputStream} implementation that copies up to a given 
+	 * number of bytes written to the underlying stream.
+	 */
+	private static final class LimitedCopyOutputStream extends FilterOutputStream {
+		private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+		private final int maxSize;
+		private boolean truncated = false;
+		
+		private LimitedCopyOutputStream(OutputStream out, int maxSize) {
+			super(out);
+			this.maxSize = maxSize;
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			if ( copy.size()<maxSize ) { copy.write(b); } else { truncated = true; }
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			int copyLength = Math.min(len, maxSize-copy.size());
+			if ( copyLength>0 ) { copy.write(b, off, copyLength); }
+			if ( copyLength<len ) { truncated = true; }
+		}
+		
+		private String toString(Charset charset) {
+			return new String(copy.toByteArray(), charset) + (truncated ? "...more..." : "");
+		}
+	}
+}
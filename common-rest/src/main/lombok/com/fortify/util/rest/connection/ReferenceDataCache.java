@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * <p>This class provides a thread-safe cache for reference data like attribute
+ * definitions, custom tags or issue templates, that is expensive to load but
+ * rarely changes. Connection implementations can hold an instance of this
+ * class to share such data between all API's and helper objects that use the
+ * same connection.</p>
+ * 
+ * <p>Cached values expire after the configured time-to-live, after which the
+ * value will be re-loaded on next access. Loading is single-flight; if multiple 
+ * threads request the same missing or expired value concurrently, only one of
+ * them invokes the loader while the others wait for the result. If the loader
+ * throws an exception, the exception is propagated to all waiting threads and
+ * nothing is cached, such that the next access retries loading the value.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class ReferenceDataCache {
+	/** Default time-to-live in milliseconds for cached values; negative values indicate that values never expire */
+	@Getter @Setter @Accessors(fluent=true) private volatile long ttlMillis;
+	private final ConcurrentMap<Object, Entry> entries = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loadFailures = new LongAdder();
+	
+	/**
+	 * Create a new {@link ReferenceDataCache} instance with the given
+	 * default time-to-live.
+	 * @param ttlMillis Default time-to-live in milliseconds; negative values indicate that values never expire
+	 */
+	public ReferenceDataCache(long ttlMillis) {
+		this.ttlMillis = ttlMillis;
+	}
+	
+	/**
+	 * Get the value for the given key, invoking the given loader if the 
+	 * value is not yet cached or has expired. The value will be cached
+	 * for the configured default time-to-live.
+	 * 
+	 * @param key for the value to be returned
+	 * @param loader for loading the value if not yet cached or expired
+	 * @return Cached or loaded value
+	 */
+	public <T> T get(Object key, Supplier<T> loader) {
+		return get(key, ttlMillis, loader);
+	}
+	
+	/**
+	 * Get the value for the given key, invoking the given loader if the 
+	 * value is not yet cached or has expired. If loaded, the value will 
+	 * be cached for the given time-to-live.
+	 * 
+	 * @param key for the value to be returned
+	 * @param ttlMillis Time-to-live in milliseconds for a newly loaded value; negative values indicate that the value never expires
+	 * @param loader for loading the value if not yet cached or expired
+	 * @return Cached or loaded value
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, long ttlMillis, Supplier<T> loader) {
+		while ( true ) {
+			Entry entry = entries.get(key);
+			if ( entry!=null && !entry.isExpired() ) {
+				hits.increment();
+				return (T)entry.await();
+			}
+			Entry newEntry = new Entry();
+			boolean owner = entry==null 
+					? entries.putIfAbsent(key, newEntry)==null 
+					: entries.replace(key, entry, newEntry);
+			if ( owner ) {
+				misses.increment();
+				return (T)newEntry.load(key, ttlMillis, loader);
+			}
+		}
+	}
+	
+	/**
+	 * Invalidate the cached value for the given key, causing the value
+	 * to be re-loaded on next access.
+	 * @param key to be invalidated
+	 */
+	public void invalidate(Object key) {
+		entries.remove(key);
+	}
+	
+	/**
+	 * Invalidate all cached values.
+	 */
+	public void invalidateAll() {
+		entries.clear();
+	}
+	
+	/**
+	 * Get a point-in-time snapshot of the statistics for this cache.
+	 * @return {@link ReferenceDataCacheStats} instance
+	 */
+	public ReferenceDataCacheStats getStats() {
+		return new ReferenceDataCacheStats(hits.sum(), misses.sum(), loadFailures.sum(), entries.size());
+	}
+	
+	/**
+	 * Cache entry, holding a {@link CompletableFuture} that is completed by 
+	 * the thread that loads the value, and the expiry time for the value.
+	 */
+	private final class Entry {
+		private final CompletableFuture<Object> value = new CompletableFuture<>();
+		private volatile long expiresAt = Long.MAX_VALUE;
+		
+		private Object load(Object key, long ttlMillis, Supplier<?> loader) {
+			try {
+				Object result = loader.get();
+				expiresAt = ttlMillis<0 ? Long.MAX_VALUE : System.currentTimeMillis()+ttlMillis;
+				value.complete(result);
+				return result;
+			} catch ( RuntimeException | Error e ) {
+				loadFailures.increment();
+				entries.remove(key, this);
+				value.completeExceptionally(e);
+				throw e;
+			}
+		}
+		
+		private Object await() {
+			try {
+				return value.join();
+			} catch ( CompletionException e ) {
+				Throwable cause = e.getCause();
+				if ( cause instanceof RuntimeException ) { throw (RuntimeException)cause; }
+				if ( cause instanceof Error ) { throw (Error)cause; }
+				throw e;
+			}
+		}
+		
+		private boolean isExpired() {
+			return System.currentTimeMillis() > expiresAt;
+		}
+	}
+}
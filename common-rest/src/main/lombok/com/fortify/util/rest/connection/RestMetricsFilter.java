@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import com.fortify.util.rest.metrics.IRestMetricsListener;
+import com.fortify.util.rest.metrics.RestRequestMetrics;
+
+/**
+ * This package-private JAX-RS client filter is registered by {@link AbstractRestConnection}
+ * if any {@link IRestMetricsListener} has been configured. It measures the time between
+ * sending each request and receiving the response headers, and the number of request
+ * entity bytes written, and reports these metrics to the configured listener.
+ * 
+ * <p>If no response is received, for example due to a connection error, response filters
+ * are not invoked. For such failed attempts, {@link AbstractRestConnection} calls 
+ * {@link #requestFailed()} on the thread that invoked the request, which reports the 
+ * attempt with status code -1. As Jersey invokes request filters on the thread that 
+ * invokes a synchronous request, the state of the current attempt is tracked in a 
+ * {@link ThreadLocal} for this purpose.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+final class RestMetricsFilter implements ClientRequestFilter, ClientResponseFilter, WriterInterceptor {
+	private static final String PROPERTY_METRICS = RestMetricsFilter.class.getName()+".metrics";
+	private final IRestMetricsListener metricsListener;
+	private final ThreadLocal<RequestState> currentRequest = new ThreadLocal<>();
+	
+	RestMetricsFilter(IRestMetricsListener metricsListener) {
+		this.metricsListener = metricsListener;
+	}
+	
+	@Override
+	public void filter(ClientRequestContext requestContext) throws IOException {
+		RequestState state = new RequestState(requestContext.getMethod(), requestContext.getUri(), System.nanoTime());
+		requestContext.setProperty(PROPERTY_METRICS, state);
+		currentRequest.set(state);
+	}
+	
+	@Override
+	public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+		Object state = context.getProperty(PROPERTY_METRICS);
+		if ( state instanceof RequestState ) {
+			context.setOutputStream(new CountingOutputStream(context.getOutputStream(), (RequestState)state));
+		}
+		context.proceed();
+	}
+	
+	@Override
+	public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) throws IOException {
+		Object state = requestContext.getProperty(PROPERTY_METRICS);
+		currentRequest.remove();
+		if ( state instanceof RequestState ) {
+			report((RequestState)state, responseContext.getStatus(), responseContext.getLength());
+		}
+	}
+	
+	/**
+	 * Report the request attempt currently being executed on the calling thread,
+	 * if any, as failed without receiving a response.
+	 */
+	void requestFailed() {
+		RequestState state = currentRequest.get();
+		currentRequest.remove();
+		if ( state!=null ) {
+			report(state, -1, -1);
+		}
+	}
+	
+	private void report(RequestState state, int statusCode, long responseBytes) {
+		metricsListener.requestCompleted(new RestRequestMetrics(state.httpMethod, 
+				RestRequestMetrics.getEndpointTemplate(state.uri), statusCode, 
+				System.nanoTime()-state.startNanos, state.requestBytes, responseBytes));
+	}
+	
+	private static final class RequestState {
+		private final String httpMethod;
+		private final URI uri;
+		private final long startNanos;
+		private long requestBytes = 0;
+		
+		private RequestState(String httpMethod, URI uri, long startNanos) {
+			this.httpMethod = httpMethod;
+			this.uri = uri;
+			this.startNanos = startNanos;
+		}
+	}
+	
+	/**
+	 * {@link FilterOutputStream} implementation that counts the number of bytes written.
+	 */
+	private static final class CountingOutputStream extends FilterOutputStream {
+		private final RequestState state;
+		
+		private CountingOutputStream(OutputStream out, RequestState state) {
+			super(out);
+			this.state = state;
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			state.requestBytes++;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			state.requestBytes += len;
+		}
+	}
+}
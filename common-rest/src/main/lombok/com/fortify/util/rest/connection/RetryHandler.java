@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.ws.rs.client.Entity;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.glassfish.jersey.media.multipart.BodyPart;
+import org.glassfish.jersey.media.multipart.MultiPart;
+import org.glassfish.jersey.media.multipart.file.StreamDataBodyPart;
+
+import com.fortify.util.rest.metrics.IRestMetricsListener;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * This package-private class is used by {@link AbstractRestConnection} to execute
+ * requests according to a {@link RetryPolicy}, keeping track of the retry budget 
+ * and retry statistics for a single connection. Synchronous requests wait for the 
+ * retry delay on the calling thread; asynchronous requests schedule the next attempt
+ * without blocking any thread.
+ * 
+ * @author Ruud Senden
+ *
+ */
+@CommonsLog
+final class RetryHandler {
+	private final RetryPolicy policy;
+	private final IRestMetricsListener metricsListener;
+	private final LongAdder statusRetries = new LongAdder();
+	private final LongAdder connectionErrorRetries = new LongAdder();
+	private final LongAdder budgetExhausted = new LongAdder();
+	private final LongAdder backoffMillis = new LongAdder();
+	private double budgetTokens;
+	private volatile ScheduledExecutorService scheduler;
+	
+	RetryHandler(RetryPolicy policy) {
+		this(policy, IRestMetricsListener.NOOP);
+	}
+	
+	RetryHandler(RetryPolicy policy, IRestMetricsListener metricsListener) {
+		this.policy = policy==null ? RetryPolicy.none() : policy;
+		this.metricsListener = metricsListener;
+		this.budgetTokens = this.policy.getRetryBudgetMaxTokens();
+	}
+	
+	/**
+	 * Execute the given request attempt, retrying the attempt according to the
+	 * configured {@link RetryPolicy}.
+	 */
+	<T> T execute(String httpMethod, Entity<?> entity, Supplier<T> attempt) {
+		depositBudget();
+		for ( int retry = 0 ; ; retry++ ) {
+			try {
+				return attempt.get();
+			} catch ( RuntimeException e ) {
+				long delayMillis = getRetryDelayMillis(httpMethod, entity, retry, e);
+				if ( delayMillis<0 ) { throw e; }
+				sleep(delayMillis);
+			}
+		}
+	}
+	
+	/**
+	 * Asynchronously execute the given request attempt on the given {@link Executor}, 
+	 * retrying the attempt according to the configured {@link RetryPolicy}. Retry 
+	 * delays are handled by a scheduler rather than blocking an executor thread. 
+	 */
+	<T> CompletableFuture<T> executeAsync(String httpMethod, Entity<?> entity, Supplier<T> attempt, Executor executor) {
+		depositBudget();
+		CompletableFuture<T> result = new CompletableFuture<>();
+		executeAsync(httpMethod, entity, attempt, executor, 0, result);
+		return result;
+	}
+	
+	private <T> void executeAsync(String httpMethod, Entity<?> entity, Supplier<T> attempt, Executor executor, int retry, CompletableFuture<T> result) {
+		CompletableFuture.supplyAsync(attempt, executor).whenComplete((value, throwable) -> {
+			if ( throwable==null ) {
+				result.complete(value);
+			} else {
+				Throwable cause = throwable instanceof CompletionException && throwable.getCause()!=null ? throwable.getCause() : throwable;
+				long delayMillis = cause instanceof RuntimeException 
+						? getRetryDelayMillis(httpMethod, entity, retry, (RuntimeException)cause) : -1;
+				if ( delayMillis<0 ) {
+					result.completeExceptionally(cause);
+				} else {
+					backoffMillis.add(delayMillis);
+					getScheduler().schedule(() -> executeAsync(httpMethod, entity, attempt, executor, retry+1, result), delayMillis, TimeUnit.MILLISECONDS);
+				}
+			}
+		});
+	}
+	
+	RetryStats getStats() {
+		return new RetryStats(statusRetries.sum(), connectionErrorRetries.sum(), budgetExhausted.sum(), backoffMillis.sum());
+	}
+	
+	void close() {
+		ScheduledExecutorService scheduler = this.scheduler;
+		if ( scheduler!=null ) { scheduler.shutdownNow(); }
+	}
+	
+	/**
+	 * Determine whether the given failed attempt should be retried, and if so,
+	 * how long to wait before the next attempt.
+	 * @return Delay in milliseconds before the next attempt, or -1 if the attempt should not be retried
+	 */
+	long getRetryDelayMillis(String httpMethod, Entity<?> entity, int retry, RuntimeException e) {
+		if ( retry>=policy.getMaxRetries() || !isRepeatable(entity) ) { return -1; }
+		long delayMillis;
+		LongAdder counter;
+		int statusCode = -1;
+		if ( e instanceof UnsuccessfulResponseException ) {
+			UnsuccessfulResponseException ure = (UnsuccessfulResponseException)e;
+			statusCode = ure.getStatusCode();
+			if ( !policy.getRetryableStatusCodes().contains(statusCode) ) { return -1; }
+			if ( !policy.isIdempotent(httpMethod) && !policy.getNonIdempotentRetryableStatusCodes().contains(statusCode) ) { return -1; }
+			delayMillis = getRetryAfterMillis(ure);
+			if ( delayMillis>policy.getMaxRetryAfterMillis() ) { return -1; }
+			if ( delayMillis<0 ) { delayMillis = getBackoffMillis(retry); }
+			counter = statusRetries;
+		} else if ( policy.isRetryConnectionErrors() && isRetryableConnectionError(httpMethod, e) ) {
+			delayMillis = getBackoffMillis(retry);
+			counter = connectionErrorRetries;
+		} else {
+			return -1;
+		}
+		if ( !withdrawBudget() ) {
+			budgetExhausted.increment();
+			log.debug("Retry budget exhausted; not retrying failed "+httpMethod+" request");
+			return -1;
+		}
+		counter.increment();
+		metricsListener.requestRetried(httpMethod, statusCode, delayMillis);
+		log.info("Retrying failed "+httpMethod+" request in "+delayMillis+" ms (retry "+(retry+1)+" of "+policy.getMaxRetries()+"): "+e.getMessage());
+		return delayMillis;
+	}
+	
+	private boolean isRepeatable(Entity<?> entity) {
+		return entity==null || isRepeatable(entity.getEntity());
+	}
+	
+	/**
+	 * Entities that contain an {@link InputStream}, either directly or in any 
+	 * (nested) multipart body part, can only be sent once.
+	 */
+	private boolean isRepeatable(Object entity) {
+		if ( entity instanceof InputStream || entity instanceof StreamDataBodyPart ) {
+			return false;
+		} else if ( entity instanceof MultiPart ) {
+			for ( BodyPart bodyPart : ((MultiPart)entity).getBodyParts() ) {
+				if ( !isRepeatable(bodyPart) || !isRepeatable(bodyPart.getEntity()) ) { return false; }
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Connection errors that occurred before the request was sent are retryable for 
+	 * all HTTP methods; errors that may have occurred after the request was sent are 
+	 * only retryable for idempotent HTTP methods.
+	 */
+	private boolean isRetryableConnectionError(String httpMethod, Throwable e) {
+		for ( Throwable cause = e ; cause!=null ; cause = cause.getCause()==cause ? null : cause.getCause() ) {
+			if ( cause instanceof ConnectException || cause instanceof ConnectTimeoutException ) {
+				return true;
+			} else if ( cause instanceof NoHttpResponseException || cause instanceof SocketException ) {
+				return policy.isIdempotent(httpMethod);
+			}
+		}
+		return false;
+	}
+	
+	private long getRetryAfterMillis(UnsuccessfulResponseException e) {
+		for ( String headerName : policy.getRetryAfterHeaderNames() ) {
+			long result = RetryPolicy.parseRetryAfterMillis(e.getHeader(headerName));
+			if ( result>=0 ) { return result; }
+		}
+		return -1;
+	}
+	
+	/**
+	 * Exponential backoff with full jitter
+	 */
+	private long getBackoffMillis(int retry) {
+		long maxDelay = Math.min(policy.getMaxBackoffMillis(), policy.getInitialBackoffMillis() << Math.min(retry, 30));
+		return maxDelay<=0 ? 0 : ThreadLocalRandom.current().nextLong(maxDelay+1);
+	}
+	
+	private synchronized void depositBudget() {
+		budgetTokens = Math.min(policy.getRetryBudgetMaxTokens(), budgetTokens+policy.getRetryBudgetRatio());
+	}
+	
+	private synchronized boolean withdrawBudget() {
+		if ( budgetTokens<1 ) { return false; }
+		budgetTokens--;
+		return true;
+	}
+	
+	private void sleep(long delayMillis) {
+		backoffMillis.add(delayMillis);
+		try {
+			Thread.sleep(delayMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting to retry request", e);
+		}
+	}
+	
+	private ScheduledExecutorService getScheduler() {
+		ScheduledExecutorService result = scheduler;
+		if ( result == null ) {
+			synchronized (this) {
+				result = scheduler;
+				if ( result == null ) {
+					ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+						Thread thread = new Thread(runnable, "RetryHandler-scheduler");
+						thread.setDaemon(true);
+						return thread;
+					});
+					executor.setRemoveOnCancelPolicy(true);
+					scheduler = result = executor;
+				}
+			}
+		}
+		return result;
+	}
+}
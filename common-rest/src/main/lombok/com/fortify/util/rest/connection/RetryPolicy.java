@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.ws.rs.HttpMethod;
+
+import org.apache.commons.lang.StringUtils;
+
+import lombok.Data;
+
+/**
+ * <p>This class defines the policy for retrying failed requests executed through 
+ * {@link AbstractRestConnection}. By default, requests are retried up to 3 times if:</p>
+ * <ul>
+ *  <li>the server responds with one of the {@link #getRetryableStatusCodes()}, 
+ *      by default 429, 502, 503 or 504</li>
+ *  <li>a connection to the server could not be established, or the connection
+ *      was reset or closed before a response was received</li>
+ * </ul>
+ * 
+ * <p>Requests using a non-idempotent HTTP method like POST or PATCH are only retried if
+ * the server didn't process the request, i.e. if a connection could not be established or
+ * the server responded with one of the {@link #getNonIdempotentRetryableStatusCodes()}
+ * (by default 429). Requests with a non-repeatable {@link java.io.InputStream} entity,
+ * or with a multipart entity containing an {@link java.io.InputStream} body part, are 
+ * never retried.</p>
+ * 
+ * <p>The delay before each retry is taken from the first available 
+ * {@link #getRetryAfterHeaderNames()} response header, which may contain either a 
+ * number of seconds or an HTTP date. If not available, the delay is determined using
+ * exponential backoff with full jitter, i.e. a random delay between 0 and 
+ * min({@link #getMaxBackoffMillis()}, {@link #getInitialBackoffMillis()} * 2^retry).</p>
+ * 
+ * <p>To prevent retries from overloading a server that is having problems, the total number 
+ * of retries per connection is limited by a retry budget; every request adds 
+ * {@link #getRetryBudgetRatio()} to the budget (up to {@link #getRetryBudgetMaxTokens()}), 
+ * and every retry consumes one token from the budget.</p>
+ * 
+ * <p>This policy applies to every individual request. Some higher-level functionality
+ * may retry larger units of work after a request has failed, for example 
+ * {@link com.fortify.util.rest.transfer.FileDownloader} retrying a segment if reading 
+ * the response body fails, or SSC bulk requests retrying a failed chunk. Such retries 
+ * come on top of the retries defined by this policy, so the total number of attempts 
+ * for a single request may be a multiple of {@link #getMaxRetries()}+1. Use 
+ * {@link #none()}, or disable retries on the higher-level functionality, to avoid this.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@Data
+public class RetryPolicy implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private int maxRetries = 3;
+	private Set<Integer> retryableStatusCodes = new HashSet<>(Arrays.asList(429, 502, 503, 504));
+	private Set<Integer> nonIdempotentRetryableStatusCodes = new HashSet<>(Arrays.asList(429));
+	private Set<String> idempotentMethods = new HashSet<>(Arrays.asList(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE, "TRACE"));
+	private List<String> retryAfterHeaderNames = Arrays.asList("Retry-After", "X-Retry-After");
+	private boolean retryConnectionErrors = true;
+	private long initialBackoffMillis = 500;
+	private long maxBackoffMillis = 30000;
+	/** Requests are not retried if the server requests a longer delay than this value */
+	private long maxRetryAfterMillis = 300000;
+	private double retryBudgetRatio = 0.2;
+	private int retryBudgetMaxTokens = 20;
+	
+	public RetryPolicy() {}
+	
+	/**
+	 * Copy constructor
+	 * @param other {@link RetryPolicy} to be copied
+	 */
+	public RetryPolicy(RetryPolicy other) {
+		this.maxRetries = other.maxRetries;
+		this.retryableStatusCodes = new HashSet<>(other.retryableStatusCodes);
+		this.nonIdempotentRetryableStatusCodes = new HashSet<>(other.nonIdempotentRetryableStatusCodes);
+		this.idempotentMethods = new HashSet<>(other.idempotentMethods);
+		this.retryAfterHeaderNames = other.retryAfterHeaderNames;
+		this.retryConnectionErrors = other.retryConnectionErrors;
+		this.initialBackoffMillis = other.initialBackoffMillis;
+		this.maxBackoffMillis = other.maxBackoffMillis;
+		this.maxRetryAfterMillis = other.maxRetryAfterMillis;
+		this.retryBudgetRatio = other.retryBudgetRatio;
+		this.retryBudgetMaxTokens = other.retryBudgetMaxTokens;
+	}
+	
+	/**
+	 * @return {@link RetryPolicy} instance that disables all retries
+	 */
+	public static final RetryPolicy none() {
+		RetryPolicy result = new RetryPolicy();
+		result.setMaxRetries(0);
+		return result;
+	}
+	
+	/**
+	 * @param httpMethod HTTP method to be checked
+	 * @return true if the given HTTP method is idempotent according to this policy, false otherwise
+	 */
+	public boolean isIdempotent(String httpMethod) {
+		return httpMethod!=null && idempotentMethods.contains(httpMethod.toUpperCase());
+	}
+	
+	/**
+	 * Parse the given Retry-After header value, which may contain either a
+	 * number of seconds or an HTTP date.
+	 * @param value Retry-After header value
+	 * @return Delay in milliseconds, or -1 if the given value is blank or cannot be parsed
+	 */
+	public static final long parseRetryAfterMillis(String value) {
+		if ( StringUtils.isBlank(value) ) { return -1; }
+		String trimmed = value.trim();
+		if ( StringUtils.isNumeric(trimmed) ) {
+			try {
+				return Long.parseLong(trimmed)*1000;
+			} catch ( NumberFormatException e ) {
+				return -1;
+			}
+		}
+		try {
+			ZonedDateTime dateTime = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+			return Math.max(0, dateTime.toInstant().toEpochMilli()-System.currentTimeMillis());
+		} catch ( DateTimeParseException e ) {
+			return -1;
+		}
+	}
+}
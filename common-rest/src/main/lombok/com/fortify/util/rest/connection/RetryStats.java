@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * This class provides a point-in-time snapshot of the retry statistics for an 
+ * {@link AbstractRestConnection} instance, as returned by 
+ * {@link AbstractRestConnection#getRetryStats()}.
+ * 
+ * @author Ruud Senden
+ *
+ */
+@Getter @ToString @RequiredArgsConstructor
+public final class RetryStats {
+	/** Number of retries after a retryable HTTP status code */
+	private final long statusRetries;
+	/** Number of retries after a connection error */
+	private final long connectionErrorRetries;
+	/** Number of retryable failures that were not retried because the retry budget was exhausted */
+	private final long budgetExhausted;
+	/** Total time spent waiting before retries, in milliseconds */
+	private final long backoffMillis;
+	
+	/**
+	 * @return Total number of retries
+	 */
+	public long getRetries() {
+		return statusRetries+connectionErrorRetries;
+	}
+}
@@ -26,6 +26,7 @@ package com.fortify.util.rest.connection;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ServiceUnavailableRetryStrategy;
 import org.apache.http.protocol.HttpContext;
@@ -41,9 +42,17 @@ import org.apache.http.protocol.HttpContext;
  *	}
  * </code>
  * 
+ * <p>If the server doesn't provide a valid retry-after header, the request is retried 
+ * after one second.</p>
+ * 
+ * @deprecated Retries are now handled by {@link AbstractRestConnection} according to
+ *             the configured {@link RetryPolicy}, which doesn't block the HTTP client
+ *             and supports additional status codes, connection errors and retry budgets. 
  */
+@Deprecated
 public final class TooManyRequestsRetryStrategy implements ServiceUnavailableRetryStrategy {
 	private static final Log LOG = LogFactory.getLog(TooManyRequestsRetryStrategy.class);
+	private static final long DEFAULT_RETRY_MILLIS = 1000;
 	private String retryAfterHeaderName = "X-Retry-After";
 	private String logPrefix = "";
 	private int maxRetries = 1;
@@ -66,9 +75,11 @@ public final class TooManyRequestsRetryStrategy implements ServiceUnavailableRet
 
 	public boolean retryRequest(HttpResponse response, int executionCount, HttpContext context) { 
 		if ( executionCount < maxRetries+1 && response.getStatusLine().getStatusCode()==429 ) {
-			int retrySeconds = Integer.parseInt(response.getFirstHeader(retryAfterHeaderName).getValue());
-			LOG.info(logPrefix+"Rate-limited request will be retried after "+retrySeconds+" seconds");
-			interval.set((long)retrySeconds*1000);
+			Header header = response.getFirstHeader(retryAfterHeaderName);
+			long retryMillis = RetryPolicy.parseRetryAfterMillis(header==null ? null : header.getValue());
+			if ( retryMillis<0 ) { retryMillis = DEFAULT_RETRY_MILLIS; }
+			LOG.info(logPrefix+"Rate-limited request will be retried after "+retryMillis+" ms");
+			interval.set(retryMillis);
 			return true;
 		}
 		return false;
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.ws.rs.core.AbstractMultivaluedMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import lombok.Getter;
+
+/**
+ * {@link RuntimeException} thrown by {@link AbstractRestConnection} if the remote 
+ * system returns an unsuccessful response. Apart from the standard exception
+ * message, this exception provides access to the HTTP status code and response 
+ * headers, allowing callers to handle specific types of errors, for example
+ * by retrying a request or reducing the requested page size. As with the 
+ * headers provided by a JAX-RS response, header names are case-insensitive.
+ * 
+ * @author Ruud Senden
+ *
+ */
+@Getter
+public class UnsuccessfulResponseException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	private final int statusCode;
+	private final MultivaluedMap<String, String> headers;
+	
+	public UnsuccessfulResponseException(String message, Throwable cause, int statusCode, MultivaluedMap<String, String> headers) {
+		super(message, cause);
+		this.statusCode = statusCode;
+		this.headers = new CaseInsensitiveHeaders(headers);
+	}
+	
+	/**
+	 * Get the first value for the given response header
+	 * @param name of the response header
+	 * @return First value for the given response header, or null if not available
+	 */
+	public String getHeader(String name) {
+		return headers.getFirst(name);
+	}
+	
+	/**
+	 * {@link MultivaluedMap} implementation that ignores the case of header names
+	 */
+	private static final class CaseInsensitiveHeaders extends AbstractMultivaluedMap<String, String> {
+		private CaseInsensitiveHeaders(MultivaluedMap<String, String> headers) {
+			super(new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER));
+			if ( headers!=null ) {
+				for ( Map.Entry<String, List<String>> entry : headers.entrySet() ) {
+					addAll(entry.getKey(), new ArrayList<>(entry.getValue()));
+				}
+			}
+		}
+	}
+}
@@ -169,12 +169,15 @@ public class JSONMap extends LinkedHashMap<String, Object> {
 	
 	/**
 	 * This method allows for getting the value for the given property
-	 * path.
+	 * path. Simple paths like <code>request.uri</code> or <code>responses[0]</code>
+	 * are resolved directly; any other paths are evaluated as SpEL expressions.
 	 * @param path for which to get the value from this {@link JSONMap}
 	 * @return Value for the given path
 	 */
 	public Object getPath(String path) {
-		return InternalExpressionHelper.get().evaluateSimpleExpression(this, path, Object.class);
+		Object result = JSONPropertyPath.resolve(this, path);
+		return result!=JSONPropertyPath.UNRESOLVED ? result 
+				: InternalExpressionHelper.get().evaluateSimpleExpression(this, path, Object.class);
 	}
 	
 	/**
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>This class allows for reading a JSON object from an {@link InputStream} in a streaming 
+ * fashion. Each JSON object contained in a given array property is passed to a {@link Consumer}
+ * as soon as it has been parsed, without first loading the full array into memory. All other
+ * properties of the top-level JSON object are collected into a {@link JSONMap}.</p>
+ * 
+ * <p>This is for example used by {@link com.fortify.util.rest.query.AbstractRestConnectionQuery}
+ * to process large pages of results while keeping only a single record in memory, while
+ * still collecting paging-related properties like total counts.</p> 
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class JSONMapStreamReader {
+	private JSONMapStreamReader() {}
+	
+	/**
+	 * Read a JSON object from the given {@link InputStream}, passing each JSON object
+	 * contained in the array property with the given name to the given {@link Consumer}. 
+	 * If the given property contains a single JSON object instead of an array, this 
+	 * object is passed to the given {@link Consumer}. Any other top-level properties are 
+	 * added to the returned {@link JSONMap}. 
+	 * 
+	 * Reading stops as soon as the given stop condition returns true; in this case, any
+	 * top-level properties following the array property will not be included in the 
+	 * returned {@link JSONMap}.
+	 * 
+	 * @param inputStream from which to read the JSON object
+	 * @param listPropertyName Name of the property containing the JSON objects to be passed to the given {@link Consumer}
+	 * @param consumer for handling individual JSON objects contained in the given list property
+	 * @param stopCondition to stop reading JSON objects from the given list property
+	 * @return {@link JSONMap} containing all top-level properties except for the given list property
+	 * @throws IOException if an error occurs while reading from the given {@link InputStream}
+	 */
+	public static final JSONMap read(InputStream inputStream, String listPropertyName, Consumer<JSONMap> consumer, BooleanSupplier stopCondition) throws IOException {
+		ObjectMapper mapper = JSONObjectMapperSupplier.getObjectMapper();
+		JSONMap result = new JSONMap();
+		try ( JsonParser parser = mapper.getFactory().createParser(inputStream) ) {
+			if ( parser.nextToken()!=JsonToken.START_OBJECT ) {
+				throw new IllegalStateException("Expected JSON object, found "+parser.currentToken());
+			}
+			while ( parser.nextToken()==JsonToken.FIELD_NAME ) {
+				String name = parser.currentName();
+				JsonToken token = parser.nextToken();
+				if ( !name.equals(listPropertyName) ) {
+					result.put(name, mapper.readValue(parser, Object.class));
+				} else if ( token==JsonToken.START_OBJECT ) {
+					consumer.accept(mapper.readValue(parser, JSONMap.class));
+				} else if ( token==JsonToken.START_ARRAY ) {
+					while ( (token=parser.nextToken())!=JsonToken.END_ARRAY ) {
+						if ( stopCondition.getAsBoolean() ) { return result; }
+						if ( token==JsonToken.START_OBJECT ) {
+							consumer.accept(mapper.readValue(parser, JSONMap.class));
+						} else {
+							parser.skipChildren();
+						}
+					}
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fortify.util.spring.expression.helper.ExpressionCache;
+
+/**
+ * <p>This class allows for efficiently resolving simple property paths like 
+ * <code>request.uri</code> or <code>responses[0].body</code> on {@link Map} and 
+ * {@link List} instances, like {@link JSONMap} and {@link JSONList}, without 
+ * going through full SpEL evaluation.</p>
+ * 
+ * <p>Paths are split into an immutable array of segments once, and cached for
+ * subsequent use. For paths that are not simple property paths, and for paths 
+ * that cannot be resolved by simply walking nested {@link Map} and {@link List}
+ * instances (for example because an intermediate value is null or not a 
+ * {@link Map}), the {@link #resolve(Object, String)} method returns 
+ * {@link #UNRESOLVED}, indicating that the caller should fall back to SpEL 
+ * evaluation. As such, resolved values and error handling are identical to 
+ * evaluating the path as a SpEL expression.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+final class JSONPropertyPath {
+	/** Marker object returned by {@link #resolve(Object, String)} if the path cannot be resolved directly */
+	static final Object UNRESOLVED = new Object();
+	private static final JSONPropertyPath NOT_SIMPLE = new JSONPropertyPath(null);
+	private static final ExpressionCache<JSONPropertyPath> CACHE = new ExpressionCache<>(ExpressionCache.DEFAULT_MAX_SIZE);
+	private static final Pattern PATTERN_SEGMENT = Pattern.compile("([A-Za-z_$][A-Za-z0-9_$]*)((?:\\[\\d{1,9}\\])*)");
+	private static final Pattern PATTERN_INDEX = Pattern.compile("\\[(\\d+)\\]");
+	// SpEL keywords and textual operators; segments matching these are left to SpEL
+	private static final Set<String> RESERVED = new HashSet<>(Arrays.asList(
+			"and", "or", "not", "div", "mod", "eq", "ne", "lt", "gt", "le", "ge", 
+			"instanceof", "matches", "between", "new", "true", "false", "null", "t"));
+	private final Segment[] segments;
+	
+	private JSONPropertyPath(Segment[] segments) {
+		this.segments = segments;
+	}
+	
+	/**
+	 * Resolve the given path on the given root object.
+	 * @param root {@link Map} or other object on which to resolve the given path
+	 * @param path to be resolved
+	 * @return Value for the given path, or {@link #UNRESOLVED} if the given path
+	 *         must be evaluated as a SpEL expression
+	 */
+	static final Object resolve(Object root, String path) {
+		return path==null ? UNRESOLVED : CACHE.get(path, JSONPropertyPath::parse).resolve(root);
+	}
+	
+	private Object resolve(Object root) {
+		if ( segments==null ) { return UNRESOLVED; }
+		Object current = root;
+		for ( Segment segment : segments ) {
+			if ( !(current instanceof Map) ) { return UNRESOLVED; }
+			current = ((Map<?,?>)current).get(segment.name);
+			for ( int index : segment.indexes ) {
+				if ( !(current instanceof List) || index>=((List<?>)current).size() ) { return UNRESOLVED; }
+				current = ((List<?>)current).get(index);
+			}
+		}
+		return current;
+	}
+	
+	private static final JSONPropertyPath parse(String path) {
+		String[] parts = path.split("\\.", -1);
+		Segment[] segments = new Segment[parts.length];
+		for ( int i = 0 ; i < parts.length ; i++ ) {
+			Matcher matcher = PATTERN_SEGMENT.matcher(parts[i]);
+			if ( !matcher.matches() || RESERVED.contains(matcher.group(1).toLowerCase()) ) {
+				return NOT_SIMPLE;
+			}
+			segments[i] = new Segment(matcher.group(1), parseIndexes(matcher.group(2)));
+		}
+		return new JSONPropertyPath(segments);
+	}
+	
+	private static final int[] parseIndexes(String indexes) {
+		List<Integer> result = new ArrayList<>();
+		Matcher matcher = PATTERN_INDEX.matcher(indexes);
+		while ( matcher.find() ) {
+			result.add(Integer.parseInt(matcher.group(1)));
+		}
+		return result.stream().mapToInt(Integer::intValue).toArray();
+	}
+	
+	private static final class Segment {
+		private final String name;
+		private final int[] indexes;
+		
+		private Segment(String name, int[] indexes) {
+			this.name = name;
+			this.indexes = indexes;
+		}
+	}
+}
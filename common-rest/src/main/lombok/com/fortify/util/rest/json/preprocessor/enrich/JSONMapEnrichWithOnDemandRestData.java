@@ -31,6 +31,7 @@ import com.fortify.util.rest.connection.IRestConnection;
 import com.fortify.util.rest.json.JSONMap;
 import com.fortify.util.rest.json.embed.IEmbedDefinition;
 import com.fortify.util.rest.json.ondemand.AbstractJSONMapOnDemandLoaderWithIRestConnection;
+import com.fortify.util.rest.metrics.IRestMetricsListener;
 
 public class JSONMapEnrichWithOnDemandRestData extends JSONMapEnrichWithOnDemandProperty {
 	public JSONMapEnrichWithOnDemandRestData(IRestConnection conn, IEmbedDefinition embedDefinition) {
@@ -55,10 +56,19 @@ public class JSONMapEnrichWithOnDemandRestData extends JSONMapEnrichWithOnDemand
 		
 		private Object getResult(IRestConnection conn, JSONMap parent) {
 			WebTarget webTarget = getWebTarget(conn, parent);
+			long startTime = System.nanoTime();
+			boolean successful = false;
 			try {
-				return embedDefinition.getResult(conn.executeRequest(HttpMethod.GET, webTarget, JSONMap.class));
+				Object result = embedDefinition.getResult(conn.executeRequest(HttpMethod.GET, webTarget, JSONMap.class));
+				successful = true;
+				return result;
 			} catch ( RuntimeException e ) {
 				return embedDefinition.getResultOnError(e);
+			} finally {
+				IRestMetricsListener metricsListener = conn.getMetricsListener();
+				if ( metricsListener!=null ) {
+					metricsListener.embedCompleted(embedDefinition.getPropertyName(), 1, System.nanoTime()-startTime, successful);
+				}
 			}
 		}
 
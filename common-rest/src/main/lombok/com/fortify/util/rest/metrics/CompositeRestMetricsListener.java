@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * {@link IRestMetricsListener} implementation that forwards all metrics to a 
+ * list of other {@link IRestMetricsListener} instances. Exceptions thrown by
+ * any of these listeners are logged and otherwise ignored, such that a failing 
+ * listener doesn't affect request processing or any of the other listeners.
+ * 
+ * @author Ruud Senden
+ *
+ */
+@CommonsLog
+public final class CompositeRestMetricsListener implements IRestMetricsListener {
+	private final List<IRestMetricsListener> listeners;
+	
+	public CompositeRestMetricsListener(IRestMetricsListener... listeners) {
+		this(Arrays.asList(listeners));
+	}
+	
+	public CompositeRestMetricsListener(List<IRestMetricsListener> listeners) {
+		this.listeners = Collections.unmodifiableList(new ArrayList<>(listeners));
+	}
+	
+	/**
+	 * Get a listener that forwards to all given listeners, or {@link IRestMetricsListener#NOOP} 
+	 * if the given list is null or empty. 
+	 * @param listeners {@link List} of {@link IRestMetricsListener} instances, may be null
+	 * @return {@link IRestMetricsListener} instance
+	 */
+	public static final IRestMetricsListener of(List<IRestMetricsListener> listeners) {
+		return listeners==null || listeners.isEmpty() ? NOOP : new CompositeRestMetricsListener(listeners);
+	}
+	
+	@Override
+	public void requestCompleted(RestRequestMetrics metrics) {
+		forEach(listener -> listener.requestCompleted(metrics));
+	}
+	
+	@Override
+	public void requestRetried(String httpMethod, int statusCode, long delayMillis) {
+		forEach(listener -> listener.requestRetried(httpMethod, statusCode, delayMillis));
+	}
+	
+	@Override
+	public void connectionLeased(long waitNanos) {
+		forEach(listener -> listener.connectionLeased(waitNanos));
+	}
+	
+	@Override
+	public void queryCompleted(RestQueryMetrics metrics) {
+		forEach(listener -> listener.queryCompleted(metrics));
+	}
+	
+	@Override
+	public void embedCompleted(String propertyName, int records, long durationNanos, boolean successful) {
+		forEach(listener -> listener.embedCompleted(propertyName, records, durationNanos, successful));
+	}
+	
+	private void forEach(Consumer<IRestMetricsListener> action) {
+		for ( IRestMetricsListener listener : listeners ) {
+			try {
+				action.accept(listener);
+			} catch ( RuntimeException e ) {
+				log.debug("Error invoking metrics listener "+listener, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * <p>{@link IRestMetricsListener} implementation that collects in-memory statistics, 
+ * including latency histograms, for:</p>
+ * <ul>
+ *  <li>Requests, per HTTP method and endpoint template, see {@link #getRequestStats()}</li>
+ *  <li>Retries, per HTTP method and status code, see {@link #getRetryStats()}</li>
+ *  <li>Connection pool wait times, see {@link #getPoolWaitStats()}</li>
+ *  <li>Queries, per endpoint template, see {@link #getQueryStats()}</li>
+ *  <li>Embedded data, per property name, see {@link #getEmbedStats()}</li>
+ * </ul>
+ * <p>Latencies are recorded in power-of-two buckets, so percentiles are approximate 
+ * (within a factor of two). This is usually sufficient to identify which endpoints,
+ * queries or embeds dominate the overall runtime.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class HistogramRestMetricsListener implements IRestMetricsListener {
+	private final Map<String, Recorder> requests = new ConcurrentHashMap<>();
+	private final Map<String, Recorder> retries = new ConcurrentHashMap<>();
+	private final Map<String, Recorder> queries = new ConcurrentHashMap<>();
+	private final Map<String, Recorder> embeds = new ConcurrentHashMap<>();
+	private final Recorder poolWait = new Recorder();
+	
+	@Override
+	public void requestCompleted(RestRequestMetrics metrics) {
+		Recorder recorder = recorder(requests, metrics.getHttpMethod()+" "+metrics.getEndpointTemplate());
+		int statusCode = metrics.getStatusCode();
+		recorder.record(metrics.getDurationNanos(), statusCode>=0 && statusCode<400, 0);
+		recorder.statusCode(metrics.getStatusCode());
+		recorder.bytes(metrics.getRequestBytes(), metrics.getResponseBytes());
+	}
+	
+	@Override
+	public void requestRetried(String httpMethod, int statusCode, long delayMillis) {
+		recorder(retries, httpMethod+" "+statusCode).record(TimeUnit.MILLISECONDS.toNanos(delayMillis), true, 0);
+	}
+	
+	@Override
+	public void connectionLeased(long waitNanos) {
+		poolWait.record(waitNanos, true, 0);
+	}
+	
+	@Override
+	public void queryCompleted(RestQueryMetrics metrics) {
+		Recorder recorder = recorder(queries, metrics.getEndpointTemplate());
+		recorder.record(metrics.getDurationNanos(), metrics.isSuccessful(), metrics.getRecordsAfterFilters());
+		recorder.pages.add(metrics.getPages());
+		recorder.recordsFiltered.add(metrics.getRecordsFiltered());
+	}
+	
+	@Override
+	public void embedCompleted(String propertyName, int records, long durationNanos, boolean successful) {
+		recorder(embeds, propertyName).record(durationNanos, successful, records);
+	}
+	
+	/**
+	 * @return Request statistics per HTTP method and endpoint template, sorted by key
+	 */
+	public Map<String, Stats> getRequestStats() {
+		return snapshot(requests);
+	}
+	
+	/**
+	 * @return Retry statistics per HTTP method and status code (-1 for connection errors); 
+	 *         durations represent the delays before each retry
+	 */
+	public Map<String, Stats> getRetryStats() {
+		return snapshot(retries);
+	}
+	
+	/**
+	 * @return Connection pool wait time statistics
+	 */
+	public Stats getPoolWaitStats() {
+		return poolWait.snapshot();
+	}
+	
+	/**
+	 * @return Query statistics per endpoint template, sorted by endpoint template
+	 */
+	public Map<String, Stats> getQueryStats() {
+		return snapshot(queries);
+	}
+	
+	/**
+	 * @return Embed statistics per property name, sorted by property name
+	 */
+	public Map<String, Stats> getEmbedStats() {
+		return snapshot(embeds);
+	}
+	
+	/**
+	 * Clear all statistics collected so far.
+	 */
+	public void reset() {
+		requests.clear(); retries.clear(); queries.clear(); embeds.clear();
+		poolWait.reset();
+	}
+	
+	private static Recorder recorder(Map<String, Recorder> recorders, String key) {
+		return recorders.computeIfAbsent(key, k->new Recorder());
+	}
+	
+	private static Map<String, Stats> snapshot(Map<String, Recorder> recorders) {
+		Map<String, Stats> result = new TreeMap<>();
+		recorders.forEach((key, recorder) -> result.put(key, recorder.snapshot()));
+		return result;
+	}
+	
+	/**
+	 * This class provides a point-in-time snapshot of the statistics for a single 
+	 * request endpoint, query, embedded property or other metric. Durations are
+	 * reported in milliseconds.
+	 */
+	@Getter @ToString @RequiredArgsConstructor
+	public static final class Stats {
+		/** Number of events recorded */
+		private final long count;
+		/** Number of unsuccessful events (HTTP status code 400 or higher, or -1 for connection errors, for requests) */
+		private final long failures;
+		private final double totalMillis;
+		private final double maxMillis;
+		/** Approximate 50th percentile */
+		private final double p50Millis;
+		/** Approximate 90th percentile */
+		private final double p90Millis;
+		/** Approximate 99th percentile */
+		private final double p99Millis;
+		/** Request bytes sent; requests only */
+		private final long bytesOut;
+		/** Response bytes received as specified by Content-Length headers; requests only */
+		private final long bytesIn;
+		/** Number of records processed after filtering for queries, or number of records for embeds */
+		private final long records;
+		/** Number of records filtered out; queries only */
+		private final long recordsFiltered;
+		/** Number of pages loaded; queries only */
+		private final long pages;
+		/** Number of responses per HTTP status code (-1 for connection errors); requests only */
+		private final Map<Integer, Long> statusCodes;
+		
+		public double getAverageMillis() {
+			return count==0 ? 0 : totalMillis/count;
+		}
+	}
+	
+	/**
+	 * Thread-safe recorder for a single metric. Bucket i holds all durations 
+	 * between 2^i and 2^(i+1) microseconds.
+	 */
+	private static final class Recorder {
+		private static final int BUCKETS = 40;
+		private final LongAdder[] buckets = new LongAdder[BUCKETS];
+		private final LongAdder count = new LongAdder();
+		private final LongAdder failures = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+		private final LongAdder bytesOut = new LongAdder();
+		private final LongAdder bytesIn = new LongAdder();
+		private final LongAdder records = new LongAdder();
+		private final LongAdder recordsFiltered = new LongAdder();
+		private final LongAdder pages = new LongAdder();
+		private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+		
+		private Recorder() {
+			for ( int i = 0 ; i < BUCKETS ; i++ ) { buckets[i] = new LongAdder(); }
+		}
+		
+		private void record(long nanos, boolean successful, long records) {
+			long micros = Math.max(1, nanos/1000);
+			buckets[Math.min(BUCKETS-1, 63-Long.numberOfLeadingZeros(micros))].increment();
+			count.increment();
+			if ( !successful ) { failures.increment(); }
+			totalNanos.add(nanos);
+			maxNanos.accumulate(nanos);
+			this.records.add(records);
+		}
+		
+		private void statusCode(int statusCode) {
+			statusCodes.computeIfAbsent(statusCode, k->new LongAdder()).increment();
+		}
+		
+		private void bytes(long out, long in) {
+			if ( out>0 ) { bytesOut.add(out); }
+			if ( in>0 ) { bytesIn.add(in); }
+		}
+		
+		private void reset() {
+			for ( LongAdder bucket : buckets ) { bucket.reset(); }
+			count.reset(); failures.reset(); totalNanos.reset(); maxNanos.reset(); 
+			bytesOut.reset(); bytesIn.reset(); records.reset(); recordsFiltered.reset(); pages.reset();
+			statusCodes.clear();
+		}
+		
+		private Stats snapshot() {
+			long[] counts = new long[BUCKETS];
+			long total = 0;
+			for ( int i = 0 ; i < BUCKETS ; i++ ) { counts[i] = buckets[i].sum(); total += counts[i]; }
+			double maxMillis = toMillis(maxNanos.get());
+			Map<Integer, Long> statusCodeCounts = new TreeMap<>();
+			statusCodes.forEach((code, adder) -> statusCodeCounts.put(code, adder.sum()));
+			return new Stats(count.sum(), failures.sum(), toMillis(totalNanos.sum()), maxMillis,
+					percentile(counts, total, 0.5, maxMillis), percentile(counts, total, 0.9, maxMillis), 
+					percentile(counts, total, 0.99, maxMillis), bytesOut.sum(), bytesIn.sum(), 
+					records.sum(), recordsFiltered.sum(), pages.sum(), Collections.unmodifiableMap(statusCodeCounts));
+		}
+		
+		/**
+		 * Return the upper bound of the bucket containing the given percentile,
+		 * capped at the maximum recorded value. 
+		 */
+		private static double percentile(long[] counts, long total, double percentile, double maxMillis) {
+			if ( total==0 ) { return 0; }
+			long threshold = (long)Math.ceil(total*percentile);
+			long cumulative = 0;
+			for ( int i = 0 ; i < counts.length ; i++ ) {
+				cumulative += counts[i];
+				if ( cumulative>=threshold ) {
+					return Math.min(maxMillis, (1L<<(i+1))/1000.0);
+				}
+			}
+			return maxMillis;
+		}
+		
+		private static double toMillis(long nanos) {
+			return nanos/1000000.0;
+		}
+	}
+}
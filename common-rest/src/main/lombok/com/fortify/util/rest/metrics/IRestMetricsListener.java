@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.metrics;
+
+import com.fortify.util.rest.connection.AbstractRestConnectionConfig;
+
+/**
+ * <p>Listener interface for receiving metrics about REST requests, queries and 
+ * embedded data. Listeners can be registered on a connection through
+ * {@link AbstractRestConnectionConfig#metricsListener(IRestMetricsListener)}.</p>
+ * 
+ * <p>All methods have an empty default implementation, so implementations only
+ * need to override the methods for the metrics they are interested in. Methods
+ * may be invoked concurrently from multiple threads, and should return quickly
+ * as they are invoked on the threads that execute the requests.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public interface IRestMetricsListener {
+	/** Listener that ignores all metrics */
+	public static final IRestMetricsListener NOOP = new IRestMetricsListener() {};
+	
+	/**
+	 * Called whenever a response has been received for a single request attempt,
+	 * or when a request attempt failed without receiving a response, in which case
+	 * {@link RestRequestMetrics#getStatusCode()} returns -1.
+	 * @param metrics {@link RestRequestMetrics} describing the request
+	 */
+	public default void requestCompleted(RestRequestMetrics metrics) {}
+	
+	/**
+	 * Called whenever a failed request is about to be retried.
+	 * @param httpMethod HTTP method of the failed request
+	 * @param statusCode HTTP status code of the failed request, or -1 for connection errors 
+	 * @param delayMillis Delay before the request is retried
+	 */
+	public default void requestRetried(String httpMethod, int statusCode, long delayMillis) {}
+	
+	/**
+	 * Called whenever a connection has been leased from the connection pool.
+	 * @param waitNanos Time spent waiting for the connection to become available
+	 */
+	public default void connectionLeased(long waitNanos) {}
+	
+	/**
+	 * Called whenever a query has finished processing all results, either
+	 * successfully or unsuccessfully.
+	 * @param metrics {@link RestQueryMetrics} describing the query
+	 */
+	public default void queryCompleted(RestQueryMetrics metrics) {}
+	
+	/**
+	 * Called whenever data has been loaded to be embedded into one or more records.
+	 * @param propertyName Name of the property in which the data is embedded
+	 * @param records Number of records for which the data was loaded
+	 * @param durationNanos Time spent loading the data
+	 * @param successful Whether the data was loaded successfully
+	 */
+	public default void embedCompleted(String propertyName, int records, long durationNanos, boolean successful) {}
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * <p>{@link IRestMetricsListener} implementation that emits Java Flight Recorder 
+ * events for requests, retries, queries and embeds. Events are only recorded if
+ * enabled in the active recording; the events are registered in the 'Fortify' 
+ * category. This class can only be used on Java versions that provide the 
+ * jdk.jfr API.</p>
+ * 
+ * <p>As metrics are reported after the fact, the event duration fields contain the 
+ * reported duration rather than the JFR event duration.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class JfrRestMetricsListener implements IRestMetricsListener {
+	@Override
+	public void requestCompleted(RestRequestMetrics metrics) {
+		RequestEvent event = new RequestEvent();
+		if ( event.isEnabled() ) {
+			event.method = metrics.getHttpMethod();
+			event.endpoint = metrics.getEndpointTemplate();
+			event.statusCode = metrics.getStatusCode();
+			event.durationNanos = metrics.getDurationNanos();
+			event.requestBytes = metrics.getRequestBytes();
+			event.responseBytes = metrics.getResponseBytes();
+			event.commit();
+		}
+	}
+	
+	@Override
+	public void requestRetried(String httpMethod, int statusCode, long delayMillis) {
+		RetryEvent event = new RetryEvent();
+		if ( event.isEnabled() ) {
+			event.method = httpMethod;
+			event.statusCode = statusCode;
+			event.delayMillis = delayMillis;
+			event.commit();
+		}
+	}
+	
+	@Override
+	public void queryCompleted(RestQueryMetrics metrics) {
+		QueryEvent event = new QueryEvent();
+		if ( event.isEnabled() ) {
+			event.endpoint = metrics.getEndpointTemplate();
+			event.pages = metrics.getPages();
+			event.recordsBeforeFilters = metrics.getRecordsBeforeFilters();
+			event.recordsAfterFilters = metrics.getRecordsAfterFilters();
+			event.durationNanos = metrics.getDurationNanos();
+			event.successful = metrics.isSuccessful();
+			event.commit();
+		}
+	}
+	
+	@Override
+	public void embedCompleted(String propertyName, int records, long durationNanos, boolean successful) {
+		EmbedEvent event = new EmbedEvent();
+		if ( event.isEnabled() ) {
+			event.property = propertyName;
+			event.records = records;
+			event.durationNanos = durationNanos;
+			event.successful = successful;
+			event.commit();
+		}
+	}
+	
+	@Name("com.fortify.rest.Request") @Label("REST Request") @Category("Fortify")
+	static final class RequestEvent extends Event {
+		@Label("Method") String method;
+		@Label("Endpoint") String endpoint;
+		@Label("Status Code") int statusCode;
+		@Label("Duration") @Timespan(Timespan.NANOSECONDS) long durationNanos;
+		@Label("Request Bytes") @DataAmount long requestBytes;
+		@Label("Response Bytes") @DataAmount long responseBytes;
+	}
+	
+	@Name("com.fortify.rest.Retry") @Label("REST Retry") @Category("Fortify")
+	static final class RetryEvent extends Event {
+		@Label("Method") String method;
+		@Label("Status Code") int statusCode;
+		@Label("Delay") @Timespan(Timespan.MILLISECONDS) long delayMillis;
+	}
+	
+	@Name("com.fortify.rest.Query") @Label("REST Query") @Category("Fortify")
+	static final class QueryEvent extends Event {
+		@Label("Endpoint") String endpoint;
+		@Label("Pages") int pages;
+		@Label("Records Before Filters") int recordsBeforeFilters;
+		@Label("Records After Filters") int recordsAfterFilters;
+		@Label("Duration") @Timespan(Timespan.NANOSECONDS) long durationNanos;
+		@Label("Successful") boolean successful;
+	}
+	
+	@Name("com.fortify.rest.Embed") @Label("REST Embed") @Category("Fortify")
+	static final class EmbedEvent extends Event {
+		@Label("Property") String property;
+		@Label("Records") int records;
+		@Label("Duration") @Timespan(Timespan.NANOSECONDS) long durationNanos;
+		@Label("Successful") boolean successful;
+	}
+}
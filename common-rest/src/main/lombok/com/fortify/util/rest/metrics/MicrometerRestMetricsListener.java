@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * <p>{@link IRestMetricsListener} implementation that records all metrics in a 
+ * Micrometer {@link MeterRegistry}. Micrometer is an optional dependency; this 
+ * class can only be used if micrometer-core is available on the classpath. The
+ * following meters are recorded, using the configured name prefix (default 
+ * 'fortify.rest'):</p>
+ * <ul>
+ *  <li>&lt;prefix&gt;.requests: {@link Timer} tagged with method, endpoint and status</li>
+ *  <li>&lt;prefix&gt;.request.bytes, &lt;prefix&gt;.response.bytes: {@link DistributionSummary} tagged with method and endpoint</li>
+ *  <li>&lt;prefix&gt;.retries: {@link Counter} tagged with method and status</li>
+ *  <li>&lt;prefix&gt;.pool.wait: {@link Timer}</li>
+ *  <li>&lt;prefix&gt;.queries: {@link Timer} tagged with endpoint and outcome</li>
+ *  <li>&lt;prefix&gt;.query.pages, &lt;prefix&gt;.query.records, &lt;prefix&gt;.query.records.filtered: 
+ *      {@link Counter} tagged with endpoint</li>
+ *  <li>&lt;prefix&gt;.embeds: {@link Timer} tagged with property and outcome</li>
+ *  <li>&lt;prefix&gt;.embed.records: {@link Counter} tagged with property</li>
+ * </ul>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class MicrometerRestMetricsListener implements IRestMetricsListener {
+	private final MeterRegistry registry;
+	private final String prefix;
+	
+	public MicrometerRestMetricsListener(MeterRegistry registry) {
+		this(registry, "fortify.rest");
+	}
+	
+	public MicrometerRestMetricsListener(MeterRegistry registry, String prefix) {
+		this.registry = registry;
+		this.prefix = prefix;
+	}
+	
+	@Override
+	public void requestCompleted(RestRequestMetrics metrics) {
+		String method = metrics.getHttpMethod();
+		String endpoint = metrics.getEndpointTemplate();
+		registry.timer(prefix+".requests", "method", method, "endpoint", endpoint, "status", String.valueOf(metrics.getStatusCode()))
+			.record(metrics.getDurationNanos(), TimeUnit.NANOSECONDS);
+		if ( metrics.getRequestBytes()>0 ) {
+			registry.summary(prefix+".request.bytes", "method", method, "endpoint", endpoint).record(metrics.getRequestBytes());
+		}
+		if ( metrics.getResponseBytes()>=0 ) {
+			registry.summary(prefix+".response.bytes", "method", method, "endpoint", endpoint).record(metrics.getResponseBytes());
+		}
+	}
+	
+	@Override
+	public void requestRetried(String httpMethod, int statusCode, long delayMillis) {
+		registry.counter(prefix+".retries", "method", httpMethod, "status", String.valueOf(statusCode)).increment();
+	}
+	
+	@Override
+	public void connectionLeased(long waitNanos) {
+		registry.timer(prefix+".pool.wait").record(waitNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	@Override
+	public void queryCompleted(RestQueryMetrics metrics) {
+		String endpoint = metrics.getEndpointTemplate();
+		registry.timer(prefix+".queries", "endpoint", endpoint, "outcome", outcome(metrics.isSuccessful()))
+			.record(metrics.getDurationNanos(), TimeUnit.NANOSECONDS);
+		registry.counter(prefix+".query.pages", "endpoint", endpoint).increment(metrics.getPages());
+		registry.counter(prefix+".query.records", "endpoint", endpoint).increment(metrics.getRecordsAfterFilters());
+		registry.counter(prefix+".query.records.filtered", "endpoint", endpoint).increment(metrics.getRecordsFiltered());
+	}
+	
+	@Override
+	public void embedCompleted(String propertyName, int records, long durationNanos, boolean successful) {
+		registry.timer(prefix+".embeds", "property", propertyName, "outcome", outcome(successful))
+			.record(durationNanos, TimeUnit.NANOSECONDS);
+		registry.counter(prefix+".embed.records", "property", propertyName).increment(records);
+	}
+	
+	private static String outcome(boolean successful) {
+		return successful ? "success" : "failure";
+	}
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.metrics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * This class describes the metrics for a single query execution, as passed to
+ * {@link IRestMetricsListener#queryCompleted(RestQueryMetrics)}.
+ * 
+ * @author Ruud Senden
+ *
+ */
+@Getter @ToString @RequiredArgsConstructor
+public final class RestQueryMetrics {
+	/** Query endpoint template, see {@link RestRequestMetrics#getEndpointTemplate(java.net.URI)} */
+	private final String endpointTemplate;
+	/** Number of pages loaded */
+	private final int pages;
+	/** Number of records processed before applying any filters */
+	private final int recordsBeforeFilters;
+	/** Number of records passed to the query processor after applying all filters */
+	private final int recordsAfterFilters;
+	/** Total time spent executing the query, including record processing */
+	private final long durationNanos;
+	/** Whether the query completed successfully */
+	private final boolean successful;
+	
+	/**
+	 * @return Number of records that were filtered out
+	 */
+	public int getRecordsFiltered() {
+		return recordsBeforeFilters-recordsAfterFilters;
+	}
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.metrics;
+
+import java.net.URI;
+import java.util.regex.Pattern;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * This class describes the metrics for a single request attempt, as passed to
+ * {@link IRestMetricsListener#requestCompleted(RestRequestMetrics)}.
+ * 
+ * @author Ruud Senden
+ *
+ */
+@Getter @ToString @RequiredArgsConstructor
+public final class RestRequestMetrics {
+	private static final Pattern ID_SEGMENT = Pattern.compile("^(\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|[0-9a-fA-F]{16,})$");
+	/** HTTP method */
+	private final String httpMethod;
+	/** Request path with all id's replaced by {id}, see {@link #getEndpointTemplate(URI)} */
+	private final String endpointTemplate;
+	/** HTTP status code, or -1 if no response was received, for example due to a connection error */
+	private final int statusCode;
+	/** Time between sending the request and receiving the response headers or failing the request */
+	private final long durationNanos;
+	/** Number of bytes in the request entity, or 0 if no entity was sent */
+	private final long requestBytes;
+	/** Number of bytes in the response entity as specified by the Content-Length header, or -1 if unknown */
+	private final long responseBytes;
+	
+	/**
+	 * Get the endpoint template for the given {@link URI}, i.e. the {@link URI} path 
+	 * with all numeric id's, UUID's and long hexadecimal id's replaced by {id}. This 
+	 * allows metrics to be aggregated per endpoint rather than per entity.
+	 * @param uri for which to get the endpoint template
+	 * @return Endpoint template
+	 */
+	public static final String getEndpointTemplate(URI uri) {
+		String path = uri==null ? null : uri.getRawPath();
+		if ( path==null || path.isEmpty() ) { return "/"; }
+		String[] segments = path.split("/", -1);
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 0 ; i < segments.length ; i++ ) {
+			if ( i>0 ) { sb.append('/'); }
+			sb.append(ID_SEGMENT.matcher(segments[i]).matches() ? "{id}" : segments[i]);
+		}
+		return sb.toString();
+	}
+}
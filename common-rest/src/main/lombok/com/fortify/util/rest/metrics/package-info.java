@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+/**
+ * <p>This package provides a small listener SPI for collecting metrics about REST requests,
+ *    queries and embedded data. Listeners implementing 
+ *    {@link com.fortify.util.rest.metrics.IRestMetricsListener} can be registered on a connection
+ *    through {@link com.fortify.util.rest.connection.AbstractRestConnectionConfig#metricsListener(IRestMetricsListener)}.</p>
+ *    
+ * <p>The following listener implementations are provided:</p>
+ * <ul>
+ *  <li>{@link com.fortify.util.rest.metrics.HistogramRestMetricsListener}: Collects in-memory 
+ *      statistics and latency histograms per endpoint, query and embedded property</li>
+ *  <li>{@link com.fortify.util.rest.metrics.MicrometerRestMetricsListener}: Records metrics in
+ *      a Micrometer MeterRegistry; requires micrometer-core to be available on the classpath</li>
+ *  <li>{@link com.fortify.util.rest.metrics.JfrRestMetricsListener}: Emits Java Flight Recorder
+ *      events; requires a Java version that supports JFR</li>
+ * </ul>
+ */
+package com.fortify.util.rest.metrics;
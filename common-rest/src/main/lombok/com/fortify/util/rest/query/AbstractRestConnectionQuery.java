@@ -24,23 +24,39 @@
  ******************************************************************************/
 package com.fortify.util.rest.query;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
 
 import com.fortify.util.rest.connection.IRestConnection;
+import com.fortify.util.rest.connection.ParallelTasks;
+import com.fortify.util.rest.connection.ParallelTasks.Task;
 import com.fortify.util.rest.json.JSONList;
 import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapStreamReader;
 import com.fortify.util.rest.json.preprocessor.IJSONMapPreProcessor;
 import com.fortify.util.rest.json.processor.AbstractJSONMapProcessor;
 import com.fortify.util.rest.json.processor.IJSONMapProcessor;
 import com.fortify.util.rest.json.processor.JSONMapsToJSONListProcessor;
+import com.fortify.util.rest.metrics.IRestMetricsListener;
+import com.fortify.util.rest.metrics.RestQueryMetrics;
+import com.fortify.util.rest.metrics.RestRequestMetrics;
 import com.fortify.util.rest.webtarget.IWebTargetUpdater;
 
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.apachecommons.CommonsLog;
+
 /**
  * <p>This abstract class provides an implementation for {@link IRestConnectionQuery} to allow for
  * querying REST API's. Usually for each target system, you would have one (or a limited number of) 
@@ -55,8 +71,26 @@ import com.fortify.util.rest.webtarget.IWebTargetUpdater;
  * includes {@link IWebTargetUpdater} instances for generating the actual REST request, and {@link IJSONMapPreProcessor}
  * instances for pre-processing each individual {@link JSONMap} instance returned by the REST request.</p>
  * 
+ * <p>If enabled through {@link AbstractRestConnectionQueryBuilder#streamingResponses(boolean)}, and
+ * supported by the concrete implementation (see {@link #getStreamingListPropertyName()}), responses 
+ * are parsed in a streaming fashion, passing each individual record to the processor as soon as it
+ * has been parsed, rather than first loading the full page into memory.</p>
+ * 
+ * <p>If enabled through {@link AbstractRestConnectionQueryBuilder#prefetchPages(int)}, once the total
+ * number of available results is known, subsequent pages are loaded concurrently in the background, 
+ * using the executor provided by {@link IRestConnection#getExecutor()}, while records are still 
+ * delivered to the processor in order. If no executor thread is available to load the next page
+ * by the time it is needed, for example because the query itself is running on an executor thread,
+ * that page is loaded on the calling thread.</p>
+ * 
+ * <p>Page sizes are determined by the {@link IPageSizeStrategy} configured through 
+ * {@link AbstractRestConnectionQueryBuilder#pageSizeStrategy(IPageSizeStrategy)}, which
+ * is notified about the response time and size of every page, and about failed page 
+ * requests.</p>
+ * 
  * @author Ruud Senden
  */
+@CommonsLog
 public abstract class AbstractRestConnectionQuery<ResponseType> implements IRestConnectionQuery {
 	private final IRestConnection conn;
 	private final List<IWebTargetUpdater> webTargetUpdaters;
@@ -68,6 +102,9 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 	private final Entity<?> entity;
 	private final String httpMethod;
 	private final IRequestInitializer requestInitializer;
+	private final boolean streamingResponses;
+	private final int prefetchPages;
+	private final IPageSizeStrategy pageSizeStrategy;
 	
 	protected AbstractRestConnectionQuery(AbstractRestConnectionQueryBuilder<?, ?> config) {
 		this.conn = config.getConn();
@@ -80,6 +117,9 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 		this.entity = config.getEntity();
 		this.httpMethod = config.getHttpMethod();
 		this.requestInitializer = config.getRequestInitializer();
+		this.streamingResponses = config.isStreamingResponses();
+		this.prefetchPages = config.getPrefetchPages();
+		this.pageSizeStrategy = config.getPageSizeStrategy();
 	}
 	
 	/* (non-Javadoc)
@@ -87,7 +127,7 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 	 */
 	@Override
 	public void processAll(IJSONMapProcessor processor) {
-		processAll(getWebTarget(), new PagingData().maxResults(maxResults), processor);
+		processAll(getWebTarget(), createPagingData(maxResults), processor);
 	}
 	
 	@Override
@@ -117,7 +157,7 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 	@Override
 	public JSONMap getUnique() {
 		JSONMapsToJSONListProcessor processor = new JSONMapsToJSONListProcessor();
-		processAll(getWebTarget(), new PagingData().maxResults(Math.min(2, maxResults)), processor);
+		processAll(getWebTarget(), createPagingData(Math.min(2, maxResults)), processor);
 		JSONList list = processor.getJsonList();
 		if ( list == null || list.size() == 0 ) {
 			return null;
@@ -128,6 +168,10 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 		return list.asValueType(JSONMap.class).get(0);
 	}
 	
+	private PagingData createPagingData(int maxResults) {
+		return new PagingData().maxResults(maxResults).pageSizeStrategy(pageSizeStrategy);
+	}
+	
 	protected final WebTarget getWebTarget() {
 		WebTarget webTarget = conn.getBaseResource();
 		for ( IWebTargetUpdater updater : webTargetUpdaters ) {
@@ -137,10 +181,14 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 	}
 	
 	protected ResponseType executeRequest(WebTarget target) {
+		return executeRequest(target, getResponseTypeClass());
+	}
+	
+	private <T> T executeRequest(WebTarget target, Class<T> returnType) {
 		if ( entity == null ) {
-			return conn.executeRequest(httpMethod, target, getResponseTypeClass());
+			return conn.executeRequest(httpMethod, target, returnType);
 		} else {
-			return conn.executeRequest(httpMethod, target, entity, getResponseTypeClass());
+			return conn.executeRequest(httpMethod, target, entity, returnType);
 		}
 	}
 	
@@ -182,33 +230,239 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 	 */
 	protected abstract JSONList getJSONListFromResponse(ResponseType responseData);
 	
+	/**
+	 * Implementations that support streaming responses must override this method to return the
+	 * name of the top-level response property that contains the array of records, and must use
+	 * {@link JSONMap} as the response type. When processing a streaming response, the 
+	 * {@link #updatePagingDataFromResponse(PagingData, Object)} method will be invoked with a 
+	 * {@link JSONMap} containing all top-level response properties except for this array property.
+	 * This default implementation returns null, indicating that streaming is not supported.
+	 * @return Name of the response property containing the array of records, or null if streaming is not supported
+	 */
+	protected String getStreamingListPropertyName() {
+		return null;
+	}
+	
+	/**
+	 * Streaming is used if enabled through {@link AbstractRestConnectionQueryBuilder#streamingResponses(boolean)},
+	 * supported by the concrete implementation, and if no page pre- or post-processors have been configured, 
+	 * as these require the full page to be available.
+	 * @return true if responses should be processed in a streaming fashion, false otherwise
+	 */
+	private boolean isStreamingResponses() {
+		return streamingResponses && pagePreProcessors.isEmpty() && pagePostProcessors.isEmpty() 
+				&& getStreamingListPropertyName()!=null && JSONMap.class.equals(getResponseTypeClass());
+	}
+	
 	/**
 	 * Process all results returned by the given {@link WebTarget} by calling the given {@link IJSONMapProcessor}.
 	 * Depending on the return value of {@link #pagingSupported}, this method will either directly invoke
 	 * the given web target (paging not supported), or retrieve all data page by page (paging is supported).
+	 * If the connection has a metrics listener configured, {@link RestQueryMetrics} are reported to 
+	 * this listener once the query has completed.
 	 * 
 	 */
 	private void processAll(WebTarget target, PagingData pagingData, IJSONMapProcessor processor) {
+		IRestMetricsListener metricsListener = conn.getMetricsListener();
+		if ( metricsListener==null || metricsListener==IRestMetricsListener.NOOP ) {
+			processAllUnmetered(target, pagingData, processor);
+		} else {
+			long startTime = System.nanoTime();
+			boolean successful = false;
+			try {
+				processAllUnmetered(target, pagingData, processor);
+				successful = true;
+			} finally {
+				metricsListener.queryCompleted(new RestQueryMetrics(RestRequestMetrics.getEndpointTemplate(target.getUri()), 
+						pagingData.getPagesLoaded(), pagingData.getProcessedTotalBeforeFilters(), 
+						pagingData.getProcessedTotalAfterFilters(), System.nanoTime()-startTime, successful));
+			}
+		}
+	}
+	
+	/**
+	 * Actual implementation for {@link #processAll(WebTarget, PagingData, IJSONMapProcessor)},
+	 * without reporting query metrics.
+	 */
+	private void processAllUnmetered(WebTarget target, PagingData pagingData, IJSONMapProcessor processor) {
 		if ( requestInitializer != null ) { requestInitializer.initRequest(); }
+		if ( streamingResponses && !isStreamingResponses() && log.isDebugEnabled() ) {
+			log.debug("Not streaming responses for "+target.getUri()+"; streaming is not supported by "+getClass().getSimpleName()
+					+" or page pre- or post-processors have been configured");
+		}
 		processor = new JSONMapProcessorWithPreProcessorsAndPagingSupport(preProcessors, processor, pagingData);
 		if ( !pagingSupported ) {
 			processSingleRequest(target, processor, pagingData);
+		} else if ( isPrefetchEnabled() ) {
+			processAllWithPrefetch(target, processor, pagingData);
 		} else {
 			while (pagingData.calculateNextPageSize() > 0) {
 				processor.notifyNextPage(pagingData);
-				WebTarget pagingTarget = updateWebTargetWithPagingData(target, pagingData);
-				processSingleRequest(pagingTarget, processor, pagingData);
+				processPage(target, processor, pagingData);
+			}
+		}
+	}
+	
+	/**
+	 * Process the next page as described by the given {@link PagingData}. If loading the page 
+	 * fails, and the configured {@link IPageSizeStrategy} indicates that the page should be
+	 * retried with a smaller page size, the page request is retried.
+	 */
+	private void processPage(WebTarget target, IJSONMapProcessor processor, PagingData pagingData) {
+		while ( true ) {
+			try {
+				processSingleRequest(updateWebTargetWithPagingData(target, pagingData), processor, pagingData);
+				return;
+			} catch ( RuntimeException e ) {
+				if ( !pagingData.retryWithSmallerPageSize(e) ) { throw e; }
+			}
+		}
+	}
+	
+	private boolean isPrefetchEnabled() {
+		if ( prefetchPages<2 ) { return false; }
+		if ( !conn.isMultiThreaded() ) {
+			log.warn("Page prefetching requires a multi-threaded connection; loading pages sequentially");
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Process all results returned by the given {@link WebTarget} by calling the given {@link IJSONMapProcessor}.
+	 * The first page is loaded synchronously in order to determine the total number of available results. 
+	 * Subsequent pages are then loaded concurrently, keeping up to {@link #prefetchPages} pages in flight. 
+	 * Pages are processed in order; if the server returns less results than expected, or the maximum number 
+	 * of results has been reached, any remaining pages are discarded. If a prefetched page fails to load,
+	 * but may be retried with a smaller page size, all remaining prefetched pages are discarded and the
+	 * page is loaded synchronously, after which prefetching continues with the new page size.
+	 */
+	private void processAllWithPrefetch(WebTarget target, IJSONMapProcessor processor, PagingData pagingData) {
+		Deque<PrefetchedPage> prefetchedPages = new ArrayDeque<>(prefetchPages);
+		try {
+			int nextPrefetchStart = -1;
+			while (pagingData.calculateNextPageSize() > 0) {
+				processor.notifyNextPage(pagingData);
+				int pageStart = pagingData.getNextPageStart();
+				if ( nextPrefetchStart>=0 ) {
+					nextPrefetchStart = prefetchPages(target, pagingData, prefetchedPages, Math.max(nextPrefetchStart, pageStart));
+				}
+				PrefetchedPage page = prefetchedPages.poll();
+				TimedResponse response = page==null || page.start!=pageStart ? null : getPrefetchedResponse(page, pagingData);
+				if ( response!=null ) {
+					processResponse(response.response, processor, pagingData, response.durationMillis);
+				} else {
+					cancel(prefetchedPages);
+					processPage(target, processor, pagingData);
+					// Total number of available results is now known, so we can (re-)start prefetching
+					nextPrefetchStart = pagingData.getNextPageStart();
+				}
 			}
+		} finally {
+			cancel(prefetchedPages);
+		}
+	}
+	
+	/**
+	 * Submit page requests to the connection executor until the maximum number of prefetched pages 
+	 * is reached, or there are no more results available. Requests are submitted through 
+	 * {@link ParallelTasks}, so any page request that hasn't been started by an executor thread 
+	 * by the time it is needed will be executed on the calling thread, rather than waiting for
+	 * an executor thread to become available.
+	 * @return The start index for the next page to be prefetched
+	 */
+	private int prefetchPages(WebTarget target, PagingData pagingData, Deque<PrefetchedPage> prefetchedPages, int start) {
+		int pageSize = pagingData.getPageSize();
+		while ( prefetchedPages.size()<prefetchPages && isPrefetchRequired(pagingData, start) ) {
+			WebTarget pageTarget = updateWebTargetWithPagingData(target, PagingData.forPage(start, pageSize));
+			prefetchedPages.add(new PrefetchedPage(start, pageSize, ParallelTasks.submit(conn, () -> {
+				long startTime = System.currentTimeMillis();
+				ResponseType response = executeRequest(pageTarget);
+				return new TimedResponse(response, System.currentTimeMillis()-startTime);
+			})));
+			start += pageSize;
+		}
+		return start;
+	}
+	
+	/**
+	 * Check whether a page starting at the given index may contain any required results, based on the total number 
+	 * of available results, and on the maximum number of results if results are not being filtered.
+	 */
+	private boolean isPrefetchRequired(PagingData pagingData, int start) {
+		boolean filtered = pagingData.getProcessedTotalAfterFilters() < pagingData.getProcessedTotalBeforeFilters();
+		return start < pagingData.getTotalAvailable() 
+				&& (pagingData.getMaxResults()<0 || filtered || start < pagingData.getMaxResults());
+	}
+	
+	/**
+	 * Get the response for the given prefetched page, updating the given {@link PagingData} with the actual
+	 * size of the prefetched page. If loading the page failed, this method returns null if the page should 
+	 * be retried with a smaller page size, or throws the exception otherwise.
+	 */
+	private TimedResponse getPrefetchedResponse(PrefetchedPage page, PagingData pagingData) {
+		pagingData.setNextPageSize(page.size);
+		try {
+			return page.response.join();
+		} catch (RuntimeException e) {
+			if ( !pagingData.retryWithSmallerPageSize(e) ) { throw e; }
+			return null;
 		}
 	}
 	
+	/**
+	 * Cancel all prefetched pages that haven't been started yet; the results
+	 * of any pages that are currently being loaded will be ignored.
+	 */
+	private void cancel(Deque<PrefetchedPage> prefetchedPages) {
+		PrefetchedPage page;
+		while ( (page=prefetchedPages.poll())!=null ) {
+			page.response.cancel();
+		}
+	}
+	
+	@RequiredArgsConstructor
+	private final class PrefetchedPage {
+		private final int start;
+		private final int size;
+		private final Task<TimedResponse> response;
+	}
+	
+	@RequiredArgsConstructor
+	private final class TimedResponse {
+		private final ResponseType response;
+		private final long durationMillis;
+	}
+	
 	/**
 	 * Process all results returned by the given {@link WebTarget} by calling the given {@link IJSONMapProcessor}.
 	 */
 	private void processSingleRequest(WebTarget target, IJSONMapProcessor processor, PagingData pagingData) {
+		if ( isStreamingResponses() ) {
+			processSingleStreamingRequest(target, processor, pagingData);
+		} else {
+			processSingleBufferedRequest(target, processor, pagingData);
+		}
+	}
+	
+	/**
+	 * Process all results returned by the given {@link WebTarget} by calling the given {@link IJSONMapProcessor},
+	 * after loading the full response into memory.
+	 */
+	private void processSingleBufferedRequest(WebTarget target, IJSONMapProcessor processor, PagingData pagingData) {
+		long startTime = System.currentTimeMillis();
 		ResponseType response = executeRequest(target);
+		processResponse(response, processor, pagingData, System.currentTimeMillis()-startTime);
+	}
+	
+	/**
+	 * Process all results contained in the given response by calling the given {@link IJSONMapProcessor}.
+	 */
+	private void processResponse(ResponseType response, IJSONMapProcessor processor, PagingData pagingData, long durationMillis) {
+		pagingData.incrementPagesLoaded();
 		updatePagingDataFromResponse(pagingData, response);
 		JSONList list = getJSONListFromResponse(response);
+		pagingData.pageLoaded(list.size(), durationMillis, -1);
 		for (BiConsumer<PagingData, JSONList> pagePreProcessor : pagePreProcessors ) {
 			pagePreProcessor.accept(pagingData, list);
 		}
@@ -222,4 +476,68 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 			pagePostProcessor.accept(pagingData, list);
 		}
 	}
+	
+	/**
+	 * Process all results returned by the given {@link WebTarget} by calling the given {@link IJSONMapProcessor}
+	 * for each individual record as soon as it has been parsed from the response. Once the maximum number
+	 * of results has been reached, the remainder of the response is ignored.
+	 */
+	@SuppressWarnings("unchecked")
+	private void processSingleStreamingRequest(WebTarget target, IJSONMapProcessor processor, PagingData pagingData) {
+		long startTime = System.currentTimeMillis();
+		Response response = executeRequest(target, Response.class);
+		pagingData.incrementPagesLoaded();
+		try ( CountingInputStream inputStream = new CountingInputStream(response.readEntity(InputStream.class)) ) {
+			// Keep track of records and processing time, to allow page size strategies to take only response time into account 
+			long[] recordsAndProcessingTime = {0, 0};
+			JSONMap data = JSONMapStreamReader.read(inputStream, getStreamingListPropertyName(), json -> { 
+					long processingStartTime = System.currentTimeMillis();
+					if ( processor!=null ) { processor.process(json); }
+					recordsAndProcessingTime[0]++;
+					recordsAndProcessingTime[1] += System.currentTimeMillis()-processingStartTime;
+				}, pagingData::isMaxResultsReached);
+			if ( !pagingData.isMaxResultsReached() ) {
+				// Paging properties may follow the list property, so we can only do this if we've read the full response 
+				updatePagingDataFromResponse(pagingData, (ResponseType)data);
+				pagingData.pageLoaded((int)recordsAndProcessingTime[0], 
+						System.currentTimeMillis()-startTime-recordsAndProcessingTime[1], inputStream.getCount());
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading response from "+target.getUri(), e);
+		} finally {
+			response.close();
+		}
+	}
+	
+	/**
+	 * {@link FilterInputStream} implementation that counts the number of bytes read.
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+		@Getter private long count = 0;
+		
+		private CountingInputStream(InputStream in) {
+			super(in);
+		}
+		
+		@Override
+		public int read() throws IOException {
+			int result = super.read();
+			if ( result!=-1 ) { count++; }
+			return result;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int result = super.read(b, off, len);
+			if ( result>0 ) { count+=result; }
+			return result;
+		}
+		
+		@Override
+		public long skip(long n) throws IOException {
+			long result = super.skip(n);
+			count += result;
+			return result;
+		}
+	}
 }
@@ -99,6 +99,9 @@ public abstract class AbstractRestConnectionQueryBuilder<ConnType extends IRestC
 	private final List<BiConsumer<PagingData, JSONList>> pagePostProcessors = new ArrayList<>();
 	private final List<IJSONMapPreProcessor> preProcessors = new ArrayList<>();
 	private int maxResults = -1;
+	private boolean streamingResponses = false;
+	private int prefetchPages = 0;
+	private IPageSizeStrategy pageSizeStrategy = null;
 	private final boolean pagingSupported;
 	@Setter(AccessLevel.PROTECTED) private String httpMethod = HttpMethod.GET;
 	@Setter(AccessLevel.PROTECTED) private Entity<?> entity = null;
@@ -146,6 +149,60 @@ public abstract class AbstractRestConnectionQueryBuilder<ConnType extends IRestC
 		return _this();
 	}
 	
+	/**
+	 * Enable or disable streaming responses. If enabled, and supported by the
+	 * query implementation, records are passed to the processor as soon as they 
+	 * have been parsed from the response, instead of loading the full page into
+	 * memory first. Streaming is silently not applied (apart from a debug log message)
+	 * if any page pre- or post-processors have been configured, as these need access 
+	 * to the full page. Note that some functionality registers page pre-processors
+	 * implicitly, for example embeds that are pre-loaded for an entire page.
+	 * @param streamingResponses true to enable streaming responses, false otherwise
+	 * @return Self for chaining
+	 */
+	public T streamingResponses(boolean streamingResponses) {
+		this.streamingResponses = streamingResponses;
+		return _this();
+	}
+	
+	/**
+	 * Configure the number of pages to be loaded concurrently. If set to a value larger 
+	 * than 1, the first page is loaded normally to determine the total number of available
+	 * results, after which up to the given number of subsequent pages are loaded concurrently 
+	 * in the background. Records are still delivered to the processor in order, and the 
+	 * maximum number of results is honored. Prefetched pages are not streamed, even if 
+	 * {@link #streamingResponses(boolean)} is enabled. Prefetching is only applied if the 
+	 * query supports paging, and if the connection is configured to be multi-threaded.
+	 * @param prefetchPages Number of pages to be loaded concurrently
+	 * @return Self for chaining
+	 */
+	public T prefetchPages(int prefetchPages) {
+		this.prefetchPages = prefetchPages;
+		return _this();
+	}
+	
+	/**
+	 * Configure a fixed page size for this query. This is equivalent to calling
+	 * {@link #pageSizeStrategy(IPageSizeStrategy)} with {@link IPageSizeStrategy#fixed(int)}.
+	 * @param pageSize Number of records to be requested per page
+	 * @return Self for chaining
+	 */
+	public T pageSize(int pageSize) {
+		return pageSizeStrategy(IPageSizeStrategy.fixed(pageSize));
+	}
+	
+	/**
+	 * Configure the {@link IPageSizeStrategy} for determining the page size for this 
+	 * query, for example an {@link AdaptivePageSizeStrategy} instance. If not configured, 
+	 * the default page size defined by {@link PagingData} is used.
+	 * @param pageSizeStrategy for determining the page size
+	 * @return Self for chaining
+	 */
+	public T pageSizeStrategy(IPageSizeStrategy pageSizeStrategy) {
+		this.pageSizeStrategy = pageSizeStrategy;
+		return _this();
+	}
+	
 	@SuppressWarnings("unchecked")
 	protected T _this() {
 		return (T)this;
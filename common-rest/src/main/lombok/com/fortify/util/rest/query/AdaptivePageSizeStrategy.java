@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.query;
+
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+import com.fortify.util.rest.connection.UnsuccessfulResponseException;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * <p>{@link IPageSizeStrategy} implementation that adjusts the page size based on
+ * observed response times, response sizes and server errors, within the configured
+ * minimum and maximum page size:</p>
+ * <ul>
+ *  <li>If a page took longer to load than the configured target duration, the page 
+ *      size is reduced proportionally</li>
+ *  <li>If a full page took less than half of the target duration to load, the page 
+ *      size is doubled</li>
+ *  <li>If the response size is known, the page size is limited such that the expected
+ *      response size doesn't exceed the configured maximum number of bytes</li>
+ *  <li>If a page request fails with an HTTP status code that indicates that the request
+ *      was too large or caused a server error (413, 500), or with a socket timeout, the 
+ *      page size is halved and the page is retried</li>
+ * </ul>
+ * 
+ * <p>Gateway errors (502, 503, 504) are not handled by this class, as these are 
+ * retried by the connection's {@link com.fortify.util.rest.connection.RetryPolicy}; 
+ * retrying these again with a smaller page size would multiply the number of attempts.</p>
+ * 
+ * <p>Instances of this class may be shared between queries to the same endpoint, allowing 
+ * subsequent queries to start with a page size that has been learned by earlier queries.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@CommonsLog @Getter @Setter @Accessors(fluent=true)
+public class AdaptivePageSizeStrategy implements IPageSizeStrategy {
+	private static final Set<Integer> RETRYABLE_STATUS_CODES = new HashSet<>(Arrays.asList(413, 500));
+	private int initialPageSize = 50;
+	private int minPageSize = 10;
+	private int maxPageSize = 1000;
+	private long targetPageDurationMillis = 2000;
+	private long maxPageBytes = 10*1024*1024;
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) private int currentPageSize = -1;
+	
+	@Override
+	public synchronized int getPageSize() {
+		if ( currentPageSize<0 ) { currentPageSize = bound(initialPageSize); }
+		return currentPageSize;
+	}
+	
+	@Override
+	public synchronized void pageLoaded(int requestedPageSize, int records, long durationMillis, long bytes) {
+		if ( records<=0 ) { return; }
+		int newPageSize = getPageSize();
+		if ( durationMillis > targetPageDurationMillis ) {
+			newPageSize = (int)Math.min(newPageSize, records * targetPageDurationMillis / durationMillis);
+		} else if ( records>=requestedPageSize && durationMillis < targetPageDurationMillis/2 ) {
+			newPageSize = (int)Math.min((long)requestedPageSize*2, Integer.MAX_VALUE);
+		}
+		if ( bytes > 0 ) {
+			newPageSize = (int)Math.min(newPageSize, maxPageBytes * records / bytes);
+		}
+		updatePageSize(newPageSize);
+	}
+	
+	@Override
+	public synchronized boolean pageFailed(int requestedPageSize, RuntimeException e) {
+		if ( requestedPageSize<=minPageSize || !isRetryable(e) ) { return false; }
+		updatePageSize(Math.min(getPageSize(), requestedPageSize/2));
+		return true;
+	}
+	
+	/**
+	 * Determine whether the given {@link RuntimeException} indicates that the page
+	 * request may succeed when using a smaller page size.
+	 * @param e {@link RuntimeException} that occurred while loading a page
+	 * @return true if the page request should be retried with a smaller page size
+	 */
+	protected boolean isRetryable(RuntimeException e) {
+		return (e instanceof UnsuccessfulResponseException && RETRYABLE_STATUS_CODES.contains(((UnsuccessfulResponseException)e).getStatusCode()))
+				|| ExceptionUtils.indexOfType(e, SocketTimeoutException.class)>=0;
+	}
+	
+	private void updatePageSize(int newPageSize) {
+		newPageSize = bound(newPageSize);
+		if ( newPageSize!=currentPageSize ) {
+			log.debug("Changing page size from "+currentPageSize+" to "+newPageSize);
+			currentPageSize = newPageSize;
+		}
+	}
+	
+	private int bound(int pageSize) {
+		return Math.max(minPageSize, Math.min(maxPageSize, pageSize));
+	}
+}
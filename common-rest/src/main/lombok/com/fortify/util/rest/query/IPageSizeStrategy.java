@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.query;
+
+/**
+ * This interface allows for determining the page size used by {@link AbstractRestConnectionQuery}
+ * when loading paged results. Implementations are notified about every page that has been loaded,
+ * and about every page request that failed, allowing them to adjust the page size for subsequent 
+ * requests. As a single instance may be shared between queries that run concurrently, 
+ * implementations must be thread-safe.
+ * 
+ * @author Ruud Senden
+ *
+ */
+public interface IPageSizeStrategy {
+	/**
+	 * @return The page size to be used for the next page request
+	 */
+	public int getPageSize();
+	
+	/**
+	 * Notify this strategy that a page has been loaded. The default implementation does nothing.
+	 * @param requestedPageSize Page size that was requested
+	 * @param records Number of records returned for the page
+	 * @param durationMillis Time in milliseconds taken to load the page
+	 * @param bytes Size of the response in bytes, or -1 if unknown
+	 */
+	public default void pageLoaded(int requestedPageSize, int records, long durationMillis, long bytes) {}
+	
+	/**
+	 * Notify this strategy that a page request failed. If this method returns true, and no records 
+	 * of the failed page have been processed yet, the page will be retried using the page size 
+	 * returned by {@link #getPageSize()}. The default implementation returns false. 
+	 * @param requestedPageSize Page size that was requested
+	 * @param e Exception that occurred while loading the page
+	 * @return true if the page should be retried with a smaller page size, false otherwise
+	 */
+	public default boolean pageFailed(int requestedPageSize, RuntimeException e) { return false; }
+	
+	/**
+	 * @param pageSize Fixed page size
+	 * @return {@link IPageSizeStrategy} instance that always returns the given page size
+	 */
+	public static IPageSizeStrategy fixed(int pageSize) {
+		return () -> pageSize;
+	}
+}
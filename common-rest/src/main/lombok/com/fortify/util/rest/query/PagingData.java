@@ -44,6 +44,23 @@ public class PagingData {
 	private int pageSize = 50;
 	private int maxResults = -1;
 	private int nextPageSize = -1;
+	private IPageSizeStrategy pageSizeStrategy = null;
+	private boolean pagingStopped = false;
+	private int pagesLoaded = 0;
+	
+	/**
+	 * Package-private method for creating a {@link PagingData} instance
+	 * that describes a single page with the given start position and size, 
+	 * for example to be passed to 
+	 * {@link AbstractRestConnectionQuery#updateWebTargetWithPagingData(javax.ws.rs.client.WebTarget, PagingData)}
+	 * when prefetching pages.
+	 */
+	static PagingData forPage(int start, int size) {
+		PagingData result = new PagingData();
+		result.processedTotalBeforeFilters = start;
+		result.nextPageSize = size;
+		return result;
+	}
 	
 	/**
 	 * Get the start position for the next page to be loaded.
@@ -65,13 +82,39 @@ public class PagingData {
 		return nextPageSize;
 	}
 	
+	/**
+	 * Get the page size to be used for loading subsequent pages. If an
+	 * {@link IPageSizeStrategy} has been configured, the page size is
+	 * retrieved from that strategy, otherwise the page size configured
+	 * through {@link #pageSize(int)} is returned.
+	 * @return page size
+	 */
+	public int getPageSize() {
+		return pageSizeStrategy==null ? pageSize : pageSizeStrategy.getPageSize();
+	}
+	
 	/**
 	 * Indicate whether we've already loaded the maximum number of results
-	 * (if configured).
+	 * (if configured), or whether paging has been stopped through 
+	 * {@link #stopPaging()}.
 	 * @return true if maximum results is reached, false otherwise
 	 */
 	public boolean isMaxResultsReached() {
-		return maxResults != -1 && processedTotalAfterFilters >= maxResults;
+		return pagingStopped || (maxResults != -1 && processedTotalAfterFilters >= maxResults);
+	}
+	
+	/**
+	 * Stop paging; no further results will be processed and no further pages 
+	 * will be loaded. This is useful for queries that return results in a 
+	 * well-defined order, where page pre- or post-processors or 
+	 * {@link IJSONMapProcessor} implementations can determine that any remaining
+	 * results are no longer relevant, for example because they are older than a 
+	 * given date. Note that when called from a page pre-processor, none of the
+	 * results on the current page will be processed; page post-processors should
+	 * be used if the current page still needs to be processed. 
+	 */
+	public void stopPaging() {
+		this.pagingStopped = true;
 	}
 	
 	/**
@@ -98,17 +141,75 @@ public class PagingData {
 			// If we've loaded all required results, or the current page size was smaller than expected 
 			// (meaning no more results), return 0.
 			nextPageSize = 0;
-		} else if ( maxResults < 0 || processedTotalAfterFilters < processedTotalBeforeFilters ) {
+		} else {
+			nextPageSize = calculatePageSize();
+		}
+		processedCurrentPageBeforeFilters = 0;
+		return nextPageSize;
+	}
+	
+	private int calculatePageSize() {
+		int pageSize = getPageSize();
+		if ( maxResults < 0 || processedTotalAfterFilters < processedTotalBeforeFilters ) {
 			// If no max results is configured, or if results are being filtered, simply return configured page size
-			nextPageSize = pageSize;
+			return pageSize;
 		} else {
 			// For non-filtered results, return either configured page size, or remaining
 			// number of results to be loaded if this is smaller than configured page
 			// size.
-			nextPageSize = Math.min(pageSize, maxResults - processedTotalAfterFilters );
+			return Math.min(pageSize, maxResults - processedTotalAfterFilters );
+		}
+	}
+	
+	/**
+	 * Package-private method for overriding the size of the current page, for 
+	 * example if the current page was prefetched using a different page size than
+	 * the one calculated by {@link #calculateNextPageSize()}.
+	 */
+	void setNextPageSize(int nextPageSize) {
+		this.nextPageSize = nextPageSize;
+	}
+	
+	/**
+	 * Package-private method for updating the number of pages
+	 * that have been loaded.
+	 */
+	void incrementPagesLoaded() {
+		pagesLoaded++;
+	}
+	
+	/**
+	 * Package-private method for notifying the configured {@link IPageSizeStrategy}
+	 * (if any) that the current page has been loaded.
+	 * @param records number of records contained in the page
+	 * @param durationMillis time taken to load the page
+	 * @param bytes size of the response, or -1 if unknown
+	 */
+	void pageLoaded(int records, long durationMillis, long bytes) {
+		if ( pageSizeStrategy!=null && nextPageSize>0 ) {
+			pageSizeStrategy.pageLoaded(nextPageSize, records, durationMillis, bytes);
 		}
-		processedCurrentPageBeforeFilters = 0;
-		return nextPageSize;
+	}
+	
+	/**
+	 * Package-private method for notifying the configured {@link IPageSizeStrategy}
+	 * (if any) that loading the current page failed. If the strategy indicates that
+	 * the page should be retried, and no records from the current page have been 
+	 * processed yet, the size of the current page is updated and this method returns
+	 * true. Otherwise, this method returns false, in which case the caller should 
+	 * rethrow the given exception.
+	 * @param e {@link RuntimeException} that occurred while loading the current page
+	 * @return true if the current page should be retried, false otherwise
+	 */
+	boolean retryWithSmallerPageSize(RuntimeException e) {
+		if ( pageSizeStrategy==null || nextPageSize<=0 || processedCurrentPageBeforeFilters>0 
+				|| !pageSizeStrategy.pageFailed(nextPageSize, e) ) {
+			return false;
+		}
+		int newPageSize = calculatePageSize();
+		if ( newPageSize<=0 || newPageSize>=nextPageSize ) { return false; }
+		nextPageSize = newPageSize;
+		return true;
 	}
 	
 	/**
@@ -149,4 +250,16 @@ public class PagingData {
 		this.pageSize = pageSize;
 		return this;
 	}
+	
+	/**
+	 * Configure the {@link IPageSizeStrategy} for determining the page size.
+	 * If configured, this overrides the page size configured through 
+	 * {@link #pageSize(int)}.
+	 * @param pageSizeStrategy for determining the page size
+	 * @return Self for chaining
+	 */
+	public PagingData pageSizeStrategy(IPageSizeStrategy pageSizeStrategy) {
+		this.pageSizeStrategy = pageSizeStrategy;
+		return this;
+	}
 }
\ No newline at end of file
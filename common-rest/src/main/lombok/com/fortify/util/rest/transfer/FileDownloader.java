@@ -0,0 +1,379 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.transfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.fortify.util.rest.connection.IRestConnection;
+import com.fortify.util.rest.connection.ParallelTasks;
+import com.fortify.util.rest.connection.UnsuccessfulResponseException;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * <p>This class allows for downloading (potentially large) files using HTTP range requests 
+ * if supported by the server. The download is split into segments of the configured size,
+ * which are downloaded concurrently into a pre-allocated <code>&lt;target&gt;.part</code> file 
+ * using positional writes. Completed segments are recorded in a <code>&lt;target&gt;.download</code> 
+ * state file, allowing an interrupted download to be resumed by a subsequent invocation, as long 
+ * as the remote file (as identified by size and ETag or Last-Modified headers) hasn't changed. 
+ * Once all segments have been downloaded and the file size has been verified, the 
+ * <code>.part</code> file is moved to the target location.</p>
+ * 
+ * <p>The first request includes a <code>Range: bytes=0-0</code> header to determine whether 
+ * range requests are supported. If the server returns the full file instead of a partial response, 
+ * the response is simply written to the target file, similar to a regular single-stream download.
+ * If the server responds with status 416 (Range Not Satisfiable) and a <code>Content-Range: bytes *&#47;0</code>
+ * header, the remote file is empty, and an empty target file is written.</p>
+ * 
+ * <p>As some systems require a single-use token for every download request, requests are
+ * built through a {@link Supplier} that is invoked for every individual request. Segments
+ * are only downloaded concurrently if the connection is configured to be multi-threaded.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@CommonsLog @Getter @Setter @Accessors(fluent=true)
+public class FileDownloader {
+	private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)");
+	private static final Pattern EMPTY_CONTENT_RANGE = Pattern.compile("bytes\\s+\\*/0");
+	private static final String PART_SUFFIX = ".part";
+	private static final String STATE_SUFFIX = ".download";
+	@Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) private final IRestConnection conn;
+	private long segmentSize = 8*1024*1024;
+	private int parallelism = 4;
+	/** Number of times to retry a segment if reading the response fails; failed requests are 
+	 *  retried by the connection's RetryPolicy instead. */
+	private int segmentRetries = 2;
+	private ITransferProgressListener progressListener = null;
+	
+	public FileDownloader(IRestConnection conn) {
+		this.conn = conn;
+	}
+	
+	/**
+	 * Download the file provided by the requests returned by the given {@link Supplier} 
+	 * to the given target path.
+	 * @param requestSupplier {@link Supplier} that returns a new {@link Builder} for every request
+	 * @param target {@link Path} to which to write the downloaded file
+	 * @return Number of bytes in the downloaded file
+	 */
+	public long download(Supplier<Builder> requestSupplier, Path target) {
+		Path partFile = target.resolveSibling(target.getFileName()+PART_SUFFIX);
+		Path stateFile = target.resolveSibling(target.getFileName()+STATE_SUFFIX);
+		try {
+			Response response;
+			try {
+				response = executeRequest(requestSupplier, "bytes=0-0");
+			} catch ( UnsuccessfulResponseException e ) {
+				if ( isEmptyFile(e.getStatusCode(), e.getHeader("Content-Range")) ) {
+					return writeEmptyFile(partFile, stateFile, target);
+				}
+				throw e;
+			}
+			try {
+				if ( isEmptyFile(response.getStatus(), response.getHeaderString("Content-Range")) ) {
+					return writeEmptyFile(partFile, stateFile, target);
+				}
+				long[] range = getContentRange(response);
+				if ( response.getStatus()!=Status.PARTIAL_CONTENT.getStatusCode() || range==null || range[2]<0 ) {
+					log.debug("Server doesn't support range requests; using single-stream download for "+target);
+					Files.deleteIfExists(stateFile);
+					return downloadSingleStream(response, partFile, target);
+				}
+				DownloadState state = new DownloadState(range[2], segmentSize, 
+					response.getHeaderString(HttpHeaders.ETAG), response.getHeaderString(HttpHeaders.LAST_MODIFIED));
+				response.close();
+				return downloadSegments(requestSupplier, state, partFile, stateFile, target);
+			} finally {
+				response.close();
+			}
+		} catch ( IOException e ) {
+			throw new RuntimeException("Error downloading file to "+target, e);
+		}
+	}
+	
+	/**
+	 * Check whether the given status code and Content-Range header indicate that the 
+	 * remote file is empty, in which case the server cannot satisfy our initial range
+	 * request.
+	 */
+	private static boolean isEmptyFile(int status, String contentRange) {
+		return status==Status.REQUESTED_RANGE_NOT_SATISFIABLE.getStatusCode() 
+				&& contentRange!=null && EMPTY_CONTENT_RANGE.matcher(contentRange.trim()).matches();
+	}
+	
+	private long writeEmptyFile(Path partFile, Path stateFile, Path target) throws IOException {
+		log.debug("Remote file is empty; writing empty file "+target);
+		Files.write(partFile, new byte[0]);
+		move(partFile, target);
+		Files.deleteIfExists(stateFile);
+		return 0;
+	}
+	
+	private long downloadSingleStream(Response response, Path partFile, Path target) throws IOException {
+		long size = -1;
+		String contentLength = response.getHeaderString(HttpHeaders.CONTENT_LENGTH);
+		if ( contentLength!=null ) { size = Long.parseLong(contentLength); }
+		long result;
+		try ( InputStream is = new ProgressInputStream(response.readEntity(InputStream.class), size, progressListener) ) {
+			result = Files.copy(is, partFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+		if ( size>=0 && result!=size ) {
+			throw new IOException("Expected "+size+" bytes, but received "+result+" bytes");
+		}
+		move(partFile, target);
+		return result;
+	}
+	
+	private long downloadSegments(Supplier<Builder> requestSupplier, DownloadState state, Path partFile, Path stateFile, Path target) throws IOException {
+		DownloadState previousState = Files.exists(partFile) ? DownloadState.load(stateFile) : null;
+		if ( previousState!=null && previousState.isSameFile(state) ) {
+			log.info("Resuming download of "+target+"; "+previousState.completedSegments.cardinality()+" of "+state.getSegmentCount()+" segments already downloaded");
+			state = previousState;
+		} else {
+			Files.deleteIfExists(partFile);
+		}
+		try ( FileChannel channel = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE) ) {
+			if ( channel.size() < state.totalSize && state.totalSize>0 ) {
+				// Pre-allocate the file by writing its last byte; this byte will be overwritten by the last segment
+				channel.write(ByteBuffer.allocate(1), state.totalSize-1);
+			}
+			state.save(stateFile);
+			downloadSegments(requestSupplier, state, channel, stateFile);
+			if ( channel.size()!=state.totalSize ) {
+				throw new IOException("Expected file size "+state.totalSize+", but downloaded file size is "+channel.size());
+			}
+			channel.force(false);
+		}
+		move(partFile, target);
+		Files.deleteIfExists(stateFile);
+		return state.totalSize;
+	}
+	
+	private void downloadSegments(Supplier<Builder> requestSupplier, DownloadState state, FileChannel channel, Path stateFile) {
+		List<Integer> remainingSegments = new ArrayList<>();
+		for ( int i = 0 ; i < state.getSegmentCount() ; i++ ) {
+			if ( !state.isCompleted(i) ) { remainingSegments.add(i); }
+		}
+		AtomicLong bytesTransferred = new AtomicLong(state.getCompletedBytes());
+		ParallelTasks.forEach(conn, parallelism, remainingSegments, segment -> {
+			downloadSegment(requestSupplier, state, segment, channel, bytesTransferred);
+			state.setCompleted(segment, stateFile);
+		});
+	}
+	
+	private void downloadSegment(Supplier<Builder> requestSupplier, DownloadState state, int segment, FileChannel channel, AtomicLong bytesTransferred) {
+		long start = segment*state.segmentSize;
+		long end = Math.min(start+state.segmentSize, state.totalSize)-1;
+		for ( int attempt = 0 ; ; attempt++ ) {
+			long written = 0;
+			Response response = null;
+			try {
+				// Failed requests have already been retried by the connection, so we let these fail immediately
+				try {
+					response = executeRequest(requestSupplier, "bytes="+start+"-"+end);
+				} catch ( RuntimeException e ) {
+					throw new IllegalStateException("Error requesting range "+start+"-"+end, e);
+				}
+				long[] range = getContentRange(response);
+				if ( response.getStatus()!=Status.PARTIAL_CONTENT.getStatusCode() || range==null || range[0]!=start || range[1]!=end ) {
+					throw new IllegalStateException("Unexpected response for range "+start+"-"+end+": "+response.getStatus()+", "+response.getHeaderString("Content-Range"));
+				}
+				try ( InputStream is = response.readEntity(InputStream.class) ) {
+					byte[] buffer = new byte[64*1024];
+					int read;
+					while ( written<=end-start && (read=is.read(buffer))!=-1 ) {
+						ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, (int)Math.min(read, end-start+1-written));
+						while ( byteBuffer.hasRemaining() ) {
+							written += channel.write(byteBuffer, start+written);
+						}
+						reportProgress(bytesTransferred.addAndGet(byteBuffer.limit()), state.totalSize);
+					}
+				}
+				if ( written!=end-start+1 ) {
+					throw new IOException("Expected "+(end-start+1)+" bytes for range "+start+"-"+end+", but received "+written+" bytes");
+				}
+				return;
+			} catch ( IOException | RuntimeException e ) {
+				bytesTransferred.addAndGet(-written);
+				if ( attempt>=segmentRetries || e instanceof IllegalStateException ) {
+					throw new RuntimeException("Error downloading range "+start+"-"+end, e);
+				}
+				log.debug("Error downloading range "+start+"-"+end+", retrying", e);
+			} finally {
+				if ( response!=null ) { response.close(); }
+			}
+		}
+	}
+	
+	private void reportProgress(long bytesTransferred, long totalBytes) {
+		if ( progressListener!=null ) { progressListener.progress(bytesTransferred, totalBytes); }
+	}
+	
+	private Response executeRequest(Supplier<Builder> requestSupplier, String range) {
+		return conn.executeRequest(HttpMethod.GET, requestSupplier.get().header("Range", range), null, Response.class);
+	}
+	
+	/**
+	 * Parse the Content-Range header from the given response.
+	 * @return Array containing start, end and total size (-1 if unknown), or null if not available
+	 */
+	private static long[] getContentRange(Response response) {
+		String contentRange = response.getHeaderString("Content-Range");
+		Matcher matcher = contentRange==null ? null : CONTENT_RANGE.matcher(contentRange.trim());
+		if ( matcher==null || !matcher.matches() ) { return null; }
+		return new long[] {
+			Long.parseLong(matcher.group(1)), 
+			Long.parseLong(matcher.group(2)), 
+			"*".equals(matcher.group(3)) ? -1 : Long.parseLong(matcher.group(3))
+		};
+	}
+	
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch ( AtomicMoveNotSupportedException e ) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	/**
+	 * This class holds the state of a segmented download, and allows for 
+	 * loading and saving this state from/to a properties file.
+	 */
+	private static final class DownloadState {
+		private final long totalSize;
+		private final long segmentSize;
+		private final String eTag;
+		private final String lastModified;
+		private final BitSet completedSegments = new BitSet();
+		
+		private DownloadState(long totalSize, long segmentSize, String eTag, String lastModified) {
+			this.totalSize = totalSize;
+			this.segmentSize = Math.max(1, segmentSize);
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+		}
+		
+		private int getSegmentCount() {
+			return (int)((totalSize+segmentSize-1)/segmentSize);
+		}
+		
+		private synchronized boolean isCompleted(int segment) {
+			return completedSegments.get(segment);
+		}
+		
+		private synchronized long getCompletedBytes() {
+			long result = 0;
+			for ( int i = completedSegments.nextSetBit(0) ; i >= 0 ; i = completedSegments.nextSetBit(i+1) ) {
+				result += Math.min(segmentSize, totalSize-i*segmentSize);
+			}
+			return result;
+		}
+		
+		private synchronized void setCompleted(int segment, Path stateFile) {
+			completedSegments.set(segment);
+			try {
+				save(stateFile);
+			} catch (IOException e) {
+				log.warn("Error saving download state to "+stateFile, e);
+			}
+		}
+		
+		/**
+		 * Check whether the given state describes the same remote file. If neither
+		 * ETag nor Last-Modified header are available, we cannot verify that the
+		 * remote file hasn't changed, so we don't resume the download.
+		 */
+		private boolean isSameFile(DownloadState other) {
+			return totalSize==other.totalSize
+				&& (eTag!=null || lastModified!=null)
+				&& Objects.equals(eTag, other.eTag)
+				&& Objects.equals(lastModified, other.lastModified);
+		}
+		
+		private synchronized void save(Path stateFile) throws IOException {
+			Properties properties = new Properties();
+			properties.setProperty("totalSize", ""+totalSize);
+			properties.setProperty("segmentSize", ""+segmentSize);
+			if ( eTag!=null ) { properties.setProperty("eTag", eTag); }
+			if ( lastModified!=null ) { properties.setProperty("lastModified", lastModified); }
+			properties.setProperty("completedSegments", completedSegments.toString().replaceAll("[{} ]", ""));
+			Path tmpFile = stateFile.resolveSibling(stateFile.getFileName()+".tmp");
+			try ( OutputStream os = Files.newOutputStream(tmpFile) ) {
+				properties.store(os, "Download state");
+			}
+			move(tmpFile, stateFile);
+		}
+		
+		private static DownloadState load(Path stateFile) {
+			if ( !Files.exists(stateFile) ) { return null; }
+			try ( InputStream is = Files.newInputStream(stateFile) ) {
+				Properties properties = new Properties();
+				properties.load(is);
+				DownloadState result = new DownloadState(
+						Long.parseLong(properties.getProperty("totalSize")), 
+						Long.parseLong(properties.getProperty("segmentSize")), 
+						properties.getProperty("eTag"), properties.getProperty("lastModified"));
+				for ( String segment : properties.getProperty("completedSegments", "").split(",") ) {
+					if ( !segment.isEmpty() ) { result.completedSegments.set(Integer.parseInt(segment)); }
+				}
+				return result;
+			} catch ( IOException | RuntimeException e ) {
+				log.warn("Ignoring invalid download state file "+stateFile, e);
+				return null;
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.transfer;
+
+/**
+ * Functional interface for receiving progress updates while uploading 
+ * or downloading files. Implementations may be invoked very frequently,
+ * so they should be cheap or do their own throttling, and may be invoked
+ * from multiple threads if a transfer uses concurrent connections.
+ * 
+ * @author Ruud Senden
+ *
+ */
+@FunctionalInterface
+public interface ITransferProgressListener {
+	/**
+	 * Notify this listener about the progress of a transfer.
+	 * @param bytesTransferred Total number of bytes transferred so far
+	 * @param totalBytes Total number of bytes to be transferred, or -1 if unknown
+	 */
+	public void progress(long bytesTransferred, long totalBytes);
+}
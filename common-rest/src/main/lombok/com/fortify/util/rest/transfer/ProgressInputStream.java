@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.transfer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link FilterInputStream} implementation that reports the number of bytes read
+ * to an {@link ITransferProgressListener}, for example to report upload progress
+ * when sending a streaming request entity.
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class ProgressInputStream extends FilterInputStream {
+	private final long totalBytes;
+	private final ITransferProgressListener listener;
+	private long bytesTransferred = 0;
+	
+	/**
+	 * Create a new {@link ProgressInputStream} instance.
+	 * @param in {@link InputStream} to read from
+	 * @param totalBytes Total number of bytes expected to be read, or -1 if unknown
+	 * @param listener {@link ITransferProgressListener} to be notified; may be null
+	 */
+	public ProgressInputStream(InputStream in, long totalBytes, ITransferProgressListener listener) {
+		super(in);
+		this.totalBytes = totalBytes;
+		this.listener = listener;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		int result = super.read();
+		if ( result!=-1 ) { update(1); }
+		return result;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int result = super.read(b, off, len);
+		if ( result>0 ) { update(result); }
+		return result;
+	}
+	
+	@Override
+	public long skip(long n) throws IOException {
+		long result = super.skip(n);
+		if ( result>0 ) { update(result); }
+		return result;
+	}
+	
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+	
+	/**
+	 * @return Number of bytes read so far
+	 */
+	public long getBytesTransferred() {
+		return bytesTransferred;
+	}
+	
+	private void update(long count) {
+		bytesTransferred += count;
+		if ( listener!=null ) { listener.progress(bytesTransferred, totalBytes); }
+	}
+}
@@ -0,0 +1,76 @@
+package com.fortify.util.rest.connection;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.client.WebTarget;
+
+import org.junit.jupiter.api.Test;
+
+import com.fortify.util.rest.metrics.IRestMetricsListener;
+
+public class IRestConnectionTest {
+	/**
+	 * Connection that only implements the abstract {@link IRestConnection} methods,
+	 * like implementations written against the original version of the interface.
+	 */
+	private static final class MinimalRestConnection implements IRestConnection {
+		@Override public <T> T executeRequest(String httpMethod, Builder builder, Entity<?> entity, Class<T> returnType) { return null; }
+		@Override public <T> T executeRequest(String httpMethod, WebTarget webResource, Class<T> returnType) { return null; }
+		@Override public <T> T executeRequest(String httpMethod, WebTarget webResource, Entity<?> entity, Class<T> returnType) { return null; }
+		@Override public URI getBaseUrl() { return URI.create("http://localhost/"); }
+		@Override public WebTarget getBaseResource() { return null; }
+		@Override public WebTarget getResource(String url) { return null; }
+		@Override public String getConnectionId() { return "minimal"; }
+		@Override public void close() {}
+	}
+	
+	@Test public void testDefaults() {
+		IRestConnection conn = new MinimalRestConnection();
+		assertFalse(conn.isMultiThreaded());
+		assertSame(IRestMetricsListener.NOOP, conn.getMetricsListener());
+		assertThrows(UnsupportedOperationException.class, conn::getExecutor);
+		assertThrows(UnsupportedOperationException.class, conn::getConnectionPoolStats);
+		assertThrows(UnsupportedOperationException.class, () -> conn.executeRequestAsync(HttpMethod.GET, (WebTarget)null, String.class));
+	}
+	
+	@Test public void testParallelTasksRunOnCallingThread() {
+		List<Thread> threads = new ArrayList<>();
+		ParallelTasks.forEach(new MinimalRestConnection(), 4, Arrays.asList(1, 2, 3), i -> threads.add(Thread.currentThread()));
+		assertEquals(Arrays.asList(Thread.currentThread(), Thread.currentThread(), Thread.currentThread()), threads);
+	}
+}
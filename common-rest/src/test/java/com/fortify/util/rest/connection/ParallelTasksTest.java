@@ -0,0 +1,125 @@
+package com.fortify.util.rest.connection;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ParallelTasksTest {
+	private ExecutorService executor;
+	
+	@BeforeEach public void createExecutor() {
+		executor = Executors.newFixedThreadPool(2);
+	}
+	
+	@AfterEach public void shutdownExecutor() {
+		executor.shutdownNow();
+	}
+	
+	@Test public void testForEachProcessesAllItems() {
+		AtomicInteger sum = new AtomicInteger();
+		ParallelTasks.forEach(executor, 4, Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), sum::addAndGet);
+		assertEquals(55, sum.get());
+	}
+	
+	@Test public void testForEachWithoutExecutor() {
+		Thread caller = Thread.currentThread();
+		AtomicInteger count = new AtomicInteger();
+		ParallelTasks.forEach((ExecutorService)null, 4, Arrays.asList(1, 2, 3), i -> {
+			assertSame(caller, Thread.currentThread());
+			count.incrementAndGet();
+		});
+		assertEquals(3, count.get());
+	}
+	
+	@Test public void testNestedForEachOnSaturatedExecutorDoesNotDeadlock() {
+		// Every outer item runs a nested forEach; with only 2 executor threads, all executor 
+		// threads may be blocked in a nested invocation while nested workers are still queued.
+		AtomicInteger count = new AtomicInteger();
+		List<Integer> items = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8);
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> 
+			ParallelTasks.forEach(executor, 4, items, outer -> 
+				ParallelTasks.forEach(executor, 4, items, inner -> {
+					sleep(5);
+					count.incrementAndGet();
+				})
+			)
+		);
+		assertEquals(items.size()*items.size(), count.get());
+	}
+	
+	@Test public void testForEachRethrowsFirstExceptionAndStopsProcessing() {
+		AtomicInteger count = new AtomicInteger();
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> 
+			ParallelTasks.forEach((ExecutorService)null, 1, Arrays.asList(1, 2, 3), i -> {
+				count.incrementAndGet();
+				if ( i==2 ) { throw new IllegalStateException("Item "+i); }
+			}));
+		assertEquals("Item 2", e.getMessage());
+		assertEquals(2, count.get());
+	}
+	
+	@Test public void testJoinRunsUnstartedTaskOnCallingThread() {
+		ExecutorService blocked = Executors.newSingleThreadExecutor();
+		try {
+			blocked.execute(() -> sleep(2000));
+			Thread caller = Thread.currentThread();
+			ParallelTasks.Task<Thread> task = ParallelTasks.submit(blocked, Thread::currentThread);
+			assertSame(caller, task.join());
+			assertTrue(task.isStarted());
+			assertFalse(task.cancel());
+		} finally {
+			blocked.shutdownNow();
+		}
+	}
+	
+	@Test public void testJoinRethrowsTaskException() {
+		ParallelTasks.Task<Object> task = ParallelTasks.submit(executor, () -> { throw new IllegalArgumentException("test"); });
+		assertEquals("test", assertThrows(IllegalArgumentException.class, task::join).getMessage());
+	}
+	
+	private static final void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package com.fortify.util.rest.connection;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class PayloadLoggingFilterTest {
+	private static final String RESPONSE = "0123456789abcdefghijklmnopqrstuvwxyz";
+	private final List<String> logged = Collections.synchronizedList(new ArrayList<>());
+	private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+	private final PayloadLoggingFilter filter = new PayloadLoggingFilter(null, logged::add);
+	private final StreamProbe before = new BeforeProbe();
+	private final StreamProbe after = new AfterProbe();
+	private HttpServer server;
+	private Client client;
+	
+	@BeforeEach public void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+		// Response filters with higher priority values are executed first. Jersey
+		// ignores multiple registrations of the same class, so the probes need to
+		// be instances of different classes.
+		client = ClientBuilder.newClient()
+				.register(before, 10000)
+				.register(filter)
+				.register(after, 1);
+	}
+	
+	@AfterEach public void stop() {
+		client.close();
+		server.stop(0);
+	}
+	
+	@Test public void testDisabledLeavesStreamsUnwrapped() {
+		filter.setConfig(new PayloadLoggingConfig());
+		assertEquals(RESPONSE, get("/items/1"));
+		assertEquals(RESPONSE, post("/items", "request"));
+		assertTrue(logged.isEmpty());
+		assertSame(before.stream, after.stream);
+		assertEquals("request", received.get(1));
+	}
+	
+	@Test public void testSamplingCountsEligibleRequestsOnly() {
+		PayloadLoggingConfig config = PayloadLoggingConfig.all();
+		config.setSampleRate(2);
+		config.setEndpointPattern("/items/");
+		filter.setConfig(config);
+		for ( String path : new String[] {"/other", "/items/1", "/other", "/items/2", "/items/3", "/other", "/items/4"} ) {
+			assertEquals(RESPONSE, get(path));
+		}
+		List<String> loggedRequests = new ArrayList<>();
+		for ( String message : logged ) {
+			if ( message.contains(" > GET ") ) { loggedRequests.add(message.split("\n")[0]); }
+		}
+		assertEquals(2, loggedRequests.size());
+		assertTrue(loggedRequests.get(0).startsWith("2 > GET ") && loggedRequests.get(0).endsWith("/items/2"));
+		assertTrue(loggedRequests.get(1).startsWith("4 > GET ") && loggedRequests.get(1).endsWith("/items/4"));
+	}
+	
+	@Test public void testEntitiesAreTruncated() {
+		PayloadLoggingConfig config = PayloadLoggingConfig.all();
+		config.setMaxEntitySize(10);
+		filter.setConfig(config);
+		String request = "request-entity-longer-than-10";
+		assertEquals(RESPONSE, post("/items", request));
+		assertEquals(request, received.get(0));
+		assertTrue(logged.contains("1 > request-en...more..."), logged::toString);
+		assertTrue(logged.stream().anyMatch(m -> m.startsWith("1 < 200") && m.endsWith("\n1 < 0123456789...more...")), logged::toString);
+	}
+	
+	@Test public void testEntitiesWithinLimitAreNotTruncated() {
+		filter.setConfig(PayloadLoggingConfig.all());
+		assertEquals(RESPONSE, post("/items", "request"));
+		assertTrue(logged.contains("1 > request"), logged::toString);
+		assertTrue(logged.stream().anyMatch(m -> m.endsWith("\n1 < "+RESPONSE)), logged::toString);
+	}
+	
+	@Test public void testMarkSupportedResponseStreamIsNotRewrapped() {
+		before.wrapper = BufferedInputStream::new;
+		PayloadLoggingConfig config = PayloadLoggingConfig.all();
+		config.setMaxEntitySize(10);
+		filter.setConfig(config);
+		assertEquals(RESPONSE, get("/items/1"));
+		assertTrue(before.stream.markSupported());
+		assertSame(before.stream, after.stream);
+	}
+	
+	@Test public void testResponseStreamWithoutMarkSupportIsWrapped() {
+		before.wrapper = is -> new FilterInputStream(is) {
+			@Override public boolean markSupported() { return false; }
+		};
+		PayloadLoggingConfig config = PayloadLoggingConfig.all();
+		config.setMaxEntitySize(10);
+		filter.setConfig(config);
+		assertEquals(RESPONSE, get("/items/1"));
+		assertFalse(before.stream.markSupported());
+		assertNotSame(before.stream, after.stream);
+		assertTrue(after.stream.markSupported());
+	}
+	
+	private String get(String path) {
+		return client.target("http://localhost:"+server.getAddress().getPort()).path(path).request().get(String.class);
+	}
+	
+	private String post(String path, String entity) {
+		return client.target("http://localhost:"+server.getAddress().getPort()).path(path).request()
+				.post(Entity.entity(entity, MediaType.TEXT_PLAIN), String.class);
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		try ( InputStream is = exchange.getRequestBody() ) {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int read;
+			while ( (read=is.read(buffer))!=-1 ) { body.write(buffer, 0, read); }
+			received.add(new String(body.toByteArray(), StandardCharsets.UTF_8));
+		}
+		byte[] bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "text/plain");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try ( OutputStream os = exchange.getResponseBody() ) {
+			os.write(bytes);
+		}
+	}
+	
+	/**
+	 * Response filter that records the current entity stream, optionally
+	 * wrapping it first.
+	 */
+	private static abstract class StreamProbe implements ClientResponseFilter {
+		private volatile UnaryOperator<InputStream> wrapper = null;
+		private volatile InputStream stream;
+		
+		@Override
+		public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+			if ( wrapper!=null ) { responseContext.setEntityStream(wrapper.apply(responseContext.getEntityStream())); }
+			stream = responseContext.getEntityStream();
+		}
+	}
+	
+	private static final class BeforeProbe extends StreamProbe {}
+	private static final class AfterProbe extends StreamProbe {}
+}
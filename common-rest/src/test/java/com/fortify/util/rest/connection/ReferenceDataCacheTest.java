@@ -0,0 +1,95 @@
+package com.fortify.util.rest.connection;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class ReferenceDataCacheTest {
+	@Test public void testSingleFlight() throws Exception {
+		ReferenceDataCache cache = new ReferenceDataCache(-1);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			results.add(executor.submit(() -> cache.get("key", () -> {
+				started.countDown();
+				await(release);
+				return "value"+loads.incrementAndGet();
+			})));
+			started.await();
+			for ( int i = 0 ; i < 7 ; i++ ) {
+				results.add(executor.submit(() -> cache.get("key", () -> "value"+loads.incrementAndGet())));
+			}
+			release.countDown();
+			for ( Future<String> result : results ) {
+				assertEquals("value1", result.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getStats().getMisses());
+		assertEquals(7, cache.getStats().getHits());
+	}
+	
+	@Test public void testExpiryAndInvalidation() throws Exception {
+		ReferenceDataCache cache = new ReferenceDataCache(-1);
+		AtomicInteger loads = new AtomicInteger();
+		assertEquals(Integer.valueOf(1), cache.get("key", loads::incrementAndGet));
+		assertEquals(Integer.valueOf(1), cache.get("key", loads::incrementAndGet));
+		cache.invalidate("key");
+		assertEquals(Integer.valueOf(2), cache.get("key", 0, loads::incrementAndGet));
+		Thread.sleep(5);
+		assertEquals(Integer.valueOf(3), cache.get("key", loads::incrementAndGet));
+		assertEquals(Integer.valueOf(3), cache.get("key", loads::incrementAndGet));
+	}
+	
+	@Test public void testLoadFailureNotCached() {
+		ReferenceDataCache cache = new ReferenceDataCache(-1);
+		assertThrows(IllegalStateException.class, () -> cache.get("key", () -> { throw new IllegalStateException(); }));
+		assertEquals("value", cache.get("key", () -> "value"));
+		assertEquals(1, cache.getStats().getLoadFailures());
+	}
+	
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package com.fortify.util.rest.connection;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+
+import org.junit.jupiter.api.Test;
+
+import com.fortify.util.rest.metrics.CompositeRestMetricsListener;
+import com.fortify.util.rest.metrics.HistogramRestMetricsListener;
+import com.fortify.util.rest.metrics.HistogramRestMetricsListener.Stats;
+import com.fortify.util.rest.metrics.IRestMetricsListener;
+import com.fortify.util.rest.metrics.RestQueryMetrics;
+import com.fortify.util.rest.metrics.RestRequestMetrics;
+import com.sun.net.httpserver.HttpServer;
+
+public class RestMetricsTest {
+	@Test public void testEndpointTemplate() {
+		assertEquals("/api/v1/projectVersions/{id}/issues/{id}", 
+				RestRequestMetrics.getEndpointTemplate(URI.create("http://host/api/v1/projectVersions/123/issues/0a1b2c3d-4e5f-6a7b-8c9d-0e1f2a3b4c5d?q=x")));
+		assertEquals("/api/v1/artifacts/{id}/", 
+				RestRequestMetrics.getEndpointTemplate(URI.create("http://host/api/v1/artifacts/0123456789abcdef0123/")));
+		assertEquals("/api/v1/projects/name-123", 
+				RestRequestMetrics.getEndpointTemplate(URI.create("http://host/api/v1/projects/name-123")));
+		assertEquals("/", RestRequestMetrics.getEndpointTemplate(URI.create("http://host")));
+		assertEquals("/", RestRequestMetrics.getEndpointTemplate(null));
+	}
+	
+	@Test public void testHistogramBucketing() {
+		HistogramRestMetricsListener listener = new HistogramRestMetricsListener();
+		for ( int i = 0 ; i < 90 ; i++ ) { listener.requestCompleted(request(200, 1)); }
+		for ( int i = 0 ; i < 9 ; i++ ) { listener.requestCompleted(request(500, 100)); }
+		listener.requestCompleted(request(-1, 100));
+		
+		Stats stats = listener.getRequestStats().get("GET /api/v1/items/{id}");
+		assertEquals(100, stats.getCount());
+		assertEquals(10, stats.getFailures());
+		assertEquals(1090.0, stats.getTotalMillis(), 0.001);
+		assertEquals(100.0, stats.getMaxMillis(), 0.001);
+		// 1ms falls into the 512-1024 microseconds bucket
+		assertEquals(1.024, stats.getP50Millis(), 0.001);
+		assertEquals(1.024, stats.getP90Millis(), 0.001);
+		// Upper bound for the 100ms bucket is capped at the maximum recorded value
+		assertEquals(100.0, stats.getP99Millis(), 0.001);
+		assertEquals(Long.valueOf(90), stats.getStatusCodes().get(200));
+		assertEquals(Long.valueOf(9), stats.getStatusCodes().get(500));
+		assertEquals(Long.valueOf(1), stats.getStatusCodes().get(-1));
+		
+		listener.reset();
+		assertTrue(listener.getRequestStats().isEmpty());
+	}
+	
+	@Test public void testCompositeListenerIsolatesFailingListeners() {
+		List<String> events = Collections.synchronizedList(new ArrayList<>());
+		IRestMetricsListener failing = new IRestMetricsListener() {
+			@Override public void requestCompleted(RestRequestMetrics metrics) { throw new IllegalStateException(); }
+			@Override public void requestRetried(String httpMethod, int statusCode, long delayMillis) { throw new IllegalStateException(); }
+			@Override public void connectionLeased(long waitNanos) { throw new IllegalStateException(); }
+			@Override public void queryCompleted(RestQueryMetrics metrics) { throw new IllegalStateException(); }
+			@Override public void embedCompleted(String propertyName, int records, long durationNanos, boolean successful) { throw new IllegalStateException(); }
+		};
+		IRestMetricsListener recording = new IRestMetricsListener() {
+			@Override public void requestCompleted(RestRequestMetrics metrics) { events.add("request"); }
+			@Override public void requestRetried(String httpMethod, int statusCode, long delayMillis) { events.add("retry"); }
+			@Override public void connectionLeased(long waitNanos) { events.add("lease"); }
+			@Override public void queryCompleted(RestQueryMetrics metrics) { events.add("query"); }
+			@Override public void embedCompleted(String propertyName, int records, long durationNanos, boolean successful) { events.add("embed"); }
+		};
+		IRestMetricsListener composite = new CompositeRestMetricsListener(failing, recording, failing);
+		composite.requestCompleted(request(200, 1));
+		composite.requestRetried(HttpMethod.GET, 503, 10);
+		composite.connectionLeased(1000);
+		composite.queryCompleted(new RestQueryMetrics("/api/v1/items", 1, 10, 10, 1000, true));
+		composite.embedCompleted("details", 10, 1000, true);
+		assertEquals(5, events.size());
+		assertEquals(IRestMetricsListener.NOOP, CompositeRestMetricsListener.of(null));
+		assertEquals(IRestMetricsListener.NOOP, CompositeRestMetricsListener.of(Collections.emptyList()));
+	}
+	
+	@Test public void testFilterReportsCompletedRequests() throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", exchange -> {
+			byte[] bytes = "{}".getBytes();
+			exchange.getRequestBody().close();
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(exchange.getRequestURI().getPath().endsWith("/missing") ? 404 : 200, bytes.length);
+			try ( OutputStream os = exchange.getResponseBody() ) { os.write(bytes); }
+		});
+		server.start();
+		List<RestRequestMetrics> requests = Collections.synchronizedList(new ArrayList<>());
+		try ( RestConnection conn = RestConnection.builder().baseUrl("http://localhost:"+server.getAddress().getPort())
+				.retryPolicy(RetryPolicy.none()).metricsListener(recording(requests)).build() ) {
+			conn.executeRequest(HttpMethod.POST, conn.getBaseResource().path("/api/v1/items/42"), 
+					Entity.entity("{\"name\":\"x\"}", MediaType.APPLICATION_JSON), String.class);
+			assertThrows(UnsuccessfulResponseException.class, 
+					() -> conn.executeRequest(HttpMethod.GET, conn.getBaseResource().path("/api/v1/missing"), String.class));
+		} finally {
+			server.stop(0);
+		}
+		assertEquals(2, requests.size());
+		assertEquals(HttpMethod.POST, requests.get(0).getHttpMethod());
+		assertEquals("/api/v1/items/{id}", requests.get(0).getEndpointTemplate());
+		assertEquals(200, requests.get(0).getStatusCode());
+		assertEquals(12, requests.get(0).getRequestBytes());
+		assertEquals(2, requests.get(0).getResponseBytes());
+		assertEquals(404, requests.get(1).getStatusCode());
+	}
+	
+	@Test public void testFilterReportsConnectionErrors() throws IOException {
+		int port;
+		try ( ServerSocket socket = new ServerSocket(0) ) { port = socket.getLocalPort(); }
+		List<RestRequestMetrics> requests = Collections.synchronizedList(new ArrayList<>());
+		try ( RestConnection conn = RestConnection.builder().baseUrl("http://localhost:"+port)
+				.retryPolicy(RetryPolicy.none()).metricsListener(recording(requests)).build() ) {
+			assertThrows(RuntimeException.class, 
+					() -> conn.executeRequest(HttpMethod.GET, conn.getBaseResource().path("/api/v1/items/1"), String.class));
+		}
+		assertEquals(1, requests.size());
+		assertEquals(HttpMethod.GET, requests.get(0).getHttpMethod());
+		assertEquals("/api/v1/items/{id}", requests.get(0).getEndpointTemplate());
+		assertEquals(-1, requests.get(0).getStatusCode());
+		assertEquals(-1, requests.get(0).getResponseBytes());
+	}
+	
+	private static IRestMetricsListener recording(List<RestRequestMetrics> requests) {
+		return new IRestMetricsListener() {
+			@Override public void requestCompleted(RestRequestMetrics metrics) { requests.add(metrics); }
+		};
+	}
+	
+	private static RestRequestMetrics request(int statusCode, long durationMillis) {
+		return new RestRequestMetrics(HttpMethod.GET, "/api/v1/items/{id}", statusCode, TimeUnit.MILLISECONDS.toNanos(durationMillis), 0, -1);
+	}
+}
@@ -0,0 +1,186 @@
+package com.fortify.util.rest.connection;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.glassfish.jersey.media.multipart.BodyPart;
+import org.glassfish.jersey.media.multipart.FormDataMultiPart;
+import org.glassfish.jersey.media.multipart.MultiPart;
+import org.glassfish.jersey.media.multipart.file.StreamDataBodyPart;
+import org.junit.jupiter.api.Test;
+
+public class RetryHandlerTest {
+	@Test public void testRetryIdempotentRequest() {
+		RetryHandler handler = new RetryHandler(policy());
+		AtomicInteger attempts = new AtomicInteger();
+		assertEquals("ok", handler.execute(HttpMethod.GET, null, failTimes(2, 503, attempts)));
+		assertEquals(3, attempts.get());
+		assertEquals(2, handler.getStats().getStatusRetries());
+	}
+	
+	@Test public void testMaxRetries() {
+		RetryHandler handler = new RetryHandler(policy());
+		AtomicInteger attempts = new AtomicInteger();
+		assertThrows(UnsuccessfulResponseException.class, () -> handler.execute(HttpMethod.GET, null, failTimes(10, 503, attempts)));
+		assertEquals(4, attempts.get());
+	}
+	
+	@Test public void testNonIdempotentRequest() {
+		RetryHandler handler = new RetryHandler(policy());
+		AtomicInteger attempts = new AtomicInteger();
+		assertThrows(UnsuccessfulResponseException.class, () -> handler.execute(HttpMethod.POST, null, failTimes(1, 503, attempts)));
+		assertEquals(1, attempts.get());
+		attempts.set(0);
+		assertEquals("ok", handler.execute(HttpMethod.POST, null, failTimes(1, 429, attempts)));
+		assertEquals(2, attempts.get());
+		attempts.set(0);
+		assertThrows(UnsuccessfulResponseException.class, () -> handler.execute(HttpMethod.GET, null, failTimes(1, 404, attempts)));
+		assertEquals(1, attempts.get());
+	}
+	
+	@Test public void testConnectionErrors() {
+		RetryHandler handler = new RetryHandler(policy());
+		AtomicInteger attempts = new AtomicInteger();
+		assertEquals("ok", handler.execute(HttpMethod.POST, null, () -> {
+			if ( attempts.incrementAndGet()==1 ) { throw new ProcessingException(new ConnectException("Connection refused")); }
+			return "ok";
+		}));
+		assertEquals(2, attempts.get());
+		assertEquals(1, handler.getStats().getConnectionErrorRetries());
+	}
+	
+	@Test public void testRetryBudget() {
+		RetryPolicy policy = policy();
+		policy.setRetryBudgetMaxTokens(1);
+		policy.setRetryBudgetRatio(0);
+		RetryHandler handler = new RetryHandler(policy);
+		AtomicInteger attempts = new AtomicInteger();
+		assertThrows(UnsuccessfulResponseException.class, () -> handler.execute(HttpMethod.GET, null, failTimes(10, 503, attempts)));
+		assertEquals(2, attempts.get());
+		assertEquals(1, handler.getStats().getBudgetExhausted());
+	}
+	
+	@Test public void testAsyncRetry() throws Exception {
+		RetryHandler handler = new RetryHandler(policy());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			AtomicInteger attempts = new AtomicInteger();
+			assertEquals("ok", handler.executeAsync(HttpMethod.GET, null, failTimes(2, 502, attempts), executor).get());
+			assertEquals(3, attempts.get());
+			ExecutionException e = assertThrows(ExecutionException.class, 
+				() -> handler.executeAsync(HttpMethod.GET, null, failTimes(1, 400, new AtomicInteger()), executor).get());
+			assertTrue(e.getCause() instanceof UnsuccessfulResponseException);
+		} finally {
+			executor.shutdownNow();
+			handler.close();
+		}
+	}
+	
+	@Test public void testParseRetryAfter() {
+		assertEquals(-1, RetryPolicy.parseRetryAfterMillis(null));
+		assertEquals(-1, RetryPolicy.parseRetryAfterMillis("invalid"));
+		assertEquals(5000, RetryPolicy.parseRetryAfterMillis(" 5 "));
+		String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().plusSeconds(60));
+		long millis = RetryPolicy.parseRetryAfterMillis(date);
+		assertTrue(millis>50000 && millis<=60000, "Unexpected delay: "+millis);
+		assertEquals(0, RetryPolicy.parseRetryAfterMillis("Thu, 01 Jan 2015 00:00:00 GMT"));
+	}
+	
+	@Test public void testRetryAfterHeader() {
+		RetryHandler handler = new RetryHandler(policy());
+		MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+		headers.putSingle("Retry-After", "2");
+		UnsuccessfulResponseException e = new UnsuccessfulResponseException("Service unavailable", null, 503, headers);
+		assertEquals(2000, handler.getRetryDelayMillis(HttpMethod.GET, null, 0, e));
+		headers.putSingle("Retry-After", "3600");
+		e = new UnsuccessfulResponseException("Service unavailable", null, 503, headers);
+		assertEquals(-1, handler.getRetryDelayMillis(HttpMethod.GET, null, 0, e));
+	}
+	
+	@Test public void testLowerCaseRetryAfterHeader() {
+		RetryHandler handler = new RetryHandler(policy());
+		MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+		headers.putSingle("retry-after", "2");
+		UnsuccessfulResponseException e = new UnsuccessfulResponseException("Service unavailable", null, 503, headers);
+		assertEquals("2", e.getHeader("Retry-After"));
+		assertEquals("2", e.getHeader("RETRY-AFTER"));
+		assertEquals(2000, handler.getRetryDelayMillis(HttpMethod.GET, null, 0, e));
+	}
+	
+	@Test public void testNonRepeatableEntities() {
+		RetryHandler handler = new RetryHandler(policy());
+		UnsuccessfulResponseException e = new UnsuccessfulResponseException("Service unavailable", null, 503, null);
+		assertTrue(handler.getRetryDelayMillis(HttpMethod.PUT, Entity.json("{}"), 0, e)>=0);
+		assertEquals(-1, handler.getRetryDelayMillis(HttpMethod.PUT, Entity.entity(stream(), MediaType.APPLICATION_OCTET_STREAM_TYPE), 0, e));
+		FormDataMultiPart repeatable = new FormDataMultiPart();
+		repeatable.field("name", "value");
+		assertTrue(handler.getRetryDelayMillis(HttpMethod.PUT, Entity.entity(repeatable, MediaType.MULTIPART_FORM_DATA_TYPE), 0, e)>=0);
+		FormDataMultiPart nonRepeatable = new FormDataMultiPart();
+		nonRepeatable.field("name", "value").bodyPart(new StreamDataBodyPart("file", stream()));
+		assertEquals(-1, handler.getRetryDelayMillis(HttpMethod.PUT, Entity.entity(nonRepeatable, MediaType.MULTIPART_FORM_DATA_TYPE), 0, e));
+		MultiPart nested = new MultiPart().bodyPart(new MultiPart().bodyPart(new BodyPart(stream(), MediaType.APPLICATION_OCTET_STREAM_TYPE)));
+		assertEquals(-1, handler.getRetryDelayMillis(HttpMethod.PUT, Entity.entity(nested, "multipart/mixed"), 0, e));
+	}
+	
+	private static InputStream stream() {
+		return new ByteArrayInputStream(new byte[] {1, 2, 3});
+	}
+	
+	private static RetryPolicy policy() {
+		RetryPolicy result = new RetryPolicy();
+		result.setInitialBackoffMillis(0);
+		return result;
+	}
+	
+	private static Supplier<String> failTimes(int failures, int statusCode, AtomicInteger attempts) {
+		return () -> {
+			if ( attempts.incrementAndGet()<=failures ) {
+				throw new UnsuccessfulResponseException("Error "+statusCode, null, statusCode, null);
+			}
+			return "ok";
+		};
+	}
+}
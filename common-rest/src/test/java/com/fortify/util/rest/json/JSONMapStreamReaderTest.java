@@ -0,0 +1,105 @@
+package com.fortify.util.rest.json;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class JSONMapStreamReaderTest {
+	@Test public void testNestedObjectsAndArrays() throws IOException {
+		List<JSONMap> records = new ArrayList<>();
+		JSONMap result = read("{'count':2,'meta':{'a':{'b':[1,2]}},"
+				+ "'data':[{'id':1,'nested':{'x':[{'y':1}]},'arr':[[1,2],[3]]},{'id':2,'data':[{'id':3}]}],"
+				+ "'after':{'z':true}}", records, -1);
+		assertEquals(2, records.size());
+		assertEquals(1, records.get(0).getPath("nested.x[0].y", Integer.class));
+		assertEquals(2, records.get(0).getPath("arr.size()", Integer.class));
+		assertEquals(3, records.get(0).getPath("arr[0][1]+arr[1][0]-2", Integer.class));
+		// Nested properties with the same name as the list property are not streamed
+		assertEquals(3, records.get(1).getPath("data[0].id", Integer.class));
+		assertFalse(result.containsKey("data"));
+		assertEquals(2, result.get("count", Integer.class));
+		assertEquals(2, result.getPath("meta.a.b[1]", Integer.class));
+		assertTrue(result.getPath("after.z", Boolean.class));
+	}
+	
+	@Test public void testEmptyList() throws IOException {
+		List<JSONMap> records = new ArrayList<>();
+		JSONMap result = read("{'data':[],'count':0}", records, -1);
+		assertTrue(records.isEmpty());
+		assertEquals(0, result.get("count", Integer.class));
+	}
+	
+	@Test public void testMissingList() throws IOException {
+		List<JSONMap> records = new ArrayList<>();
+		JSONMap result = read("{'count':0}", records, -1);
+		assertTrue(records.isEmpty());
+		assertEquals(0, result.get("count", Integer.class));
+	}
+	
+	@Test public void testSingleObject() throws IOException {
+		List<JSONMap> records = new ArrayList<>();
+		read("{'data':{'id':1},'count':1}", records, -1);
+		assertEquals(1, records.size());
+		assertEquals(1, records.get(0).get("id", Integer.class));
+	}
+	
+	@Test public void testNonObjectEntriesAreSkipped() throws IOException {
+		List<JSONMap> records = new ArrayList<>();
+		read("{'data':[1,'text',[{'id':0}],null,{'id':1}]}", records, -1);
+		assertEquals(1, records.size());
+		assertEquals(1, records.get(0).get("id", Integer.class));
+	}
+	
+	@Test public void testEarlyTermination() throws IOException {
+		List<JSONMap> records = new ArrayList<>();
+		JSONMap result = read("{'before':1,'data':[{'id':1},{'id':2},{'id':3},{'id':4}],'count':4}", records, 2);
+		assertEquals(2, records.size());
+		assertEquals(2, records.get(1).get("id", Integer.class));
+		// Properties following the list property are not read after terminating early
+		assertEquals(1, result.get("before", Integer.class));
+		assertFalse(result.containsKey("count"));
+	}
+	
+	@Test public void testInvalidInput() {
+		assertThrows(IllegalStateException.class, () -> read("[{'id':1}]", new ArrayList<>(), -1));
+	}
+	
+	private static JSONMap read(String json, List<JSONMap> records, int maxRecords) throws IOException {
+		byte[] bytes = json.replace('\'', '"').getBytes(StandardCharsets.UTF_8);
+		return JSONMapStreamReader.read(new ByteArrayInputStream(bytes), "data", records::add, 
+				() -> maxRecords>=0 && records.size()>=maxRecords);
+	}
+}
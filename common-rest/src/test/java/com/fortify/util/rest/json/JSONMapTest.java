@@ -0,0 +1,76 @@
+package com.fortify.util.rest.json;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.EvaluationException;
+
+import com.fortify.util.spring.expression.helper.InternalExpressionHelper;
+
+public class JSONMapTest {
+	@Test public void testGetSimplePath() {
+		JSONMap json = createJSONMap();
+		assertGetPath(json, "request.uri", "/api/v1/projects");
+		assertGetPath(json, "currentState.id", 10);
+		assertGetPath(json, "responses[1].body.name", "second");
+		assertGetPath(json, "responses[0]", json.getPath("responses", JSONList.class).get(0));
+		assertGetPath(json, "nonExisting", null);
+		assertGetPath(json, "currentState.nonExisting", null);
+	}
+	
+	@Test public void testGetExpressionPath() {
+		JSONMap json = createJSONMap();
+		assertGetPath(json, "currentState.id+1", 11);
+		assertGetPath(json, "responses.size()", 2);
+	}
+	
+	@Test public void testGetPathErrors() {
+		JSONMap json = createJSONMap();
+		assertThrows(EvaluationException.class, () -> json.getPath("nonExisting.id"));
+		assertThrows(EvaluationException.class, () -> json.getPath("responses[2].body"));
+	}
+	
+	@Test public void testGetNullPath() {
+		assertNull(createJSONMap().getPath(null));
+	}
+	
+	private void assertGetPath(JSONMap json, String path, Object expected) {
+		assertEquals(expected, json.getPath(path), path);
+		assertEquals(InternalExpressionHelper.get().evaluateSimpleExpression(json, path, Object.class), json.getPath(path), path);
+	}
+	
+	private JSONMap createJSONMap() {
+		JSONMap json = new JSONMap();
+		json.putPath("request.uri", "/api/v1/projects");
+		json.putPath("currentState.id", 10);
+		json.putPath("responses[].body.name", "first");
+		json.putPath("responses[].body.name", "second");
+		return json;
+	}
+}
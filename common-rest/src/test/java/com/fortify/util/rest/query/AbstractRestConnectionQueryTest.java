@@ -0,0 +1,238 @@
+package com.fortify.util.rest.query;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.client.WebTarget;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fortify.util.rest.connection.RestConnection;
+import com.fortify.util.rest.connection.UnsuccessfulResponseException;
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.preprocessor.filter.AbstractJSONMapFilter.MatchMode;
+import com.fortify.util.rest.json.preprocessor.filter.JSONMapFilterSpEL;
+import com.fortify.util.rest.metrics.IRestMetricsListener;
+import com.fortify.util.rest.metrics.RestQueryMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class AbstractRestConnectionQueryTest {
+	private static final Pattern PAGING = Pattern.compile("start=(\\d+)&limit=(\\d+)");
+	private static final int TOTAL = 95;
+	private volatile int failAtStart = -1;
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	
+	@BeforeEach public void startServer() throws IOException {
+		serverExecutor = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/records", this::handle);
+		server.setExecutor(serverExecutor);
+		server.start();
+	}
+	
+	@AfterEach public void stopServer() {
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+	
+	@Test public void testPrefetchPreservesOrder() {
+		try ( RestConnection conn = connect(4) ) {
+			assertRecords(new TestQueryBuilder(conn).pageSize(10).prefetchPages(4).build().getAll(), TOTAL);
+		}
+	}
+	
+	@Test public void testPrefetchHonorsMaxResults() {
+		try ( RestConnection conn = connect(4) ) {
+			assertRecords(new TestQueryBuilder(conn).pageSize(10).prefetchPages(4).maxResults(33).build().getAll(), 33);
+		}
+	}
+	
+	@Test public void testPrefetchPropagatesErrors() {
+		failAtStart = 50;
+		try ( RestConnection conn = connect(4) ) {
+			UnsuccessfulResponseException e = assertThrows(UnsuccessfulResponseException.class, 
+					() -> new TestQueryBuilder(conn).pageSize(10).prefetchPages(4).build().getAll());
+			assertEquals(400, e.getStatusCode());
+		}
+	}
+	
+	@Test public void testPrefetchOnExecutorThread() {
+		// The only executor thread is running the query itself, so prefetched pages must be loaded by the query thread
+		try ( RestConnection conn = connect(1) ) {
+			JSONList result = assertTimeoutPreemptively(Duration.ofSeconds(30), 
+					() -> conn.getExecutor().submit(() -> new TestQueryBuilder(conn).pageSize(10).prefetchPages(4).build().getAll()).get());
+			assertRecords(result, TOTAL);
+		}
+	}
+	
+	@Test public void testProcessAllReportsQueryMetrics() {
+		List<RestQueryMetrics> queryMetrics = Collections.synchronizedList(new ArrayList<>());
+		IRestMetricsListener listener = new IRestMetricsListener() {
+			@Override
+			public void queryCompleted(RestQueryMetrics metrics) { queryMetrics.add(metrics); }
+		};
+		List<JSONMap> processed = new ArrayList<>();
+		try ( RestConnection conn = builder(1).metricsListener(listener).build() ) {
+			new TestQueryBuilder(conn).pageSize(10).preProcessor(new JSONMapFilterSpEL(MatchMode.INCLUDE, "id<50"))
+				.build().processAll(processed::add);
+		}
+		assertEquals(50, processed.size());
+		assertEquals(1, queryMetrics.size());
+		RestQueryMetrics metrics = queryMetrics.get(0);
+		assertEquals("/records", metrics.getEndpointTemplate());
+		assertEquals(10, metrics.getPages());
+		assertEquals(TOTAL, metrics.getRecordsBeforeFilters());
+		assertEquals(50, metrics.getRecordsAfterFilters());
+		assertEquals(TOTAL-50, metrics.getRecordsFiltered());
+		assertTrue(metrics.isSuccessful());
+	}
+	
+	@Test public void testProcessAllReportsFailedQueryMetrics() {
+		failAtStart = 50;
+		List<RestQueryMetrics> queryMetrics = Collections.synchronizedList(new ArrayList<>());
+		IRestMetricsListener listener = new IRestMetricsListener() {
+			@Override
+			public void queryCompleted(RestQueryMetrics metrics) { queryMetrics.add(metrics); }
+		};
+		try ( RestConnection conn = builder(1).metricsListener(listener).build() ) {
+			assertThrows(UnsuccessfulResponseException.class, () -> new TestQueryBuilder(conn).pageSize(10).build().processAll(json -> {}));
+		}
+		assertEquals(1, queryMetrics.size());
+		assertFalse(queryMetrics.get(0).isSuccessful());
+		assertEquals(50, queryMetrics.get(0).getRecordsBeforeFilters());
+	}
+	
+	private RestConnection connect(int executorThreads) {
+		return builder(executorThreads).build();
+	}
+	
+	private RestConnection.RestConnectionBuilder builder(int executorThreads) {
+		return RestConnection.builder().baseUrl("http://localhost:"+server.getAddress().getPort())
+				.multiThreaded(true).executorThreads(executorThreads);
+	}
+	
+	private void assertRecords(JSONList records, int expectedCount) {
+		assertEquals(expectedCount, records.size());
+		for ( int i = 0 ; i < expectedCount ; i++ ) {
+			assertEquals(i, records.get(i, JSONMap.class).get("id", Integer.class));
+		}
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		Matcher matcher = PAGING.matcher(exchange.getRequestURI().getRawQuery());
+		if ( !matcher.find() ) { throw new IllegalStateException("Missing paging parameters"); }
+		int start = Integer.parseInt(matcher.group(1));
+		int end = Math.min(TOTAL, start+Integer.parseInt(matcher.group(2)));
+		try {
+			// Later pages complete earlier, to verify that pages are still processed in order
+			Thread.sleep(Math.max(0, 50-start/2));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if ( start==failAtStart ) {
+			exchange.sendResponseHeaders(400, -1);
+			exchange.close();
+			return;
+		}
+		StringBuilder data = new StringBuilder();
+		for ( int i = start ; i < end ; i++ ) {
+			data.append(i==start ? "" : ",").append("{\"id\":").append(i).append("}");
+		}
+		byte[] bytes = ("{\"data\":["+data+"],\"count\":"+TOTAL+"}").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try ( OutputStream os = exchange.getResponseBody() ) {
+			os.write(bytes);
+		}
+	}
+	
+	private static final class TestQueryBuilder extends AbstractRestConnectionQueryBuilder<RestConnection, TestQueryBuilder> {
+		private TestQueryBuilder(RestConnection conn) {
+			super(conn, true);
+			appendPath("/records");
+		}
+		
+		@Override
+		public IRestConnectionQuery build() {
+			return new TestQuery(this);
+		}
+	}
+	
+	private static final class TestQuery extends AbstractRestConnectionQuery<JSONMap> {
+		private TestQuery(TestQueryBuilder config) {
+			super(config);
+		}
+		
+		@Override
+		protected WebTarget updateWebTargetWithPagingData(WebTarget target, PagingData pagingData) {
+			return target.queryParam("start", ""+pagingData.getNextPageStart()).queryParam("limit", ""+pagingData.getNextPageSize());
+		}
+		
+		@Override
+		protected void updatePagingDataFromResponse(PagingData pagingData, JSONMap data) {
+			pagingData.setTotalAvailable(data.get("count", Integer.class));
+		}
+		
+		@Override
+		protected JSONList getJSONListFromResponse(JSONMap json) {
+			Object data = json.get("data", Object.class);
+			return (data instanceof JSONList) ? (JSONList)data : new JSONList(Arrays.asList(data));
+		}
+		
+		@Override
+		protected String getStreamingListPropertyName() {
+			return "data";
+		}
+		
+		@Override
+		protected Class<JSONMap> getResponseTypeClass() {
+			return JSONMap.class;
+		}
+	}
+}
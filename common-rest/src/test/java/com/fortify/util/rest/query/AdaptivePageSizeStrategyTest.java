@@ -0,0 +1,74 @@
+package com.fortify.util.rest.query;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.SocketTimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import com.fortify.util.rest.connection.UnsuccessfulResponseException;
+
+public class AdaptivePageSizeStrategyTest {
+	@Test public void testGrowAndShrink() {
+		AdaptivePageSizeStrategy strategy = new AdaptivePageSizeStrategy().initialPageSize(100).maxPageSize(300);
+		strategy.pageLoaded(100, 100, 100, -1);
+		assertEquals(200, strategy.getPageSize());
+		strategy.pageLoaded(200, 200, 100, -1);
+		assertEquals(300, strategy.getPageSize());
+		strategy.pageLoaded(300, 300, 6000, -1);
+		assertEquals(100, strategy.getPageSize());
+		strategy.pageLoaded(100, 20, 100, -1);
+		assertEquals(100, strategy.getPageSize());
+	}
+	
+	@Test public void testMaxPageBytes() {
+		AdaptivePageSizeStrategy strategy = new AdaptivePageSizeStrategy().initialPageSize(100).maxPageBytes(50*1024);
+		strategy.pageLoaded(100, 100, 100, 100*1024);
+		assertEquals(50, strategy.getPageSize());
+	}
+	
+	@Test public void testPageFailed() {
+		AdaptivePageSizeStrategy strategy = new AdaptivePageSizeStrategy().initialPageSize(100).minPageSize(20);
+		assertTrue(strategy.pageFailed(100, createException(413)));
+		assertEquals(50, strategy.getPageSize());
+		assertTrue(strategy.pageFailed(50, new RuntimeException(new SocketTimeoutException())));
+		assertEquals(25, strategy.getPageSize());
+		assertFalse(strategy.pageFailed(25, createException(401)));
+		// Already retried by the connection's RetryPolicy, so not retried again
+		assertFalse(strategy.pageFailed(25, createException(503)));
+		assertFalse(strategy.pageFailed(25, createException(504)));
+		assertEquals(25, strategy.getPageSize());
+		assertTrue(strategy.pageFailed(25, createException(500)));
+		assertEquals(20, strategy.getPageSize());
+		assertFalse(strategy.pageFailed(20, createException(500)));
+	}
+	
+	private UnsuccessfulResponseException createException(int statusCode) {
+		return new UnsuccessfulResponseException("Error", null, statusCode, null);
+	}
+}
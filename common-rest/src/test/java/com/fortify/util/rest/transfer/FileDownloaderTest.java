@@ -0,0 +1,175 @@
+package com.fortify.util.rest.transfer;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fortify.util.rest.connection.RestConnection;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class FileDownloaderTest {
+	private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+	private static final int SEGMENT_SIZE = 10*1024;
+	private final byte[] content = new byte[10*SEGMENT_SIZE-123];
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private volatile boolean rangeSupported = true;
+	private volatile long failAtRangeStart = -1;
+	private volatile boolean emptyFile = false;
+	private HttpServer server;
+	@TempDir Path tempDir;
+	
+	@BeforeEach public void startServer() throws IOException {
+		new Random(42).nextBytes(content);
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/file", this::handle);
+		server.start();
+	}
+	
+	@AfterEach public void stopServer() {
+		server.stop(0);
+	}
+	
+	@Test public void testRangedDownload() throws IOException {
+		Path target = tempDir.resolve("file.bin");
+		assertEquals(content.length, download(target, true, 2));
+		assertArrayEquals(content, Files.readAllBytes(target));
+		assertEquals(11, requestCount.get());
+		assertNoTemporaryFiles(target);
+	}
+	
+	@Test public void testSingleStreamDownload() throws IOException {
+		rangeSupported = false;
+		Path target = tempDir.resolve("file.bin");
+		assertEquals(content.length, download(target, true, 2));
+		assertArrayEquals(content, Files.readAllBytes(target));
+		assertEquals(1, requestCount.get());
+		assertNoTemporaryFiles(target);
+	}
+	
+	@Test public void testResumeDownload() throws IOException {
+		Path target = tempDir.resolve("file.bin");
+		failAtRangeStart = 5*SEGMENT_SIZE;
+		assertThrows(RuntimeException.class, () -> download(target, false, 0));
+		assertFalse(Files.exists(target));
+		assertTrue(Files.exists(tempDir.resolve("file.bin.download")));
+		
+		failAtRangeStart = -1;
+		requestCount.set(0);
+		assertEquals(content.length, download(target, false, 0));
+		assertArrayEquals(content, Files.readAllBytes(target));
+		assertEquals(6, requestCount.get());
+		assertNoTemporaryFiles(target);
+	}
+	
+	@Test public void testEmptyFile() throws IOException {
+		emptyFile = true;
+		Path target = tempDir.resolve("file.bin");
+		Files.write(tempDir.resolve("file.bin.download"), "totalSize=1".getBytes());
+		assertEquals(0, download(target, true, 2));
+		assertTrue(Files.exists(target));
+		assertEquals(0, Files.size(target));
+		assertEquals(1, requestCount.get());
+		assertNoTemporaryFiles(target);
+	}
+	
+	@Test public void testDownloadOnExecutorThread() throws IOException {
+		// The only executor thread is running the download itself, so all segments must be downloaded by that thread
+		Path target = tempDir.resolve("file.bin");
+		try ( RestConnection conn = connect(true).executorThreads(1).build() ) {
+			long size = assertTimeoutPreemptively(Duration.ofSeconds(30), 
+					() -> conn.getExecutor().submit(() -> download(conn, target, 2)).get());
+			assertEquals(content.length, size);
+		}
+		assertArrayEquals(content, Files.readAllBytes(target));
+		assertNoTemporaryFiles(target);
+	}
+	
+	private long download(Path target, boolean multiThreaded, int segmentRetries) {
+		try ( RestConnection conn = connect(multiThreaded).build() ) {
+			return download(conn, target, segmentRetries);
+		}
+	}
+	
+	private long download(RestConnection conn, Path target, int segmentRetries) {
+		return new FileDownloader(conn).segmentSize(SEGMENT_SIZE).segmentRetries(segmentRetries)
+				.download(() -> conn.getBaseResource().path("/file").request(), target);
+	}
+	
+	private RestConnection.RestConnectionBuilder connect(boolean multiThreaded) {
+		return RestConnection.builder().baseUrl("http://localhost:"+server.getAddress().getPort()).multiThreaded(multiThreaded);
+	}
+	
+	private void assertNoTemporaryFiles(Path target) {
+		assertFalse(Files.exists(tempDir.resolve("file.bin.part")));
+		assertFalse(Files.exists(tempDir.resolve("file.bin.download")));
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		requestCount.incrementAndGet();
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		Matcher matcher = range==null ? null : RANGE.matcher(range);
+		exchange.getResponseHeaders().add("ETag", "\"v1\"");
+		try ( OutputStream os = exchange.getResponseBody() ) {
+			if ( emptyFile && matcher!=null && matcher.matches() ) {
+				exchange.getResponseHeaders().add("Content-Range", "bytes */0");
+				exchange.sendResponseHeaders(416, -1);
+			} else if ( !rangeSupported || matcher==null || !matcher.matches() ) {
+				exchange.sendResponseHeaders(200, content.length);
+				os.write(content);
+			} else {
+				int start = Integer.parseInt(matcher.group(1));
+				int end = Math.min(Integer.parseInt(matcher.group(2)), content.length-1);
+				if ( start==failAtRangeStart ) {
+					exchange.sendResponseHeaders(500, -1);
+				} else {
+					exchange.getResponseHeaders().add("Content-Range", "bytes "+start+"-"+end+"/"+content.length);
+					exchange.sendResponseHeaders(206, end-start+1);
+					os.write(content, start, end-start+1);
+				}
+			}
+		}
+	}
+}
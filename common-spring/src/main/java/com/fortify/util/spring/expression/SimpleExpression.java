@@ -25,6 +25,7 @@
 package com.fortify.util.spring.expression;
 
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
 
 /**
  * <p>This is a simple wrapper class for a Spring {@link Expression}
@@ -41,4 +42,8 @@ public class SimpleExpression extends WrappedExpression {
 	public SimpleExpression(Expression target) {
 		super(target);
 	}
+	
+	public SimpleExpression(Expression target, SpelCompilerMode compilerMode) {
+		super(target, compilerMode);
+	}
 }
@@ -24,25 +24,171 @@
  ******************************************************************************/
 package com.fortify.util.spring.expression;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.EvaluationException;
 import org.springframework.expression.Expression;
+import org.springframework.expression.common.CompositeStringExpression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.standard.SpelExpression;
 
 /**
  * <p>This is a simple wrapper class for a Spring {@link Expression}
  * instance. This class is used as a based class for both 
  * {@link SimpleExpression} and {@link TemplateExpression}.</p>
+ * 
+ * <p>If configured with a {@link SpelCompilerMode} other than 
+ * {@link SpelCompilerMode#OFF}, this class will try to compile the 
+ * wrapped SpEL expression(s) once they have been evaluated in interpreted 
+ * mode at least once (for {@link SpelCompilerMode#IMMEDIATE}) or 
+ * {@value #MIXED_MODE_COMPILE_THRESHOLD} times (for {@link SpelCompilerMode#MIXED}).
+ * Contrary to the standard Spring behavior, in both modes this class will 
+ * silently fall back to interpreted mode if the expression cannot be compiled, 
+ * or if evaluating the compiled expression fails, for example because 
+ * property types differ between input objects. After 
+ * {@value #MAX_COMPILE_ATTEMPTS} unsuccessful attempts, the expression 
+ * will no longer be compiled. The current compilation status can be 
+ * retrieved through the {@link #getCompilationStatus()} method.</p>
  */
 public class WrappedExpression implements Expression {
+	public static final int MIXED_MODE_COMPILE_THRESHOLD = 100;
+	public static final int MAX_COMPILE_ATTEMPTS = 10;
 	private final Expression target;
+	private final SpelCompilerMode compilerMode;
+	private final List<SpelExpression> spelExpressions;
+	private final AtomicInteger interpretedCount = new AtomicInteger();
+	private int compileAttempts = 0;
+	private volatile CompilationStatus compilationStatus;
+	
+	/**
+	 * Compilation status of a {@link WrappedExpression}
+	 */
+	public static enum CompilationStatus {
+		/** Expression is evaluated in interpreted mode, and may be compiled later on */
+		INTERPRETED,
+		/** Expression has been compiled */
+		COMPILED,
+		/** Expression cannot be compiled, or compilation is disabled; expression is always evaluated in interpreted mode */
+		NOT_COMPILED
+	}
 	
 	/**
 	 * Constructor for configuring the expression to be wrapped
 	 * @param target {@link Expression} to be wrapped
 	 */
 	public WrappedExpression(Expression target) {
+		this(target, SpelCompilerMode.OFF);
+	}
+	
+	/**
+	 * Constructor for configuring the expression to be wrapped, and
+	 * the {@link SpelCompilerMode} to be applied to the wrapped expression.
+	 * @param target {@link Expression} to be wrapped
+	 * @param compilerMode {@link SpelCompilerMode} for the wrapped expression
+	 */
+	public WrappedExpression(Expression target, SpelCompilerMode compilerMode) {
 		this.target = target;
+		this.compilerMode = compilerMode==null ? SpelCompilerMode.OFF : compilerMode;
+		this.spelExpressions = getSpelExpressions(target);
+		this.compilationStatus = this.compilerMode==SpelCompilerMode.OFF || spelExpressions.isEmpty() 
+				? CompilationStatus.NOT_COMPILED : CompilationStatus.INTERPRETED;
+	}
+	
+	/**
+	 * @return Current {@link CompilationStatus} for this expression
+	 */
+	public CompilationStatus getCompilationStatus() {
+		return compilationStatus;
+	}
+	
+	/**
+	 * @return true if this expression is currently compiled, false otherwise
+	 */
+	public boolean isCompiled() {
+		return compilationStatus==CompilationStatus.COMPILED;
+	}
+	
+	/**
+	 * Get the (potentially compilable) {@link SpelExpression} instances from the 
+	 * given target expression. 
+	 */
+	private static final List<SpelExpression> getSpelExpressions(Expression target) {
+		List<SpelExpression> result = new ArrayList<>();
+		if ( target instanceof SpelExpression ) {
+			result.add((SpelExpression)target);
+		} else if ( target instanceof CompositeStringExpression ) {
+			for ( Expression expression : ((CompositeStringExpression)target).getExpressions() ) {
+				if ( expression instanceof SpelExpression ) {
+					result.add((SpelExpression)expression);
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Evaluate the wrapped expression using the given evaluator, compiling the
+	 * expression once the compile threshold has been reached, and reverting
+	 * to interpreted mode if evaluation of the compiled expression fails.
+	 */
+	private <T> T evaluate(Supplier<T> evaluator) {
+		if ( compilationStatus==CompilationStatus.COMPILED ) {
+			try {
+				return evaluator.get();
+			} catch ( SpelEvaluationException e ) {
+				if ( e.getMessageCode()!=SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION ) {
+					throw e;
+				}
+				revertToInterpreted();
+			}
+		}
+		T result = evaluator.get();
+		if ( compilationStatus==CompilationStatus.INTERPRETED && interpretedCount.incrementAndGet()>=getCompileThreshold() ) {
+			compile();
+		}
+		return result;
+	}
+
+	private int getCompileThreshold() {
+		return compilerMode==SpelCompilerMode.IMMEDIATE ? 1 : MIXED_MODE_COMPILE_THRESHOLD;
+	}
+	
+	private synchronized void compile() {
+		if ( compilationStatus==CompilationStatus.INTERPRETED ) {
+			boolean compiled = true;
+			for ( SpelExpression spelExpression : spelExpressions ) {
+				compiled &= spelExpression.compileExpression();
+			}
+			if ( compiled ) {
+				compilationStatus = CompilationStatus.COMPILED;
+			} else {
+				// Avoid partially compiled template expressions
+				spelExpressions.forEach(SpelExpression::revertToInterpreted);
+				registerFailedCompileAttempt();
+			}
+		}
+	}
+	
+	private synchronized void revertToInterpreted() {
+		if ( compilationStatus==CompilationStatus.COMPILED ) {
+			spelExpressions.forEach(SpelExpression::revertToInterpreted);
+			compilationStatus = CompilationStatus.INTERPRETED;
+			registerFailedCompileAttempt();
+		}
+	}
+	
+	private void registerFailedCompileAttempt() {
+		interpretedCount.set(0);
+		if ( ++compileAttempts>=MAX_COMPILE_ATTEMPTS ) {
+			compilationStatus = CompilationStatus.NOT_COMPILED;
+		}
 	}
 	
 	/**
@@ -51,7 +197,7 @@ public class WrappedExpression implements Expression {
 	 * @throws EvaluationException if there is a problem during evaluation
 	 */
 	public Object getValue() throws EvaluationException {
-		return target.getValue();
+		return evaluate(() -> target.getValue());
 	}
 
 	/**
@@ -61,7 +207,7 @@ public class WrappedExpression implements Expression {
 	 * @throws EvaluationException if there is a problem during evaluation
 	 */
 	public Object getValue(Object rootObject) throws EvaluationException {
-		return target.getValue(rootObject);
+		return evaluate(() -> target.getValue(rootObject));
 	}
 
 	/**
@@ -71,7 +217,7 @@ public class WrappedExpression implements Expression {
 	 * @throws EvaluationException if there is a problem during evaluation
 	 */
 	public <T> T getValue(Class<T> desiredResultType) throws EvaluationException {
-		return target.getValue(desiredResultType);
+		return evaluate(() -> target.getValue(desiredResultType));
 	}
 
 	/**
@@ -82,7 +228,7 @@ public class WrappedExpression implements Expression {
 	 * @throws EvaluationException if there is a problem during evaluation
 	 */
 	public <T> T getValue(Object rootObject,Class<T> desiredResultType) throws EvaluationException {
-		return target.getValue(rootObject, desiredResultType);
+		return evaluate(() -> target.getValue(rootObject, desiredResultType));
 	}
 
 	/**
@@ -93,7 +239,7 @@ public class WrappedExpression implements Expression {
 	 * 
 	 */
 	public Object getValue(EvaluationContext context) throws EvaluationException {
-		return target.getValue(context);
+		return evaluate(() -> target.getValue(context));
 	}
 
 	/**
@@ -105,7 +251,7 @@ public class WrappedExpression implements Expression {
 	 * 
 	 */
 	public Object getValue(EvaluationContext context, Object rootObject) throws EvaluationException {
-		return target.getValue(context, rootObject);
+		return evaluate(() -> target.getValue(context, rootObject));
 	}
 
 	/**
@@ -116,7 +262,7 @@ public class WrappedExpression implements Expression {
 	 * @throws EvaluationException if there is a problem during evaluation
 	 */
 	public <T> T getValue(EvaluationContext context, Class<T> desiredResultType) throws EvaluationException {
-		return target.getValue(context, desiredResultType);
+		return evaluate(() -> target.getValue(context, desiredResultType));
 	}
 
 	/**
@@ -128,7 +274,7 @@ public class WrappedExpression implements Expression {
 	 * @throws EvaluationException if there is a problem during evaluation
 	 */
 	public <T> T getValue(EvaluationContext context, Object rootObject, Class<T> desiredResultType) throws EvaluationException {
-		return target.getValue(context, rootObject, desiredResultType);
+		return evaluate(() -> target.getValue(context, rootObject, desiredResultType));
 	}
 
 	/**
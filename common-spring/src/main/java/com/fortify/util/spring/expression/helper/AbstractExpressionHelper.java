@@ -28,12 +28,16 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.ParserContext;
 import org.springframework.expression.PropertyAccessor;
 import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
 import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
@@ -42,6 +46,7 @@ import org.springframework.expression.spel.support.StandardEvaluationContext;
 import com.fortify.util.spring.context.expression.MapAccessorIgnoreNonExistingProperties;
 import com.fortify.util.spring.expression.SimpleExpression;
 import com.fortify.util.spring.expression.TemplateExpression;
+import com.fortify.util.spring.expression.WrappedExpression;
 
 /**
  * This class provides several utility methods related to 
@@ -49,9 +54,15 @@ import com.fortify.util.spring.expression.TemplateExpression;
  * (template) expressions on input objects.
  */
 public abstract class AbstractExpressionHelper implements IExpressionHelper {
+	/** System property for enabling compilation of parsed expressions; see {@link #getSpelCompilerMode()} */
+	public static final String PROPERTY_SPEL_COMPILER_MODE = "com.fortify.util.spring.expression.compilerMode";
+	private static final Log LOG = LogFactory.getLog(AbstractExpressionHelper.class);
+	private final SpelCompilerMode spelCompilerMode = getSpelCompilerMode();
 	private final ExpressionParser expressionParser = createExpressionParser();
 	private final ParserContext templateParserContext = createTemplateParserContext();
 	private final EvaluationContext evaluationContext = createEvaluationContext();
+	private final ExpressionCache<SimpleExpression> simpleExpressionCache = createExpressionCache();
+	private final ExpressionCache<TemplateExpression> templateExpressionCache = createExpressionCache();
 	
 	protected AbstractExpressionHelper() {}
 
@@ -80,6 +91,28 @@ public abstract class AbstractExpressionHelper implements IExpressionHelper {
 		return new SpelParserConfiguration();
 	}
 	
+	/**
+	 * Get the {@link SpelCompilerMode} to be applied to expressions parsed by 
+	 * this {@link AbstractExpressionHelper}. This default implementation returns
+	 * the mode configured through the {@value #PROPERTY_SPEL_COMPILER_MODE} system 
+	 * property (<code>OFF</code>, <code>IMMEDIATE</code> or <code>MIXED</code>), or 
+	 * {@link SpelCompilerMode#OFF} if this system property is not defined. If the
+	 * system property contains an invalid value, a warning is logged and 
+	 * {@link SpelCompilerMode#OFF} is returned. Subclasses can override this method to enable compiled mode programmatically.
+	 * See {@link WrappedExpression} for details on how expressions are compiled.
+	 * @return {@link SpelCompilerMode} for parsed expressions
+	 */
+	protected SpelCompilerMode getSpelCompilerMode() {
+		String mode = System.getProperty(PROPERTY_SPEL_COMPILER_MODE);
+		if ( StringUtils.isBlank(mode) ) { return SpelCompilerMode.OFF; }
+		try {
+			return SpelCompilerMode.valueOf(mode.trim().toUpperCase());
+		} catch ( IllegalArgumentException e ) {
+			LOG.warn("Ignoring invalid value '"+mode+"' for system property "+PROPERTY_SPEL_COMPILER_MODE+"; expression compilation is disabled");
+			return SpelCompilerMode.OFF;
+		}
+	}
+	
 	/**
 	 * Create the {@link TemplateParserContext} to be used for parsing
 	 * template expressions. This default implementation returns a
@@ -131,23 +164,59 @@ public abstract class AbstractExpressionHelper implements IExpressionHelper {
 	}
 
 	/**
-	 * Parse the given string as a SpEL expression.
+	 * Create an {@link ExpressionCache} instance for caching parsed expressions. 
+	 * This method is called once for simple expressions and once for template 
+	 * expressions. This default implementation returns an {@link ExpressionCache}
+	 * with {@link ExpressionCache#DEFAULT_MAX_SIZE} as the maximum size. Subclasses 
+	 * can override this method to return a cache with a different maximum size,
+	 * or to disable caching by returning a cache with maximum size zero.
+	 * @param <E> Type of the cached expressions
+	 * @return {@link ExpressionCache} instance
+	 */
+	protected <E> ExpressionCache<E> createExpressionCache() {
+		return new ExpressionCache<>(ExpressionCache.DEFAULT_MAX_SIZE);
+	}
+	
+	/**
+	 * @return {@link ExpressionCache} used for caching parsed simple expressions,
+	 *         for example to retrieve cache statistics
+	 */
+	public final ExpressionCache<SimpleExpression> getSimpleExpressionCache() {
+		return simpleExpressionCache;
+	}
+	
+	/**
+	 * @return {@link ExpressionCache} used for caching parsed template expressions,
+	 *         for example to retrieve cache statistics
+	 */
+	public final ExpressionCache<TemplateExpression> getTemplateExpressionCache() {
+		return templateExpressionCache;
+	}
+
+	/**
+	 * Parse the given string as a SpEL expression. Parsed expressions are cached, 
+	 * so repeatedly parsing the same expression string returns the same 
+	 * {@link SimpleExpression} instance.
 	 * @param exprStr to be parsed as a simple expression
 	 * @return The SpEL {@link Expression} object for the given expression string, or null if input is null
 	 */
 	@Override
 	public final SimpleExpression parseSimpleExpression(String exprStr) {
-		return exprStr==null ? null : new SimpleExpression(expressionParser.parseExpression(exprStr));
+		return exprStr==null ? null : simpleExpressionCache.get(exprStr, 
+				str -> new SimpleExpression(expressionParser.parseExpression(str), spelCompilerMode));
 	}
 	
 	/**
-	 * Parse the given string as a SpEL template expression.
+	 * Parse the given string as a SpEL template expression. Parsed expressions 
+	 * are cached, so repeatedly parsing the same expression string returns the 
+	 * same {@link TemplateExpression} instance.
 	 * @param exprStr to be parsed as a template expression
 	 * @return The SpEL {@link Expression} object for the given expression string, or null if input is null 
 	 */
 	@Override
 	public final TemplateExpression parseTemplateExpression(String exprStr) {
-		return exprStr==null ? null : new TemplateExpression(expressionParser.parseExpression(exprStr.replace("\\n", "\n"), templateParserContext));
+		return exprStr==null ? null : templateExpressionCache.get(exprStr, 
+				str -> new TemplateExpression(expressionParser.parseExpression(str.replace("\\n", "\n"), templateParserContext), spelCompilerMode));
 	}
 	
 	@Override
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.spring.expression.helper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * <p>Bounded, thread-safe cache for parsed expressions, keyed by the original
+ * expression string. This cache is used by {@link AbstractExpressionHelper}
+ * to avoid re-parsing the same expression string over and over again, for
+ * example when evaluating the same expression for every record in a large
+ * result set.</p>
+ * 
+ * <p>Once the configured maximum number of entries has been reached, the least 
+ * recently used entries are evicted to make room for new entries. Lookups don't
+ * require any locking; every entry simply records a logical timestamp of its last
+ * access, and eviction scans all entries for the oldest timestamp. As applications 
+ * usually use a limited number of distinct expressions, eviction should be rare; a 
+ * steadily increasing eviction count indicates that the maximum size should be 
+ * increased. A maximum size of zero or less disables caching altogether.</p>
+ * 
+ * <p>Hit, miss and eviction counters are available through the {@link #getHits()}, 
+ * {@link #getMisses()} and {@link #getEvictions()} methods.</p>
+ * 
+ * @author Ruud Senden
+ *
+ * @param <E> Type of the cached (parsed) expressions
+ */
+public final class ExpressionCache<E> {
+	public static final int DEFAULT_MAX_SIZE = 1000;
+	private final ConcurrentMap<String, Entry<E>> cache = new ConcurrentHashMap<>();
+	private final AtomicLong clock = new AtomicLong();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final int maxSize;
+	
+	/**
+	 * Create a new {@link ExpressionCache} instance with the given maximum size
+	 * @param maxSize Maximum number of cached expressions, or zero or less to disable caching
+	 */
+	public ExpressionCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Get the cached expression for the given expression string, or use the given
+	 * parser to parse the expression string and add the result to the cache if the 
+	 * expression string is not yet cached.
+	 * @param exprStr Expression string to be looked up; must not be null
+	 * @param parser {@link Function} for parsing the expression string if not yet cached
+	 * @return Cached or newly parsed expression
+	 */
+	public E get(String exprStr, Function<String, E> parser) {
+		if ( maxSize<=0 ) {
+			misses.increment();
+			return parser.apply(exprStr);
+		}
+		Entry<E> entry = cache.get(exprStr);
+		if ( entry!=null ) {
+			hits.increment();
+		} else {
+			misses.increment();
+			Entry<E> newEntry = new Entry<>(parser.apply(exprStr), clock.incrementAndGet());
+			entry = cache.putIfAbsent(exprStr, newEntry);
+			if ( entry==null ) {
+				evictIfNecessary();
+				return newEntry.expression;
+			}
+		}
+		entry.lastAccess = clock.incrementAndGet();
+		return entry.expression;
+	}
+
+	/**
+	 * Remove the least recently used entries from the cache until the cache size 
+	 * no longer exceeds the configured maximum size.
+	 */
+	private synchronized void evictIfNecessary() {
+		while ( cache.size()>maxSize ) {
+			Map.Entry<String, Entry<E>> eldest = null;
+			for ( Map.Entry<String, Entry<E>> current : cache.entrySet() ) {
+				if ( eldest==null || current.getValue().lastAccess<eldest.getValue().lastAccess ) {
+					eldest = current;
+				}
+			}
+			if ( eldest==null ) { return; }
+			if ( cache.remove(eldest.getKey(), eldest.getValue()) ) {
+				evictions.increment();
+			}
+		}
+	}
+	
+	/**
+	 * Remove all entries from this cache. Hit, miss and eviction counters are not reset.
+	 */
+	public void clear() {
+		cache.clear();
+	}
+	
+	/**
+	 * @return Current number of cached expressions
+	 */
+	public int size() {
+		return cache.size();
+	}
+	
+	/**
+	 * @return Maximum number of cached expressions
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	/**
+	 * @return Number of times an expression was served from the cache
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * @return Number of times an expression had to be parsed
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * @return Number of expressions that were evicted from the cache
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	/**
+	 * Cached expression, together with the logical time of its last access
+	 */
+	private static final class Entry<E> {
+		private final E expression;
+		private volatile long lastAccess;
+		
+		private Entry(E expression, long lastAccess) {
+			this.expression = expression;
+			this.lastAccess = lastAccess;
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("ExpressionCache(size=%d, maxSize=%d, hits=%d, misses=%d, evictions=%d)", 
+				size(), maxSize, getHits(), getMisses(), getEvictions());
+	}
+}
@@ -0,0 +1,129 @@
+package com.fortify.util.spring.expression.helper;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.spel.SpelCompilerMode;
+
+import com.fortify.util.spring.expression.SimpleExpression;
+import com.fortify.util.spring.expression.TemplateExpression;
+import com.fortify.util.spring.expression.WrappedExpression.CompilationStatus;
+
+public class AbstractExpressionHelperTest {
+	@Test public void testCompilerModeFromSystemProperty() {
+		assertEquals(SpelCompilerMode.OFF, withCompilerModeProperty(null, () -> new TestExpressionHelper().getSpelCompilerMode()));
+		assertEquals(SpelCompilerMode.IMMEDIATE, withCompilerModeProperty(" immediate ", () -> new TestExpressionHelper().getSpelCompilerMode()));
+		assertEquals(SpelCompilerMode.MIXED, withCompilerModeProperty("MIXED", () -> new TestExpressionHelper().getSpelCompilerMode()));
+	}
+	
+	@Test public void testInvalidCompilerModeFallsBackToOff() {
+		TestExpressionHelper helper = withCompilerModeProperty("invalid", TestExpressionHelper::new);
+		assertEquals(SpelCompilerMode.OFF, helper.getSpelCompilerMode());
+		SimpleExpression expression = helper.parseSimpleExpression("value*2");
+		assertEquals(CompilationStatus.NOT_COMPILED, expression.getCompilationStatus());
+		assertEquals(42, helper.evaluateExpression(new TestBean(21), expression, Integer.class));
+	}
+	
+	@Test public void testCompiledSimpleExpression() {
+		IExpressionHelper helper = withCompilerModeProperty("IMMEDIATE", TestExpressionHelper::new);
+		SimpleExpression expression = helper.parseSimpleExpression("value*2");
+		assertEquals(CompilationStatus.INTERPRETED, expression.getCompilationStatus());
+		assertEquals(2, helper.evaluateSimpleExpression(new TestBean(1), "value*2", Integer.class));
+		assertSame(expression, helper.parseSimpleExpression("value*2"));
+		assertTrue(expression.isCompiled());
+		for ( int i = 0 ; i < 10 ; i++ ) {
+			assertEquals(i*2, helper.evaluateSimpleExpression(new TestBean(i), "value*2", Integer.class));
+		}
+		assertTrue(expression.isCompiled());
+	}
+	
+	@Test public void testCompiledTemplateExpression() {
+		IExpressionHelper helper = withCompilerModeProperty("IMMEDIATE", TestExpressionHelper::new);
+		TemplateExpression expression = helper.parseTemplateExpression("/items/${value}/details");
+		assertEquals("/items/1/details", helper.evaluateTemplateExpression(new TestBean(1), "/items/${value}/details", String.class));
+		assertTrue(expression.isCompiled());
+		assertEquals("/items/2/details", helper.evaluateTemplateExpression(new TestBean(2), "/items/${value}/details", String.class));
+	}
+	
+	@Test public void testCompiledExpressionRevertsToInterpretedOnTypeChange() {
+		IExpressionHelper helper = withCompilerModeProperty("IMMEDIATE", TestExpressionHelper::new);
+		SimpleExpression expression = helper.parseSimpleExpression("value");
+		assertEquals(1, helper.evaluateExpression(new TestBean(1), expression, Integer.class));
+		assertTrue(expression.isCompiled());
+		// Compiled code casts the input to TestBean, so evaluating on another type requires reverting to interpreted mode
+		assertEquals("x", helper.evaluateExpression(new OtherBean("x"), expression, String.class));
+		assertEquals(2, helper.evaluateExpression(new TestBean(2), expression, Integer.class));
+	}
+	
+	private static final <T> T withCompilerModeProperty(String value, Supplier<T> supplier) {
+		String original = System.getProperty(AbstractExpressionHelper.PROPERTY_SPEL_COMPILER_MODE);
+		try {
+			setOrClearProperty(value);
+			return supplier.get();
+		} finally {
+			setOrClearProperty(original);
+		}
+	}
+	
+	private static final void setOrClearProperty(String value) {
+		if ( value==null ) {
+			System.clearProperty(AbstractExpressionHelper.PROPERTY_SPEL_COMPILER_MODE);
+		} else {
+			System.setProperty(AbstractExpressionHelper.PROPERTY_SPEL_COMPILER_MODE, value);
+		}
+	}
+	
+	private static final class TestExpressionHelper extends AbstractExpressionHelper {}
+	
+	public static final class TestBean {
+		private final int value;
+		
+		public TestBean(int value) {
+			this.value = value;
+		}
+		
+		public int getValue() {
+			return value;
+		}
+	}
+	
+	public static final class OtherBean {
+		private final String value;
+		
+		public OtherBean(String value) {
+			this.value = value;
+		}
+		
+		public String getValue() {
+			return value;
+		}
+	}
+}
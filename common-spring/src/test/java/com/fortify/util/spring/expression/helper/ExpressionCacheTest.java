@@ -0,0 +1,92 @@
+package com.fortify.util.spring.expression.helper;
+/*******************************************************************************
+ * (c) Copyright 2020 Micro Focus or one of its affiliates
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+public class ExpressionCacheTest {
+	private final AtomicInteger parseCount = new AtomicInteger();
+	private final Function<String, Object> parser = exprStr -> {
+		parseCount.incrementAndGet();
+		return new Object();
+	};
+	
+	@Test
+	public void testHitsAndMisses() {
+		ExpressionCache<Object> cache = new ExpressionCache<>(10);
+		Object expr = cache.get("a", parser);
+		assertSame(expr, cache.get("a", parser));
+		cache.get("b", parser);
+		assertEquals(2, parseCount.get());
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(0, cache.getEvictions());
+		assertEquals(2, cache.size());
+	}
+	
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		ExpressionCache<Object> cache = new ExpressionCache<>(2);
+		Object a = cache.get("a", parser);
+		cache.get("b", parser);
+		cache.get("a", parser); // a is now more recently used than b
+		cache.get("c", parser); // evicts b
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertSame(a, cache.get("a", parser));
+		assertEquals(3, parseCount.get());
+		cache.get("b", parser); // re-parsed, evicts c
+		assertEquals(4, parseCount.get());
+		assertEquals(2, cache.getEvictions());
+		cache.get("a", parser);
+		assertEquals(4, parseCount.get());
+	}
+	
+	@Test
+	public void testDisabled() {
+		ExpressionCache<Object> cache = new ExpressionCache<>(0);
+		assertNotSame(cache.get("a", parser), cache.get("a", parser));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+	
+	@Test
+	public void testClear() {
+		ExpressionCache<Object> cache = new ExpressionCache<>(10);
+		Object a = cache.get("a", parser);
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNotSame(a, cache.get("a", parser));
+		assertEquals(2, cache.getMisses());
+	}
+}